@@ -0,0 +1,59 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gchisto.gctrace.GCTrace;
+
+/**
+ * A GC trace that is populated directly by the benchmarks.
+ */
+public class BenchmarkGCTrace extends GCTrace {
+
+    static public final String[] GC_ACTIVITY_NAMES = {
+        "Young GC", "Initial Mark", "Remark", "Full GC"
+    };
+
+    public String getSuggestedName() {
+        return "benchmark";
+    }
+
+    public String getInfoString() {
+        return "benchmark";
+    }
+
+    /**
+     * It adds the given number of GC activities, spread over the GC
+     * activity names in the same proportions as in a typical CMS log.
+     *
+     * @param count The number of GC activities to add.
+     */
+    public void populate(int count) {
+        double startSec = 0.0;
+        for (int i = 0; i < count; ++i) {
+            int id = (i % 50 == 49) ? 3 : ((i % 10 == 9) ? 1 + (i / 10) % 2 : 0);
+            double durationSec = 0.001 * (1 + i % 97);
+            addGCActivity(id, startSec, durationSec);
+            startSec += 1.0;
+        }
+    }
+
+    public BenchmarkGCTrace() {
+        for (int i = 0; i < GC_ACTIVITY_NAMES.length; ++i) {
+            addGCActivityName(i, GC_ACTIVITY_NAMES[i]);
+        }
+    }
+}
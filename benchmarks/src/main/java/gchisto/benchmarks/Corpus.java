@@ -0,0 +1,97 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gcparser.GCLogGenerator;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory GC logs, produced by the synthetic log generator, that are
+ * used as the input of the benchmarks. The logs are generated with a fixed
+ * seed so that runs of different versions parse the same input.
+ */
+public class Corpus {
+
+    /**
+     * It returns a GC log in the given format with the given number of
+     * events.
+     *
+     * @param format The name of the log format.
+     * @param events The number of events.
+     * @return The contents of the log.
+     */
+    static public byte[] generate(String format, long events)
+            throws IOException {
+        GCLogGenerator generator = new GCLogGenerator();
+        generator.set_format(GCLogGenerator.Format.valueOf(format));
+        generator.set_seed(0);
+        generator.set_times(true);
+        generator.set_failure_rate(0.05);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generator.generate(os, 0, events);
+        return os.toByteArray();
+    }
+
+    /**
+     * It returns the lines of the given log.
+     *
+     * @param log The contents of the log.
+     * @return The lines of the log.
+     */
+    static public List<String> lines(byte[] log) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(log), "ISO-8859-1"));
+        List<String> lines = new ArrayList<String>();
+        String line = reader.readLine();
+        while (line != null) {
+            lines.add(line);
+            line = reader.readLine();
+        }
+        return lines;
+    }
+
+    /**
+     * It returns the first <tt>count</tt> lines of the logs of all the
+     * given formats, interleaved.
+     *
+     * @param formats The names of the log formats.
+     * @param count The number of lines.
+     * @return The interleaved lines.
+     */
+    static public String[] mixedLines(String[] formats, int count)
+            throws IOException {
+        List<List<String>> all = new ArrayList<List<String>>();
+        for (String format : formats) {
+            all.add(lines(generate(format, count)));
+        }
+        String[] mixed = new String[count];
+        for (int i = 0; i < count; ++i) {
+            List<String> lines = all.get(i % all.size());
+            mixed[i] = lines.get((i / all.size()) % lines.size());
+        }
+        return mixed;
+    }
+
+    private Corpus() {
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gchisto.gctrace.GCTraceCheckpoint;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the y-value queries that JFreeChart makes when it renders
+ * the GC timeline and the GC pause distribution charts. Each operation
+ * queries every item of every series, as a full repaint does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetBenchmark {
+
+    @Param({"10000", "100000"})
+    public int activities;
+
+    private gchisto.gui.panels.gctimeline.Dataset timelineDataset;
+    private gchisto.gui.panels.gcdistribution.Dataset distributionDataset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkGCTrace gcTrace = new BenchmarkGCTrace();
+        gcTrace.populate(activities);
+
+        GCTraceCheckpoint timelineCheckpoint = new GCTraceCheckpoint(gcTrace);
+        timelineCheckpoint.checkpoint();
+        timelineDataset = new gchisto.gui.panels.gctimeline.Dataset(
+                gcTrace, timelineCheckpoint,
+                gchisto.gui.panels.gctimeline.Dataset.METRIC_DURATION);
+
+        GCTraceCheckpoint distributionCheckpoint =
+                new GCTraceCheckpoint(gcTrace);
+        distributionCheckpoint.checkpoint();
+        distributionDataset = new gchisto.gui.panels.gcdistribution.Dataset(
+                gcTrace, distributionCheckpoint);
+    }
+
+    @Benchmark
+    public double timelineYValues() {
+        double sum = 0.0;
+        int seriesCount = timelineDataset.getSeriesCount();
+        for (int series = 0; series < seriesCount; ++series) {
+            int itemCount = timelineDataset.getItemCount(series);
+            for (int item = 0; item < itemCount; ++item) {
+                sum += timelineDataset.getYValue(series, item);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double distributionYValues() {
+        double sum = 0.0;
+        int seriesCount = distributionDataset.getSeriesCount();
+        for (int series = 0; series < seriesCount; ++series) {
+            int itemCount = distributionDataset.getItemCount(series);
+            for (int item = 0; item < itemCount; ++item) {
+                sum += distributionDataset.getYValue(series, item);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.GCLogFileReader;
+import gchisto.gctracegenerator.file.NopGCLogFileReaderThrottle;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A comparison of loading the same number of GCs from a text GC log, with
+ * the HotSpot GC log reader, and from a Flight Recorder recording, with
+ * the JFR reader. Each operation reads a whole file into a new GC trace.
+ * It needs a JVM with Flight Recorder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GCLogFileReaderBenchmark {
+
+    @Param({"2000", "20000"})
+    public int gcs;
+
+    private File textFile;
+    private File jfrFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        textFile = File.createTempFile("gchisto-", ".log");
+        OutputStream os = new FileOutputStream(textFile);
+        try {
+            os.write(Corpus.generate("defnew", gcs));
+        } finally {
+            os.close();
+        }
+        jfrFile = Recording.record(gcs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        textFile.delete();
+        jfrFile.delete();
+    }
+
+    private int read(File file, GCLogFileReader reader) throws IOException {
+        FileGCTrace gcTrace = new FileGCTrace(file, reader);
+        reader.readFile(file, gcTrace, new NopGCLogFileReaderThrottle());
+        return gcTrace.getAllGCActivities().size();
+    }
+
+    @Benchmark
+    public int readText() throws IOException {
+        return read(textFile,
+                new gchisto.gctracegenerator.file.hotspot.GCLogFileReader());
+    }
+
+    @Benchmark
+    public int readJFR() throws IOException {
+        return read(jfrFile,
+                new gchisto.gctracegenerator.file.jfr.GCLogFileReader());
+    }
+}
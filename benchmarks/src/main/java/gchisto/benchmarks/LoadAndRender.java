@@ -0,0 +1,476 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gchisto.gctrace.GCTrace;
+import gchisto.gctrace.GCTraceCheckpoint;
+import gchisto.gctrace.GCTraceSet;
+import gchisto.gctracegenerator.GCTraceGeneratorListener;
+import gchisto.gctracegenerator.file.FileGCTraceGenerator;
+import gchisto.gui.panels.gcstats.DatasetGenerator;
+import gcparser.GCLogGenerator;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.PieDataset;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * An end-to-end, headless benchmark of "open a GC log and look at the
+ * charts". For each input it runs three stages, the way the GUI does:
+ * <ul>
+ * <li><b>load</b>: the file is read by a <tt>FileGCTrace</tt> on its
+ * reader thread and then added to a <tt>GCTraceSet</tt>,</li>
+ * <li><b>datasets</b>: the GC timeline, GC pause distribution and GC
+ * stats datasets are created and all their values are computed,</li>
+ * <li><b>render</b>: the charts of those datasets are drawn into an
+ * off-screen <tt>BufferedImage</tt>.</li>
+ * </ul>
+ * and reports the wall time, the peak heap occupancy, the bytes allocated
+ * and the number and time of GCs of each stage.
+ * <p>
+ * The inputs are either given GC log files or logs of the given sizes
+ * that are produced by the synthetic log generator:
+ * <pre>
+ * java -cp target/benchmarks.jar gchisto.benchmarks.LoadAndRender \
+ *     [-f format] [-s mb,...] [-w width] [-h height] [file ...]
+ * </pre>
+ * The peak heap occupancy is the sum of the peaks of the heap memory
+ * pools, which can be higher than the actual peak of the heap.
+ */
+public class LoadAndRender {
+
+    static private final int DEFAULT_WIDTH = 1024;
+    static private final int DEFAULT_HEIGHT = 768;
+
+    /**
+     * The measurements of one stage.
+     */
+    static private class Stage {
+
+        final private String name;
+        private long wallTime;
+        private long peakHeap;
+        private long allocated;
+        private long gcCount;
+        private long gcTime;
+
+        private long startWallTime;
+        private long startAllocated;
+        private long startGCCount;
+        private long startGCTime;
+
+        /**
+         * It starts measuring this stage on the calling thread.
+         */
+        public void start() {
+            for (MemoryPoolMXBean pool : heapPools()) {
+                pool.resetPeakUsage();
+            }
+            startGCCount = gcCount();
+            startGCTime = gcTime();
+            startAllocated = allocatedBytes();
+            startWallTime = System.nanoTime();
+        }
+
+        /**
+         * It stops measuring this stage on the calling thread.
+         */
+        public void stop() {
+            wallTime = System.nanoTime() - startWallTime;
+            allocated += allocatedBytes() - startAllocated;
+            gcCount = gcCount() - startGCCount;
+            gcTime = gcTime() - startGCTime;
+            peakHeap = 0;
+            for (MemoryPoolMXBean pool : heapPools()) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        /**
+         * It adds bytes allocated by another thread to this stage.
+         *
+         * @param bytes The number of bytes.
+         */
+        public void addAllocated(long bytes) {
+            allocated += bytes;
+        }
+
+        public String toString() {
+            return String.format("%-10s %10.1f %12.1f %12.1f %8d %10d",
+                    name, wallTime / 1000000.0,
+                    peakHeap / (1024.0 * 1024.0),
+                    allocated / (1024.0 * 1024.0),
+                    gcCount, gcTime);
+        }
+
+        public Stage(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The listener that is notified by the reader thread of a
+     * <tt>FileGCTrace</tt>. Like the trace management panel, it adds the
+     * new GC trace to the GC trace set when reading it has finished. It
+     * also records the bytes allocated by the reader thread.
+     */
+    static private class LoadListener implements GCTraceGeneratorListener {
+
+        final private GCTraceSet gcTraceSet;
+        final private CountDownLatch latch = new CountDownLatch(1);
+        private long startAllocated;
+        private volatile long allocated;
+        private volatile boolean failed;
+
+        public void started() {
+            startAllocated = allocatedBytes();
+        }
+
+        public void finished(GCTrace gcTrace) {
+            gcTraceSet.addGCTrace(gcTrace);
+            allocated = allocatedBytes() - startAllocated;
+            latch.countDown();
+        }
+
+        public void failed() {
+            allocated = allocatedBytes() - startAllocated;
+            failed = true;
+            latch.countDown();
+        }
+
+        /**
+         * It waits until reading the file has finished.
+         *
+         * @return Whether reading the file was successful.
+         */
+        public boolean await() throws InterruptedException {
+            latch.await();
+            return !failed;
+        }
+
+        public long allocated() {
+            return allocated;
+        }
+
+        public LoadListener(GCTraceSet gcTraceSet) {
+            this.gcTraceSet = gcTraceSet;
+        }
+    }
+
+    static private List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    static private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    static private long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * It returns the number of bytes allocated so far by the calling
+     * thread, or 0 if the JVM cannot measure it.
+     */
+    static private long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean =
+                ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean =
+                    (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() &&
+                    sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    final private String format;
+    final private int width;
+    final private int height;
+
+    /**
+     * It returns the generator that creates GC traces from files of the
+     * given format.
+     */
+    private FileGCTraceGenerator newGCTraceGenerator() {
+        if (format.equals(GCLogGenerator.Format.simple.name())) {
+            return new gchisto.gctracegenerator.file.simple.GCTraceGenerator();
+        } else {
+            return new gchisto.gctracegenerator.file.hotspot.GCTraceGenerator();
+        }
+    }
+
+    /**
+     * It writes a synthetic GC log of the given size to a temporary file.
+     *
+     * @param bytes The size of the log in bytes.
+     * @return The temporary file.
+     */
+    private File generate(long bytes) throws IOException {
+        File file = File.createTempFile("gchisto-" + format + "-", ".log");
+        file.deleteOnExit();
+        GCLogGenerator generator = new GCLogGenerator();
+        generator.set_format(GCLogGenerator.Format.valueOf(format));
+        generator.set_seed(0);
+        generator.set_times(true);
+        generator.set_failure_rate(0.05);
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            generator.generate(os, bytes, 0);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    static private double touch(XYDataset dataset) {
+        double sum = 0.0;
+        for (int series = 0; series < dataset.getSeriesCount(); ++series) {
+            int itemCount = dataset.getItemCount(series);
+            for (int item = 0; item < itemCount; ++item) {
+                sum += dataset.getXValue(series, item);
+                sum += dataset.getYValue(series, item);
+            }
+        }
+        return sum;
+    }
+
+    static private double touch(CategoryDataset dataset) {
+        double sum = 0.0;
+        for (int row = 0; row < dataset.getRowCount(); ++row) {
+            for (int column = 0; column < dataset.getColumnCount(); ++column) {
+                Number value = dataset.getValue(row, column);
+                if (value != null) {
+                    sum += value.doubleValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    static private double touch(PieDataset dataset) {
+        double sum = 0.0;
+        for (int item = 0; item < dataset.getItemCount(); ++item) {
+            Number value = dataset.getValue(item);
+            if (value != null) {
+                sum += value.doubleValue();
+            }
+        }
+        return sum;
+    }
+
+    private void draw(JFreeChart chart, Graphics2D g2) {
+        chart.draw(g2, new Rectangle2D.Double(0, 0, width, height));
+    }
+
+    /**
+     * It runs all stages on the given file and prints their measurements.
+     *
+     * @param file The GC log file.
+     */
+    public void run(File file) throws InterruptedException {
+        System.gc();
+
+        Stage load = new Stage("load");
+        Stage datasets = new Stage("datasets");
+        Stage render = new Stage("render");
+
+        load.start();
+        GCTraceSet gcTraceSet = new GCTraceSet();
+        LoadListener listener = new LoadListener(gcTraceSet);
+        newGCTraceGenerator().createNewGCTrace(file, listener);
+        boolean successful = listener.await();
+        load.addAllocated(listener.allocated());
+        load.stop();
+        if (!successful) {
+            System.err.println("Failed to read " + file.getPath());
+            return;
+        }
+        GCTrace gcTrace = gcTraceSet.findGCTrace(0);
+
+        datasets.start();
+        GCTraceCheckpoint timelineCheckpoint = new GCTraceCheckpoint(gcTrace);
+        timelineCheckpoint.checkpoint();
+        gchisto.gui.panels.gctimeline.Dataset timelineDataset =
+                new gchisto.gui.panels.gctimeline.Dataset(
+                gcTrace, timelineCheckpoint,
+                gchisto.gui.panels.gctimeline.Dataset.METRIC_DURATION);
+        GCTraceCheckpoint distributionCheckpoint =
+                new GCTraceCheckpoint(gcTrace);
+        distributionCheckpoint.checkpoint();
+        gchisto.gui.panels.gcdistribution.Dataset distributionDataset =
+                new gchisto.gui.panels.gcdistribution.Dataset(
+                gcTrace, distributionCheckpoint);
+        DatasetGenerator datasetGenerator = new DatasetGenerator(gcTraceSet);
+        List<PieDataset> pieDatasets = new ArrayList<PieDataset>();
+        pieDatasets.add(datasetGenerator.newPieDatsetWithTTG(
+                DatasetGenerator.METRIC_NUM));
+        pieDatasets.add(datasetGenerator.newPieDatsetWithTTG(
+                DatasetGenerator.METRIC_TOTAL));
+        List<CategoryDataset> metricDatasets = new ArrayList<CategoryDataset>();
+        for (int metric = DatasetGenerator.METRIC_AVG;
+                metric <= DatasetGenerator.METRIC_MAX; ++metric) {
+            metricDatasets.add(
+                    datasetGenerator.newCategoryDatasetWithTTG(metric, false));
+        }
+        double sum = touch(timelineDataset) + touch(distributionDataset);
+        for (PieDataset dataset : pieDatasets) {
+            sum += touch(dataset);
+        }
+        for (CategoryDataset dataset : metricDatasets) {
+            sum += touch(dataset);
+        }
+        datasets.stop();
+
+        render.start();
+        BufferedImage image =
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            draw(ChartFactory.createXYBarChart("GC Timeline",
+                    "Elapsed Time (sec)", false, "Time (ms)",
+                    timelineDataset, PlotOrientation.VERTICAL,
+                    true, true, false), g2);
+            draw(ChartFactory.createXYBarChart("GC Pause Distribution",
+                    "Buckets (sec)", false, "Count",
+                    distributionDataset, PlotOrientation.VERTICAL,
+                    true, true, false), g2);
+            for (PieDataset dataset : pieDatasets) {
+                draw(ChartFactory.createPieChart("GC Stats",
+                        dataset, false, true, false), g2);
+            }
+            for (CategoryDataset dataset : metricDatasets) {
+                draw(ChartFactory.createBarChart3D("GC Stats",
+                        null, "Time (ms)", dataset, PlotOrientation.VERTICAL,
+                        true, true, false), g2);
+            }
+        } finally {
+            g2.dispose();
+        }
+        render.stop();
+
+        System.out.println(String.format("%s: %.1f MB, %d GC activities " +
+                "(checksum %.3f)", file.getPath(),
+                file.length() / (1024.0 * 1024.0),
+                gcTrace.getAllGCActivities().size(), sum));
+        System.out.println(String.format("%-10s %10s %12s %12s %8s %10s",
+                "stage", "wall (ms)", "peak (MB)", "alloc (MB)",
+                "GCs", "GC (ms)"));
+        System.out.println(load);
+        System.out.println(datasets);
+        System.out.println(render);
+        System.out.println();
+    }
+
+    public LoadAndRender(String format, int width, int height) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+    }
+
+    static private void usage() {
+        System.err.println("usage: LoadAndRender [-f format] [-s mb,...] " +
+                "[-w width] [-h height] [file ...]");
+        System.exit(1);
+    }
+
+    static public void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        String format = GCLogGenerator.Format.cms.name();
+        String sizes = null;
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; ++i) {
+            String arg = args[i];
+            if (arg.startsWith("-") && i + 1 == args.length) {
+                usage();
+            }
+            if (arg.equals("-f")) {
+                format = args[++i];
+                GCLogGenerator.Format.valueOf(format);
+            } else if (arg.equals("-s")) {
+                sizes = args[++i];
+            } else if (arg.equals("-w")) {
+                width = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-h")) {
+                height = Integer.parseInt(args[++i]);
+            } else if (arg.startsWith("-")) {
+                usage();
+            } else {
+                files.add(new File(arg));
+            }
+        }
+        if (sizes == null && files.isEmpty()) {
+            sizes = "16,64";
+        }
+
+        LoadAndRender harness = new LoadAndRender(format, width, height);
+        if (sizes != null) {
+            for (String size : sizes.split(",")) {
+                long bytes = (long) (Double.parseDouble(size) * 1024 * 1024);
+                File file = harness.generate(bytes);
+                try {
+                    harness.run(file);
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+        for (File file : files) {
+            harness.run(file);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of the benchmarks jar. It accepts the standard JMH
+ * command line options but, unless told otherwise, writes the results as
+ * JSON (to <tt>jmh-result.json</tt>) so that runs of different versions
+ * can be compared.
+ */
+public class Main {
+
+    static public final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    static public void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() ||
+                cmdOptions.shouldListWithParams() ||
+                cmdOptions.shouldListProfilers() ||
+                cmdOptions.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmdOptions.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flight Recorder recordings that are used as the input of the benchmarks.
+ * A recording is made by a child JVM that runs the serial collector and
+ * allocates until it has done the requested number of GCs, so that it can
+ * be compared with a synthetic <tt>defnew</tt> GC log with the same number
+ * of events. Making a recording needs a JVM with Flight Recorder.
+ */
+public class Recording {
+
+    static private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc :
+                ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * It makes a recording with (at least) the given number of GCs.
+     *
+     * @param gcs The number of GCs.
+     * @return The recording file, which is deleted on exit.
+     */
+    static public File record(long gcs)
+            throws IOException, InterruptedException {
+        File file = File.createTempFile("gchisto-", ".jfr");
+        file.deleteOnExit();
+
+        File java = new File(new File(System.getProperty("java.home"), "bin"),
+                "java");
+        List<String> command = new ArrayList<String>();
+        command.add(java.getPath());
+        command.add("-Xmx64m");
+        command.add("-XX:+UseSerialGC");
+        command.add("-XX:StartFlightRecording=settings=default,filename=" +
+                file.getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Recording.class.getName());
+        command.add(Long.toString(gcs));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("could not make a recording");
+        }
+        return file;
+    }
+
+    /**
+     * The workload of the child JVM: it keeps some of the objects it
+     * allocates alive for a while, so that there are both young and full
+     * GCs, until the given number of GCs has happened.
+     */
+    static public void main(String[] args) {
+        long gcs = Long.parseLong(args[0]);
+        byte[][] live = new byte[4096][];
+        long i = 0;
+        while (gcCount() < gcs) {
+            for (int j = 0; j < 4096; ++j) {
+                byte[] array = new byte[1024];
+                if ((j & 7) == 0) {
+                    live[(int) (i++ % live.length)] = array;
+                }
+            }
+        }
+    }
+
+    private Recording() {
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.benchmarks;
+
+import gcparser.GCDataStore;
+import gcparser.GCMetric;
+import gcparser.GCParserDriver;
+import gcparser.Stats;
+import gchisto.utils.NumberSeq;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of adding a value to the statistics kept by the parser
+ * (<tt>Stats</tt>, <tt>GCDataStore</tt>) and by the GUI
+ * (<tt>NumberSeq</tt>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+
+    static public final int VALUES = 100000;
+
+    private double[] values;
+    private Stats stats;
+    private NumberSeq numberSeq;
+    private GCDataStore dataStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(0);
+        values = new double[VALUES];
+        for (int i = 0; i < VALUES; ++i) {
+            values[i] = random.nextDouble();
+        }
+        stats = new Stats();
+        numberSeq = new NumberSeq();
+    }
+
+    /**
+     * The data store keeps every value, so a new one is created for each
+     * invocation to keep the heap from growing during the run.
+     */
+    @Setup(Level.Invocation)
+    public void setUpDataStore() {
+        BitSet actions = new BitSet();
+        actions.set(GCParserDriver.COLLECT_DATA);
+        dataStore = (GCDataStore) new GCParserDriver(actions).gc_stats();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public Stats statsAdd() {
+        for (double value : values) {
+            stats.add(value);
+        }
+        return stats;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public NumberSeq numberSeqAdd() {
+        for (double value : values) {
+            numberSeq.add(value);
+        }
+        return numberSeq;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public GCDataStore gcDataStoreAdd() {
+        for (double value : values) {
+            dataStore.add(GCMetric.ygc_time, value);
+        }
+        return dataStore;
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.NopGCLogFileReaderThrottle;
+import gcparser.GCLogGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A round-trip check of binary GC traces: it writes random GC activities
+ * with <tt>GCTraceWriter</tt>, with several block sizes and with flushes
+ * in between, and converts generated GC logs with <tt>Converter</tt>, and
+ * reports any difference between the GC activities that the binary GC
+ * trace reader reads back and those that were written (or that the GC log
+ * reader reads from the log). It also corrupts the block sizes, the name
+ * counts, the name IDs and the header of a trace, and truncates it at
+ * every byte, and reports any corrupt trace that the reader does not
+ * reject with an <tt>IOException</tt>, or any truncated one that it reads
+ * more than a prefix of.
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     gchisto.gctracegenerator.file.binary.BinaryTraceCheck [seed]
+ * </pre>
+ */
+public class BinaryTraceCheck {
+
+    static final private int[] BLOCK_SIZES = {
+        1, 2, 7, 4096, GCTraceWriter.DEFAULT_BLOCK_SIZE
+    };
+    /**
+     * The names of the random GC activities. The reader adds the first
+     * two itself, before the names in the trace.
+     */
+    static final private String[] NAMES = {
+        "Young GC", "Full GC", "Remark", "", "Concurrent \u00e9\u4e2d\u0000",
+        "Initial Mark"
+    };
+    static final private double[] SPECIAL = {
+        0.0, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, 1.0e-300, 1.0e300
+    };
+
+    /**
+     * The result of reading a trace: the GC activities and the message of
+     * the exception it was rejected with, if it was.
+     */
+    static private class Result {
+
+        final List<GCActivity> gcActivities;
+        final String error;
+
+        Result(List<GCActivity> gcActivities, String error) {
+            this.gcActivities = gcActivities;
+            this.error = error;
+        }
+    }
+
+    /**
+     * It reads the given file with the given reader. Anything else than
+     * an <tt>IOException</tt> is reported as an error of its own kind.
+     */
+    static private Result read(File file,
+            gchisto.gctracegenerator.file.GCLogFileReader reader) {
+        FileGCTrace gcTrace = new FileGCTrace(file, reader);
+        String error = null;
+        try {
+            reader.readFile(file, gcTrace, new NopGCLogFileReaderThrottle());
+        } catch (IOException e) {
+            error = e.getMessage();
+        } catch (Throwable e) {
+            error = "unexpected " + e;
+        }
+        return new Result(
+                new ArrayList<GCActivity>(gcTrace.getAllGCActivities()),
+                error);
+    }
+
+    static private boolean same(double d1, double d2) {
+        return Double.doubleToLongBits(d1) == Double.doubleToLongBits(d2);
+    }
+
+    static private boolean same(GCActivity e, GCActivity a) {
+        return e.getName().equals(a.getName()) &&
+                same(e.getStartSec(), a.getStartSec()) &&
+                same(e.getDurationSec(), a.getDurationSec()) &&
+                same(e.getOverheadPerc(), a.getOverheadPerc()) &&
+                e.isSTW() == a.isSTW();
+    }
+
+    static private String describe(GCActivity gcActivity) {
+        return gcActivity.getName() + " " + gcActivity.getStartSec() + " " +
+                gcActivity.getDurationSec() + " " +
+                gcActivity.getOverheadPerc() + " " + gcActivity.isSTW();
+    }
+
+    /**
+     * It returns a description of the first GC activity of the given list
+     * that differs from the expected one, or <tt>null</tt> if there is
+     * none. If <tt>prefix</tt> is true, the list may be shorter than the
+     * expected one.
+     */
+    static private String compare(List<GCActivity> expected,
+            List<GCActivity> actual,
+            boolean prefix) {
+        if (prefix ? actual.size() > expected.size() :
+                actual.size() != expected.size()) {
+            return "size " + expected.size() + " != " + actual.size();
+        }
+        for (int i = 0; i < actual.size(); ++i) {
+            if (!same(expected.get(i), actual.get(i))) {
+                return "GC activity " + i + ": " +
+                        describe(expected.get(i)) + " != " +
+                        describe(actual.get(i));
+            }
+        }
+        return null;
+    }
+
+    static private File newFile(String name) throws IOException {
+        File file = File.createTempFile("gchisto-" + name + "-", ".gct");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * It writes random GC activities to the given file, flushing the
+     * writer at random, and returns them.
+     */
+    static private List<GCActivity> writeRandom(File file,
+            int blockSize,
+            int size,
+            Random random) throws IOException {
+        List<GCActivity> gcActivities = new ArrayList<GCActivity>();
+        GCTraceWriter writer =
+                new GCTraceWriter(new FileOutputStream(file), blockSize);
+        try {
+            int[] ids = new int[NAMES.length];
+            Arrays.fill(ids, -1);
+            double startSec = 0.0;
+            for (int i = 0; i < size; ++i) {
+                if (random.nextInt(1000) == 0) {
+                    writer.flush();
+                }
+                // The later names are first used well into the trace.
+                int n = random.nextInt(Math.min(NAMES.length,
+                        2 + i / Math.max(1, size / NAMES.length)));
+                if (ids[n] < 0) {
+                    ids[n] = writer.addGCActivityName(NAMES[n]);
+                }
+                startSec += random.nextDouble();
+                double durationSec = random.nextInt(50) == 0 ?
+                        SPECIAL[random.nextInt(SPECIAL.length)] :
+                        Math.round(random.nextDouble() * 1.0e7) / 1.0e9;
+                if (random.nextBoolean()) {
+                    long spaceBefore = random.nextBoolean() ?
+                            GCTraceWriter.UNKNOWN_SPACE : random.nextLong();
+                    writer.addGCActivity(ids[n], startSec, durationSec,
+                            100.0, true, spaceBefore,
+                            GCTraceWriter.UNKNOWN_SPACE);
+                    gcActivities.add(
+                            new GCActivity(NAMES[n], startSec, durationSec));
+                } else {
+                    double overheadPerc = random.nextDouble() * 100.0;
+                    writer.addGCActivity(ids[n], startSec, durationSec,
+                            overheadPerc);
+                    gcActivities.add(new GCActivity(NAMES[n], startSec,
+                            durationSec, overheadPerc));
+                }
+            }
+            // A name that no GC activity uses, in a block of its own.
+            writer.addGCActivityName("Unused");
+        } finally {
+            writer.close();
+        }
+        return gcActivities;
+    }
+
+    /**
+     * It checks that random GC activities written with each block size
+     * are read back, and returns the number of differences.
+     */
+    static private int checkRoundTrip(Random random) throws IOException {
+        int failures = 0;
+        for (int blockSize : BLOCK_SIZES) {
+            for (int size : new int[] {0, 1, blockSize, 3 * blockSize + 1,
+                    100000}) {
+                File file = newFile("random");
+                List<GCActivity> expected =
+                        writeRandom(file, blockSize, size, random);
+                Result actual = read(file, new GCLogFileReader());
+                String difference = actual.error != null ? actual.error :
+                        compare(expected, actual.gcActivities, false);
+                if (difference != null) {
+                    System.out.println("FAILED block size " + blockSize +
+                            " size " + size + ": " + difference);
+                    failures += 1;
+                }
+                file.delete();
+            }
+        }
+        System.out.println("random GC activities: " +
+                (failures == 0 ? "same" : failures + " different"));
+        return failures;
+    }
+
+    /**
+     * It checks that the given GC log is converted to a binary GC trace
+     * with the same GC activities, and returns the number of differences.
+     */
+    static private int checkConverter(String name, byte[] log,
+            String format) throws IOException {
+        File logFile = newFile(name);
+        OutputStream os = new FileOutputStream(logFile);
+        try {
+            os.write(log);
+        } finally {
+            os.close();
+        }
+        Result expected = read(logFile, Converter.newGCLogFileReader(format));
+
+        int failures = 0;
+        for (int blockSize : new int[] {1, 1000,
+                GCTraceWriter.DEFAULT_BLOCK_SIZE}) {
+            File file = newFile(name);
+            GCTraceWriter writer =
+                    new GCTraceWriter(new FileOutputStream(file), blockSize);
+            try {
+                Converter.convert(logFile, Converter.newGCLogFileReader(format),
+                        writer);
+            } finally {
+                writer.close();
+            }
+            Result actual = read(file, new GCLogFileReader());
+            String difference = actual.error != null ? actual.error :
+                    compare(expected.gcActivities, actual.gcActivities, false);
+            if (difference != null) {
+                System.out.println("FAILED " + name + " block size " +
+                        blockSize + ": " + difference);
+                failures += 1;
+            }
+            file.delete();
+        }
+        System.out.println(name + ": " + expected.gcActivities.size() +
+                " GC activities, " +
+                (failures == 0 ? "same" : failures + " different"));
+        logFile.delete();
+        return failures;
+    }
+
+    static private byte[] generate(GCLogGenerator.Format format, long events)
+            throws IOException {
+        GCLogGenerator generator = new GCLogGenerator();
+        generator.set_format(format);
+        generator.set_seed(0);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generator.generate(os, 0, events);
+        return os.toByteArray();
+    }
+
+    static private byte[] readBytes(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+
+    static private File writeBytes(byte[] bytes, int length)
+            throws IOException {
+        File file = newFile("corrupt");
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(bytes, 0, length);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    static private byte[] patchInt(byte[] bytes, int offset, int value) {
+        byte[] patched = bytes.clone();
+        patched[offset] = (byte) (value >>> 24);
+        patched[offset + 1] = (byte) (value >>> 16);
+        patched[offset + 2] = (byte) (value >>> 8);
+        patched[offset + 3] = (byte) value;
+        return patched;
+    }
+
+    /**
+     * It checks that the given corrupt trace is rejected with an
+     * <tt>IOException</tt> whose message contains the given text, and
+     * returns the number of failures.
+     */
+    static private int checkRejected(String name, byte[] bytes,
+            String message) throws IOException {
+        File file = writeBytes(bytes, bytes.length);
+        Result result = read(file, new GCLogFileReader());
+        file.delete();
+        if (result.error == null || !result.error.contains(message)) {
+            System.out.println("FAILED " + name + ": " +
+                    (result.error == null ? "not rejected" : result.error));
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * It checks that corrupt and truncated traces are rejected, and
+     * returns the number of failures.
+     */
+    static private int checkCorrupt(Random random) throws IOException {
+        // The first block has the names "Young GC" and "Full GC" and
+        // three GC activities, and the second one the rest.
+        File file = newFile("valid");
+        GCTraceWriter writer =
+                new GCTraceWriter(new FileOutputStream(file), 3);
+        List<GCActivity> expected = new ArrayList<GCActivity>();
+        try {
+            int young = writer.addGCActivityName("Young GC");
+            int full = writer.addGCActivityName("Full GC");
+            for (int i = 0; i < 7; ++i) {
+                int id = i % 3 == 2 ? full : young;
+                writer.addGCActivity(id, i, 0.01 * i, 100.0, true,
+                        1024 * i, 512 * i);
+                expected.add(new GCActivity(i % 3 == 2 ? "Full GC" :
+                        "Young GC", i, 0.01 * i));
+            }
+        } finally {
+            writer.close();
+        }
+        byte[] bytes = readBytes(file);
+        file.delete();
+
+        final int nameNumOffset = 8;
+        final int sizeOffset = nameNumOffset + 4 + (2 + 8) + (2 + 7);
+        final int idsOffset = sizeOffset + 4 + 1;
+        final int maxSize = (int) Math.min(GCTraceWriter.MAX_BLOCK_SIZE,
+                bytes.length / GCTraceWriter.MIN_GC_ACTIVITY_BYTES);
+
+        int failures = 0;
+        failures += checkRejected("magic", patchInt(bytes, 0, 0x47434858),
+                "is not a binary GC trace");
+        failures += checkRejected("version", patchInt(bytes, 4, 0x00020000),
+                "unsupported binary GC trace version");
+        failures += checkRejected("negative name number",
+                patchInt(bytes, nameNumOffset, -1),
+                "invalid GC activity name number");
+        // the rest of the trace is read as names, until one is malformed
+        // or the trace ends
+        failures += checkRejected("huge name number",
+                patchInt(bytes, nameNumOffset, Integer.MAX_VALUE), "");
+        failures += checkRejected("negative block size",
+                patchInt(bytes, sizeOffset, -1), "invalid block size");
+        failures += checkRejected("huge block size",
+                patchInt(bytes, sizeOffset, Integer.MAX_VALUE),
+                "invalid block size");
+        failures += checkRejected("block size longer than the file",
+                patchInt(bytes, sizeOffset, maxSize + 1),
+                "invalid block size");
+        failures += checkRejected("block size longer than the block",
+                patchInt(bytes, sizeOffset, maxSize), "truncated");
+        failures += checkRejected("negative name ID",
+                patchInt(bytes, idsOffset, -1), "invalid GC activity name ID");
+        failures += checkRejected("unknown name ID",
+                patchInt(bytes, idsOffset, 2), "invalid GC activity name ID");
+        for (int n = 0; n < 100; ++n) {
+            int offset = random.nextInt(bytes.length - 4);
+            byte[] patched = patchInt(bytes, offset, random.nextInt());
+            File corrupt = writeBytes(patched, patched.length);
+            Result result = read(corrupt, new GCLogFileReader());
+            corrupt.delete();
+            if (result.error != null && result.error.startsWith("unexpected")) {
+                System.out.println("FAILED random corruption at " + offset +
+                        ": " + result.error);
+                failures += 1;
+            }
+        }
+
+        // A trace cut at a block boundary is read up to it; anywhere else,
+        // it is rejected (as truncated, or with a block size longer than
+        // what is left of it). Either way, only GC activities of the
+        // blocks before the cut are added.
+        for (int length = 0; length < bytes.length; ++length) {
+            File truncated = writeBytes(bytes, length);
+            Result result = read(truncated, new GCLogFileReader());
+            truncated.delete();
+            String difference = compare(expected, result.gcActivities, true);
+            if (difference == null && result.error != null &&
+                    result.error.startsWith("unexpected")) {
+                difference = result.error;
+            }
+            if (difference != null) {
+                System.out.println("FAILED truncated at " + length + ": " +
+                        difference);
+                failures += 1;
+            }
+        }
+        System.out.println("corrupt and truncated traces: " +
+                (failures == 0 ? "rejected" : failures + " failures"));
+        return failures;
+    }
+
+    static public void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        Random random = new Random(seed);
+        int failures = 0;
+        failures += checkRoundTrip(random);
+        failures += checkConverter("simple",
+                generate(GCLogGenerator.Format.simple, 20000), "simple");
+        failures += checkConverter("cms",
+                generate(GCLogGenerator.Format.cms, 20000), "hotspot");
+        failures += checkConverter("parallel",
+                generate(GCLogGenerator.Format.parallel, 20000), "hotspot");
+        failures += checkCorrupt(random);
+        if (failures > 0) {
+            System.out.println(failures + " differences");
+            System.exit(1);
+        }
+    }
+}
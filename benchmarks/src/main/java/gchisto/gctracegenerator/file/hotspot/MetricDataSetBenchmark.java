@@ -0,0 +1,96 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.hotspot;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the merge, by start time, of the per-metric event lists
+ * that the hotspot GC log file reader does before it adds the events to
+ * the GC trace. It is in the reader's package since the classes it
+ * exercises are package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricDataSetBenchmark {
+
+    /**
+     * The number of metrics merged by the reader.
+     */
+    static public final int METRICS = 9;
+
+    @Param({"100000"})
+    public int events;
+
+    private ArrayList<ArrayList<Double>> times;
+    private ArrayList<ArrayList<Double>> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(0);
+        times = new ArrayList<ArrayList<Double>>();
+        data = new ArrayList<ArrayList<Double>>();
+        for (int i = 0; i < METRICS; ++i) {
+            times.add(new ArrayList<Double>());
+            data.add(new ArrayList<Double>());
+        }
+
+        // Most events are young GCs, as in a real log.
+        double timeSec = 0.0;
+        for (int i = 0; i < events; ++i) {
+            int metric = random.nextInt(10) < 7 ? 0 : random.nextInt(METRICS);
+            timeSec += random.nextDouble();
+            times.get(metric).add(timeSec);
+            data.get(metric).add(random.nextDouble());
+        }
+    }
+
+    @Benchmark
+    public double merge() {
+        GCLogFileReader.MetricDataSet set = new GCLogFileReader.MetricDataSet();
+        for (int i = 0; i < METRICS; ++i) {
+            set.addMetricData(new GCLogFileReader.MetricData(
+                    "metric" + i, times.get(i), data.get(i)));
+        }
+
+        double sum = 0.0;
+        while (set.hasMore()) {
+            GCLogFileReader.MetricData metricData = set.getEarliest();
+            sum += metricData.getData();
+            set.moveToNext();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.simple;
+
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.NopGCLogFileReaderThrottle;
+import gcparser.GCLogGenerator;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A comparison of reading a generated simple GC log with the
+ * <tt>StringTokenizer</tt> reader and with the byte reader, on one thread
+ * and on all the processors. Each operation reads the whole file into a
+ * new GC trace, so it includes the cost of adding the GC activities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SimpleReaderBenchmark {
+
+    @Param({"1000000"})
+    public long gcs;
+    @Param({"tokenizer", "sequential", "parallel"})
+    public String reader;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("gchisto-", ".log");
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            GCLogGenerator generator = new GCLogGenerator();
+            generator.set_format(GCLogGenerator.Format.simple);
+            generator.set_seed(0);
+            generator.generate(os, 0, gcs);
+        } finally {
+            os.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    private gchisto.gctracegenerator.file.GCLogFileReader newReader() {
+        if (reader.equals("tokenizer")) {
+            return new TokenizerGCLogFileReader();
+        } else if (reader.equals("sequential")) {
+            return new GCLogFileReader(1, GCLogFileReader.DEFAULT_CHUNK_SIZE);
+        } else {
+            return new GCLogFileReader(
+                    Runtime.getRuntime().availableProcessors(),
+                    GCLogFileReader.DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        gchisto.gctracegenerator.file.GCLogFileReader gcLogFileReader =
+                newReader();
+        FileGCTrace gcTrace = new FileGCTrace(file, gcLogFileReader);
+        gcLogFileReader.readFile(file, gcTrace,
+                new NopGCLogFileReaderThrottle());
+        return gcTrace.getAllGCActivities().size();
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.simple;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.NopGCLogFileReaderThrottle;
+import gcparser.GCLogGenerator;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A differential check of the simple GC log reader: it reads each input
+ * with the reader, with several numbers of threads and chunk sizes, and
+ * with the <tt>StringTokenizer</tt> reader it replaced, and reports any
+ * difference in the GC activity names, the GC activities or the parsing
+ * errors of the resulting GC traces. The inputs are the given files or,
+ * if there are none, generated logs, random logs with all the optional
+ * fields and odd whitespace, and logs with parsing errors.
+ * <pre>
+ * java -cp target/benchmarks.jar \
+ *     gchisto.gctracegenerator.file.simple.SimpleReaderCheck [file ...]
+ * </pre>
+ */
+public class SimpleReaderCheck {
+
+    /**
+     * The threads and chunk sizes the reader is checked with. The small
+     * chunks are shorter than most lines.
+     */
+    static final private int[][] CONFIGS = {
+        {1, 7}, {1, 64}, {1, 4096},
+        {4, 7}, {4, 64}, {4, 4096},
+        {GCLogFileReader.DEFAULT_THREADS, GCLogFileReader.DEFAULT_CHUNK_SIZE}
+    };
+    static final private String[] NAMES = {
+        "YoungGC", "FullGC", "InitialMark", "Remark", "ConcurrentMark",
+        "ConcurrentSweep", "PromotionFailure"
+    };
+    static final private String[] WHITESPACE = {" ", "  ", "\t", " \t "};
+
+    /**
+     * The result of reading a file: the GC trace and the message of the
+     * parsing error, if there was one.
+     */
+    static private class Result {
+
+        final FileGCTrace gcTrace;
+        final String error;
+
+        Result(FileGCTrace gcTrace, String error) {
+            this.gcTrace = gcTrace;
+            this.error = error;
+        }
+    }
+
+    static private Result read(File file,
+            gchisto.gctracegenerator.file.GCLogFileReader reader) {
+        FileGCTrace gcTrace = new FileGCTrace(file, reader);
+        String error = null;
+        try {
+            reader.readFile(file, gcTrace, new NopGCLogFileReaderThrottle());
+        } catch (IOException e) {
+            error = e.getMessage();
+        }
+        return new Result(gcTrace, error);
+    }
+
+    static private boolean same(double d1, double d2) {
+        return Double.doubleToLongBits(d1) == Double.doubleToLongBits(d2);
+    }
+
+    /**
+     * It returns a description of the first difference between the given
+     * results, or <tt>null</tt> if they are the same.
+     */
+    static private String compare(Result expected, Result actual) {
+        String[] expectedNames = expected.gcTrace.getGCActivityNamesArray();
+        String[] actualNames = actual.gcTrace.getGCActivityNamesArray();
+        if (!Arrays.equals(expectedNames, actualNames)) {
+            return "names " + Arrays.toString(expectedNames) + " != " +
+                    Arrays.toString(actualNames);
+        }
+        if (expected.error == null ? actual.error != null :
+                !expected.error.equals(actual.error)) {
+            return "error " + expected.error + " != " + actual.error;
+        }
+
+        List<GCActivity> expectedActivities =
+                expected.gcTrace.getAllGCActivities();
+        List<GCActivity> actualActivities =
+                actual.gcTrace.getAllGCActivities();
+        if (expectedActivities.size() != actualActivities.size()) {
+            return "size " + expectedActivities.size() + " != " +
+                    actualActivities.size();
+        }
+        for (int i = 0; i < expectedActivities.size(); ++i) {
+            GCActivity e = expectedActivities.get(i);
+            GCActivity a = actualActivities.get(i);
+            if (!e.getName().equals(a.getName()) ||
+                    !same(e.getStartSec(), a.getStartSec()) ||
+                    !same(e.getDurationSec(), a.getDurationSec()) ||
+                    !same(e.getOverheadPerc(), a.getOverheadPerc()) ||
+                    e.isSTW() != a.isSTW()) {
+                return "GC activity " + i + ": " + describe(e) + " != " +
+                        describe(a);
+            }
+        }
+        for (int id = 0; id < expectedNames.length; ++id) {
+            int expectedSize = expected.gcTrace.get(id).size();
+            int actualSize = actual.gcTrace.get(id).size();
+            if (expectedSize != actualSize) {
+                return expectedNames[id] + " size " + expectedSize + " != " +
+                        actualSize;
+            }
+        }
+        return null;
+    }
+
+    static private String describe(GCActivity gcActivity) {
+        return gcActivity.getName() + " " + gcActivity.getStartSec() + " " +
+                gcActivity.getDurationSec() + " " +
+                gcActivity.getOverheadPerc() + " " + gcActivity.isSTW();
+    }
+
+    /**
+     * It checks the reader against the reference reader on the given
+     * file and returns the number of configurations that differ.
+     */
+    static private int check(File file) {
+        Result expected = read(file, new TokenizerGCLogFileReader());
+        int failures = 0;
+        for (int[] config : CONFIGS) {
+            Result actual = read(file,
+                    new GCLogFileReader(config[0], config[1]));
+            String difference = compare(expected, actual);
+            if (difference != null) {
+                System.out.println("FAILED " + file.getName() +
+                        " threads " + config[0] + " chunk " + config[1] +
+                        ": " + difference);
+                failures += 1;
+            }
+        }
+        System.out.println(file.getName() + ": " +
+                expected.gcTrace.getAllGCActivities().size() +
+                " GC activities" +
+                (expected.error == null ? "" : ", " + expected.error) +
+                (failures == 0 ? ", same" : ", " + failures + " different"));
+        return failures;
+    }
+
+    static private File write(String name, byte[] contents)
+            throws IOException {
+        File file = File.createTempFile("gchisto-" + name + "-", ".log");
+        file.deleteOnExit();
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(contents);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    static private File write(String name, String contents)
+            throws IOException {
+        return write(name, contents.getBytes("ISO-8859-1"));
+    }
+
+    static private File generate(long events) throws IOException {
+        GCLogGenerator generator = new GCLogGenerator();
+        generator.set_format(GCLogGenerator.Format.simple);
+        generator.set_seed(0);
+        java.io.ByteArrayOutputStream os = new java.io.ByteArrayOutputStream();
+        generator.generate(os, 0, events);
+        return write("generated", os.toByteArray());
+    }
+
+    static private String number(Random random, double value) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return Double.toString(value);
+            case 1:
+                return String.format("%.3f", value);
+            case 2:
+                return String.format("%.17f", value);
+            case 3:
+                return String.format("%e", value);
+            default:
+                return Long.toString(Math.round(value));
+        }
+    }
+
+    /**
+     * It returns a random simple GC log with all kinds of lines that the
+     * reader accepts.
+     */
+    static private String random(long seed, int lines) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder();
+        double timeSec = 0.0;
+        for (int i = 0; i < lines; ++i) {
+            String ws = WHITESPACE[random.nextInt(WHITESPACE.length)];
+            if (random.nextInt(20) == 0) {
+                builder.append(random.nextBoolean() ? "" : ws);
+            } else {
+                timeSec += random.nextDouble();
+                if (random.nextBoolean()) {
+                    builder.append(ws);
+                }
+                builder.append(NAMES[random.nextInt(NAMES.length)]);
+                builder.append(ws).append(number(random, timeSec));
+                builder.append(ws).append(number(random,
+                        random.nextDouble() * 0.1 - 0.00000001));
+                int optional = random.nextInt(4);
+                if (optional == 1 || optional == 3) {
+                    builder.append(ws).append(number(random,
+                            random.nextDouble() * 100.0));
+                }
+                if (optional >= 2) {
+                    builder.append(ws).append(random.nextInt(1 << 20));
+                    builder.append(ws).append(-random.nextInt(1 << 20));
+                }
+                if (random.nextBoolean()) {
+                    builder.append(ws);
+                }
+            }
+            builder.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+        return builder.toString();
+    }
+
+    static private List<File> inputs() throws IOException {
+        List<File> files = new ArrayList<File>();
+        files.add(write("empty", ""));
+        files.add(write("edge",
+                "YoungGC 0.100000 0.010000\n" +
+                "\n" +
+                "   \t \n" +
+                "FullGC\t1.5\t0.25\r\n" +
+                "CMSConcurrentMark 2.0 1.0 25.0\n" +
+                "Remark 3.0 0.05\n" +
+                "YoungGC 4 0.02 1024 512\n" +
+                "ConcurrentSweep 5.0 0.5 12.5 2048 1024\n" +
+                "YoungGC 6e0 2.5E-3\n" +
+                "YoungGC 7.0000000000000000001 0.1234567890123456789\n" +
+                "YoungGC +8.0 -0.00000001\n" +
+                "YoungGC 9.0 0.01 30.0 1 2 3 4\n" +
+                "YoungGC 10.0 0.01d\n" +
+                "YoungGC 0x1p4 .5\n" +
+                "YoungGC 12. 99999999999999999999\n" +
+                "LastLineWithoutNewline 13.0 0.1"));
+        files.add(write("too-few-tokens",
+                "YoungGC 1.0 0.1\nYoungGC 2.0\nYoungGC 3.0 0.1\n"));
+        files.add(write("bad-start", "YoungGC 1.0 0.1\nYoungGC abc 0.1\n"));
+        files.add(write("bad-overhead",
+                "YoungGC 1.0 0.1\nNewName 2.0 0.1 x\nYoungGC 3.0 0.1\n"));
+        files.add(write("bad-space", "YoungGC 1.0 0.1 1 x\n"));
+        files.add(write("bad-long-space",
+                "YoungGC 1.0 0.1 1 99999999999999999999\n"));
+        files.add(write("negative", "YoungGC 1.0 0.1\nYoungGC 2.0 -0.1\n"));
+        files.add(generate(20000));
+        for (int seed = 0; seed < 4; ++seed) {
+            files.add(write("random" + seed, random(seed, 20000)));
+        }
+        String bad = random(4, 20000);
+        files.add(write("random-error",
+                bad.substring(0, bad.length() / 2) + "YoungGC 1.0 zzz\n" +
+                bad.substring(bad.length() / 2)));
+        return files;
+    }
+
+    static public void main(String[] args) throws IOException {
+        List<File> files = new ArrayList<File>();
+        if (args.length == 0) {
+            files = inputs();
+        } else {
+            for (String arg : args) {
+                files.add(new File(arg));
+            }
+        }
+
+        int failures = 0;
+        for (File file : files) {
+            failures += check(file);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " differences");
+            System.exit(1);
+        }
+    }
+}
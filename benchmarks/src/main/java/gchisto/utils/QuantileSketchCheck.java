@@ -0,0 +1,268 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A check of the quantile sketch: for several distributions of numbers,
+ * sizes and relative accuracies, it compares the quantiles that the sketch
+ * estimates with the exact ones, and the quantiles of sketches merged from
+ * random parts of the numbers, in random order, with those of a single
+ * sketch of all of them. It reports any estimate that is not within the
+ * relative accuracy of the exact quantile, and any merged sketch that
+ * differs from the single one.
+ * <pre>
+ * java -cp target/benchmarks.jar gchisto.utils.QuantileSketchCheck [seed]
+ * </pre>
+ */
+public class QuantileSketchCheck {
+
+    static final private double[] QUANTILES = {
+        0.0, 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999,
+        0.9999, 1.0
+    };
+    static final private double[] ACCURACIES = {
+        0.001, QuantileSketch.DEFAULT_RELATIVE_ACCURACY, 0.05, 0.5
+    };
+    static final private int[] SIZES = {0, 1, 2, 3, 100, 10000, 200000};
+    static final private String[] DISTRIBUTIONS = {
+        "uniform", "exponential", "lognormal", "pauses", "zeros",
+        "constant", "tiny", "wide"
+    };
+    /**
+     * Numbers up to this value are counted as zero by the sketch.
+     */
+    static final private double ZERO = 1.0e-9;
+
+    /**
+     * It returns the given number of numbers of the given distribution.
+     */
+    static private double[] numbers(String distribution, int size,
+            Random random) {
+        double[] numbers = new double[size];
+        for (int i = 0; i < size; ++i) {
+            double number;
+            if (distribution.equals("uniform")) {
+                number = random.nextDouble();
+            } else if (distribution.equals("exponential")) {
+                number = -Math.log(1.0 - random.nextDouble()) * 0.05;
+            } else if (distribution.equals("lognormal")) {
+                number = Math.exp(random.nextGaussian() * 2.0 - 4.0);
+            } else if (distribution.equals("pauses")) {
+                // Mostly short young GCs, with a few long full GCs.
+                number = random.nextInt(100) == 0 ?
+                    1.0 + random.nextDouble() * 10.0 :
+                    Math.round(random.nextDouble() * 0.05 * 1.0e7) / 1.0e7;
+            } else if (distribution.equals("zeros")) {
+                number = random.nextInt(3) == 0 ? 0.0 : random.nextDouble();
+            } else if (distribution.equals("constant")) {
+                number = 0.125;
+            } else if (distribution.equals("tiny")) {
+                // Around the smallest number that is not counted as zero.
+                number = ZERO * Math.pow(2.0, random.nextInt(8) - 4);
+            } else {
+                number = Math.pow(10.0, random.nextDouble() * 30.0 - 8.0);
+            }
+            numbers[i] = number;
+        }
+        return numbers;
+    }
+
+    /**
+     * It returns the exact quantile of the given sorted numbers, using
+     * the same rank as the sketch.
+     */
+    static private double exact(double[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        return sorted[(int) (quantile * (sorted.length - 1))];
+    }
+
+    static private boolean withinAccuracy(double exact, double estimate,
+            double accuracy) {
+        if (exact <= ZERO) {
+            return estimate == 0.0;
+        }
+        // Allow for the rounding of the bucket bounds.
+        return Math.abs(estimate - exact) <= accuracy * exact * (1.0 + 1.0e-9);
+    }
+
+    /**
+     * It returns a description of the first estimate of the given sketch
+     * that is not within the relative accuracy of the exact quantile of
+     * the given sorted numbers, or <tt>null</tt> if there is none.
+     */
+    static private String checkAccuracy(QuantileSketch sketch,
+            double[] sorted) {
+        if (sketch.getNum() != sorted.length) {
+            return "num " + sorted.length + " != " + sketch.getNum();
+        }
+        for (double quantile : QUANTILES) {
+            double exact = exact(sorted, quantile);
+            double estimate = sketch.getQuantile(quantile);
+            if (!withinAccuracy(exact, estimate,
+                    sketch.getRelativeAccuracy())) {
+                return "quantile " + quantile + ": exact " + exact +
+                        " estimate " + estimate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * It returns a description of the first quantile that differs between
+     * the given sketches, or <tt>null</tt> if there is none.
+     */
+    static private String compare(QuantileSketch expected,
+            QuantileSketch actual) {
+        if (expected.getNum() != actual.getNum()) {
+            return "num " + expected.getNum() + " != " + actual.getNum();
+        }
+        for (double quantile : QUANTILES) {
+            double e = expected.getQuantile(quantile);
+            double a = actual.getQuantile(quantile);
+            if (Double.doubleToLongBits(e) != Double.doubleToLongBits(a)) {
+                return "quantile " + quantile + ": " + e + " != " + a;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * It splits the given numbers into the given number of sketches, each
+     * with a random subset of them.
+     */
+    static private List<QuantileSketch> split(double[] numbers, int parts,
+            double accuracy, Random random) {
+        List<QuantileSketch> sketches = new ArrayList<QuantileSketch>();
+        for (int i = 0; i < parts; ++i) {
+            sketches.add(new QuantileSketch(accuracy));
+        }
+        for (double number : numbers) {
+            sketches.get(random.nextInt(parts)).add(number);
+        }
+        return sketches;
+    }
+
+    /**
+     * It merges the given sketches, in a random order, into a new one.
+     * Half of the time it merges them in pairs first, so that merged
+     * sketches are merged again.
+     */
+    static private QuantileSketch merge(List<QuantileSketch> sketches,
+            double accuracy, Random random) {
+        List<QuantileSketch> shuffled = new ArrayList<QuantileSketch>(sketches);
+        Collections.shuffle(shuffled, random);
+        if (random.nextBoolean()) {
+            List<QuantileSketch> pairs = new ArrayList<QuantileSketch>();
+            for (int i = 0; i < shuffled.size(); i += 2) {
+                QuantileSketch pair = new QuantileSketch(accuracy);
+                pair.merge(shuffled.get(i));
+                if (i + 1 < shuffled.size()) {
+                    pair.merge(shuffled.get(i + 1));
+                }
+                pairs.add(pair);
+            }
+            shuffled = pairs;
+        }
+        QuantileSketch merged = new QuantileSketch(accuracy);
+        for (QuantileSketch sketch : shuffled) {
+            merged.merge(sketch);
+        }
+        return merged;
+    }
+
+    /**
+     * It checks the sketch on the given numbers and returns the number of
+     * failures.
+     */
+    static private int check(String distribution, double[] numbers,
+            double accuracy, Random random) {
+        double[] sorted = numbers.clone();
+        Arrays.sort(sorted);
+        String prefix = "FAILED " + distribution + " size " +
+                numbers.length + " accuracy " + accuracy + ": ";
+        int failures = 0;
+
+        QuantileSketch sketch = new QuantileSketch(accuracy);
+        for (double number : numbers) {
+            sketch.add(number);
+        }
+        String difference = checkAccuracy(sketch, sorted);
+        if (difference != null) {
+            System.out.println(prefix + difference);
+            failures += 1;
+        }
+
+        for (int parts : new int[] {1, 2, 7, 64}) {
+            QuantileSketch merged =
+                    merge(split(numbers, parts, accuracy, random), accuracy,
+                    random);
+            difference = compare(sketch, merged);
+            if (difference != null) {
+                System.out.println(prefix + "merged from " + parts +
+                        " parts: " + difference);
+                failures += 1;
+            }
+        }
+
+        // A sketch that is emptied and reused is the same as a new one.
+        sketch.empty();
+        difference = compare(new QuantileSketch(accuracy), sketch);
+        if (difference == null) {
+            for (int i = numbers.length - 1; i >= 0; --i) {
+                sketch.add(numbers[i]);
+            }
+            difference = checkAccuracy(sketch, sorted);
+        }
+        if (difference != null) {
+            System.out.println(prefix + "emptied: " + difference);
+            failures += 1;
+        }
+        return failures;
+    }
+
+    static public void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int failures = 0;
+        for (String distribution : DISTRIBUTIONS) {
+            Random random = new Random(seed);
+            int distributionFailures = 0;
+            for (int size : SIZES) {
+                double[] numbers = numbers(distribution, size, random);
+                for (double accuracy : ACCURACIES) {
+                    distributionFailures +=
+                            check(distribution, numbers, accuracy, random);
+                }
+            }
+            System.out.println(distribution + ": " +
+                    (distributionFailures == 0 ? "within accuracy" :
+                    distributionFailures + " failures"));
+            failures += distributionFailures;
+        }
+        if (failures > 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+    }
+}
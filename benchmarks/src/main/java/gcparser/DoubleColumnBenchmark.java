@@ -0,0 +1,143 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of DoubleColumn against the ArrayList<Double> it replaces in
+ * GCDataStore:  a sequential scan and random reads over a million values
+ * of each kind that the logs contain (time stamps with millisecond
+ * resolution, durations with seven decimals, and heap sizes in K).  The
+ * setup prints the bytes per value of each representation.
+ */
+public class DoubleColumnBenchmark
+{
+	public static final int values = 1000000;
+	public static final int reads = 100000;
+
+	@State(Scope.Benchmark)
+	public static class ColumnState
+	{
+		@Param({ "timestamps", "durations", "heap" })
+		public String kind;
+
+		public ArrayList<Double> list;
+		public DoubleColumn column;
+		public int[] indexes;
+
+		@Setup(Level.Trial)
+		public void setup()
+		{
+			Random r = new Random(7);
+			list = new ArrayList<Double>(values);
+			column = new DoubleColumn();
+			double t = 0.0;
+			for (int i = 0; i < values; ++i)
+			{
+				double val;
+				if (kind.equals("timestamps"))
+				{
+					t += 0.5 + r.nextInt(2000) / 1000.0;
+					val = Math.round(t * 1000.0) / 1000.0;
+				}
+				else if (kind.equals("durations"))
+				{
+					val = Math.round(r.nextDouble() * 0.05 * 1.0e7) / 1.0e7;
+				}
+				else
+				{
+					val = 100000 + r.nextInt(50000);
+				}
+				list.add(val);
+				column.add(val);
+			}
+			indexes = new int[reads];
+			for (int i = 0; i < reads; ++i)
+			{
+				indexes[i] = r.nextInt(values);
+			}
+			// A boxed Double takes 16 bytes, plus 4 for the reference.
+			System.out.printf("%n%s: ArrayList<Double> %.2f bytes/value," +
+				" DoubleColumn %.2f bytes/value%n", kind, 20.0,
+				column.footprint() / (double) values);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(values)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public double scan_list(ColumnState state)
+	{
+		double sum = 0.0;
+		final ArrayList<Double> list = state.list;
+		for (int i = 0; i < list.size(); ++i) sum += list.get(i);
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(values)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public double scan_column(ColumnState state)
+	{
+		double sum = 0.0;
+		final DoubleColumn column = state.column;
+		for (int i = 0; i < column.size(); ++i) sum += column.get_double(i);
+		return sum;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(reads)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public double random_column(ColumnState state)
+	{
+		double sum = 0.0;
+		final int[] indexes = state.indexes;
+		for (int i = 0; i < indexes.length; ++i)
+		{
+			sum += state.column.get_double(indexes[i]);
+		}
+		return sum;
+	}
+}
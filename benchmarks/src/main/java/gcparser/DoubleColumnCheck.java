@@ -0,0 +1,298 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A round-trip check of DoubleColumn:  it appends values of each kind that
+ * the logs contain, and of kinds that defeat the delta-of-delta encoding
+ * (NaN, infinities, -0.0, subnormals, values that no scale turns into
+ * longs), to columns with several compression thresholds, and reports any
+ * value that does not read back with the same bits, any size that
+ * differs, and any first_at_or_after() that differs from a linear search
+ * over ascending values.  Every full block of every kind is also encoded
+ * and decoded on its own.
+ * <pre>
+ * java -cp target/benchmarks.jar gcparser.DoubleColumnCheck [seed]
+ * </pre>
+ */
+public class DoubleColumnCheck
+{
+	// Sizes around the block size and the thresholds.
+	public static final int[] sizes = {
+		0, 1, 2, DoubleColumn.block_size - 1, DoubleColumn.block_size,
+		DoubleColumn.block_size + 1, 3 * DoubleColumn.block_size + 17,
+		20000
+	};
+	public static final int[] thresholds = {
+		0, 1, DoubleColumn.block_size - 1, DoubleColumn.block_size,
+		1000, DoubleColumn.default_threshold, Integer.MAX_VALUE
+	};
+	public static final String[] kinds = {
+		"timestamps", "durations", "heap", "constant", "integers",
+		"random", "special", "mixed", "signed-zeros", "ascending-special"
+	};
+
+	// Whether values of the kind are in ascending order.
+	private static boolean ascending(String kind)
+	{
+		return kind.equals("timestamps") || kind.equals("constant") ||
+			kind.equals("ascending-special");
+	}
+
+	private static final double[] special = {
+		Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+		-0.0, 0.0, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL,
+		Double.MAX_VALUE, -Double.MAX_VALUE, 1.0e300, 4503599627370496.0,
+		4503599627370497.0, 0.1, 1.0e-10, Double.longBitsToDouble(
+		0x7ff8000000000001L)
+	};
+
+	// The values of the given kind.
+	public static double[] values(String kind, int size, Random r)
+	{
+		double[] vals = new double[size];
+		double t = 0.0;
+		for (int i = 0; i < size; ++i)
+		{
+			double val;
+			if (kind.equals("timestamps"))
+			{
+				t += 0.5 + r.nextInt(2000) / 1000.0;
+				val = Math.round(t * 1000.0) / 1000.0;
+			}
+			else if (kind.equals("durations"))
+			{
+				val = Math.round(r.nextDouble() * 0.05 * 1.0e7) / 1.0e7;
+			}
+			else if (kind.equals("heap"))
+			{
+				val = 100000 + r.nextInt(50000);
+			}
+			else if (kind.equals("constant"))
+			{
+				val = 42.0;
+			}
+			else if (kind.equals("integers"))
+			{
+				// Large enough that the deltas need all the bits.
+				val = (double) (r.nextLong() >> 12);
+			}
+			else if (kind.equals("random"))
+			{
+				val = Double.longBitsToDouble(r.nextLong());
+			}
+			else if (kind.equals("special"))
+			{
+				val = special[r.nextInt(special.length)];
+			}
+			else if (kind.equals("mixed"))
+			{
+				// Runs of scalable values broken by ones that are not.
+				val = r.nextInt(50) == 0 ?
+					special[r.nextInt(special.length)] :
+					Math.round(r.nextDouble() * 1.0e6) / 1.0e3;
+			}
+			else if (kind.equals("signed-zeros"))
+			{
+				// Values that can be scaled, and -0.0, which cannot.
+				val = r.nextInt(10) == 0 ? -0.0 :
+					Math.round(r.nextDouble() * 1.0e6) / 1.0e3;
+			}
+			else
+			{
+				// Ascending, with repeats and a negative start.
+				t += r.nextInt(4) == 0 ? 0.0 : r.nextDouble();
+				val = i == 0 ? -Double.MAX_VALUE : t - 1.0;
+			}
+			vals[i] = val;
+		}
+		return vals;
+	}
+
+	private static boolean same(double d1, double d2)
+	{
+		return Double.doubleToRawLongBits(d1) ==
+			Double.doubleToRawLongBits(d2);
+	}
+
+	private static int linear_first_at_or_after(double[] vals, double val)
+	{
+		int i = 0;
+		while (i < vals.length && vals[i] < val) ++i;
+		return i;
+	}
+
+	// A description of the first difference between the values and the
+	// column, or null if there is none.
+	private static String compare(double[] vals, DoubleColumn column,
+		boolean ascending)
+	{
+		if (column.size() != vals.length)
+		{
+			return "size " + vals.length + " != " + column.size();
+		}
+		for (int i = 0; i < vals.length; ++i)
+		{
+			double val = column.get_double(i);
+			if (!same(vals[i], val))
+			{
+				return "value " + i + ": " + vals[i] + " != " + val;
+			}
+		}
+		// Reading backwards decodes each block again.
+		for (int i = vals.length - 1; i >= 0; --i)
+		{
+			if (!same(vals[i], column.get(i).doubleValue()))
+			{
+				return "boxed value " + i + ": " + vals[i] + " != " +
+					column.get(i);
+			}
+		}
+		if (!ascending) return null;
+
+		for (int i = 0; i < vals.length; ++i)
+		{
+			double[] probes = {
+				vals[i], Math.nextUp(vals[i]), Math.nextDown(vals[i])
+			};
+			for (double probe:  probes)
+			{
+				int expected = linear_first_at_or_after(vals, probe);
+				int actual = column.first_at_or_after(probe);
+				if (expected != actual)
+				{
+					return "first_at_or_after(" + probe + ") " +
+						expected + " != " + actual;
+				}
+			}
+		}
+		double[] ends = { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY };
+		for (double probe:  ends)
+		{
+			int expected = linear_first_at_or_after(vals, probe);
+			int actual = column.first_at_or_after(probe);
+			if (expected != actual)
+			{
+				return "first_at_or_after(" + probe + ") " + expected +
+					" != " + actual;
+			}
+		}
+		return null;
+	}
+
+	// Encode and decode each full block of the values on its own, outside
+	// of a column.
+	private static String check_blocks(double[] vals)
+	{
+		final int n = DoubleColumn.block_size;
+		double[] block = new double[n];
+		double[] decoded = new double[n];
+		for (int b = 0; b + n <= vals.length; b += n)
+		{
+			System.arraycopy(vals, b, block, 0, n);
+			Arrays.fill(decoded, 0.0);
+			DoubleColumn.decode(DoubleColumn.encode(block), decoded);
+			for (int i = 0; i < n; ++i)
+			{
+				if (!same(block[i], decoded[i]))
+				{
+					return "block at " + b + " value " + i + ": " +
+						block[i] + " != " + decoded[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	// Check the column with the given threshold against the values and
+	// return the number of differences.
+	private static int check(String kind, double[] vals, int threshold)
+	{
+		DoubleColumn column = new DoubleColumn(threshold);
+		String difference = null;
+		for (int i = 0; i < vals.length && difference == null; ++i)
+		{
+			column.add(vals[i]);
+			// Values are read as they are appended, so check the last
+			// one now, before its block is full.
+			if (!same(vals[i], column.get_double(i)))
+			{
+				difference = "appended value " + i + ": " + vals[i] +
+					" != " + column.get_double(i);
+			}
+		}
+		if (difference == null)
+		{
+			difference = compare(vals, column, ascending(kind));
+		}
+		if (difference == null &&
+			column.compressed() != (vals.length > threshold))
+		{
+			difference = "compressed " + column.compressed();
+		}
+		if (difference == null) return 0;
+
+		System.out.println("FAILED " + kind + " size " + vals.length +
+			" threshold " + threshold + ": " + difference);
+		return 1;
+	}
+
+	public static void main(String[] args)
+	{
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		int failures = 0;
+		for (String kind:  kinds)
+		{
+			Random r = new Random(seed);
+			int kind_failures = 0;
+			long footprint = 0;
+			for (int size:  sizes)
+			{
+				double[] vals = values(kind, size, r);
+				for (int threshold:  thresholds)
+				{
+					kind_failures += check(kind, vals, threshold);
+				}
+				String difference = check_blocks(vals);
+				if (difference != null)
+				{
+					System.out.println("FAILED " + kind + " size " + size +
+						": " + difference);
+					kind_failures += 1;
+				}
+				if (size == sizes[sizes.length - 1])
+				{
+					DoubleColumn column = new DoubleColumn(0);
+					for (double val:  vals) column.add(val);
+					footprint = column.footprint();
+				}
+			}
+			System.out.printf("%s: %.2f bytes/value, %s%n", kind,
+				footprint / (double) sizes[sizes.length - 1],
+				kind_failures == 0 ? "same" : kind_failures + " different");
+			failures += kind_failures;
+		}
+		if (failures > 0)
+		{
+			System.out.println(failures + " differences");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * A differential check of reading a time slice of a gc log through its
+ * GCLogIndex:  for random slices of each input, the lines read from the
+ * part of the file that the index gives (as GCParserDriver.parse_slice()
+ * does) are compared with the lines that TimeSliceReader gives for the
+ * whole file, and with a reference slice of the lines of the file.  It
+ * also checks that every entry of the index points at the start of a line
+ * with the entry's timestamp, that a saved index is loaded back unchanged
+ * and rebuilt when the log changes or the index file is garbled, and that
+ * dates are converted to the uptimes of the lines they stamp.  The inputs
+ * are the given files or, if there are none, generated logs with and
+ * without date stamps, with CRLF line ends, with lines that have no
+ * timestamp, with runs of equal timestamps longer than the distance
+ * between entries, and with the output of two runs of the JVM.
+ * <pre>
+ * java -cp target/benchmarks.jar gcparser.GCLogIndexCheck [file ...]
+ * </pre>
+ */
+public class GCLogIndexCheck
+{
+	public static final int slices = 200;
+	// The slices also read through TimeSliceReader over the whole file.
+	public static final int whole_slices = 10;
+
+	private static BufferedReader reader(InputStream is) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(is, "ISO-8859-1"));
+	}
+
+	private static List<String> read_all(BufferedReader r) throws IOException
+	{
+		List<String> lines = new ArrayList<String>();
+		try
+		{
+			for (String s = r.readLine(); s != null; s = r.readLine())
+			{
+				lines.add(s);
+			}
+		}
+		finally
+		{
+			r.close();
+		}
+		return lines;
+	}
+
+	// The slice of the lines, with the given uptimes, as TimeSliceReader
+	// defines it.
+	private static List<String> reference(List<String> lines,
+		double[] line_uptimes, double beg, double end)
+	{
+		int i = 0;
+		while (i < lines.size() && line_uptimes[i] < beg) ++i;
+		List<String> slice = new ArrayList<String>();
+		for (; i < lines.size(); ++i)
+		{
+			if (line_uptimes[i] > end) break;
+			slice.add(lines.get(i));
+		}
+		return slice;
+	}
+
+	private static String compare(List<String> expected, List<String> actual)
+	{
+		if (expected.equals(actual)) return null;
+		int i = 0;
+		while (i < expected.size() && i < actual.size() &&
+			expected.get(i).equals(actual.get(i)))
+		{
+			++i;
+		}
+		return expected.size() + " lines != " + actual.size() +
+			" lines, first difference at line " + i + ": " +
+			(i < expected.size() ? expected.get(i) : "<end>") + " != " +
+			(i < actual.size() ? actual.get(i) : "<end>");
+	}
+
+	// A description of the first entry of the index that does not point
+	// at the start of a line with the entry's timestamp, or null.
+	private static String check_entries(File log, GCLogIndex index)
+	throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(log, "r");
+		try
+		{
+			if (index.length() != raf.length())
+			{
+				return "length " + raf.length() + " != " + index.length();
+			}
+			for (int i = 0; i < index.size(); ++i)
+			{
+				final long offset = index.offset(i);
+				if (i > 0 && offset <= index.offset(i - 1))
+				{
+					return "entry " + i + " offset " + offset +
+						" not after " + index.offset(i - 1);
+				}
+				if (offset > 0)
+				{
+					raf.seek(offset - 1);
+					if (raf.read() != '\n')
+					{
+						return "entry " + i + " offset " + offset +
+							" not at the start of a line";
+					}
+				}
+				raf.seek(offset);
+				String s = raf.readLine();
+				if (GCLogIndex.uptime(s) != index.uptime(i))
+				{
+					return "entry " + i + " uptime " + index.uptime(i) +
+						" != " + s;
+				}
+				if (i > 0 && index.is_ordered() &&
+					index.uptime(i) < index.uptime(i - 1))
+				{
+					return "entry " + i + " out of order";
+				}
+			}
+		}
+		finally
+		{
+			raf.close();
+		}
+		return null;
+	}
+
+	private static String compare(GCLogIndex expected, GCLogIndex actual)
+	{
+		if (actual == null) return "no index";
+		if (expected.size() != actual.size() ||
+			expected.length() != actual.length() ||
+			expected.last_modified() != actual.last_modified() ||
+			expected.is_ordered() != actual.is_ordered() ||
+			expected.has_dates() != actual.has_dates())
+		{
+			return "size " + expected.size() + " != " + actual.size();
+		}
+		for (int i = 0; i < expected.size(); ++i)
+		{
+			if (expected.offset(i) != actual.offset(i) ||
+				expected.uptime(i) != actual.uptime(i) ||
+				expected.date(i) != actual.date(i))
+			{
+				return "entry " + i + " " + expected.offset(i) + " " +
+					expected.uptime(i) + " " + expected.date(i) + " != " +
+					actual.offset(i) + " " + actual.uptime(i) + " " +
+					actual.date(i);
+			}
+		}
+		return null;
+	}
+
+	// Check that the index is saved and loaded back, and rebuilt when it
+	// is out of date or garbled.
+	private static String check_saved(File log, GCLogIndex built)
+	throws IOException
+	{
+		File file = GCLogIndex.index_file(log);
+		file.delete();
+		String difference = compare(built, GCLogIndex.load(log));
+		if (difference != null) return "built: " + difference;
+		// The index is not saved in a read-only directory.
+		if (!file.isFile()) return null;
+		difference = compare(built, GCLogIndex.load(log));
+		if (difference != null) return "loaded: " + difference;
+
+		write(file, "# gcparser log index 1\n" + log.length() + " " +
+			log.lastModified() + "\n12 x\n");
+		difference = compare(built, GCLogIndex.load(log));
+		if (difference != null) return "garbled: " + difference;
+
+		write(file, "# gcparser log index 1\n" + log.length() + " " +
+			(log.lastModified() - 1000) + "\n0 123.0\n");
+		difference = compare(built, GCLogIndex.load(log));
+		if (difference != null) return "out of date: " + difference;
+		return null;
+	}
+
+	// Check the dates of the lines against the uptimes they stamp.
+	private static String check_dates(GCLogIndex index, List<String> lines,
+		Random r) throws Exception
+	{
+		if (!index.has_dates()) return null;
+		for (int n = 0; n < slices; ++n)
+		{
+			String s = lines.get(r.nextInt(lines.size()));
+			final double uptime = GCLogIndex.uptime(s);
+			if (uptime < 0.0 || !s.matches(GCLogIndex.date_re + ":.*"))
+			{
+				continue;
+			}
+			String date = s.substring(0, s.indexOf(": "));
+			final double converted = index.to_uptime(date);
+			// The dates are stamped to the millisecond.
+			if (Math.abs(converted - uptime) > 0.0015)
+			{
+				return "date " + date + " is uptime " + converted +
+					" != " + uptime;
+			}
+		}
+		return null;
+	}
+
+	// The uptime of a random line, moved a little at random, or a time
+	// outside of the log.
+	private static double random_time(List<Double> uptimes, Random r)
+	{
+		switch (r.nextInt(8))
+		{
+		case 0:
+			return -1.0e9;
+		case 1:
+			return 1.0e9;
+		default:
+			double t = uptimes.get(r.nextInt(uptimes.size()));
+			switch (r.nextInt(4))
+			{
+			case 0: return Math.nextUp(t);
+			case 1: return Math.nextDown(t);
+			case 2: return t + r.nextDouble() * 10.0 - 5.0;
+			default: return t;
+			}
+		}
+	}
+
+	private static int check(File log) throws Exception
+	{
+		GCLogIndex index = GCLogIndex.build(log);
+		List<String> lines = read_all(reader(new FileInputStream(log)));
+		double[] line_uptimes = new double[lines.size()];
+		List<Double> uptimes = new ArrayList<Double>();
+		for (int i = 0; i < lines.size(); ++i)
+		{
+			line_uptimes[i] = GCLogIndex.uptime(lines.get(i));
+			if (line_uptimes[i] >= 0.0) uptimes.add(line_uptimes[i]);
+		}
+		if (uptimes.isEmpty()) uptimes.add(0.0);
+
+		int failures = 0;
+		String difference = check_entries(log, index);
+		if (difference == null) difference = check_saved(log, index);
+		if (difference == null)
+		{
+			difference = check_dates(index, lines, new Random(log.length()));
+		}
+		if (difference != null)
+		{
+			System.out.println("FAILED " + log.getName() + ": " +
+				difference);
+			failures += 1;
+		}
+
+		Random r = new Random(log.length());
+		long read = 0;
+		for (int n = 0; n < slices; ++n)
+		{
+			double beg = random_time(uptimes, r);
+			double end = random_time(uptimes, r);
+			if (beg > end && r.nextInt(8) != 0)
+			{
+				double t = beg;
+				beg = end;
+				end = t;
+			}
+
+			List<String> expected = reference(lines, line_uptimes, beg, end);
+			final long offset = index.offset_before(beg);
+			final long limit = index.offset_after(end);
+			read += limit - offset;
+			List<String> actual = read_all(new TimeSliceReader(
+				new InputStreamReader(GCLogIndex.open(log, offset, limit),
+				"ISO-8859-1"), beg, end));
+			difference = compare(expected, actual);
+			if (difference == null && n < whole_slices)
+			{
+				Reader whole = new InputStreamReader(
+					new FileInputStream(log), "ISO-8859-1");
+				difference = compare(expected,
+					read_all(new TimeSliceReader(whole, beg, end)));
+				if (difference != null) difference = "whole: " + difference;
+			}
+			if (difference != null)
+			{
+				System.out.println("FAILED " + log.getName() + " slice " +
+					beg + "," + end + " [" + offset + "," + limit + "): " +
+					difference);
+				failures += 1;
+			}
+		}
+
+		System.out.printf("%s: %d entries%s%s, %.1f%% of the file read " +
+			"per slice, %s%n", log.getName(), index.size(),
+			index.is_ordered() ? "" : " (unordered)",
+			index.has_dates() ? " with dates" : "",
+			log.length() == 0 ? 0.0 :
+			100.0 * read / slices / log.length(),
+			failures == 0 ? "same" : failures + " different");
+		return failures;
+	}
+
+	private static File write(String name, byte[] contents) throws IOException
+	{
+		File file = File.createTempFile("gchisto-" + name + "-", ".log");
+		file.deleteOnExit();
+		GCLogIndex.index_file(file).deleteOnExit();
+		OutputStream os = new FileOutputStream(file);
+		try
+		{
+			os.write(contents);
+		}
+		finally
+		{
+			os.close();
+		}
+		return file;
+	}
+
+	private static void write(File file, String contents) throws IOException
+	{
+		OutputStream os = new FileOutputStream(file);
+		try
+		{
+			os.write(contents.getBytes("ISO-8859-1"));
+		}
+		finally
+		{
+			os.close();
+		}
+	}
+
+	private static String generate(GCLogGenerator.Format format, long seed,
+		long bytes) throws IOException
+	{
+		GCLogGenerator generator = new GCLogGenerator();
+		generator.set_format(format);
+		generator.set_seed(seed);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		generator.generate(os, bytes, 0);
+		return os.toString("ISO-8859-1");
+	}
+
+	// The log with each timestamped line also stamped with a date.
+	private static String dated(String log, String zone)
+	{
+		SimpleDateFormat f = new SimpleDateFormat(GCLogIndex.date_format);
+		f.setTimeZone(TimeZone.getTimeZone(zone));
+		final long start = 1234567890123L;
+		StringBuilder b = new StringBuilder();
+		for (String s:  log.split("\n", -1))
+		{
+			final double t = GCLogIndex.uptime(s);
+			if (t >= 0.0)
+			{
+				b.append(f.format(new Date(start + Math.round(t * 1000.0))));
+				b.append(": ");
+			}
+			b.append(s).append('\n');
+		}
+		b.setLength(b.length() - 1);
+		return b.toString();
+	}
+
+	// The log with lines that have no timestamp inserted at random.
+	private static String untimed(String log, Random r)
+	{
+		StringBuilder b = new StringBuilder();
+		for (String s:  log.split("\n", -1))
+		{
+			if (r.nextInt(10) == 0) b.append(" [Times: user=0.01]\n");
+			if (r.nextInt(50) == 0) b.append('\n');
+			b.append(s).append('\n');
+		}
+		b.setLength(b.length() - 1);
+		return b.toString();
+	}
+
+	// A log whose lines all have one of a few timestamps, so that many
+	// entries of the index have the same uptime.
+	private static String repeated(int lines)
+	{
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < lines; ++i)
+		{
+			b.append(1.0 + i * 4 / lines).append(": [GC ").append(i);
+			b.append(" [DefNew: 1403K->105K(1984K), 0.0109275 secs]]\n");
+		}
+		return b.toString();
+	}
+
+	private static List<File> inputs() throws IOException
+	{
+		final long mb = 1024 * 1024;
+		Random r = new Random(0);
+		List<File> files = new ArrayList<File>();
+		files.add(write("empty", new byte[0]));
+		files.add(write("small", ("0.5: [GC 1K->1K(2K), 0.1 secs]\n" +
+			"1.5: [Full GC 1K->1K(2K), 0.1 secs]\n" +
+			"2.5: [GC 1K->1K(2K), 0.1 secs]").getBytes("ISO-8859-1")));
+		String cms = generate(GCLogGenerator.Format.cms, 0, 4 * mb);
+		files.add(write("cms", cms.getBytes("ISO-8859-1")));
+		files.add(write("cms-crlf",
+			cms.replace("\n", "\r\n").getBytes("ISO-8859-1")));
+		files.add(write("cms-untimed",
+			untimed(cms, r).getBytes("ISO-8859-1")));
+		files.add(write("cms-dated",
+			dated(cms, "UTC").getBytes("ISO-8859-1")));
+		files.add(write("parallel-dated", dated(generate(
+			GCLogGenerator.Format.parallel, 1, 2 * mb),
+			"America/Los_Angeles").getBytes("ISO-8859-1")));
+		files.add(write("repeated",
+			repeated(100000).getBytes("ISO-8859-1")));
+		files.add(write("two-runs", (generate(GCLogGenerator.Format.parnew,
+			2, 2 * mb) + generate(GCLogGenerator.Format.parnew, 3, 2 * mb))
+			.getBytes("ISO-8859-1")));
+		return files;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		List<File> files = new ArrayList<File>();
+		if (args.length == 0)
+		{
+			files = inputs();
+		}
+		else
+		{
+			for (String arg:  args) files.add(new File(arg));
+		}
+
+		int failures = 0;
+		for (File file:  files)
+		{
+			failures += check(file);
+		}
+		if (failures > 0)
+		{
+			System.out.println(failures + " differences");
+			System.exit(1);
+		}
+	}
+}
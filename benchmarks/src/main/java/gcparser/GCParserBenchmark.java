@@ -0,0 +1,145 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import gchisto.benchmarks.Corpus;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the parsers:  GCParserDriver.parse() over a whole log of
+ * each format, and each GCParser.parse() over a mix of lines from all the
+ * formats (most of which it does not match, as in the driver).  This is in
+ * the gcparser package since GCParserDriver.create_gc_parsers() is not
+ * public.
+ */
+public class GCParserBenchmark
+{
+	public static final String[] formats =
+	{
+		"defnew", "parnew", "cms", "parallel", "parallelold"
+	};
+
+	public static final int events = 20000;
+	public static final int lines = 10000;
+
+	@State(Scope.Benchmark)
+	public static class DriverState
+	{
+		@Param({ "defnew", "parnew", "cms", "parallel", "parallelold" })
+		public String format;
+
+		public byte[] log;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException
+		{
+			log = Corpus.generate(format, events);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ParserState
+	{
+		@Param({
+			"ParGCYoungGCParser", "FWYoungGCParser",
+			"ParGCFullGCParser", "CMSGCParser",
+			"ParCompactPhaseGCParser", "FWOldGCParser",
+			"FWFullGCParser", "VerboseGCParser",
+			"AppTimeGCParser", "SafepointGCParser",
+			"TimesGCParser"
+		})
+		public String parser;
+
+		public GCParser gc_parser;
+		public String[] text;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException
+		{
+			GCParserDriver driver = new GCParserDriver(new BitSet());
+			ArrayList<GCParser> parsers =
+				driver.create_gc_parsers(driver.gc_stats(), false);
+			for (GCParser p:  parsers)
+			{
+				if (p.getClass().getSimpleName().equals(parser))
+				{
+					gc_parser = p;
+				}
+			}
+			if (gc_parser == null)
+			{
+				throw new IllegalArgumentException(parser);
+			}
+			text = Corpus.mixedLines(formats, lines);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public GCStats driver_parse(DriverState state) throws IOException
+	{
+		GCParserDriver driver = new GCParserDriver(new BitSet());
+		InputStreamReader ir = new InputStreamReader(
+			new ByteArrayInputStream(state.log), "ISO-8859-1");
+		driver.parse(new BufferedReader(ir), state.format);
+		return driver.gc_stats();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(lines)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public int parser_parse(ParserState state)
+	{
+		int matched = 0;
+		final String[] text = state.text;
+		for (int i = 0; i < text.length; ++i)
+		{
+			if (state.gc_parser.parse("bench", i + 1, text[i]))
+			{
+				++matched;
+			}
+		}
+		return matched;
+	}
+}
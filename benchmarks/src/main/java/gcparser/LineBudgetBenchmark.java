@@ -0,0 +1,221 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import gchisto.benchmarks.Corpus;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the parsers on adversarial lines, the kind a truncated or
+ * interleaved log can contain:  the driver with and without a line budget
+ * (see BoundedCharSequence), and the timestamp and CMS remark patterns as
+ * they were before they were made linear against the current ones.  The
+ * driver is also run over a well-formed log to show the cost of the
+ * budget on ordinary lines.
+ */
+public class LineBudgetBenchmark
+{
+	// The patterns replaced by the possessive / lookbehind versions.
+	public static final String old_gc_time_re = "([0-9]+\\.[0-9]+)";
+	public static final String old_timestamp_re =
+		"(" + old_gc_time_re + ": *)?";
+	public static final String old_cms_rmark_re =
+		old_timestamp_re + "\\[GC.*\\[1 (AS)?CMS-remark: " +
+		"([0-9]+)([KM])\\(([0-9]+)([KM])\\)\\] " +
+		"([0-9]+)([KM])\\(([0-9]+)([KM])\\), " + old_gc_time_re +
+		" (secs)\\]";
+
+	public static final String new_cms_rmark_re =
+		GCParser.timestamp_re + "\\[GC" +
+		"(?:[^\\[]++|\\[(?!GC|1 (?:AS)?CMS-remark: ))*+" +
+		"\\[1 (AS)?CMS-remark: " + GCParser.cms_heap_size_re +
+		"\\] " + GCParser.cms_heap_report_re + "\\]";
+
+	// An adversarial line of about length characters of the given kind.
+	public static String line(String kind, int length)
+	{
+		String unit;
+		if (kind.equals("gc")) unit = "[GC ";
+		else if (kind.equals("digits")) unit = "1";
+		else if (kind.equals("timestamps")) unit = "1.5: ";
+		else if (kind.equals("spliced"))
+		{
+			// A ParNew collection whose line never ends, as when
+			// another thread's output is interleaved with it.
+			unit = "[GC 1.0: [ParNew: 1K->1K(2K), 0.1 secs] ";
+		}
+		else throw new IllegalArgumentException(kind);
+
+		StringBuilder sb = new StringBuilder(length + unit.length());
+		while (sb.length() < length) sb.append(unit);
+		return sb.toString();
+	}
+
+	@State(Scope.Benchmark)
+	public static class LineState
+	{
+		@Param({ "gc", "digits", "timestamps", "spliced" })
+		public String kind;
+
+		@Param({ "1000", "10000" })
+		public int length;
+
+		public String text;
+		public Pattern old_rmark;
+		public Pattern new_rmark;
+		public Pattern old_timestamp;
+		public Pattern new_timestamp;
+
+		@Setup(Level.Trial)
+		public void setup()
+		{
+			text = line(kind, length);
+			old_rmark = Pattern.compile(old_cms_rmark_re);
+			new_rmark = Pattern.compile(new_cms_rmark_re);
+			old_timestamp = Pattern.compile(old_timestamp_re + "\\[");
+			new_timestamp = Pattern.compile(GCParser.timestamp_re +
+				"\\[");
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class BudgetState
+	{
+		// Steps per character; 0 is no budget.
+		@Param({ "0", "1000" })
+		public int budget;
+	}
+
+	@State(Scope.Benchmark)
+	public static class LogState
+	{
+		@Param({ "cms", "parallelold" })
+		public String format;
+
+		public byte[] log;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException
+		{
+			log = Corpus.generate(format, GCParserBenchmark.events);
+		}
+	}
+
+	private static GCParserDriver driver(int budget)
+	{
+		GCParserDriver driver = new GCParserDriver(new BitSet());
+		driver.set_line_budget(budget);
+		return driver;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public long driver_line(LineState state, BudgetState budget)
+	throws IOException
+	{
+		GCParserDriver driver = driver(budget.budget);
+		driver.parse(new BufferedReader(new StringReader(state.text)),
+			state.kind);
+		return driver.quarantined_count();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public boolean old_rmark_pattern(LineState state)
+	{
+		return state.old_rmark.matcher(state.text).find();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public boolean new_rmark_pattern(LineState state)
+	{
+		return state.new_rmark.matcher(state.text).find();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public boolean old_timestamp_pattern(LineState state)
+	{
+		Matcher m = state.old_timestamp.matcher(state.text);
+		return m.find();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public boolean new_timestamp_pattern(LineState state)
+	{
+		Matcher m = state.new_timestamp.matcher(state.text);
+		return m.find();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public GCStats driver_log(LogState state, BudgetState budget)
+	throws IOException
+	{
+		GCParserDriver driver = driver(budget.budget);
+		InputStreamReader ir = new InputStreamReader(
+			new ByteArrayInputStream(state.log), "ISO-8859-1");
+		driver.parse(new BufferedReader(ir), state.format);
+		return driver.gc_stats();
+	}
+}
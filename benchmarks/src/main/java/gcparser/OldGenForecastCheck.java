@@ -0,0 +1,233 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A differential check of OldGenForecast.append(), which merges the
+ * forecasts of the files of a rotated log set:  a random series of gc
+ * events is fed to one forecast, and split in two at a number of places,
+ * each half fed to a forecast of its own and the second appended to the
+ * first.  It reports any difference in the live set window (and so in the
+ * trend and the Mann-Kendall statistic fitted over it), the live set
+ * count, the last occupancy, the cms cycles or the kept series.  The
+ * promotion rate is not compared, since the second file's starts afresh.
+ * The halves are split between events that leave no cms cycle pending, and
+ * include halves with more live set samples than the window holds.
+ * <pre>
+ * java -cp target/benchmarks.jar gcparser.OldGenForecastCheck [seed]
+ * </pre>
+ */
+public class OldGenForecastCheck
+{
+	// The numbers of live set samples of the series.
+	public static final int[] sizes = {
+		0, 1, 5, OldGenForecast.window_max, 260, 1000
+	};
+
+	// A gc event; the kinds are young, full, cms initial mark and cms
+	// sweep end.
+	private static class Event
+	{
+		Event(char kind, double timestamp, double og_used)
+		{
+			this.kind = kind;
+			this.timestamp = timestamp;
+			this.og_used = og_used;
+		}
+
+		final char kind;
+		final double timestamp;
+		final double og_used;
+	}
+
+	// A series of gc events with the given number of live set samples
+	// (full gcs and young gcs after cms sweeps), each preceded by a few
+	// young gcs, and the indexes of the events after which it can be
+	// split.
+	private static List<Event> events(int samples, Random r,
+		List<Integer> splits)
+	{
+		List<Event> events = new ArrayList<Event>();
+		double t = 0.0;
+		double live = 100000.0;
+		final double leak = r.nextBoolean() ? 0.0 : 10.0;
+		splits.add(0);
+		for (int n = 0; n < samples; ++n)
+		{
+			double used = live;
+			for (int y = r.nextInt(4); y > 0; --y)
+			{
+				t += r.nextDouble() * 2.0;
+				used += r.nextDouble() * 1000.0;
+				events.add(new Event('y', t, used));
+			}
+			live += leak + r.nextGaussian() * 500.0;
+			t += r.nextDouble() * 2.0;
+			if (r.nextBoolean())
+			{
+				events.add(new Event('f', t, live));
+			}
+			else
+			{
+				events.add(new Event('i', t, used));
+				t += r.nextDouble() * 5.0;
+				events.add(new Event('s', t, used));
+				t += r.nextDouble() * 2.0;
+				events.add(new Event('y', t, live));
+			}
+			splits.add(events.size());
+		}
+		return events;
+	}
+
+	private static OldGenForecast forecast(List<Event> events, int beg,
+		int end)
+	{
+		OldGenForecast forecast = new OldGenForecast();
+		forecast.set_keep_series(true);
+		final double commit = 1024.0 * 1024.0;
+		for (int i = beg; i < end; ++i)
+		{
+			Event e = events.get(i);
+			switch (e.kind)
+			{
+			case 'y':
+				forecast.young_gc(e.timestamp - 0.01, e.timestamp,
+					e.og_used - 100.0, e.og_used, commit, 100.0);
+				break;
+			case 'f':
+				forecast.full_gc(e.timestamp, e.og_used, commit);
+				break;
+			case 'i':
+				forecast.cms_initial_mark(e.timestamp);
+				break;
+			default:
+				forecast.cms_sweep_end(e.timestamp);
+				break;
+			}
+		}
+		return forecast;
+	}
+
+	private static boolean same(double d1, double d2)
+	{
+		return Double.doubleToLongBits(d1) == Double.doubleToLongBits(d2);
+	}
+
+	// A description of the first difference between the forecasts, or
+	// null if there is none.
+	private static String compare(OldGenForecast expected,
+		OldGenForecast actual)
+	{
+		if (expected.live_set_count() != actual.live_set_count() ||
+			expected.window_size() != actual.window_size())
+		{
+			return "live set count " + expected.live_set_count() +
+				" != " + actual.live_set_count();
+		}
+		if (!same(expected.leak_z(), actual.leak_z()))
+		{
+			return "leak_z " + expected.leak_z() + " != " + actual.leak_z();
+		}
+		if (!same(expected.live_set_slope(), actual.live_set_slope()) ||
+			!same(expected.live_set_intercept(),
+			actual.live_set_intercept()))
+		{
+			return "trend " + expected.live_set_slope() + " " +
+				expected.live_set_intercept() + " != " +
+				actual.live_set_slope() + " " +
+				actual.live_set_intercept();
+		}
+		if (!same(expected.timestamp(), actual.timestamp()) ||
+			!same(expected.og_used(), actual.og_used()) ||
+			!same(expected.og_commit(), actual.og_commit()))
+		{
+			return "occupancy " + expected.timestamp() + " " +
+				expected.og_used() + " != " + actual.timestamp() + " " +
+				actual.og_used();
+		}
+		if (expected.cms_cycle_count() != actual.cms_cycle_count() ||
+			!same(expected.cms_cycle_time(), actual.cms_cycle_time()))
+		{
+			return "cms cycles " + expected.cms_cycle_count() + " != " +
+				actual.cms_cycle_count();
+		}
+		if (!expected.live_set_time().equals(actual.live_set_time()) ||
+			!expected.live_set_data().equals(actual.live_set_data()) ||
+			!expected.og_used_time().equals(actual.og_used_time()) ||
+			!expected.og_used_data().equals(actual.og_used_data()))
+		{
+			return "series";
+		}
+		return null;
+	}
+
+	public static void main(String[] args)
+	{
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		Random r = new Random(seed);
+		int failures = 0;
+		for (int size:  sizes)
+		{
+			List<Integer> splits = new ArrayList<Integer>();
+			List<Event> events = events(size, r, splits);
+			OldGenForecast expected = forecast(events, 0, events.size());
+
+			// Every split for short series; around the window size and
+			// at random for long ones.
+			List<Integer> samples = new ArrayList<Integer>();
+			for (int n = 0; n <= size; ++n)
+			{
+				if (size <= 10 || Math.abs(n - size / 2) <= 2 ||
+					Math.abs(n - OldGenForecast.window_max) <= 2 ||
+					Math.abs(size - n - OldGenForecast.window_max) <= 2 ||
+					r.nextInt(20) == 0)
+				{
+					samples.add(n);
+				}
+			}
+			int size_failures = 0;
+			for (int n:  samples)
+			{
+				final int split = splits.get(n);
+				OldGenForecast actual = forecast(events, 0, split);
+				actual.append(forecast(events, split, events.size()));
+				String difference = compare(expected, actual);
+				if (difference != null)
+				{
+					System.out.println("FAILED " + size + " samples, " +
+						"split after " + n + ": " + difference);
+					size_failures += 1;
+				}
+			}
+			System.out.printf("%d samples: leak_z %.2f, %d splits, %s%n",
+				size, expected.leak_z(), samples.size(),
+				size_failures == 0 ? "same" :
+				size_failures + " different");
+			failures += size_failures;
+		}
+		if (failures > 0)
+		{
+			System.out.println(failures + " differences");
+			System.exit(1);
+		}
+	}
+}
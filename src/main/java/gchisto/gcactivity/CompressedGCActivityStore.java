@@ -0,0 +1,111 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gcactivity;
+
+import gcparser.DoubleColumn;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A GC activity store that keeps the GC activities on the heap in
+ * compressed columns: the start time stamps as deltas of deltas, and the
+ * durations and overheads as the XOR of consecutive values. The name of
+ * each GC activity, and whether it is stop-the-world, are kept together
+ * in a column of their own, which takes up very little space as they
+ * rarely change from one GC activity to the next.
+ *
+ * @see gcparser.DoubleColumn
+ */
+class CompressedGCActivityStore extends GCActivityStore {
+
+    final private DoubleColumn startSecs = new DoubleColumn(0);
+    final private DoubleColumn durationSecs = new DoubleColumn(0);
+    final private DoubleColumn overheadPercs = new DoubleColumn(0);
+    /**
+     * The ID of the name of each GC activity times two, plus one if it
+     * is stop-the-world.
+     */
+    final private DoubleColumn kinds = new DoubleColumn(0);
+    /**
+     * The names of the GC activities in the store, indexed by their IDs.
+     * It is replaced, not updated, when a name is added.
+     */
+    private volatile String[] names = new String[0];
+    final private Map<String, Integer> nameIDs = new HashMap<String, Integer>();
+
+    private int nameID(String name) {
+        Integer id = nameIDs.get(name);
+        if (id == null) {
+            id = names.length;
+            String[] newNames = new String[id + 1];
+            System.arraycopy(names, 0, newNames, 0, id);
+            newNames[id] = name;
+            names = newNames;
+            nameIDs.put(name, id);
+        }
+        return id;
+    }
+
+    int size() {
+        // the kinds are appended last
+        return kinds.size();
+    }
+
+    GCActivity get(int index) {
+        int kind = (int) kinds.get_double(index);
+        String name = names[kind >> 1];
+        double startSec = startSecs.get_double(index);
+        double durationSec = durationSecs.get_double(index);
+        if ((kind & 1) != 0) {
+            return new GCActivity(name, startSec, durationSec);
+        } else {
+            return new GCActivity(name, startSec, durationSec,
+                    overheadPercs.get_double(index));
+        }
+    }
+
+    double getStartSec(int index) {
+        return startSecs.get_double(index);
+    }
+
+    double getDurationSec(int index) {
+        return durationSecs.get_double(index);
+    }
+
+    int indexAtOrAfter(double startSec) {
+        return startSecs.first_at_or_after(startSec);
+    }
+
+    void add(GCActivity gcActivity) {
+        int kind = 2 * nameID(gcActivity.getName()) +
+                (gcActivity.isSTW() ? 1 : 0);
+        startSecs.add(gcActivity.getStartSec());
+        durationSecs.add(gcActivity.getDurationSec());
+        overheadPercs.add(gcActivity.getOverheadPerc());
+        kinds.add((double) kind);
+    }
+
+    /**
+     * It returns the number of bytes taken up by the columns.
+     *
+     * @return The number of bytes taken up by the columns.
+     */
+    long footprint() {
+        return startSecs.footprint() + durationSecs.footprint() +
+                overheadPercs.footprint() + kinds.footprint();
+    }
+}
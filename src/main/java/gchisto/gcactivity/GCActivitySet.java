@@ -24,8 +24,11 @@
 package gchisto.gcactivity;
 
 import gchisto.utils.NumberSeq;
+import gchisto.utils.errorchecking.ErrorReporting;
 import gchisto.utils.errorchecking.NotImplementedException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.RandomAccess;
 
 /**
  * A set of GC activities. All GC activities in the set share the same name,
@@ -33,16 +36,23 @@ import java.util.ArrayList;
  * order based on the startSec() value of the included GC activities.
  * GC activities in the set should not overlap.
  * <p>
- * Because it extends <tt>java.util.ArrayList</tt>, an iteration over the GC
+ * Because it is a <tt>java.util.List</tt>, an iteration over the GC
  * activities in it can be easily done using the standard for-loop over
- * collections.
+ * collections. It can only be appended to, using
+ * <tt>addGCActivity()</tt>.
+ * <p>
+ * The GC activities are kept in a store that, for long GC traces, is
+ * compressed or disk-backed. In that case, the GC activities that are
+ * returned are not the same instances that were added, only equal in
+ * value.
  *
  * @author Tony Printezis
  * @see    gchisto.gcactivityset.GCActivity
  * @see    gchisto.gcactivityset.GCActivitySetListener
- * @see    java.util.ArrayList
+ * @see    gchisto.gcactivity.GCActivityStore
  */
-public class GCActivitySet extends ArrayList<GCActivity> {
+public class GCActivitySet extends AbstractList<GCActivity>
+        implements RandomAccess {
     
     /**
      * The name of the GC activities in the set. This name is the "kind"
@@ -54,6 +64,45 @@ public class GCActivitySet extends ArrayList<GCActivity> {
     
     final private NumberSeq numberSeq = new NumberSeq();
     
+    /**
+     * The store of the GC activities in the set. It is replaced, after all
+     * the GC activities have been copied to the new one, when the set
+     * moves to a disk-backed store.
+     */
+    private volatile GCActivityStore store = new HeapGCActivityStore();
+    
+    /**
+     * It copies the GC activities of the set to the given store and makes
+     * it the store of the set.
+     */
+    private void moveTo(GCActivityStore newStore) {
+        GCActivityStore oldStore = store;
+        int size = oldStore.size();
+        for (int i = 0; i < size; ++i) {
+            newStore.add(oldStore.get(i));
+        }
+        store = newStore;
+        oldStore.dispose();
+    }
+    
+    /**
+     * It moves the GC activities of the set to a disk-backed store. If
+     * the store cannot be created, they stay where they are.
+     */
+    private void moveOutOfCore() {
+        GCActivityStore newStore;
+        try {
+            newStore = new MappedGCActivityStore(
+                    GCActivityStore.OUT_OF_CORE_DIRECTORY,
+                    GCActivityStore.OUT_OF_CORE_MAPPED_SEGMENTS);
+        } catch (IOException e) {
+            ErrorReporting.warning("Could not create a disk-backed store for " +
+                    gcActivityName + ": " + e.getMessage());
+            return;
+        }
+        moveTo(newStore);
+    }
+    
     /**
      * It adds a new GC activity to the set. After adding it, it will call the
      * <tt>added()</tt> method on the listeners of this set.
@@ -63,8 +112,66 @@ public class GCActivitySet extends ArrayList<GCActivity> {
     public void addGCActivity(GCActivity gcActivity) {
         assert gcActivity != null;
         
-        add(gcActivity);
+        GCActivityStore store = this.store;
+        store.add(gcActivity);
         numberSeq.add(gcActivity.getDurationSec());
+        if (store instanceof MappedGCActivityStore) {
+            return;
+        }
+        int size = store.size();
+        if (GCActivityStore.OUT_OF_CORE &&
+                size > GCActivityStore.OUT_OF_CORE_THRESHOLD) {
+            moveOutOfCore();
+        } else if (store instanceof HeapGCActivityStore &&
+                GCActivityStore.COMPRESSION_THRESHOLD >= 0 &&
+                size > GCActivityStore.COMPRESSION_THRESHOLD) {
+            moveTo(new CompressedGCActivityStore());
+        }
+    }
+    
+    /**
+     * It returns the GC activity at the given index in the set.
+     *
+     * @param index The index of the GC activity to be returned.
+     * @return The GC activity at the given index in the set.
+     */
+    public GCActivity get(int index) {
+        return store.get(index);
+    }
+    
+    /**
+     * It returns the duration of the GC activity at the given index in the
+     * set, without creating a GC activity instance for it when the set is
+     * compressed or disk-backed. Reading the durations in index order
+     * decodes each block of a compressed set only once.
+     *
+     * @param index The index of the GC activity.
+     * @return The duration of the GC activity, in seconds.
+     */
+    public double getDurationSec(int index) {
+        return store.getDurationSec(index);
+    }
+
+    /**
+     * It returns the number of GC activities in the set.
+     *
+     * @return The number of GC activities in the set.
+     */
+    public int size() {
+        return store.size();
+    }
+    
+    /**
+     * It returns the index of the first GC activity in the set that starts
+     * at, or after, the given time stamp.
+     *
+     * @param startSec The time stamp, in seconds.
+     * @return The index of the first GC activity in the set that starts at,
+     * or after, the given time stamp, or the size of the set if there are
+     * none.
+     */
+    public int indexAtOrAfter(double startSec) {
+        return store.indexAtOrAfter(startSec);
     }
     
     /**
@@ -0,0 +1,162 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gcactivity;
+
+import java.io.File;
+
+/**
+ * The storage of the GC activities of a GC activity set. GC activities
+ * are only ever appended to it and they are read by index. The GC
+ * activities it returns are not necessarily the same instances that
+ * were added to it, only equal in value.
+ * <p>
+ * By default a GC activity set keeps its GC activities on the heap, and
+ * it compresses them once there are more than
+ * <tt>gchisto.compress.threshold</tt> of them. If the
+ * <tt>gchisto.outofcore</tt> system property is <tt>true</tt>, a GC
+ * activity set that grows beyond <tt>gchisto.outofcore.threshold</tt>
+ * GC activities moves them to a disk-backed store, so that the heap
+ * that a GC trace needs does not depend on its length.
+ *
+ * @see GCActivitySet
+ * @see HeapGCActivityStore
+ * @see CompressedGCActivityStore
+ * @see MappedGCActivityStore
+ */
+abstract class GCActivityStore {
+
+    /**
+     * The number of GC activities beyond which a GC activity set
+     * compresses its GC activities. A negative value turns compression
+     * off.
+     */
+    static final int COMPRESSION_THRESHOLD =
+            Integer.getInteger("gchisto.compress.threshold", 1 << 16);
+    /**
+     * Whether GC activity sets move their GC activities to a disk-backed
+     * store when they grow beyond <tt>OUT_OF_CORE_THRESHOLD</tt>.
+     */
+    static final boolean OUT_OF_CORE = Boolean.getBoolean("gchisto.outofcore");
+    /**
+     * The number of GC activities beyond which a GC activity set moves its
+     * GC activities to a disk-backed store.
+     */
+    static final int OUT_OF_CORE_THRESHOLD =
+            Integer.getInteger("gchisto.outofcore.threshold", 1 << 20);
+    /**
+     * The directory in which the files of the disk-backed stores are
+     * created.
+     */
+    static final File OUT_OF_CORE_DIRECTORY = new File(System.getProperty(
+            "gchisto.outofcore.dir", System.getProperty("java.io.tmpdir")));
+    /**
+     * The maximum number of segments of each disk-backed store that are
+     * mapped into memory at the same time.
+     */
+    static final int OUT_OF_CORE_MAPPED_SEGMENTS =
+            Integer.getInteger("gchisto.outofcore.segments", 64);
+
+    /**
+     * It returns the number of GC activities in the store.
+     *
+     * @return The number of GC activities in the store.
+     */
+    abstract int size();
+
+    /**
+     * It returns the GC activity with the given index.
+     *
+     * @param index The index of the GC activity to be returned.
+     * @return The GC activity with the given index.
+     */
+    abstract GCActivity get(int index);
+
+    /**
+     * It returns the start time stamp of the GC activity with the given
+     * index, without necessarily creating a GC activity instance for it.
+     *
+     * @param index The index of the GC activity.
+     * @return The start time stamp of the GC activity, in seconds.
+     */
+    double getStartSec(int index) {
+        return get(index).getStartSec();
+    }
+
+    /**
+     * It returns the duration of the GC activity with the given index,
+     * without necessarily creating a GC activity instance for it.
+     *
+     * @param index The index of the GC activity.
+     * @return The duration of the GC activity, in seconds.
+     */
+    double getDurationSec(int index) {
+        return get(index).getDurationSec();
+    }
+
+    /**
+     * It appends a GC activity to the store.
+     *
+     * @param gcActivity The GC activity to be appended.
+     */
+    abstract void add(GCActivity gcActivity);
+
+    /**
+     * It returns the index of the first GC activity that starts at, or
+     * after, the given time stamp. The GC activities are assumed to be
+     * in increasing start time stamp order.
+     *
+     * @param startSec The time stamp, in seconds.
+     * @return The index of the first GC activity that starts at, or after,
+     * the given time stamp, or the number of GC activities if there are
+     * none.
+     */
+    int indexAtOrAfter(double startSec) {
+        return indexAtOrAfter(startSec, 0, size());
+    }
+
+    /**
+     * It returns the index of the first GC activity in the given range that
+     * starts at, or after, the given time stamp.
+     *
+     * @param startSec The time stamp, in seconds.
+     * @param from The first index of the range, inclusive.
+     * @param to The last index of the range, exclusive.
+     * @return The index of the first GC activity in the range that starts
+     * at, or after, the given time stamp, or <tt>to</tt> if there are none.
+     */
+    int indexAtOrAfter(double startSec, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getStartSec(middle) < startSec) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * It releases any resources that the store holds. The store should not
+     * be used after it has been disposed of.
+     */
+    void dispose() {
+        // do nothing, unless overriden
+    }
+}
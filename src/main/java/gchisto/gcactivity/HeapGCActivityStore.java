@@ -0,0 +1,42 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gcactivity;
+
+import java.util.ArrayList;
+
+/**
+ * A GC activity store that keeps the GC activities on the heap, as
+ * instances of <tt>GCActivity</tt>. It returns the same instances that
+ * were added to it.
+ */
+class HeapGCActivityStore extends GCActivityStore {
+
+    final private ArrayList<GCActivity> gcActivities =
+            new ArrayList<GCActivity>();
+
+    int size() {
+        return gcActivities.size();
+    }
+
+    GCActivity get(int index) {
+        return gcActivities.get(index);
+    }
+
+    void add(GCActivity gcActivity) {
+        gcActivities.add(gcActivity);
+    }
+}
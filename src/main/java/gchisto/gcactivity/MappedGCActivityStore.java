@@ -0,0 +1,270 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gcactivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A GC activity store that keeps the GC activities in a file on disk.
+ * The file is split into fixed-size segments, each of which holds the
+ * columns (start time stamp, duration, overhead, name, and whether it is
+ * stop-the-world) of <tt>SEGMENT_CAPACITY</tt> GC activities. Segments are
+ * memory-mapped when they are accessed, and only the most recently
+ * accessed ones, plus the one that GC activities are being appended to,
+ * stay mapped.
+ * <p>
+ * The only per-segment data kept on the heap is the start time stamp of
+ * its first GC activity, which is used to find the segment that a time
+ * stamp falls in without mapping any others. The number sequence of the
+ * GC activity set, which all the statistics are calculated from, stays
+ * on the heap too.
+ */
+class MappedGCActivityStore extends GCActivityStore {
+
+    /**
+     * The log of the number of GC activities in a segment.
+     */
+    static final private int SEGMENT_SHIFT = 16;
+    /**
+     * The number of GC activities in a segment.
+     */
+    static final int SEGMENT_CAPACITY = 1 << SEGMENT_SHIFT;
+    static final private int SEGMENT_MASK = SEGMENT_CAPACITY - 1;
+    /**
+     * The offsets of the columns in a segment.
+     */
+    static final private int START_SEC_OFFSET = 0;
+    static final private int DURATION_SEC_OFFSET = START_SEC_OFFSET + 8 * SEGMENT_CAPACITY;
+    static final private int OVERHEAD_PERC_OFFSET = DURATION_SEC_OFFSET + 8 * SEGMENT_CAPACITY;
+    static final private int NAME_OFFSET = OVERHEAD_PERC_OFFSET + 8 * SEGMENT_CAPACITY;
+    static final private int STW_OFFSET = NAME_OFFSET + 4 * SEGMENT_CAPACITY;
+    /**
+     * The size of a segment, in bytes.
+     */
+    static final private int SEGMENT_BYTES = STW_OFFSET + SEGMENT_CAPACITY;
+
+    final private File file;
+    final private RandomAccessFile randomAccessFile;
+    final private FileChannel channel;
+    /**
+     * The names of the GC activities in the store. Each GC activity refers
+     * to its name by its index in this list.
+     */
+    final private List<String> names = new ArrayList<String>();
+    final private Map<String, Integer> nameIDs = new HashMap<String, Integer>();
+    /**
+     * The segments that are currently mapped, apart from the last one,
+     * in least recently accessed order.
+     */
+    final private LinkedHashMap<Integer, ByteBuffer> mappedSegments;
+    /**
+     * The segment that GC activities are being appended to.
+     */
+    private MappedByteBuffer lastSegment;
+    /**
+     * The start time stamp of the first GC activity of each segment.
+     */
+    private double[] segmentStartSecs = new double[16];
+    private int size;
+
+    /**
+     * It returns the segment with the given index, mapping it if it is not
+     * mapped already.
+     */
+    private ByteBuffer segment(int index) {
+        if (index == lastSegmentIndex()) {
+            return lastSegment;
+        }
+        ByteBuffer segment = mappedSegments.get(index);
+        if (segment == null) {
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        (long) index * SEGMENT_BYTES, SEGMENT_BYTES);
+            } catch (IOException e) {
+                throw new RuntimeException(
+                        "Could not map segment " + index + " of " + file, e);
+            }
+            mappedSegments.put(index, segment);
+        }
+        return segment;
+    }
+
+    private int lastSegmentIndex() {
+        return (size - 1) >>> SEGMENT_SHIFT;
+    }
+
+    /**
+     * It maps a new segment at the end of the file, for GC activities to
+     * be appended to.
+     */
+    private void addSegment() {
+        assert (size & SEGMENT_MASK) == 0;
+
+        int index = size >>> SEGMENT_SHIFT;
+        try {
+            lastSegment = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) index * SEGMENT_BYTES, SEGMENT_BYTES);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Could not extend " + file + " to segment " + index, e);
+        }
+        if (index == segmentStartSecs.length) {
+            double[] startSecs = new double[2 * index];
+            System.arraycopy(segmentStartSecs, 0, startSecs, 0, index);
+            segmentStartSecs = startSecs;
+        }
+    }
+
+    private int nameID(String name) {
+        Integer id = nameIDs.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIDs.put(name, id);
+        }
+        return id;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized GCActivity get(int index) {
+        assert 0 <= index && index < size : "index = " + index + ", size = " + size;
+
+        ByteBuffer segment = segment(index >>> SEGMENT_SHIFT);
+        int offset = index & SEGMENT_MASK;
+        String name = names.get(segment.getInt(NAME_OFFSET + 4 * offset));
+        double startSec = segment.getDouble(START_SEC_OFFSET + 8 * offset);
+        double durationSec = segment.getDouble(DURATION_SEC_OFFSET + 8 * offset);
+        if (segment.get(STW_OFFSET + offset) != 0) {
+            return new GCActivity(name, startSec, durationSec);
+        } else {
+            double overheadPerc = segment.getDouble(OVERHEAD_PERC_OFFSET + 8 * offset);
+            return new GCActivity(name, startSec, durationSec, overheadPerc);
+        }
+    }
+
+    synchronized double getStartSec(int index) {
+        assert 0 <= index && index < size : "index = " + index + ", size = " + size;
+
+        ByteBuffer segment = segment(index >>> SEGMENT_SHIFT);
+        int offset = index & SEGMENT_MASK;
+        return segment.getDouble(START_SEC_OFFSET + 8 * offset);
+    }
+
+    synchronized double getDurationSec(int index) {
+        assert 0 <= index && index < size : "index = " + index + ", size = " + size;
+
+        ByteBuffer segment = segment(index >>> SEGMENT_SHIFT);
+        int offset = index & SEGMENT_MASK;
+        return segment.getDouble(DURATION_SEC_OFFSET + 8 * offset);
+    }
+
+    synchronized void add(GCActivity gcActivity) {
+        if ((size & SEGMENT_MASK) == 0) {
+            addSegment();
+        }
+
+        int segmentIndex = size >>> SEGMENT_SHIFT;
+        int offset = size & SEGMENT_MASK;
+        lastSegment.putDouble(START_SEC_OFFSET + 8 * offset, gcActivity.getStartSec());
+        lastSegment.putDouble(DURATION_SEC_OFFSET + 8 * offset, gcActivity.getDurationSec());
+        lastSegment.putDouble(OVERHEAD_PERC_OFFSET + 8 * offset, gcActivity.getOverheadPerc());
+        lastSegment.putInt(NAME_OFFSET + 4 * offset, nameID(gcActivity.getName()));
+        lastSegment.put(STW_OFFSET + offset, (byte) (gcActivity.isSTW() ? 1 : 0));
+        if (offset == 0) {
+            segmentStartSecs[segmentIndex] = gcActivity.getStartSec();
+        }
+        size += 1;
+
+        if (offset == SEGMENT_MASK) {
+            // the segment is full, it can now be paged out like the rest
+            mappedSegments.put(segmentIndex, lastSegment);
+        }
+    }
+
+    synchronized int indexAtOrAfter(double startSec) {
+        if (size == 0) {
+            return 0;
+        }
+
+        // find the last segment that starts before the time stamp using
+        // the segment summaries, then search only that segment
+        int low = 0;
+        int high = lastSegmentIndex();
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segmentStartSecs[middle] < startSec) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int from = low << SEGMENT_SHIFT;
+        int to = Math.min(size, from + SEGMENT_CAPACITY);
+        return indexAtOrAfter(startSec, from, to);
+    }
+
+    synchronized void dispose() {
+        mappedSegments.clear();
+        lastSegment = null;
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            // nothing more we can do
+        }
+        file.delete();
+    }
+
+    /**
+     * It creates a new, empty, store in a new file in the given directory.
+     *
+     * @param directory The directory the file of the store is created in.
+     * @param maxMappedSegments The maximum number of segments, apart from
+     * the one that GC activities are being appended to, that stay mapped.
+     * @throws IOException If the file cannot be created.
+     */
+    MappedGCActivityStore(File directory, final int maxMappedSegments)
+            throws IOException {
+        this.file = File.createTempFile("gchisto", ".seg", directory);
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        // the file is only needed while the store is in use; where the
+        // platform allows it, it is removed from the directory straight
+        // away and its space is reclaimed when the channel is closed
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+        this.mappedSegments = new LinkedHashMap<Integer, ByteBuffer>(16, 0.75f, true) {
+
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                return size() > maxMappedSegments;
+            }
+        };
+    }
+}
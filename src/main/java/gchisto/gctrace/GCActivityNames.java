@@ -25,6 +25,8 @@ package gchisto.gctrace;
 
 import gchisto.utils.errorchecking.ArgumentChecking;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * It is a map that keeps track of GC activity names associated with a GC trace.
@@ -32,6 +34,9 @@ import java.util.ArrayList;
  * replication and fast string comparison. It also associates a unique ID with
  * each GC activity name. The allocated IDs start from 0 and then monotonically
  * increase as new GC activity names are added to the map.
+ * <p>
+ * GC activity names can only be appended to the map. Looking up the ID of a
+ * GC activity name is done through a hash table, not by scanning the list.
  *
  * @author Tony Printezis
  * @see    gchisto.gctraceset.GCTrace
@@ -39,6 +44,11 @@ import java.util.ArrayList;
  */
 public class GCActivityNames extends ArrayList<String> {
     
+    /**
+     * It maps each GC activity name in this map to its ID.
+     */
+    final private Map<String, Integer> ids = new HashMap<String, Integer>();
+    
     /**
      * It returns an array that contains all the unique strings of the GC
      * activity names that have been added to this map. The index of each
@@ -51,6 +61,47 @@ public class GCActivityNames extends ArrayList<String> {
         return toArray(new String[size()]);
     }
     
+    /**
+     * It appends a GC activity name to this map. Its ID will be the size
+     * of the map before it was added.
+     *
+     * @param gcActivityName The GC activity name to be added.
+     * @return <tt>true</tt>, as specified by <tt>Collection.add()</tt>.
+     */
+    public boolean add(String gcActivityName) {
+        ArgumentChecking.notNull(gcActivityName, "gcActivityName");
+        assert !ids.containsKey(gcActivityName);
+        
+        ids.put(gcActivityName, size());
+        return super.add(gcActivityName);
+    }
+    
+    /**
+     * It adds a GC activity name to this map. Since IDs are allocated in
+     * increasing order, the index should be the size of the map.
+     *
+     * @param index The ID of the GC activity name to be added.
+     * @param gcActivityName The GC activity name to be added.
+     */
+    public void add(int index, String gcActivityName) {
+        ArgumentChecking.withinBounds(index, size(), size(), "index");
+        
+        add(gcActivityName);
+    }
+    
+    public int indexOf(Object gcActivityName) {
+        Integer id = ids.get(gcActivityName);
+        return (id != null) ? id : -1;
+    }
+    
+    public int lastIndexOf(Object gcActivityName) {
+        return indexOf(gcActivityName);
+    }
+    
+    public boolean contains(Object gcActivityName) {
+        return ids.containsKey(gcActivityName);
+    }
+    
     /**
      * It iterates over the GC activity names of the parameter and, any of
      * them which do not exist in this map, it will add them.
@@ -68,4 +119,21 @@ public class GCActivityNames extends ArrayList<String> {
         }
     }
     
+    /**
+     * It creates a new, empty map.
+     */
+    public GCActivityNames() {
+    }
+    
+    /**
+     * It creates a new map with the same GC activity names, and IDs, as the
+     * given one.
+     *
+     * @param gcActivityNames The map to copy.
+     */
+    public GCActivityNames(GCActivityNames gcActivityNames) {
+        super(gcActivityNames.size() + 1);
+        merge(gcActivityNames);
+    }
+    
 }
@@ -26,6 +26,8 @@ package gchisto.gctrace;
 import gchisto.gcactivity.GCActivity;
 import gchisto.gcactivity.GCActivitySet;
 import gchisto.utils.errorchecking.ArgumentChecking;
+import gcparser.OldGenForecast;
+import gcparser.YoungGenSimulator;
 import java.util.ArrayList;
 import java.util.Date;
 
@@ -53,6 +55,14 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
      * @see gchisto.gctraceset.GCTraceSet#createUniqueGCTraceName(File)
      */
     private String name;
+    /**
+     * An optional user-supplied label that can be used to group this GC
+     * trace with others, or <tt>null</tt> if it has not been labelled.
+     *
+     * @see #getLabel()
+     * @see #setLabel(String)
+     */
+    private volatile String label;
     /**
      * The date/time when this GC trace was populated.
      *
@@ -73,6 +83,23 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
     final private Object hashCodeObject = new Object();
     final private GCActivitySet allGCActivities = new GCActivitySet("All");
     private double lastTimeStampSec;
+    /**
+     * The old generation occupancy analysis of this GC trace, or
+     * <tt>null</tt> if the GC trace generator does not provide heap data.
+     */
+    private volatile OldGenForecast oldGenForecast;
+    /**
+     * The young generation sizing model of this GC trace, or <tt>null</tt>
+     * if the GC trace generator does not provide young generation data.
+     */
+    private volatile YoungGenSimulator youngGenSimulator;
+    /**
+     * It maps the ID of each GC activity name of this GC trace to the ID
+     * of the same name in the GC trace set this GC trace has been added
+     * to. It is maintained by the GC trace set and it is replaced, not
+     * updated, when it changes.
+     */
+    private volatile int[] globalActivityIDs = new int[0];
 
     /**
      * TODO
@@ -113,6 +140,18 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
         return getName();
     }
 
+    /**
+     * It returns the label of this GC trace.
+     *
+     * @return The label of this GC trace, or <tt>null</tt> if it has not
+     * been labelled.
+     *
+     * @see #setLabel(String)
+     */
+    public String getLabel() {
+        return label;
+    }
+
     /**
      * It returns the date/time when this GC trace was populated.
      *
@@ -134,6 +173,39 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
         return gcActivityNames;
     }
 
+    /**
+     * It returns the ID, in the GC trace set this GC trace has been added
+     * to, of the GC activity name with the given ID in this GC trace.
+     *
+     * @param id The ID of a GC activity name in this GC trace.
+     * @return The ID of the same GC activity name in the GC trace set.
+     *
+     * @see gchisto.gctrace.GCTraceSet#getAllGCActivityNames()
+     */
+    public int getGlobalActivityID(int id) {
+        int[] ids = globalActivityIDs;
+        assert 0 <= id && id < ids.length;
+        return ids[id];
+    }
+
+    /**
+     * It returns the array that maps the ID of each GC activity name of
+     * this GC trace to its ID in the GC trace set. It should not be
+     * modified.
+     *
+     * @return The array that maps the GC activity name IDs of this GC
+     * trace to those of the GC trace set.
+     *
+     * @see #getGlobalActivityID(int)
+     */
+    public int[] getGlobalActivityIDs() {
+        return globalActivityIDs;
+    }
+
+    void setGlobalActivityIDs(int[] globalActivityIDs) {
+        this.globalActivityIDs = globalActivityIDs;
+    }
+
     public GCActivitySet getAllGCActivities() {
         return allGCActivities;
     }
@@ -141,6 +213,51 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
     public double getLastTimeStampSec() {
         return lastTimeStampSec;
     }
+
+    /**
+     * It returns the old generation occupancy analysis of this GC trace.
+     *
+     * @return The old generation occupancy analysis of this GC trace, or
+     * <tt>null</tt> if the GC trace generator does not provide heap data.
+     */
+    public OldGenForecast getOldGenForecast() {
+        return oldGenForecast;
+    }
+
+    /**
+     * It sets the old generation occupancy analysis of this GC trace. It
+     * should be called before the GC activities it covers are added, so
+     * that listeners see it when they are notified about them.
+     *
+     * @param oldGenForecast The old generation occupancy analysis of
+     * this GC trace.
+     */
+    public void setOldGenForecast(OldGenForecast oldGenForecast) {
+        this.oldGenForecast = oldGenForecast;
+    }
+
+    /**
+     * It returns the young generation sizing model of this GC trace.
+     *
+     * @return The young generation sizing model of this GC trace, or
+     * <tt>null</tt> if the GC trace generator does not provide young
+     * generation data.
+     */
+    public YoungGenSimulator getYoungGenSimulator() {
+        return youngGenSimulator;
+    }
+
+    /**
+     * It sets the young generation sizing model of this GC trace. It
+     * should be called before the GC activities it covers are added, so
+     * that listeners see it when they are notified about them.
+     *
+     * @param youngGenSimulator The young generation sizing model of this
+     * GC trace.
+     */
+    public void setYoungGenSimulator(YoungGenSimulator youngGenSimulator) {
+        this.youngGenSimulator = youngGenSimulator;
+    }
     
     /**
      * It returns an array containing the GC activity names that appear in
@@ -167,6 +284,19 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
         this.name = name;
     }
 
+    /**
+     * It sets the label of this GC trace.
+     *
+     * @param label The new label of this GC trace, or <tt>null</tt> to
+     * remove it.
+     *
+     * @see #getLabel()
+     * @see gchisto.gctraceset.GCTraceSet#setLabel(String, String)
+     */
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
     /**
      * It sets the read date/time of this GC trace.
      *
@@ -250,7 +380,9 @@ public abstract class GCTrace extends ArrayList<GCActivitySet> {
         GCActivitySet gcActivitySet = get(id);
         gcActivitySet.addGCActivity(gcActivity);
         allGCActivities.addGCActivity(gcActivity);
-        lastTimeStampSec = gcActivity.getEndSec();
+        // a GC activity can end before one that started earlier, e.g. a
+        // pause in a concurrent cycle
+        lastTimeStampSec = Math.max(lastTimeStampSec, gcActivity.getEndSec());
 
         listeners.callGCActivityAdded(this, gcActivitySet, gcActivity);
     }
@@ -23,99 +23,114 @@
  */
 package gchisto.gctrace;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
+ * It records, for a GC trace, how many GC activities each of its GC
+ * activity sets contained at the last two checkpoints. The sizes are kept
+ * in an immutable snapshot that is replaced, rather than updated, on each
+ * checkpoint, so they can be read while a new checkpoint is being taken
+ * without any locking.
  *
  * @author tony
  */
 public class GCTraceCheckpoint {
 
-    private GCTrace gcTrace;
-    private int gcTraceSize;
-    private List<Integer> prevCheckpointedSizes = new ArrayList<Integer>();
-    private List<Integer> checkpointedSizes = new ArrayList<Integer>();
-    private int prevAllSize;
-    private int allSize;
+    /**
+     * An immutable snapshot of the checkpointed sizes.
+     */
+    static private class Sizes {
 
-    synchronized public void checkpoint() {
-        assert prevCheckpointedSizes.size() == gcTraceSize;
-        assert checkpointedSizes.size() == gcTraceSize;
+        final private int[] prevSizes;
+        final private int[] sizes;
+        final private int prevAllSize;
+        final private int allSize;
 
-        for (int i = 0; i < gcTraceSize; ++i) {
-            int size = checkpointedSizes.get(i);
-            prevCheckpointedSizes.set(i, size);
+        private Sizes(int[] prevSizes, int[] sizes,
+                int prevAllSize, int allSize) {
+            assert prevSizes.length == sizes.length;
+
+            this.prevSizes = prevSizes;
+            this.sizes = sizes;
+            this.prevAllSize = prevAllSize;
+            this.allSize = allSize;
         }
-        prevAllSize = allSize;
+    }
+    
+    final private GCTrace gcTrace;
+    /**
+     * The current snapshot of the checkpointed sizes. It is only replaced
+     * while holding the lock on this object.
+     */
+    private volatile Sizes current =
+            new Sizes(new int[0], new int[0], 0, 0);
 
+    synchronized public void checkpoint() {
+        Sizes prev = current;
+        int gcTraceSize = prev.sizes.length;
+        int[] sizes = new int[gcTraceSize];
         for (int i = 0; i < gcTraceSize; ++i) {
-            int size = gcTrace.get(i).size();
-            checkpointedSizes.set(i, size);
+            sizes[i] = gcTrace.get(i).size();
         }
-        allSize = gcTrace.getAllGCActivities().size();
+        int allSize = gcTrace.getAllGCActivities().size();
+        current = new Sizes(prev.sizes, sizes, prev.allSize, allSize);
     }
 
     public int gcTraceSize() {
-        return gcTraceSize;
+        return current.sizes.length;
     }
 
     public int prevSize(int index) {
-        return prevCheckpointedSizes.get(index);
+        return current.prevSizes[index];
     }
 
     public int size(int index) {
-        return checkpointedSizes.get(index);
+        return current.sizes[index];
     }
 
     public int prevAllGCActivitiesSize() {
-        return prevAllSize;
+        return current.prevAllSize;
     }
 
     public int allGCActivitiesSize() {
-        return allSize;
+        return current.allSize;
     }
 
     public boolean needsCheckpoint() {
-        for (int i = 0; i < gcTraceSize; ++i) {
-            if (checkpointedSizes.get(i) != gcTrace.get(i).size()) {
+        Sizes sizes = current;
+        for (int i = 0; i < sizes.sizes.length; ++i) {
+            if (sizes.sizes[i] != gcTrace.get(i).size()) {
                 return true;
             }
         }
-        if (allSize != gcTrace.getAllGCActivities().size()) {
+        if (sizes.allSize != gcTrace.getAllGCActivities().size()) {
             return true;
         }
         return false;
     }
 
-    public void extend(int id) {
-        assert id == gcTraceSize;
-        int newGCTraceSize = gcTraceSize + 1;
-        assert prevCheckpointedSizes.size() == newGCTraceSize - 1;
-        assert checkpointedSizes.size() == newGCTraceSize - 1;
-        prevCheckpointedSizes.add(id, 0);
-        checkpointedSizes.add(id, 0);
-        assert prevCheckpointedSizes.size() == newGCTraceSize;
-        assert checkpointedSizes.size() == newGCTraceSize;
-        gcTraceSize = newGCTraceSize;
+    synchronized public void extend(int id) {
+        Sizes prev = current;
+        assert id == prev.sizes.length;
+        int newGCTraceSize = id + 1;
+        int[] prevSizes = new int[newGCTraceSize];
+        int[] sizes = new int[newGCTraceSize];
+        System.arraycopy(prev.prevSizes, 0, prevSizes, 0, id);
+        System.arraycopy(prev.sizes, 0, sizes, 0, id);
+        current = new Sizes(prevSizes, sizes, prev.prevAllSize, prev.allSize);
     }
 
     private void extendSizes() {
-        assert gcTraceSize == 0;
+        assert gcTraceSize() == 0;
         
         int newGCTraceSize = gcTrace.size();
         for (int i = 0; i < newGCTraceSize; ++i) {
             extend(i);
         }
         
-        assert gcTraceSize == newGCTraceSize;
+        assert gcTraceSize() == newGCTraceSize;
     }
 
     public GCTraceCheckpoint(GCTrace gcTrace) {
         this.gcTrace = gcTrace;
-        this.gcTraceSize = 0;
-        this.prevAllSize = 0;
-        this.allSize = 0;
 
         extendSizes();
     }
@@ -27,8 +27,11 @@ import gchisto.gcactivity.GCActivity;
 import gchisto.gcactivity.GCActivitySet;
 import gchisto.utils.errorchecking.ArgumentChecking;
 import gchisto.utils.errorchecking.ErrorReporting;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A set of GC traces. Each GC trace is associated with a unique name, as well
@@ -36,24 +39,60 @@ import java.util.LinkedList;
  * starting from 0. This is the data structure from which all the data
  * in the loaded GC traces are reachable from.
  * <p>
- * Because it extends <tt>java.util.LinkedList</tt>, an iteration over the GC
+ * GC traces are looked up by name, and their index is looked up, through
+ * hash tables. The GC activity names of all the GC traces are merged
+ * into a single map as GC traces, and GC activity names, are added, and
+ * each GC trace is given an array that maps its own GC activity IDs to the
+ * IDs in that map.
+ * <p>
+ * Because it extends <tt>java.util.ArrayList</tt>, an iteration over the GC
  * activities in it can be easily done using the standard for-loop over
  * collections.
  *
  * @author Tony Printezis
  * @see    GCTrace
  * @see    GCTraceSetListener
- * @see    java.util.LinkedList
+ * @see    java.util.ArrayList
  */
-public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
+public class GCTraceSet extends ArrayList<GCTrace> implements GCTraceListener {
     
     /**
      * The map that contains all the GC activity names of all the
-     * GC traces added to this set.
+     * GC traces added to this set. When a new name is added to it, it is
+     * copied and the copy is published, so that it can be read without
+     * holding the lock on this set.
      *
+     * @see #mergeGCActivityNames(GCTrace)
      * @see #recreateAllGCActivityNames()
      */
-    private GCActivityNames allGCActivityNames = new GCActivityNames();
+    private volatile GCActivityNames allGCActivityNames = new GCActivityNames();
+    
+    /**
+     * The number of GC traces in this set that each GC activity name in
+     * <tt>allGCActivityNames</tt> appears in, indexed by its ID.
+     */
+    private int[] gcActivityNameRefCounts = new int[8];
+    
+    /**
+     * It maps the name of each GC trace in this set to the GC trace.
+     */
+    final private Map<String, GCTrace> gcTracesByName =
+            new HashMap<String, GCTrace>();
+    
+    /**
+     * It maps each GC trace in this set to its index.
+     */
+    final private Map<GCTrace, Integer> gcTraceIndexes =
+            new HashMap<GCTrace, Integer>();
+    
+    /**
+     * It maps each suggested GC trace name to the last suffix that was
+     * used to make it unique.
+     *
+     * @see #createUniqueGCTraceName(GCTrace)
+     */
+    final private Map<String, Integer> lastSuffixes =
+            new HashMap<String, Integer>();
     
     /**
      * The GC trace set listeners.
@@ -68,8 +107,9 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
      * given file that is unique in this GC trace set. Typically, the name will
      * be the name of the file, let's call it NAME, without the associated path
      * information. If that is not unique, a suffix .NUM will be added, where
-     * NUM is an integer. NUM will start from 0 and will increase until
-     * NAME.NUM is unique.
+     * NUM is an integer. NUM will start from the last one that was used for
+     * NAME, or from 0 if a GC trace has been removed or renamed since, and
+     * will increase until NAME.NUM is unique.
      *
      * @param file The file for which a unique name will be created.
      * @return A unique GC trace name for the given file.
@@ -81,24 +121,103 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         
         String originalName = gcTrace.getSuggestedName();
         String name = originalName;
-        int i = 0;
-        while (findGCTrace(name) != null) {
+        Integer lastSuffix = lastSuffixes.get(originalName);
+        int i = (lastSuffix != null) ? lastSuffix : 0;
+        while (gcTracesByName.containsKey(name)) {
             ++i;
             name = originalName + "." + i;
         }
+        if (i > 0) {
+            lastSuffixes.put(originalName, i);
+        }
         return name;
     }
     
+    /**
+     * It makes sure there is a reference count for the given GC activity
+     * name ID.
+     */
+    private void ensureRefCount(int globalID) {
+        if (globalID >= gcActivityNameRefCounts.length) {
+            gcActivityNameRefCounts = Arrays.copyOf(gcActivityNameRefCounts,
+                    Math.max(globalID + 1, 2 * gcActivityNameRefCounts.length));
+        }
+    }
+    
+    /**
+     * It merges the GC activity names of the given GC trace that have not
+     * been merged yet into the map that contains all the GC activity
+     * names, and it extends the ID mapping of the GC trace accordingly.
+     *
+     * @param gcTrace The GC trace whose GC activity names will be merged.
+     */
+    private void mergeGCActivityNames(GCTrace gcTrace) {
+        GCActivityNames gcActivityNames = gcTrace.getGCActivityNames();
+        int[] globalIDs = gcTrace.getGlobalActivityIDs();
+        int from = globalIDs.length;
+        int to = gcActivityNames.size();
+        if (from == to) {
+            return;
+        }
+        
+        globalIDs = Arrays.copyOf(globalIDs, to);
+        GCActivityNames names = allGCActivityNames;
+        boolean copied = false;
+        for (int id = from; id < to; ++id) {
+            String gcActivityName = gcActivityNames.get(id);
+            int globalID = names.indexOf(gcActivityName);
+            if (globalID == -1) {
+                if (!copied) {
+                    names = new GCActivityNames(names);
+                    copied = true;
+                }
+                globalID = names.size();
+                names.add(gcActivityName);
+                ensureRefCount(globalID);
+            }
+            gcActivityNameRefCounts[globalID] += 1;
+            globalIDs[id] = globalID;
+        }
+        gcTrace.setGlobalActivityIDs(globalIDs);
+        if (copied) {
+            allGCActivityNames = names;
+        }
+    }
+    
     /**
      * It iterates over the GC traces in this set and recreates
-     * the map that contains all the GC activity names.
+     * the map that contains all the GC activity names, as well as the ID
+     * mapping of each GC trace. This is only needed when a GC activity
+     * name no longer appears in any of the GC traces.
      */
     private void recreateAllGCActivityNames() {
-        allGCActivityNames = new GCActivityNames();
+        GCActivityNames names = new GCActivityNames();
+        int[] refCounts = new int[gcActivityNameRefCounts.length];
         for (GCTrace trace : this) {
-            GCActivityNames gcActivityNames =  trace.getGCActivityNames();
-            allGCActivityNames.merge(gcActivityNames);
-            
+            GCActivityNames gcActivityNames = trace.getGCActivityNames();
+            int[] globalIDs = new int[gcActivityNames.size()];
+            for (int id = 0; id < globalIDs.length; ++id) {
+                String gcActivityName = gcActivityNames.get(id);
+                int globalID = names.indexOf(gcActivityName);
+                if (globalID == -1) {
+                    globalID = names.size();
+                    names.add(gcActivityName);
+                }
+                refCounts[globalID] += 1;
+                globalIDs[id] = globalID;
+            }
+            trace.setGlobalActivityIDs(globalIDs);
+        }
+        gcActivityNameRefCounts = refCounts;
+        allGCActivityNames = names;
+    }
+    
+    /**
+     * It updates the indexes of the GC traces from the given index onwards.
+     */
+    private void reindex(int from) {
+        for (int i = from; i < size(); ++i) {
+            gcTraceIndexes.put(get(i), i);
         }
     }
     
@@ -109,15 +228,10 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
      * @return The GC trace associated with the given name, or <tt>null</tt>
      * if the name does not appear in this GC trace set.
      */
-    public GCTrace findGCTrace(String gcTraceName) {
+    synchronized public GCTrace findGCTrace(String gcTraceName) {
         ArgumentChecking.notNull(gcTraceName, "gcTraceName");
         
-        for (GCTrace trace : this) {
-            if (trace.getName().equals(gcTraceName)) {
-                return trace;
-            }
-        }
-        return null;
+        return gcTracesByName.get(gcTraceName);
     }
     
     /**
@@ -139,17 +253,14 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
      * @return The index of the GC trace associated with the given name,
      * or <tt>-1</tt> if the name does not appear in this GC trace set.
      */
-    public int findGCTraceIndex(String gcTraceName) {
+    synchronized public int findGCTraceIndex(String gcTraceName) {
         ArgumentChecking.notNull(gcTraceName, "gcTraceName");
         
-        int index = 0;
-        for (GCTrace trace : this) {
-            if (trace.getName().equals(gcTraceName)) {
-                return index;
-            }
-            ++index;
+        GCTrace gcTrace = gcTracesByName.get(gcTraceName);
+        if (gcTrace == null) {
+            return -1;
         }
-        return -1;
+        return gcTraceIndexes.get(gcTrace);
     }
     
     /**
@@ -171,10 +282,13 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         String gcTraceName = createUniqueGCTraceName(gcTrace);
         gcTrace.setName(gcTraceName);
         gcTrace.setAddedDate(new Date(System.currentTimeMillis()));
+        gcTrace.setGlobalActivityIDs(new int[0]);
         gcTrace.addListener(this);
         add(gcTrace);
+        gcTracesByName.put(gcTraceName, gcTrace);
+        gcTraceIndexes.put(gcTrace, size() - 1);
         
-        recreateAllGCActivityNames();
+        mergeGCActivityNames(gcTrace);
         listeners.callGCTraceAdded(gcTrace);
         gcTrace.afterAddingToGCTraceSet();
     }
@@ -199,6 +313,10 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
                 gcTraceName + " does not exist in the GC trace set.");
         if (findGCTrace(newName) == null) {
             gcTrace.setName(newName);
+            gcTracesByName.remove(gcTraceName);
+            gcTracesByName.put(newName, gcTrace);
+            // the old name might be needed by createUniqueGCTraceName()
+            lastSuffixes.remove(gcTrace.getSuggestedName());
             listeners.callGCTraceRenamed(gcTrace);
         } else {
             ErrorReporting.warning("GC trace name " + newName +
@@ -206,6 +324,27 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         }
     }
     
+    /**
+     * It sets the label of a GC trace. After setting it, it will call the
+     * <tt>gcTraceRenamed()</tt> method on the listeners of this set, as
+     * the label is shown and used for grouping alongside the name.
+     *
+     * @param gcTraceName The name of the GC trace to be labelled.
+     * @param label The new label of the GC trace, or <tt>null</tt> to
+     * remove it.
+     *
+     * @see gchisto.gctraceset.GCTraceSetListener#gcTraceRenamed(GCTrace)
+     */
+    synchronized public void setLabel(String gcTraceName, String label) {
+        ArgumentChecking.notNull(gcTraceName, "gcTraceName");
+        
+        GCTrace gcTrace = findGCTrace(gcTraceName);
+        ErrorReporting.fatalError(gcTrace != null,
+                gcTraceName + " does not exist in the GC trace set.");
+        gcTrace.setLabel(label);
+        listeners.callGCTraceRenamed(gcTrace);
+    }
+    
     /**
      * It removes the GC trace associated with the given name from this set.
      * After removing it, it will call the <tt>gcTraceRemoved</tt> method
@@ -222,10 +361,23 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         ErrorReporting.fatalError(gcTrace != null,
                 gcTraceName + " does not exist in the GC trace set");
         gcTrace.beforeRemovingFromGCTraceSet();
-        boolean ret = super.remove(gcTrace);
-        assert ret;
+        int index = gcTraceIndexes.remove(gcTrace);
+        GCTrace removed = super.remove(index);
+        assert removed == gcTrace;
+        gcTracesByName.remove(gcTraceName);
+        lastSuffixes.remove(gcTrace.getSuggestedName());
+        reindex(index);
         
-        recreateAllGCActivityNames();
+        boolean unused = false;
+        for (int globalID : gcTrace.getGlobalActivityIDs()) {
+            gcActivityNameRefCounts[globalID] -= 1;
+            if (gcActivityNameRefCounts[globalID] == 0) {
+                unused = true;
+            }
+        }
+        if (unused) {
+            recreateAllGCActivityNames();
+        }
         listeners.callGCTraceRemoved(gcTrace);
     }
     
@@ -245,11 +397,10 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         GCTrace gcTrace = findGCTrace(gcTraceName);
         ErrorReporting.fatalError(gcTrace != null,
                 gcTraceName + " does not exist in the GC trace set");
-        int index = indexOf(gcTrace);
+        int index = gcTraceIndexes.get(gcTrace);
         assert 0 <= index && index < size();
         if (index > 0) {
-            super.remove(gcTrace);
-            add(index - 1, gcTrace);
+            swap(index - 1, index);
             listeners.callGCTraceMovedUp(gcTrace);
         } else {
             ErrorReporting.warning("GC trace " + gcTraceName +
@@ -273,11 +424,10 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         GCTrace gcTrace = findGCTrace(gcTraceName);
         ErrorReporting.fatalError(gcTrace != null,
                 gcTraceName + " does not exist in the GC trace set");
-        int index = indexOf(gcTrace);
+        int index = gcTraceIndexes.get(gcTrace);
         assert 0 <= index && index < size();
         if (index < (size() - 1)) {
-            super.remove(gcTrace);
-            add(index + 1, gcTrace);
+            swap(index, index + 1);
             listeners.callGCTraceMovedDown(gcTrace);
         } else {
             ErrorReporting.warning("GC trace " + gcTraceName +
@@ -285,6 +435,18 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         }
     }
     
+    /**
+     * It swaps the GC traces at the given indexes.
+     */
+    private void swap(int index1, int index2) {
+        GCTrace gcTrace1 = get(index1);
+        GCTrace gcTrace2 = get(index2);
+        set(index1, gcTrace2);
+        set(index2, gcTrace1);
+        gcTraceIndexes.put(gcTrace2, index1);
+        gcTraceIndexes.put(gcTrace1, index2);
+    }
+    
     /**
      * It adds a listener to this set.
      *
@@ -307,6 +469,15 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
         listeners.remove(listener);
     }
     
+    /**
+     * It returns the map that contains all the GC activity names that
+     * appear in the GC traces of this set. The returned map is not
+     * changed after it has been returned; a new one is created when GC
+     * activity names are added or removed.
+     *
+     * @return The map that contains all the GC activity names that appear
+     * in the GC traces of this set.
+     */
     public GCActivityNames getAllGCActivityNames() {
         return allGCActivityNames;
     }
@@ -331,10 +502,12 @@ public class GCTraceSet extends LinkedList<GCTrace> implements GCTraceListener {
             GCActivity gcActivity) {
     }
 
-    public void gcActivityNameAdded(GCTrace gcTrace,
+    synchronized public void gcActivityNameAdded(GCTrace gcTrace,
             int id,
             String gcActivityName) {
-        recreateAllGCActivityNames();
+        if (gcTraceIndexes.containsKey(gcTrace)) {
+            mergeGCActivityNames(gcTrace);
+        }
     }
     
     /**
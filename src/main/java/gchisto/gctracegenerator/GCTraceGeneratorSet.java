@@ -32,8 +32,15 @@ public class GCTraceGeneratorSet extends LinkedList<GCTraceGenerator> {
     static private final String[] GCTRACE_GENERATOR_CLASS_NAMES = {
         "gchisto.gctracegenerator.file.hotspot.GCTraceGenerator",
         "gchisto.gctracegenerator.file.hotspot.DynamicGCTraceGenerator",
+        "gchisto.gctracegenerator.file.hotspot.RotatedGCTraceGenerator",
+        "gchisto.gctracegenerator.file.hotspot.TimeSliceGCTraceGenerator",
+        "gchisto.gctracegenerator.file.hotspot.SampledGCTraceGenerator",
         "gchisto.gctracegenerator.file.simple.GCTraceGenerator",
-        "gchisto.gctracegenerator.file.simple.DynamicGCTraceGenerator"
+        "gchisto.gctracegenerator.file.simple.DynamicGCTraceGenerator",
+        "gchisto.gctracegenerator.file.binary.GCTraceGenerator",
+        "gchisto.gctracegenerator.file.binary.DynamicGCTraceGenerator",
+        "gchisto.gctracegenerator.file.jfr.GCTraceGenerator",
+        "gchisto.gctracegenerator.attach.GCTraceGenerator"
     };
     private GCTraceGeneratorForFiles gcTraceGeneratorForFiles;
 
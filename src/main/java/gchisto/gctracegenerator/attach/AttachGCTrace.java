@@ -0,0 +1,687 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.attach;
+
+import gcparser.OldGenForecast;
+import gchisto.gctrace.GCTrace;
+import gchisto.gctracegenerator.GCTraceGeneratorListener;
+import gchisto.utils.MessageReporter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import javax.management.MBeanServerConnection;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * A GC trace that is fed, while the JVM runs, by the GC notifications of a
+ * JVM on the local host. It attaches to the JVM with the Attach API, starts
+ * its local JMX agent if necessary, and adds a GC activity for each
+ * notification of its <tt>GarbageCollectorMXBean</tt>s. No GC log is
+ * involved.
+ * <p>
+ * The notification of a concurrent cycle is sent when the cycle ends,
+ * after those of the pauses in it. So that the GC activities are added in
+ * the order they started, as with the other GC trace generators, each one
+ * is held back until the concurrent cycles it might be part of have ended,
+ * or for at most <tt>gchisto.attach.hold</tt> milliseconds. The usage of
+ * the old generation before and after each GC feeds the old generation
+ * forecast of this trace.
+ * <p>
+ * The GC activities are named after the collector and, if it is not a
+ * routine one, the cause of the GC (e.g. <tt>PS MarkSweep (System.gc())</tt>).
+ * The notifications are decoded from their open data, instead of with
+ * <tt>com.sun.management.GarbageCollectionNotificationInfo</tt>, so that
+ * this class does not depend on the JVM gchisto runs on. Similarly, the
+ * Attach API is accessed reflectively, as it is not on the class path of
+ * older JVMs.
+ */
+public class AttachGCTrace extends GCTrace {
+
+    static private final String GC_NOTIFICATION =
+            "com.sun.management.gc.notification";
+    static private final String LOCAL_CONNECTOR_ADDRESS =
+            "com.sun.management.jmxremote.localConnectorAddress";
+    static private final String VIRTUAL_MACHINE =
+            "com.sun.tools.attach.VirtualMachine";
+    static private final String VIRTUAL_MACHINE_DESCRIPTOR =
+            "com.sun.tools.attach.VirtualMachineDescriptor";
+    /**
+     * The GC causes that are not added to the names of the GC activities,
+     * as they are the reason most GCs happen.
+     */
+    static private final String[] ROUTINE_CAUSES = {
+        "Allocation Failure", "G1 Evacuation Pause", "No GC",
+        "CMS Initial Mark", "CMS Final Remark",
+        // ZGC
+        "Warmup", "Allocation Rate", "Proactive", "Timer", "High Usage",
+        // Shenandoah
+        "Concurrent GC"
+    };
+    /**
+     * The collectors that run concurrent cycles, whose notifications are
+     * sent after those of the pauses in the cycles. Collectors are also
+     * added to them when they send the notification of a concurrent cycle.
+     */
+    static private final String[] CYCLE_COLLECTORS = {
+        "ConcurrentMarkSweep", "ZGC Cycles", "ZGC Minor Cycles",
+        "ZGC Major Cycles", "Shenandoah Cycles"
+    };
+    /**
+     * The memory pools of the old generation, or of the whole heap for
+     * the collectors that do not have generations.
+     */
+    static private final String[] OLD_GEN_POOLS = {
+        "PS Old Gen", "CMS Old Gen", "Tenured Gen", "G1 Old Gen",
+        "ZGC Old Generation", "ZHeap", "Shenandoah"
+    };
+    /**
+     * The longest time, in milliseconds, that a GC activity is held back
+     * waiting for the concurrent cycles it might be part of to end.
+     */
+    static private final long HOLD_MS =
+            Long.getLong("gchisto.attach.hold", 10000);
+    /**
+     * How often, in milliseconds, the GC activities that have been held
+     * back long enough are added and the old generation forecast of this
+     * trace is updated.
+     */
+    static private final long RELEASE_PERIOD_MS = 1000;
+    static private final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    static private ClassLoader attachClassLoader;
+
+    final private String pid;
+    final private String displayName;
+    final private Date attachedDate = new Date(System.currentTimeMillis());
+    final private Map<String, Integer> gcActivityIds =
+            new HashMap<String, Integer>();
+    final private NotificationListener gcListener = new GCListener();
+    final private NotificationListener connectionListener =
+            new ConnectionListener();
+    final private List<ObjectName> gcNames = new ArrayList<ObjectName>();
+    /**
+     * The GC activities that have not been added yet, by start time.
+     */
+    final private PriorityQueue<PendingGCActivity> pendingGCActivities =
+            new PriorityQueue<PendingGCActivity>(16,
+            new Comparator<PendingGCActivity>() {
+
+                public int compare(PendingGCActivity a1,
+                        PendingGCActivity a2) {
+                    int c = Double.compare(a1.startSec, a2.startSec);
+                    return c != 0 ? c : Long.compare(a1.seq, a2.seq);
+                }
+            });
+    /**
+     * It maps each collector that runs concurrent cycles to the end of
+     * its latest notification, in seconds. No GC activity that starts
+     * before all of them can be part of a cycle that is still running.
+     */
+    final private Map<String, Double> cycleEndSecs =
+            new HashMap<String, Double>();
+    /**
+     * The old generation forecast that the notifications feed. Copies of
+     * it are given to this trace, as it is read by other threads.
+     */
+    final private OldGenForecast oldGenForecast = new OldGenForecast();
+
+    private JMXConnector connector;
+    private MBeanServerConnection connection;
+    private Timer releaseTimer;
+    private int processors = 1;
+    private long pendingSeq;
+    private double lastStartSec;
+    private boolean oldGenForecastChanged;
+    private long oldGenForecastSetMs;
+
+    private String lastGCName;
+    private String lastGCCause;
+    private Map<String, MemoryUsage> lastUsageBefore;
+    private Map<String, MemoryUsage> lastUsageAfter;
+    private long notificationCount;
+    private long lostNotificationCount;
+
+    static private class PendingGCActivity {
+
+        final private long seq;
+        final private int id;
+        final private double startSec;
+        final private double durationSec;
+        /**
+         * The concurrent overhead, or a negative number for a
+         * stop-the-world GC activity.
+         */
+        final private double overheadPerc;
+        final private long arrivalMs;
+
+        private PendingGCActivity(long seq, int id, double startSec,
+                double durationSec, double overheadPerc) {
+            this.seq = seq;
+            this.id = id;
+            this.startSec = startSec;
+            this.durationSec = durationSec;
+            this.overheadPerc = overheadPerc;
+            this.arrivalMs = System.currentTimeMillis();
+        }
+    }
+
+    private class GCListener implements NotificationListener {
+
+        public void handleNotification(Notification notification,
+                Object handback) {
+            if (GC_NOTIFICATION.equals(notification.getType())) {
+                gcNotification((CompositeData) notification.getUserData());
+            }
+        }
+    }
+
+    private class ConnectionListener implements NotificationListener {
+
+        public void handleNotification(Notification notification,
+                Object handback) {
+            String type = notification.getType();
+            if (JMXConnectionNotification.NOTIFS_LOST.equals(type)) {
+                synchronized (AttachGCTrace.this) {
+                    Object lost = notification.getUserData();
+                    lostNotificationCount +=
+                            (lost instanceof Long) ? (Long) lost : 1;
+                }
+            } else if (JMXConnectionNotification.CLOSED.equals(type) ||
+                    JMXConnectionNotification.FAILED.equals(type)) {
+                // no cycle will end any more
+                releaseGCActivities(true);
+                MessageReporter.showMessage("Lost connection to JVM " + pid);
+            }
+        }
+    }
+
+    private class ConcurrentAttacher extends Thread {
+
+        private GCTraceGeneratorListener listener;
+
+        public void run() {
+            MessageReporter.showMessage("Attaching to JVM " + pid);
+            listener.started();
+            try {
+                connect();
+                MessageReporter.showMessage("Attached to JVM " + pid);
+                listener.finished(AttachGCTrace.this);
+            } catch (Exception e) {
+                MessageReporter.showError("Error attaching to JVM " + pid +
+                        " : " + e.getMessage());
+                disconnect();
+                listener.failed();
+            }
+        }
+
+        public ConcurrentAttacher(GCTraceGeneratorListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * It returns the class loader that loads the Attach API. On JVMs where
+     * the Attach API is not on the class path it is loaded from the
+     * <tt>tools.jar</tt> of the JDK.
+     */
+    synchronized static private ClassLoader attachClassLoader()
+            throws ClassNotFoundException {
+        if (attachClassLoader == null) {
+            ClassLoader loader = AttachGCTrace.class.getClassLoader();
+            try {
+                Class.forName(VIRTUAL_MACHINE, false, loader);
+            } catch (ClassNotFoundException e) {
+                File javaHome = new File(System.getProperty("java.home"));
+                File toolsJar = new File(javaHome.getParentFile(),
+                        "lib" + File.separator + "tools.jar");
+                if (!toolsJar.exists()) {
+                    throw e;
+                }
+                try {
+                    loader = new URLClassLoader(
+                            new URL[]{toolsJar.toURI().toURL()}, loader);
+                } catch (IOException ioe) {
+                    throw e;
+                }
+                Class.forName(VIRTUAL_MACHINE, false, loader);
+            }
+            attachClassLoader = loader;
+        }
+        return attachClassLoader;
+    }
+
+    static private Object invoke(Object target, String className,
+            String methodName, Class<?>[] types, Object[] args)
+            throws Exception {
+        Class<?> c = Class.forName(className, true, attachClassLoader());
+        Method method = c.getMethod(methodName, types);
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * It returns the JVMs on the local host that can be attached to, as
+     * <tt>pid</tt>, <tt>display name</tt> pairs.
+     *
+     * @return The JVMs that can be attached to.
+     */
+    static public Map<String, String> listJVMs() throws Exception {
+        Map<String, String> jvms = new LinkedHashMap<String, String>();
+        List<?> descriptors = (List<?>) invoke(null, VIRTUAL_MACHINE, "list",
+                new Class<?>[0], new Object[0]);
+        for (Object descriptor : descriptors) {
+            String id = (String) invoke(descriptor, VIRTUAL_MACHINE_DESCRIPTOR,
+                    "id", new Class<?>[0], new Object[0]);
+            String name = (String) invoke(descriptor,
+                    VIRTUAL_MACHINE_DESCRIPTOR, "displayName",
+                    new Class<?>[0], new Object[0]);
+            jvms.put(id, name);
+        }
+        return jvms;
+    }
+
+    /**
+     * It returns the address of the local JMX connector of the given JVM,
+     * starting its management agent if it is not already running.
+     */
+    static private String connectorAddress(Object vm) throws Exception {
+        try {
+            return (String) invoke(vm, VIRTUAL_MACHINE,
+                    "startLocalManagementAgent", new Class<?>[0],
+                    new Object[0]);
+        } catch (NoSuchMethodException e) {
+            // a JDK before 8, fall through
+        }
+
+        Properties properties = (Properties) invoke(vm, VIRTUAL_MACHINE,
+                "getAgentProperties", new Class<?>[0], new Object[0]);
+        String address = properties.getProperty(LOCAL_CONNECTOR_ADDRESS);
+        if (address == null) {
+            Properties systemProperties = (Properties) invoke(vm,
+                    VIRTUAL_MACHINE, "getSystemProperties",
+                    new Class<?>[0], new Object[0]);
+            String agent = systemProperties.getProperty("java.home") +
+                    File.separator + "lib" + File.separator +
+                    "management-agent.jar";
+            invoke(vm, VIRTUAL_MACHINE, "loadAgent",
+                    new Class<?>[]{String.class}, new Object[]{agent});
+            properties = (Properties) invoke(vm, VIRTUAL_MACHINE,
+                    "getAgentProperties", new Class<?>[0], new Object[0]);
+            address = properties.getProperty(LOCAL_CONNECTOR_ADDRESS);
+        }
+        if (address == null) {
+            throw new IOException("could not start the management agent");
+        }
+        return address;
+    }
+
+    /**
+     * It attaches to the JVM, connects to its JMX agent and subscribes to
+     * the notifications of its garbage collectors.
+     */
+    private void connect() throws Exception {
+        Object vm = invoke(null, VIRTUAL_MACHINE, "attach",
+                new Class<?>[]{String.class}, new Object[]{pid});
+        String address;
+        try {
+            address = connectorAddress(vm);
+        } finally {
+            invoke(vm, VIRTUAL_MACHINE, "detach", new Class<?>[0],
+                    new Object[0]);
+        }
+
+        connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+        connector.addConnectionNotificationListener(
+                connectionListener, null, null);
+        connection = connector.getMBeanServerConnection();
+
+        OperatingSystemMXBean os = ManagementFactory.newPlatformMXBeanProxy(
+                connection, ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME,
+                OperatingSystemMXBean.class);
+        processors = Math.max(1, os.getAvailableProcessors());
+
+        Set<ObjectName> names = connection.queryNames(new ObjectName(
+                ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*"),
+                null);
+        synchronized (this) {
+            for (ObjectName name : names) {
+                String gcName = name.getKeyProperty("name");
+                if (contains(CYCLE_COLLECTORS, gcName)) {
+                    // hold everything back until its first cycle ends
+                    cycleEndSecs.put(gcName, Double.NEGATIVE_INFINITY);
+                }
+            }
+        }
+        for (ObjectName name : names) {
+            connection.addNotificationListener(name, gcListener, null, null);
+            gcNames.add(name);
+        }
+
+        releaseTimer = new Timer("GC activities of JVM " + pid, true);
+        releaseTimer.schedule(new TimerTask() {
+
+            public void run() {
+                releaseGCActivities(false);
+            }
+        }, RELEASE_PERIOD_MS, RELEASE_PERIOD_MS);
+    }
+
+    /**
+     * It unsubscribes from the notifications and closes the connection to
+     * the JVM. Errors are ignored, as the JVM might have already exited.
+     */
+    private void disconnect() {
+        if (releaseTimer != null) {
+            releaseTimer.cancel();
+            releaseTimer = null;
+        }
+        if (connection != null) {
+            for (ObjectName name : gcNames) {
+                try {
+                    connection.removeNotificationListener(name, gcListener);
+                } catch (Exception e) {
+                }
+            }
+            gcNames.clear();
+            connection = null;
+        }
+        if (connector != null) {
+            try {
+                connector.removeConnectionNotificationListener(
+                        connectionListener);
+            } catch (Exception e) {
+            }
+            try {
+                connector.close();
+            } catch (IOException e) {
+            }
+            connector = null;
+        }
+    }
+
+    static private boolean contains(String[] strings, String string) {
+        for (String s : strings) {
+            if (s.equals(string)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * It returns whether the GC that a notification is about ran
+     * concurrently with the application, e.g. a ZGC or Shenandoah cycle
+     * or a background CMS cycle, rather than in a pause. The pauses of
+     * G1's concurrent cycles (<tt>end of concurrent GC pause</tt>) and
+     * the foreground, stop-the-world, full GCs of CMS, which is notified
+     * about with the same action as its background cycles but not with a
+     * CMS cause, are not concurrent.
+     */
+    static private boolean isConcurrent(String gcAction, String gcCause) {
+        String action = gcAction.toLowerCase();
+        if (action.contains("pause")) {
+            return false;
+        }
+        return action.contains("cycle") || gcCause.startsWith("CMS ");
+    }
+
+    /**
+     * It returns the usage of the old generation pool out of the given
+     * ones, or <tt>null</tt> if there is none.
+     */
+    static private MemoryUsage oldGenUsage(Map<String, MemoryUsage> usage) {
+        for (String pool : OLD_GEN_POOLS) {
+            MemoryUsage poolUsage = usage.get(pool);
+            if (poolUsage != null) {
+                return poolUsage;
+            }
+        }
+        return null;
+    }
+
+    static private Map<String, MemoryUsage> memoryUsage(TabularData data) {
+        Map<String, MemoryUsage> usage =
+                new LinkedHashMap<String, MemoryUsage>();
+        for (Object row : data.values()) {
+            CompositeData entry = (CompositeData) row;
+            usage.put((String) entry.get("key"),
+                    MemoryUsage.from((CompositeData) entry.get("value")));
+        }
+        return usage;
+    }
+
+    /**
+     * It returns the id of the GC activity with the given name, adding
+     * the name to this trace if it is a new one.
+     */
+    private int gcActivityId(String gcActivityName) {
+        Integer id = gcActivityIds.get(gcActivityName);
+        if (id == null) {
+            id = size();
+            addGCActivityName(id, gcActivityName);
+            gcActivityIds.put(gcActivityName, id);
+        }
+        return id;
+    }
+
+    /**
+     * It feeds the usage of the old generation before and after a GC to
+     * the old generation forecast. The notifications arrive as the GCs
+     * end, which is the order the forecast expects.
+     */
+    private void feedOldGenForecast(String gcAction, boolean concurrent,
+            double startSec, double endSec) {
+        MemoryUsage before = oldGenUsage(lastUsageBefore);
+        MemoryUsage after = oldGenUsage(lastUsageAfter);
+        if (concurrent) {
+            oldGenForecast.cms_initial_mark(startSec);
+            oldGenForecast.cms_sweep_end(endSec);
+        } else if (after == null) {
+            return;
+        } else if (gcAction.contains("major")) {
+            oldGenForecast.full_gc(endSec, after.getUsed() / BYTES_PER_MB,
+                    after.getCommitted() / BYTES_PER_MB);
+        } else {
+            double used = after.getUsed() / BYTES_PER_MB;
+            double usedBeg = before != null ?
+                before.getUsed() / BYTES_PER_MB : used;
+            oldGenForecast.young_gc(startSec, endSec, usedBeg, used,
+                    after.getCommitted() / BYTES_PER_MB,
+                    Math.max(0.0, used - usedBeg));
+        }
+        oldGenForecastChanged = true;
+    }
+
+    /**
+     * It gives this trace a copy of the old generation forecast, if it
+     * has changed since the last copy and either the given flag is set or
+     * the last copy is older than the release period.
+     */
+    private void setOldGenForecast(boolean force) {
+        long nowMs = System.currentTimeMillis();
+        if (!oldGenForecastChanged ||
+                (!force && nowMs - oldGenForecastSetMs < RELEASE_PERIOD_MS)) {
+            return;
+        }
+        // appending to an empty forecast copies it
+        OldGenForecast copy = new OldGenForecast();
+        copy.set_keep_series(true);
+        copy.append(oldGenForecast);
+        setOldGenForecast(copy);
+        oldGenForecastChanged = false;
+        oldGenForecastSetMs = nowMs;
+    }
+
+    /**
+     * It adds, in the order they started, the pending GC activities that
+     * start before the concurrent cycles that might still be running, or
+     * that have been held back for long enough. A cycle that is added
+     * after GC activities that started later, because it ran for longer
+     * than they are held back, is added as if it started with the last
+     * of them, so that the order is kept.
+     *
+     * @param all Whether to add all the pending GC activities, when no
+     * more notifications will arrive.
+     */
+    synchronized private void releaseGCActivities(boolean all) {
+        setOldGenForecast(all);
+
+        double cycleEndSec = Double.POSITIVE_INFINITY;
+        for (double endSec : cycleEndSecs.values()) {
+            cycleEndSec = Math.min(cycleEndSec, endSec);
+        }
+        long nowMs = System.currentTimeMillis();
+        while (!pendingGCActivities.isEmpty()) {
+            PendingGCActivity pending = pendingGCActivities.peek();
+            if (!all && pending.startSec >= cycleEndSec &&
+                    nowMs - pending.arrivalMs < HOLD_MS) {
+                break;
+            }
+            pendingGCActivities.poll();
+
+            double startSec = Math.max(pending.startSec, lastStartSec);
+            double durationSec = Math.max(0.0,
+                    pending.durationSec - (startSec - pending.startSec));
+            if (pending.overheadPerc < 0.0) {
+                addGCActivity(pending.id, startSec, durationSec);
+            } else {
+                addGCActivity(pending.id, startSec, durationSec,
+                        pending.overheadPerc);
+            }
+            lastStartSec = startSec;
+        }
+    }
+
+    /**
+     * It holds back the GC activity that a GC notification is about,
+     * feeds the old generation forecast and adds the pending GC activities
+     * that can be added.
+     *
+     * @param data The user data of the notification.
+     */
+    synchronized private void gcNotification(CompositeData data) {
+        String gcName = (String) data.get("gcName");
+        String gcAction = (String) data.get("gcAction");
+        String gcCause = (String) data.get("gcCause");
+        CompositeData gcInfo = (CompositeData) data.get("gcInfo");
+
+        double startSec = ((Long) gcInfo.get("startTime")).doubleValue() / 1000.0;
+        double durationSec = ((Long) gcInfo.get("duration")).doubleValue() / 1000.0;
+        String gcActivityName = contains(ROUTINE_CAUSES, gcCause) ?
+            gcName : gcName + " (" + gcCause + ")";
+        int id = gcActivityId(gcActivityName);
+        boolean concurrent = isConcurrent(gcAction, gcCause);
+        // assume a single GC thread, out of all the processors of the JVM
+        double overheadPerc = concurrent ? 100.0 / processors : -1.0;
+        pendingGCActivities.add(new PendingGCActivity(pendingSeq++, id,
+                startSec, durationSec, overheadPerc));
+        if (concurrent || contains(CYCLE_COLLECTORS, gcName)) {
+            // the next cycle of this collector starts after this GC
+            cycleEndSecs.put(gcName, startSec + durationSec);
+        }
+
+        lastGCName = gcName;
+        lastGCCause = gcCause;
+        lastUsageBefore =
+                memoryUsage((TabularData) gcInfo.get("memoryUsageBeforeGc"));
+        lastUsageAfter =
+                memoryUsage((TabularData) gcInfo.get("memoryUsageAfterGc"));
+        ++notificationCount;
+
+        feedOldGenForecast(gcAction, concurrent, startSec,
+                startSec + durationSec);
+        releaseGCActivities(false);
+    }
+
+    public void init(GCTraceGeneratorListener listener) {
+        new ConcurrentAttacher(listener).start();
+    }
+
+    synchronized public void beforeRemovingFromGCTraceSet() {
+        disconnect();
+        MessageReporter.showMessage("Detached from JVM " + pid);
+    }
+
+    public String getSuggestedName() {
+        return "JVM : " + pid;
+    }
+
+    public String getLongName() {
+        return "JVM : " + pid + " " + displayName;
+    }
+
+    synchronized public String getInfoString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getName() + "\n");
+        sb.append("\n");
+        sb.append("PID : " + pid + "\n");
+        sb.append("Main Class : " + displayName + "\n");
+        sb.append("Attached On : " + attachedDate + "\n");
+        sb.append("Notifications : " + notificationCount + "\n");
+        sb.append("Lost Notifications : " + lostNotificationCount + "\n");
+        if (lastGCName != null) {
+            sb.append("\n");
+            sb.append("Last GC : " + lastGCName + " (" + lastGCCause + ")\n");
+            for (String pool : lastUsageAfter.keySet()) {
+                MemoryUsage before = lastUsageBefore.get(pool);
+                MemoryUsage after = lastUsageAfter.get(pool);
+                sb.append(String.format("  %s : %1.2fMB -> %1.2fMB (%1.2fMB)\n",
+                        pool,
+                        (before != null ? before.getUsed() : 0) / BYTES_PER_MB,
+                        after.getUsed() / BYTES_PER_MB,
+                        after.getCommitted() / BYTES_PER_MB));
+            }
+        }
+        return sb.toString();
+    }
+
+    public AttachGCTrace(String pid, String displayName) {
+        this.pid = pid;
+        this.displayName = displayName;
+        oldGenForecast.set_keep_series(true);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.attach;
+
+import gchisto.gctracegenerator.GCTraceGeneratorListener;
+import gchisto.utils.errorchecking.ArgumentChecking;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+
+/**
+ * A GC trace generator that attaches to a JVM on the local host and
+ * monitors its GCs while it runs.
+ *
+ *
+ * @see gchisto.gctracegenerator.attach.AttachGCTrace
+ */
+public class GCTraceGenerator
+        implements gchisto.gctracegenerator.GCTraceGenerator {
+
+    static private final String TITLE = "Attach to Local JVM";
+
+    public String getGCTraceType() {
+        return "Local JVM";
+    }
+
+    /**
+     * It asks the user for the JVM to attach to. It shows the JVMs that
+     * can be attached to, or asks for a pid if they cannot be listed.
+     *
+     * @return The pid and display name of the JVM, or <tt>null</tt> if
+     * the user cancelled.
+     */
+    private String[] getJVMFromDialog(JComponent component) {
+        Map<String, String> jvms = null;
+        try {
+            jvms = AttachGCTrace.listJVMs();
+        } catch (Exception e) {
+            // the JVMs cannot be listed, ask for a pid instead
+        }
+
+        if (jvms == null || jvms.isEmpty()) {
+            String pid = JOptionPane.showInputDialog(component,
+                    "PID", TITLE, JOptionPane.QUESTION_MESSAGE);
+            if (pid == null || pid.trim().length() == 0) {
+                return null;
+            }
+            return new String[]{pid.trim(), ""};
+        }
+
+        String[] choices = new String[jvms.size()];
+        int i = 0;
+        for (Map.Entry<String, String> jvm : jvms.entrySet()) {
+            choices[i++] = jvm.getKey() + " " + jvm.getValue();
+        }
+        String choice = (String) JOptionPane.showInputDialog(component,
+                "JVM", TITLE, JOptionPane.QUESTION_MESSAGE,
+                null, choices, choices[0]);
+        if (choice == null) {
+            return null;
+        }
+        String pid = choice.split(" ", 2)[0];
+        return new String[]{pid, jvms.get(pid)};
+    }
+
+    public void createNewGCTrace(JComponent component,
+            GCTraceGeneratorListener listener) {
+        ArgumentChecking.notNull(component, "component");
+
+        String[] jvm = getJVMFromDialog(component);
+        if (jvm != null) {
+            createNewGCTrace(jvm[0], jvm[1], listener);
+        }
+    }
+
+    /**
+     * It attaches to the JVM with the given pid. The listener is called
+     * when the GC trace has been attached to the JVM; the GC activities
+     * are added to it as the JVM's GCs happen.
+     *
+     * @param pid The pid of the JVM.
+     * @param displayName The name the JVM is shown with.
+     * @param listener The listener to notify.
+     */
+    public void createNewGCTrace(String pid, String displayName,
+            GCTraceGeneratorListener listener) {
+        new AttachGCTrace(pid, displayName).init(listener);
+    }
+
+    public GCTraceGenerator() {
+    }
+}
@@ -55,6 +55,17 @@ abstract public class FileGCTraceGenerator implements GCTraceGeneratorForFiles {
     }
     
     abstract protected FileGCTrace newFileGCTrace(File file);
+
+    /**
+     * It creates a new GC trace for a file that the user chose in the
+     * given component. Generators that need more details from the user
+     * can ask for them here.
+     *
+     * @return The new GC trace, or <tt>null</tt> if the user cancelled.
+     */
+    protected FileGCTrace newFileGCTrace(JComponent component, File file) {
+        return newFileGCTrace(file);
+    }
     
     public void createNewGCTrace(File file,
             GCTraceGeneratorListener listener) {
@@ -69,7 +80,11 @@ abstract public class FileGCTraceGenerator implements GCTraceGeneratorForFiles {
         
         File file = getFileFromDialog(component);
         if (file != null) {
-            createNewGCTrace(file, listener);
+            FileGCTrace gcTrace = newFileGCTrace(component, file);
+            if (gcTrace != null) {
+                gcTrace.init(listener);
+                currDir = file;
+            }
         }
     }
     
@@ -0,0 +1,137 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.gctracegenerator.file.GCLogFileReader;
+import gchisto.gctracegenerator.file.NopGCLogFileReaderThrottle;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A command line converter of GC logs to binary GC traces:
+ * <pre>
+ * java -cp gchisto.jar gchisto.gctracegenerator.file.binary.Converter \
+ *     [-f hotspot|rotated|simple|jfr] [-b block-size] input output
+ * </pre>
+ * The input is read by the GC log reader of its format (by default,
+ * <tt>hotspot</tt>) and its GC activities are written as the reader adds
+ * them, so the converter does not keep them in memory (though the HotSpot
+ * GC log reader parses the whole log before adding any).
+ */
+public class Converter {
+
+    /**
+     * Private constructor so that the class is not instantiated.
+     */
+    private Converter() {
+    }
+
+    /**
+     * It returns a new GC log reader for the given format.
+     *
+     * @param format The name of the format of the GC log.
+     * @return A new GC log reader for the format, or <tt>null</tt> if
+     * there is no such format.
+     */
+    static public GCLogFileReader newGCLogFileReader(String format) {
+        if (format.equals("hotspot")) {
+            return new gchisto.gctracegenerator.file.hotspot.GCLogFileReader();
+        } else if (format.equals("rotated")) {
+            return new gchisto.gctracegenerator.file.hotspot.GCLogFileReader(
+                    true);
+        } else if (format.equals("simple")) {
+            return new gchisto.gctracegenerator.file.simple.GCLogFileReader();
+        } else if (format.equals("jfr")) {
+            return new gchisto.gctracegenerator.file.jfr.GCLogFileReader();
+        }
+        return null;
+    }
+
+    /**
+     * It reads the given GC log and writes its GC activities with the
+     * given writer.
+     *
+     * @param file The GC log.
+     * @param reader The reader of the GC log.
+     * @param writer The writer of the binary GC trace. It is flushed,
+     * but not closed.
+     */
+    static public void convert(File file,
+            GCLogFileReader reader,
+            GCTraceWriter writer) throws IOException {
+        WritingGCTrace gcTrace = new WritingGCTrace(file, writer);
+        reader.setupGCActivityNames(gcTrace);
+        try {
+            reader.readFile(file, gcTrace, new NopGCLogFileReaderThrottle());
+        } catch (WritingGCTrace.WriteException e) {
+            throw e.getIOException();
+        }
+        writer.flush();
+    }
+
+    static private void usage() {
+        System.err.println("usage: java " + Converter.class.getName() +
+                " [-f hotspot|rotated|simple|jfr] [-b block-size]" +
+                " input output");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        String format = "hotspot";
+        int blockSize = GCTraceWriter.DEFAULT_BLOCK_SIZE;
+        int i = 0;
+        try {
+            while (i < args.length && args[i].startsWith("-")) {
+                if (args[i].equals("-f") && i + 1 < args.length) {
+                    format = args[i + 1];
+                } else if (args[i].equals("-b") && i + 1 < args.length) {
+                    blockSize = Integer.parseInt(args[i + 1]);
+                } else {
+                    usage();
+                }
+                i += 2;
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        GCLogFileReader reader = newGCLogFileReader(format);
+        if (reader == null || blockSize < 1 || args.length - i != 2) {
+            usage();
+        }
+
+        File input = new File(args[i]);
+        File output = new File(args[i + 1]);
+        try {
+            OutputStream out = new FileOutputStream(output);
+            GCTraceWriter writer = new GCTraceWriter(out, blockSize);
+            try {
+                convert(input, reader, writer);
+            } finally {
+                writer.close();
+            }
+            System.out.println("Converted " + input + " to " + output +
+                    " (" + input.length() + " to " + output.length() +
+                    " bytes)");
+        } catch (IOException e) {
+            System.err.println("Error converting " + input + ": " +
+                    e.getMessage());
+            System.exit(1);
+        }
+    }
+}
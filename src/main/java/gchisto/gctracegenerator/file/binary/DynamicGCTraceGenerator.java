@@ -0,0 +1,41 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.gctracegenerator.file.DynamicFileGCTrace;
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.FileGCTraceGenerator;
+import java.io.File;
+
+/**
+ * It generates dynamic GC traces, which are played back over time, from
+ * binary GC trace files.
+ */
+public class DynamicGCTraceGenerator extends FileGCTraceGenerator {
+
+    public String getGCTraceType() {
+        return "Dynamic Binary GC Trace";
+    }
+
+    protected FileGCTrace newFileGCTrace(File file) {
+        return new DynamicFileGCTrace(file, new GCLogFileReader());
+    }
+
+    public DynamicGCTraceGenerator() {
+    }
+
+}
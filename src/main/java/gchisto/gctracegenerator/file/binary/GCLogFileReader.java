@@ -0,0 +1,229 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.gctrace.GCTrace;
+import gchisto.gctracegenerator.file.GCLogFileReaderThrottle;
+import gchisto.utils.Comparisons;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reader of binary GC traces. Each column of a block is read with a
+ * single bulk copy, so that the time it takes is dominated by adding the
+ * GC activities to the GC trace.
+ *
+ * @see gchisto.gctracegenerator.file.binary.GCTraceWriter
+ */
+public class GCLogFileReader
+        implements gchisto.gctracegenerator.file.GCLogFileReader {
+
+    final private String[] SHARED_ACTIVITIES = {"Young GC", "Full GC"};
+    final private List<String> gcActivityNames = new ArrayList<String>();
+    /**
+     * It maps the GC activity name IDs of the file to those of the GC
+     * trace.
+     */
+    private int[] globalIDs = new int[0];
+    private int fileGCActivityNameNum;
+    private byte[] bytes = new byte[0];
+    private int[] ids = new int[0];
+    private byte[] flags = new byte[0];
+    private double[] startSecs = new double[0];
+    private double[] durationSecs = new double[0];
+    private double[] overheadPercs = new double[0];
+
+    private void ensureGCActivityAdded(GCTrace gcTrace, String name) {
+        if (!gcActivityNames.contains(name)) {
+            gcActivityNames.add(name);
+            gcTrace.addGCActivityName(gcActivityNames.indexOf(name), name);
+        }
+    }
+
+    private void readHeader(DataInputStream in, File file)
+            throws IOException {
+        if (in.readInt() != GCTraceWriter.MAGIC) {
+            throw new IOException(file + " is not a binary GC trace");
+        }
+        short version = in.readShort();
+        if (version != GCTraceWriter.VERSION) {
+            throw new IOException("unsupported binary GC trace version " +
+                    version);
+        }
+        in.readShort();
+    }
+
+    private void readGCActivityNames(DataInputStream in,
+            int nameNum,
+            GCTrace gcTrace) throws IOException {
+        if (nameNum < 0) {
+            throw new IOException("invalid GC activity name number " +
+                    nameNum);
+        }
+        for (int i = 0; i < nameNum; ++i) {
+            String name = in.readUTF();
+            // grown as the names are read, as a corrupt number of names
+            // is only detected at the end of the file
+            if (globalIDs.length == fileGCActivityNameNum) {
+                globalIDs = Arrays.copyOf(globalIDs,
+                        Math.max(16, 2 * fileGCActivityNameNum));
+            }
+            ensureGCActivityAdded(gcTrace, name);
+            globalIDs[fileGCActivityNameNum] = gcActivityNames.indexOf(name);
+            fileGCActivityNameNum += 1;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (ids.length < size) {
+            bytes = new byte[8 * size];
+            ids = new int[size];
+            flags = new byte[size];
+            startSecs = new double[size];
+            durationSecs = new double[size];
+            overheadPercs = new double[size];
+        }
+    }
+
+    private void readColumn(DataInputStream in, int[] column, int size)
+            throws IOException {
+        in.readFully(bytes, 0, 4 * size);
+        ByteBuffer.wrap(bytes, 0, 4 * size).asIntBuffer()
+                .get(column, 0, size);
+    }
+
+    private void readColumn(DataInputStream in, double[] column, int size)
+            throws IOException {
+        in.readFully(bytes, 0, 8 * size);
+        ByteBuffer.wrap(bytes, 0, 8 * size).asDoubleBuffer()
+                .get(column, 0, size);
+    }
+
+    private void readBlock(DataInputStream in, int size, int maxSize)
+            throws IOException {
+        if (size < 0 || size > maxSize) {
+            throw new IOException("invalid block size " + size);
+        }
+        boolean hasSpaces = in.readByte() == GCTraceWriter.HAS_SPACES;
+        ensureCapacity(size);
+        readColumn(in, ids, size);
+        in.readFully(flags, 0, size);
+        readColumn(in, startSecs, size);
+        readColumn(in, durationSecs, size);
+        readColumn(in, overheadPercs, size);
+        if (hasSpaces) {
+            // the spaces are not used
+            in.readFully(bytes, 0, 8 * size);
+            in.readFully(bytes, 0, 8 * size);
+        }
+    }
+
+    /**
+     * It adds the GC activities of the last block that was read to the
+     * given GC trace.
+     *
+     * @return Whether the throttle allowed all of them to be added.
+     */
+    private boolean addGCActivities(int size,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle)
+            throws IOException {
+        for (int i = 0; i < size; ++i) {
+            if (!throttle.shouldContinue()) {
+                return false;
+            }
+            if (ids[i] < 0 || ids[i] >= fileGCActivityNameNum) {
+                throw new IOException("invalid GC activity name ID " + ids[i]);
+            }
+            int id = globalIDs[ids[i]];
+            boolean stw = (flags[i] & GCTraceWriter.STW) != 0;
+            double startSec = startSecs[i];
+            double durationSec = durationSecs[i];
+            double overheadPerc = stw ? 100.0 : overheadPercs[i];
+            // the same bounds as those of GCActivity
+            if (!Comparisons.gteq(startSec, 0.0) ||
+                    !Comparisons.gteq(durationSec, 0.0) ||
+                    !Comparisons.betweeneq(0.0, overheadPerc, 100.0)) {
+                throw new IOException("invalid GC activity at " + startSec +
+                        " secs");
+            }
+
+            throttle.beforeAddingGCActivity(startSec);
+            if (stw) {
+                gcTrace.addGCActivity(id, startSec, durationSec);
+            } else {
+                gcTrace.addGCActivity(id, startSec, durationSec,
+                        overheadPerc);
+            }
+            throttle.afterAddingGCActivity(startSec);
+        }
+        return true;
+    }
+
+    public void setupGCActivityNames(GCTrace gcTrace) {
+        for (String name : SHARED_ACTIVITIES) {
+            ensureGCActivityAdded(gcTrace, name);
+        }
+    }
+
+    public void readFile(File file,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle)
+            throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            throttle.started();
+            readHeader(in, file);
+            fileGCActivityNameNum = 0;
+            // a block cannot be longer than the file
+            int maxSize = (int) Math.min(GCTraceWriter.MAX_BLOCK_SIZE,
+                    file.length() / GCTraceWriter.MIN_GC_ACTIVITY_BYTES);
+            while (throttle.shouldContinue()) {
+                int nameNum;
+                try {
+                    nameNum = in.readInt();
+                } catch (EOFException e) {
+                    // the trace ends after its last block
+                    break;
+                }
+                readGCActivityNames(in, nameNum, gcTrace);
+                int size = in.readInt();
+                readBlock(in, size, maxSize);
+                if (!addGCActivities(size, gcTrace, throttle)) {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("truncated binary GC trace " + file);
+        } finally {
+            throttle.finished();
+            in.close();
+        }
+    }
+
+    public GCLogFileReader() {
+    }
+}
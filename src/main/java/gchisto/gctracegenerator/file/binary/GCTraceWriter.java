@@ -0,0 +1,277 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.utils.errorchecking.ArgumentChecking;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A writer of binary GC traces, the binary variant of the simple GC log
+ * format. GC activities are written as they are added, in blocks, so a
+ * trace of any length can be written with a fixed amount of memory.
+ * <p>
+ * All values are big-endian. A binary GC trace is a header:
+ * <pre>
+ * int    magic number, "GCHT"
+ * short  format version, 1
+ * short  0
+ * </pre>
+ * followed by blocks, until the end of the file:
+ * <pre>
+ * int       the number of GC activity names first used in the block
+ * UTF[]     those names (as in DataOutput.writeUTF()); the names of the
+ *           trace get IDs 0, 1, ... in the order they appear
+ * int       n, the number of GC activities in the block, at most
+ *           MAX_BLOCK_SIZE
+ * byte      1 if the block has the space columns, 0 otherwise
+ * int[n]    the GC activity name IDs
+ * byte[n]   1 for stop-the-world GC activities, 0 for concurrent ones
+ * double[n] the start time stamps, in seconds
+ * double[n] the durations, in seconds
+ * double[n] the concurrent overheads, in percent (100 for stop-the-world
+ *           GC activities)
+ * long[n]   the spaces before the GC activities, -1 if not known
+ * long[n]   the spaces after the GC activities, -1 if not known
+ * </pre>
+ * Each column of a block is stored contiguously, so that a reader can
+ * load it in bulk.
+ *
+ * @see gchisto.gctracegenerator.file.binary.GCLogFileReader
+ */
+public class GCTraceWriter implements Closeable, Flushable {
+
+    static final int MAGIC = 0x47434854;
+    static final short VERSION = 1;
+    static final byte STW = 1;
+    static final byte HAS_SPACES = 1;
+    static final public long UNKNOWN_SPACE = -1;
+    static final public int DEFAULT_BLOCK_SIZE = 1 << 16;
+    static final public int MAX_BLOCK_SIZE = 1 << 24;
+    /**
+     * The number of bytes each GC activity takes up in a block without
+     * the space columns.
+     */
+    static final int MIN_GC_ACTIVITY_BYTES = 4 + 1 + 3 * 8;
+
+    final private DataOutputStream out;
+    final private Map<String, Integer> gcActivityNameIDs =
+            new HashMap<String, Integer>();
+    /**
+     * The GC activity names that have not been written yet.
+     */
+    final private List<String> newGCActivityNames = new ArrayList<String>();
+    final private ByteBuffer buffer;
+    final private int[] ids;
+    final private byte[] flags;
+    final private double[] startSecs;
+    final private double[] durationSecs;
+    final private double[] overheadPercs;
+    final private long[] spacesBefore;
+    final private long[] spacesAfter;
+    private int size;
+    private boolean hasSpaces;
+
+    /**
+     * It adds a GC activity name to the trace, unless it is already in
+     * it, and returns its ID.
+     *
+     * @param name The GC activity name.
+     * @return The ID of the GC activity name, which the GC activities
+     * with that name are added with.
+     */
+    public int addGCActivityName(String name) {
+        ArgumentChecking.notNull(name, "name");
+
+        Integer id = gcActivityNameIDs.get(name);
+        if (id == null) {
+            id = gcActivityNameIDs.size();
+            gcActivityNameIDs.put(name, id);
+            newGCActivityNames.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * It adds a stop-the-world GC activity to the trace.
+     *
+     * @param id The ID of the GC activity name.
+     * @param startSec The time stamp of the start of the GC activity, in
+     * seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     */
+    public void addGCActivity(int id, double startSec, double durationSec)
+            throws IOException {
+        addGCActivity(id, startSec, durationSec, 100.0, true,
+                UNKNOWN_SPACE, UNKNOWN_SPACE);
+    }
+
+    /**
+     * It adds a concurrent GC activity to the trace.
+     *
+     * @param id The ID of the GC activity name.
+     * @param startSec The time stamp of the start of the GC activity, in
+     * seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     * @param overheadPerc The concurrent overhead of the GC activity.
+     */
+    public void addGCActivity(int id,
+            double startSec,
+            double durationSec,
+            double overheadPerc) throws IOException {
+        addGCActivity(id, startSec, durationSec, overheadPerc, false,
+                UNKNOWN_SPACE, UNKNOWN_SPACE);
+    }
+
+    /**
+     * It adds a GC activity to the trace.
+     *
+     * @param id The ID of the GC activity name.
+     * @param startSec The time stamp of the start of the GC activity, in
+     * seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     * @param overheadPerc The concurrent overhead of the GC activity; it
+     * is ignored for stop-the-world GC activities.
+     * @param stw Whether the GC activity is stop-the-world.
+     * @param spaceBefore The space before the GC activity, or
+     * <tt>UNKNOWN_SPACE</tt>.
+     * @param spaceAfter The space after the GC activity, or
+     * <tt>UNKNOWN_SPACE</tt>.
+     */
+    public void addGCActivity(int id,
+            double startSec,
+            double durationSec,
+            double overheadPerc,
+            boolean stw,
+            long spaceBefore,
+            long spaceAfter) throws IOException {
+        ArgumentChecking.withinBounds(id, 0, gcActivityNameIDs.size() - 1,
+                "id");
+
+        ids[size] = id;
+        flags[size] = stw ? STW : 0;
+        startSecs[size] = startSec;
+        durationSecs[size] = durationSec;
+        overheadPercs[size] = stw ? 100.0 : overheadPerc;
+        spacesBefore[size] = spaceBefore;
+        spacesAfter[size] = spaceAfter;
+        hasSpaces |= spaceBefore != UNKNOWN_SPACE ||
+                spaceAfter != UNKNOWN_SPACE;
+        size += 1;
+        if (size == ids.length) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        out.writeInt(newGCActivityNames.size());
+        for (String name : newGCActivityNames) {
+            out.writeUTF(name);
+        }
+        newGCActivityNames.clear();
+
+        out.writeInt(size);
+        out.writeByte(hasSpaces ? HAS_SPACES : 0);
+        buffer.clear();
+        buffer.asIntBuffer().put(ids, 0, size);
+        out.write(buffer.array(), 0, 4 * size);
+        out.write(flags, 0, size);
+        writeColumn(startSecs);
+        writeColumn(durationSecs);
+        writeColumn(overheadPercs);
+        if (hasSpaces) {
+            writeColumn(spacesBefore);
+            writeColumn(spacesAfter);
+        }
+        size = 0;
+        hasSpaces = false;
+    }
+
+    private void writeColumn(double[] column) throws IOException {
+        buffer.clear();
+        buffer.asDoubleBuffer().put(column, 0, size);
+        out.write(buffer.array(), 0, 8 * size);
+    }
+
+    private void writeColumn(long[] column) throws IOException {
+        buffer.clear();
+        buffer.asLongBuffer().put(column, 0, size);
+        out.write(buffer.array(), 0, 8 * size);
+    }
+
+    /**
+     * It writes the GC activities and GC activity names that have been
+     * added so far, as a block that may be shorter than the others, and
+     * flushes the output stream.
+     */
+    public void flush() throws IOException {
+        if (size > 0 || !newGCActivityNames.isEmpty()) {
+            writeBlock();
+        }
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /**
+     * It creates a new writer with the default block size.
+     *
+     * @param out The output stream the trace is written to.
+     */
+    public GCTraceWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * It creates a new writer and writes the header of the trace.
+     *
+     * @param out The output stream the trace is written to.
+     * @param blockSize The number of GC activities per block, at most
+     * <tt>MAX_BLOCK_SIZE</tt>.
+     */
+    public GCTraceWriter(OutputStream out, int blockSize) throws IOException {
+        ArgumentChecking.notNull(out, "out");
+        ArgumentChecking.withinBounds(blockSize, 1, MAX_BLOCK_SIZE,
+                "blockSize");
+
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.buffer = ByteBuffer.allocate(8 * blockSize);
+        this.ids = new int[blockSize];
+        this.flags = new byte[blockSize];
+        this.startSecs = new double[blockSize];
+        this.durationSecs = new double[blockSize];
+        this.overheadPercs = new double[blockSize];
+        this.spacesBefore = new long[blockSize];
+        this.spacesAfter = new long[blockSize];
+
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeShort(0);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.binary;
+
+import gchisto.gctrace.GCTrace;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A GC trace that writes the GC activities that a GC log reader adds to it
+ * to a binary GC trace, instead of keeping them. The GC activity sets of
+ * the trace stay empty.
+ *
+ * @see gchisto.gctracegenerator.file.binary.Converter
+ */
+class WritingGCTrace extends GCTrace {
+
+    /**
+     * It is thrown, by the methods that add GC activities, when the writer
+     * fails; it wraps the exception of the writer.
+     */
+    static class WriteException extends RuntimeException {
+
+        WriteException(IOException cause) {
+            super(cause);
+        }
+
+        IOException getIOException() {
+            return (IOException) getCause();
+        }
+    }
+
+    final private File file;
+    final private GCTraceWriter writer;
+    /**
+     * It maps the GC activity name IDs of this trace to those of the
+     * writer.
+     */
+    private int[] writerIDs = new int[0];
+
+    public String getSuggestedName() {
+        return file.getName();
+    }
+
+    public String getInfoString() {
+        return file.getAbsolutePath();
+    }
+
+    public void addGCActivityName(int id, String gcActivityName) {
+        super.addGCActivityName(id, gcActivityName);
+        if (writerIDs.length <= id) {
+            writerIDs = Arrays.copyOf(writerIDs, id + 1);
+        }
+        writerIDs[id] = writer.addGCActivityName(gcActivityName);
+    }
+
+    public void addGCActivity(int id, double startSec, double durationSec) {
+        try {
+            writer.addGCActivity(writerIDs[id], startSec, durationSec);
+        } catch (IOException e) {
+            throw new WriteException(e);
+        }
+    }
+
+    public void addGCActivity(int id,
+            double startSec,
+            double durationSec,
+            double overheadPerc) {
+        try {
+            writer.addGCActivity(writerIDs[id], startSec, durationSec,
+                    overheadPerc);
+        } catch (IOException e) {
+            throw new WriteException(e);
+        }
+    }
+
+    WritingGCTrace(File file, GCTraceWriter writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+}
@@ -25,14 +25,29 @@ package gchisto.gctracegenerator.file.hotspot;
 
 import gchisto.gctrace.GCTrace;
 import gchisto.gctracegenerator.file.GCLogFileReaderThrottle;
+import gchisto.utils.MessageReporter;
 import gcparser.GCDataStore;
+import gcparser.GCLogFileSet;
 import gcparser.GCMetric;
 import gcparser.GCParserDriver;
+import gcparser.OldGenForecast;
+import gcparser.SampledStats;
+import gcparser.YoungGenSimulator;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -41,11 +56,11 @@ import java.util.List;
 public class GCLogFileReader
         implements gchisto.gctracegenerator.file.GCLogFileReader {
 
-    private class MetricData {
+    static class MetricData {
 
         private String name;
-        private ArrayList<Double> times;
-        private ArrayList<Double> data;
+        private List<Double> times;
+        private List<Double> data;
         private int index;
         private int length;
 
@@ -73,8 +88,8 @@ public class GCLogFileReader
         }
 
         public MetricData(String name,
-                ArrayList<Double> times,
-                ArrayList<Double> data) {
+                List<Double> times,
+                List<Double> data) {
             assert times.size() == data.size();
 
             this.name = name;
@@ -85,7 +100,7 @@ public class GCLogFileReader
         }
     }
 
-    private class MetricDataSet extends ArrayList<MetricData> {
+    static class MetricDataSet extends ArrayList<MetricData> {
 
         private MetricData last;
 
@@ -129,8 +144,248 @@ public class GCLogFileReader
             return ret;
         }
     }
+    /**
+     * The maximum number of young GCs for which a young generation sizing
+     * model is built. The model keeps a few values per young GC on the
+     * heap.
+     */
+    static final public int YOUNG_GEN_SIMULATOR_LIMIT = Integer.getInteger(
+            "gchisto.younggen.limit", 1 << 20);
     final private String[] SHARED_ACTIVITIES = {"Young GC", "Full GC"};
     final private List<String> gcActivityNames = new ArrayList<String>();
+    final private boolean rotatedSet;
+    /**
+     * The start and end of the part of the GC log to read, as seconds of
+     * uptime or as dates, or <tt>null</tt> to read all of it.
+     *
+     * @see gcparser.GCParserDriver#parse_slice(File, String, String,
+     * boolean)
+     */
+    final private String[] slice;
+    /**
+     * The number of blocks of the GC log to read when only a random
+     * sample of it is read, or 0 to read all of it.
+     *
+     * @see gcparser.GCParserDriver#parse_sampled(File, int, int)
+     */
+    final private int sampleBlocks;
+    final private int sampleBlockSize;
+    /**
+     * The maximum number of the GC activities in a sample that are added
+     * to the GC trace.
+     */
+    final private int samplePauses;
+
+    /**
+     * It returns the young generation sizing model of the given data, or
+     * <tt>null</tt> if it has too few or too many young GCs.
+     */
+    static private YoungGenSimulator newYoungGenSimulator(
+            List<GCDataStore> gcDataList) {
+        long youngGCs = 0;
+        for (GCDataStore gcData : gcDataList) {
+            youngGCs += gcData.time(GCMetric.yg_used_beg).size();
+        }
+        if (youngGCs < 2 || youngGCs > YOUNG_GEN_SIMULATOR_LIMIT) {
+            return null;
+        }
+        return new YoungGenSimulator(gcDataList,
+                YoungGenSimulator.baseline_survivor_ratio,
+                YoungGenSimulator.baseline_tenuring_threshold);
+    }
+
+    /**
+     * It returns a new metric data instance for the given metric, leaving
+     * out the events that start at any of the times in <tt>excluded</tt>.
+     * This is used to keep the events that have a known cause out of the
+     * generic young / full GC activities, so that they are not counted
+     * twice.
+     */
+    private MetricData createMetricData(String name,
+            List<GCDataStore> gcDataList,
+            GCMetric metric,
+            Set<Double> excluded) {
+        if (gcDataList.size() == 1 &&
+                (excluded == null || excluded.isEmpty())) {
+            GCDataStore gcData = gcDataList.get(0);
+            return new MetricData(name,
+                    gcData.time(metric), gcData.data(metric));
+        }
+
+        // The files are in time order, so their events can be concatenated.
+        ArrayList<Double> keptTimes = new ArrayList<Double>();
+        ArrayList<Double> keptData = new ArrayList<Double>();
+        for (GCDataStore gcData : gcDataList) {
+            List<Double> times = gcData.time(metric);
+            List<Double> data = gcData.data(metric);
+            for (int i = 0; i < times.size(); ++i) {
+                if (excluded == null || !excluded.contains(times.get(i))) {
+                    keptTimes.add(times.get(i));
+                    keptData.add(data.get(i));
+                }
+            }
+        }
+        return new MetricData(name, keptTimes, keptData);
+    }
+
+    private MetricData createMetricData(String name,
+            List<GCDataStore> gcDataList,
+            GCMetric metric) {
+        return createMetricData(name, gcDataList, metric, null);
+    }
+
+    private void addStartTimes(Set<Double> set,
+            List<GCDataStore> gcDataList,
+            GCMetric metric) {
+        for (GCDataStore gcData : gcDataList) {
+            set.addAll(gcData.time(metric));
+        }
+    }
+
+    static private GCDataStore parse(File file, String[] slice)
+            throws IOException {
+        BitSet actions = new BitSet();
+        actions.set(GCParserDriver.COLLECT_DATA);
+        GCParserDriver driver = new GCParserDriver(actions);
+        if (slice != null) {
+            driver.parse_slice(file, slice[0], slice[1], false);
+        } else {
+            driver.parse(file);
+        }
+        reportQuarantinedLines(file, driver);
+        return (GCDataStore) driver.gc_stats();
+    }
+
+    /**
+     * It reports the lines of the given file that were left out because
+     * the parser took more than its per-line budget on them. They are
+     * listed on the console, since the status label shows one message.
+     */
+    static private void reportQuarantinedLines(File file,
+            GCParserDriver driver) {
+        if (driver.quarantined_count() == 0) {
+            return;
+        }
+
+        driver.print_quarantined_lines(System.err);
+        MessageReporter.showError(driver.quarantined_count() +
+                " line(s) of " + file.getName() +
+                " could not be parsed in time, see the console");
+    }
+
+    /**
+     * It parses a random sample of blocks of the given file. The
+     * estimates of the statistics of the whole file are printed on the
+     * console.
+     */
+    static private List<GCDataStore> parseSampled(File file, int blocks,
+            int blockSize) throws IOException {
+        GCParserDriver driver = new GCParserDriver(new BitSet());
+        List<GCDataStore> gcDataList =
+                driver.parse_sampled(file, blocks, blockSize);
+        driver.print_sampled_statistics(System.out);
+        SampledStats stats = driver.sampled_stats();
+        MessageReporter.showMessage(String.format(
+                "Read %d block(s), %.1f%% of %s, see the console " +
+                "for estimates", stats.sampler().blocks(),
+                stats.fraction() * 100.0, file.getName()));
+        reportQuarantinedLines(file, driver);
+        return gcDataList;
+    }
+
+    /**
+     * It parses the given files, each one on its own thread, and returns
+     * their data in the same order.
+     */
+    static private List<GCDataStore> parse(List<File> files,
+            final String[] slice) throws IOException {
+        List<GCDataStore> gcDataList = new ArrayList<GCDataStore>();
+        if (files.size() == 1) {
+            gcDataList.add(parse(files.get(0), slice));
+            return gcDataList;
+        }
+
+        int threads = Math.min(files.size(),
+                Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<GCDataStore>> futures =
+                    new ArrayList<Future<GCDataStore>>();
+            for (final File file : files) {
+                futures.add(executor.submit(new Callable<GCDataStore>() {
+
+                    public GCDataStore call() throws IOException {
+                        return parse(file, slice);
+                    }
+                }));
+            }
+            for (Future<GCDataStore> future : futures) {
+                gcDataList.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return gcDataList;
+    }
+
+    /**
+     * It adds a random sample of at most <tt>samplePauses</tt> of the GC
+     * activities in the given set to the GC trace, in time order. The
+     * sample is drawn in one pass over the set (reservoir sampling), so
+     * that each GC activity is as likely as any other to be in it.
+     */
+    private void addSampledGCActivities(GCTrace gcTrace, MetricDataSet set,
+            GCLogFileReaderThrottle throttle, Random random)
+            throws IOException {
+        final int capacity = samplePauses;
+        String[] names = new String[capacity];
+        double[] starts = new double[capacity];
+        double[] durations = new double[capacity];
+        // the position of each GC activity in the set, times the
+        // capacity, plus its slot, so that sorting them gives the slots
+        // in time order
+        long[] keys = new long[capacity];
+
+        long seen = 0;
+        while (throttle.shouldContinue() && set.hasMore()) {
+            MetricData data = set.getEarliest();
+            long slot = seen < capacity ? seen
+                    : (long) (random.nextDouble() * (seen + 1));
+            if (slot < capacity) {
+                int i = (int) slot;
+                names[i] = data.getName();
+                starts[i] = data.getTime();
+                durations[i] = data.getData();
+                keys[i] = seen * capacity + i;
+            }
+            ++seen;
+            set.moveToNext();
+        }
+
+        keys = Arrays.copyOf(keys, (int) Math.min(seen, capacity));
+        Arrays.sort(keys);
+        for (long key : keys) {
+            if (!throttle.shouldContinue()) {
+                break;
+            }
+            int i = (int) (key % capacity);
+            throttle.beforeAddingGCActivity(starts[i]);
+
+            ensureGCActivityAdded(gcTrace, names[i]);
+            int id = mapGCActivityNameToID(names[i]);
+            gcTrace.addGCActivity(id, starts[i], durations[i]);
+
+            throttle.afterAddingGCActivity(starts[i]);
+        }
+    }
 
     private int mapGCActivityNameToID(String name)
             throws IOException {
@@ -148,6 +403,72 @@ public class GCLogFileReader
         }
     }
 
+    /**
+     * It creates a new reader of a single GC log.
+     */
+    public GCLogFileReader() {
+        this(false);
+    }
+
+    /**
+     * It creates a new reader.
+     *
+     * @param rotatedSet Whether the file given to the reader should be
+     * read together with the rest of the rotated GC log set that it is a
+     * member of, as one continuous GC log.
+     */
+    public GCLogFileReader(boolean rotatedSet) {
+        this(rotatedSet, null, null);
+    }
+
+    /**
+     * It creates a new reader of the part of a GC log between two times.
+     * Only that part of the file is read, using the index of the file
+     * (see <tt>gcparser.GCLogIndex</tt>).
+     *
+     * @param rotatedSet Whether the file given to the reader should be
+     * read together with the rest of the rotated GC log set that it is a
+     * member of, as one continuous GC log.
+     * @param sliceBeg The start of the part to read, as seconds of uptime
+     * or as a date; an empty string reads from the start of the log.
+     * @param sliceEnd The end of the part to read, in the same way; an
+     * empty string reads to the end of the log.
+     */
+    public GCLogFileReader(boolean rotatedSet, String sliceBeg,
+            String sliceEnd) {
+        this(rotatedSet, sliceBeg, sliceEnd, 0, 0, 0);
+    }
+
+    /**
+     * It creates a new reader of a random sample of blocks of a GC log
+     * (see <tt>gcparser.BlockSampler</tt>), for a quick look at a GC log
+     * too long to read in full. At most <tt>samplePauses</tt> of the GC
+     * activities in the blocks, chosen at random, are added to the GC
+     * trace.
+     *
+     * @param sampleBlocks The number of blocks to read.
+     * @param sampleBlockSize The size of a block, in bytes.
+     * @param samplePauses The maximum number of GC activities to add.
+     */
+    public GCLogFileReader(int sampleBlocks, int sampleBlockSize,
+            int samplePauses) {
+        this(false, null, null, sampleBlocks, sampleBlockSize, samplePauses);
+    }
+
+    private GCLogFileReader(boolean rotatedSet, String sliceBeg,
+            String sliceEnd, int sampleBlocks, int sampleBlockSize,
+            int samplePauses) {
+        this.rotatedSet = rotatedSet;
+        this.slice = sliceBeg == null && sliceEnd == null ? null
+                : new String[]{
+                    sliceBeg == null ? "" : sliceBeg,
+                    sliceEnd == null ? "" : sliceEnd
+                };
+        this.sampleBlocks = sampleBlocks;
+        this.sampleBlockSize = sampleBlockSize;
+        this.samplePauses = samplePauses;
+    }
+
     public void setupGCActivityNames(GCTrace gcTrace) {
         for (String name : SHARED_ACTIVITIES) {
             ensureGCActivityAdded(gcTrace, name);
@@ -161,34 +482,77 @@ public class GCLogFileReader
         try {
             throttle.started();
 
-            BitSet actions = new BitSet();
-            actions.set(GCParserDriver.COLLECT_DATA);
-            GCParserDriver driver = new GCParserDriver(actions);
-            driver.parse(file);
-            GCDataStore gcData = (GCDataStore) driver.gc_stats();
-
-            ArrayList<Double> ygTimes = gcData.time(GCMetric.ygc_time);
-            ArrayList<Double> ygData = gcData.data(GCMetric.ygc_time);
-            MetricData youngGCData = new MetricData("Young GC", ygTimes, ygData);
-
-            ArrayList<Double> imTimes = gcData.time(GCMetric.cms_im_time);
-            ArrayList<Double> imData = gcData.data(GCMetric.cms_im_time);
-            MetricData initialMarkData = new MetricData("Initial Mark", imTimes, imData);
-
-            ArrayList<Double> rmTimes = gcData.time(GCMetric.cms_rm_time);
-            ArrayList<Double> rmData = gcData.data(GCMetric.cms_rm_time);
-            MetricData remarkData = new MetricData("Remark", rmTimes, rmData);
+            List<GCDataStore> gcData;
+            if (sampleBlocks > 0) {
+                // The blocks are too far apart for the old generation
+                // occupancy to be followed across them.
+                gcData = parseSampled(file, sampleBlocks, sampleBlockSize);
+            } else {
+                List<File> files;
+                if (rotatedSet) {
+                    files = GCLogFileSet.rotated_set(file);
+                } else {
+                    files = new ArrayList<File>();
+                    files.add(file);
+                }
+                gcData = parse(files, slice);
+                OldGenForecast forecast = gcData.get(0).old_gen_forecast();
+                for (int i = 1; i < gcData.size(); ++i) {
+                    forecast.append(gcData.get(i).old_gen_forecast());
+                }
+                gcTrace.setOldGenForecast(forecast);
+                gcTrace.setYoungGenSimulator(newYoungGenSimulator(gcData));
+            }
 
-            ArrayList<Double> fgTimes = gcData.time(GCMetric.fgc_time);
-            ArrayList<Double> fgData = gcData.data(GCMetric.fgc_time);
-            MetricData fullGCData = new MetricData("Full GC", fgTimes, fgData);
+            // Young and full GCs with a known cause get their own activities.
+            Set<Double> youngCauseTimes = new HashSet<Double>();
+            addStartTimes(youngCauseTimes, gcData, GCMetric.ygc_pf_time);
+            Set<Double> fullCauseTimes = new HashSet<Double>();
+            addStartTimes(fullCauseTimes, gcData, GCMetric.fgc_sys_time);
+            addStartTimes(fullCauseTimes, gcData, GCMetric.fgc_pf_time);
+            addStartTimes(fullCauseTimes, gcData, GCMetric.fgc_cmf_time);
+
+            MetricData youngGCData = createMetricData("Young GC",
+                    gcData, GCMetric.ygc_time, youngCauseTimes);
+            MetricData youngPFData = createMetricData(
+                    "Young GC (Promotion Failed)",
+                    gcData, GCMetric.ygc_pf_time, null);
+
+            MetricData initialMarkData = createMetricData("Initial Mark",
+                    gcData, GCMetric.cms_im_time);
+            MetricData remarkData = createMetricData("Remark",
+                    gcData, GCMetric.cms_rm_time);
+
+            MetricData fullGCData = createMetricData("Full GC",
+                    gcData, GCMetric.fgc_time, fullCauseTimes);
+            MetricData fullSystemData = createMetricData("Full GC (System)",
+                    gcData, GCMetric.fgc_sys_time, null);
+            MetricData fullPFData = createMetricData(
+                    "Full GC (Promotion Failed)",
+                    gcData, GCMetric.fgc_pf_time, null);
+            MetricData fullCMFData = createMetricData(
+                    "Full GC (Concurrent Mode Failure)",
+                    gcData, GCMetric.fgc_cmf_time, null);
+
+            MetricData nonGCData = createMetricData("Non-GC STW",
+                    gcData, GCMetric.app_stop_ngc);
 
             MetricDataSet set = new MetricDataSet();
             set.addMetricData(youngGCData);
+            set.addMetricData(youngPFData);
             set.addMetricData(initialMarkData);
             set.addMetricData(remarkData);
             set.addMetricData(fullGCData);
-
+            set.addMetricData(fullSystemData);
+            set.addMetricData(fullPFData);
+            set.addMetricData(fullCMFData);
+            set.addMetricData(nonGCData);
+
+            if (sampleBlocks > 0) {
+                addSampledGCActivities(gcTrace, set, throttle,
+                        new Random(file.length()));
+                return;
+            }
             while (throttle.shouldContinue() && set.hasMore()) {
                 MetricData data = set.getEarliest();
 
@@ -0,0 +1,42 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.hotspot;
+
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.FileGCTraceGenerator;
+import java.io.File;
+
+/**
+ * A generator of GC traces from rotated GC log sets
+ * (<tt>-XX:+UseGCLogFileRotation</tt>). Any file of the set can be
+ * chosen; all the files of the set are read, in parallel, into a single
+ * GC trace.
+ */
+public class RotatedGCTraceGenerator extends FileGCTraceGenerator {
+
+    public String getGCTraceType() {
+        return "Rotated HotSpot GC Log Set";
+    }
+
+    protected FileGCTrace newFileGCTrace(File file) {
+        return new FileGCTrace(file, new GCLogFileReader(true));
+    }
+
+    public RotatedGCTraceGenerator() {
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.hotspot;
+
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.FileGCTraceGenerator;
+import gcparser.BlockSampler;
+import java.io.File;
+
+/**
+ * A generator of GC traces from a random sample of a HotSpot GC log, for
+ * a quick look at a log too long to read in full. A fixed number of
+ * blocks spread over the file are read (see <tt>gcparser.BlockSampler</tt>),
+ * so it takes about as long for any size of log, and a random sample of
+ * the GC activities in them is added to the GC trace. The estimates of the
+ * statistics of the whole log, with their confidence intervals, are
+ * printed on the console.
+ * <p>
+ * The number of blocks, the size of a block in bytes and the maximum
+ * number of GC activities added can be set with the
+ * <tt>gchisto.sample.blocks</tt>, <tt>gchisto.sample.block.size</tt> and
+ * <tt>gchisto.sample.pauses</tt> system properties.
+ */
+public class SampledGCTraceGenerator extends FileGCTraceGenerator {
+
+    static final public int DEFAULT_BLOCKS =
+            Integer.getInteger("gchisto.sample.blocks", 200);
+    static final public int DEFAULT_BLOCK_SIZE = Integer.getInteger(
+            "gchisto.sample.block.size", BlockSampler.default_block_size);
+    static final public int DEFAULT_PAUSES =
+            Integer.getInteger("gchisto.sample.pauses", 100000);
+
+    public String getGCTraceType() {
+        return "HotSpot GC Log Sample";
+    }
+
+    protected FileGCTrace newFileGCTrace(File file) {
+        return new FileGCTrace(file, new GCLogFileReader(DEFAULT_BLOCKS,
+                DEFAULT_BLOCK_SIZE, DEFAULT_PAUSES)) {
+
+            public String getSuggestedName() {
+                return super.getSuggestedName() + " (sample)";
+            }
+        };
+    }
+
+    public SampledGCTraceGenerator() {
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.hotspot;
+
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.gctracegenerator.file.FileGCTraceGenerator;
+import gcparser.GCLogIndex;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+
+/**
+ * A generator of GC traces from the part of a HotSpot GC log between two
+ * times, given as seconds of uptime or as dates. Only that part of the
+ * file is read, using an index of the log that is built the first time
+ * and kept next to it (see <tt>gcparser.GCLogIndex</tt>), so an hour of
+ * a log of several gigabytes loads in about the time of an hour-long log.
+ */
+public class TimeSliceGCTraceGenerator extends FileGCTraceGenerator {
+
+    static private final String TITLE = "HotSpot GC Log Time Slice";
+
+    public String getGCTraceType() {
+        return "HotSpot GC Log Time Slice";
+    }
+
+    /**
+     * It returns a description of the times that the given GC log
+     * covers, or an empty string if it cannot be indexed.
+     */
+    private String describeRange(File file, GCLogIndex index) {
+        if (index == null || index.size() == 0) {
+            return "";
+        }
+
+        int last = index.size() - 1;
+        String str = file.getName() + " covers uptimes " +
+                index.uptime(0) + " s to about " + index.uptime(last) + " s";
+        if (index.has_dates()) {
+            SimpleDateFormat format =
+                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            str += "\n(" + format.format(new Date(index.date(0))) +
+                    " to about " + format.format(new Date(index.date(last))) +
+                    ")";
+        }
+        return str + ".\n\n";
+    }
+
+    /**
+     * It asks the user for the part of the given GC log to read.
+     *
+     * @return The start and end of the part, or <tt>null</tt> if the
+     * user cancelled.
+     */
+    private String[] getSliceFromDialog(JComponent component, File file) {
+        GCLogIndex index = null;
+        try {
+            index = GCLogIndex.load(file);
+        } catch (IOException e) {
+            // the whole log will be read to find the slice
+        }
+
+        String message = describeRange(file, index) +
+                "Start and end, separated by a comma, as seconds of " +
+                "uptime\nor as dates (yyyy-MM-dd HH:mm:ss); an empty " +
+                "start or end\nreads from the start or to the end of " +
+                "the log:";
+        String value = "";
+        if (index != null && index.size() > 0) {
+            value = index.uptime(0) + ",";
+        }
+
+        while (true) {
+            value = (String) JOptionPane.showInputDialog(component,
+                    message, TITLE, JOptionPane.QUESTION_MESSAGE,
+                    null, null, value);
+            if (value == null) {
+                return null;
+            }
+
+            String[] slice = value.split(",", -1);
+            String error = slice.length == 2 ? null
+                    : "Expected a start and an end separated by a comma";
+            for (int i = 0; error == null && i < slice.length; ++i) {
+                error = checkTime(index, slice[i].trim());
+            }
+            if (error == null) {
+                return new String[]{slice[0].trim(), slice[1].trim()};
+            }
+            JOptionPane.showMessageDialog(component, error, TITLE,
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * It checks that the given time can be used for the GC log with the
+     * given index, which is <tt>null</tt> if the log cannot be indexed.
+     *
+     * @return An error message, or <tt>null</tt> if it can be used.
+     */
+    private String checkTime(GCLogIndex index, String time) {
+        if (time.length() == 0) {
+            return null;
+        }
+        try {
+            if (index != null) {
+                index.to_uptime(time);
+            } else {
+                Double.parseDouble(time);
+            }
+            return null;
+        } catch (IOException e) {
+            return e.getMessage();
+        } catch (NumberFormatException e) {
+            return "Only seconds of uptime can be given for this log";
+        }
+    }
+
+    protected FileGCTrace newFileGCTrace(File file) {
+        return newFileGCTrace(file, "", "");
+    }
+
+    protected FileGCTrace newFileGCTrace(JComponent component, File file) {
+        String[] slice = getSliceFromDialog(component, file);
+        if (slice == null) {
+            return null;
+        }
+        return newFileGCTrace(file, slice[0], slice[1]);
+    }
+
+    private FileGCTrace newFileGCTrace(File file,
+            String sliceBeg, String sliceEnd) {
+        final String suffix = " [" + sliceBeg + ", " + sliceEnd + "]";
+        return new FileGCTrace(file,
+                new GCLogFileReader(false, sliceBeg, sliceEnd)) {
+
+            public String getSuggestedName() {
+                return super.getSuggestedName() + suffix;
+            }
+        };
+    }
+
+    public TimeSliceGCTraceGenerator() {
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.jfr;
+
+import gchisto.gctrace.GCTrace;
+import gchisto.gctracegenerator.file.GCLogFileReaderThrottle;
+import gcparser.OldGenForecast;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reader of Java Flight Recorder recordings. The GC events of the
+ * recording are mapped to the same GC activities the HotSpot GC log reader
+ * creates:
+ * <ul>
+ * <li><tt>jdk.GarbageCollection</tt> events, together with
+ * <tt>jdk.YoungGarbageCollection</tt> / <tt>jdk.OldGarbageCollection</tt>
+ * and <tt>jdk.PromotionFailed</tt>, decide the kind of each GC,</li>
+ * <li>each <tt>jdk.GCPhasePause</tt> event becomes a stop-the-world
+ * GC activity,</li>
+ * <li><tt>jdk.GCHeapSummary</tt> events provide the heap occupancy that
+ * feeds the old generation forecast of the GC trace.</li>
+ * </ul>
+ * The time stamps are relative to the start of the JVM, as in GC logs.
+ * <p>
+ * <tt>jdk.jfr.consumer</tt> is accessed reflectively so that gchisto can
+ * still be built for, and run on, JVMs that do not have it; reading a
+ * recording on such a JVM fails with an <tt>IOException</tt>.
+ */
+public class GCLogFileReader
+        implements gchisto.gctracegenerator.file.GCLogFileReader {
+
+    static private final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+    static private final String YOUNG_GARBAGE_COLLECTION =
+            "jdk.YoungGarbageCollection";
+    static private final String OLD_GARBAGE_COLLECTION =
+            "jdk.OldGarbageCollection";
+    static private final String PROMOTION_FAILED = "jdk.PromotionFailed";
+    static private final String GC_PHASE_PAUSE = "jdk.GCPhasePause";
+    static private final String GC_HEAP_SUMMARY = "jdk.GCHeapSummary";
+    static private final String JVM_INFORMATION = "jdk.JVMInformation";
+    /**
+     * The collectors that are young collectors, for recordings without
+     * <tt>jdk.YoungGarbageCollection</tt> events.
+     */
+    static private final String[] YOUNG_COLLECTORS = {
+        "DefNew", "ParNew", "ParallelScavenge", "G1New"
+    };
+    static private final String[] EVENT_NAMES = {
+        GARBAGE_COLLECTION, YOUNG_GARBAGE_COLLECTION, OLD_GARBAGE_COLLECTION,
+        PROMOTION_FAILED, GC_PHASE_PAUSE, GC_HEAP_SUMMARY, JVM_INFORMATION
+    };
+    static private final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    final private String[] SHARED_ACTIVITIES = {"Young GC", "Full GC"};
+    final private List<String> gcActivityNames = new ArrayList<String>();
+
+    /**
+     * The receiver of the events of a recording.
+     */
+    static private interface EventHandler {
+
+        public void event(String name, Object event) throws IOException;
+    }
+
+    /**
+     * The reflective view of the <tt>jdk.jfr.consumer</tt> API that this
+     * reader uses. Recordings are read with <tt>EventStream</tt>, which only
+     * parses the events of the requested types, or, on JVMs that do not
+     * have it, with <tt>RecordingFile</tt>.
+     */
+    static private class JFR {
+
+        final private Method openFile;
+        final private Method onEvent;
+        final private Method setOrdered;
+        final private Method start;
+        final private Method closeStream;
+        final private Class<?> consumer;
+
+        final private Constructor<?> recordingFile;
+        final private Method hasMoreEvents;
+        final private Method readEvent;
+        final private Method closeFile;
+        final private Method getEventType;
+        final private Method getEventTypeName;
+
+        final private Method getStartTime;
+        final private Method getDuration;
+        final private Method hasField;
+        final private Method getLong;
+        final private Method getString;
+        final private Method getFieldDuration;
+        final private Method getInstant;
+        final private Method toPath;
+        final private Method instantSeconds;
+        final private Method instantNanos;
+        final private Method durationSeconds;
+        final private Method durationNanos;
+
+        static private JFR instance;
+
+        synchronized static public JFR instance() throws IOException {
+            if (instance == null) {
+                try {
+                    instance = new JFR();
+                } catch (Exception e) {
+                    throw new IOException(
+                            "Flight Recorder recordings cannot be read " +
+                            "on this JVM");
+                }
+            }
+            return instance;
+        }
+
+        /**
+         * It reads the events with the given names from a recording, in
+         * no particular order, and passes them to the handler.
+         */
+        public void read(File file, String[] names, final EventHandler handler)
+                throws IOException {
+            Object path = invoke(toPath, file);
+            if (openFile != null) {
+                Object stream = invoke(openFile, null, path);
+                try {
+                    invoke(setOrdered, stream, false);
+                    for (final String name : names) {
+                        Object action = Proxy.newProxyInstance(
+                                consumer.getClassLoader(),
+                                new Class<?>[]{consumer},
+                                new InvocationHandler() {
+
+                                    public Object invoke(Object proxy,
+                                            Method method, Object[] args)
+                                            throws Throwable {
+                                        if (method.getName().equals("accept")) {
+                                            handler.event(name, args[0]);
+                                            return null;
+                                        }
+                                        return method.invoke(this, args);
+                                    }
+                                });
+                        invoke(onEvent, stream, name, action);
+                    }
+                    invoke(start, stream);
+                } finally {
+                    invoke(closeStream, stream);
+                }
+            } else {
+                Set<String> wanted = new HashSet<String>(Arrays.asList(names));
+                Object recording = newInstance(recordingFile, path);
+                try {
+                    while ((Boolean) invoke(hasMoreEvents, recording)) {
+                        Object event = invoke(readEvent, recording);
+                        String name = (String) invoke(getEventTypeName,
+                                invoke(getEventType, event));
+                        if (wanted.contains(name)) {
+                            handler.event(name, event);
+                        }
+                    }
+                } finally {
+                    invoke(closeFile, recording);
+                }
+            }
+        }
+
+        public double eventStartSec(Object event) throws IOException {
+            return instantSec(invoke(getStartTime, event));
+        }
+
+        public double eventDurationSec(Object event) throws IOException {
+            return durationSec(invoke(getDuration, event));
+        }
+
+        public boolean hasField(Object object, String field)
+                throws IOException {
+            return (Boolean) invoke(hasField, object, field);
+        }
+
+        public long getLong(Object object, String field) throws IOException {
+            return (Long) invoke(getLong, object, field);
+        }
+
+        public String getString(Object object, String field)
+                throws IOException {
+            return (String) invoke(getString, object, field);
+        }
+
+        public double getDurationSec(Object object, String field)
+                throws IOException {
+            return durationSec(invoke(getFieldDuration, object, field));
+        }
+
+        public double getInstantSec(Object object, String field)
+                throws IOException {
+            return instantSec(invoke(getInstant, object, field));
+        }
+
+        private double instantSec(Object instant) throws IOException {
+            long seconds = (Long) invoke(instantSeconds, instant);
+            int nanos = (Integer) invoke(instantNanos, instant);
+            return (double) seconds + (double) nanos / 1000000000.0;
+        }
+
+        private double durationSec(Object duration) throws IOException {
+            long seconds = (Long) invoke(durationSeconds, duration);
+            int nanos = (Integer) invoke(durationNanos, duration);
+            return (double) seconds + (double) nanos / 1000000000.0;
+        }
+
+        static private Object invoke(Method method, Object target,
+                Object... args) throws IOException {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw ioException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw ioException(e);
+            }
+        }
+
+        static private Object newInstance(Constructor<?> constructor,
+                Object... args) throws IOException {
+            try {
+                return constructor.newInstance(args);
+            } catch (InvocationTargetException e) {
+                throw ioException(e.getCause());
+            } catch (Exception e) {
+                throw ioException(e);
+            }
+        }
+
+        static private IOException ioException(Throwable t) {
+            if (t instanceof UndeclaredThrowableException) {
+                // an IOException thrown by the handler of an event stream
+                t = ((UndeclaredThrowableException) t).getUndeclaredThrowable();
+            }
+            if (t instanceof IOException) {
+                return (IOException) t;
+            }
+            IOException e = new IOException(t.toString());
+            e.initCause(t);
+            return e;
+        }
+
+        static private Method optionalMethod(String className,
+                String methodName, Class<?>... types) {
+            try {
+                return Class.forName(className).getMethod(methodName, types);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private JFR() throws Exception {
+            Class<?> path = Class.forName("java.nio.file.Path");
+            Class<?> file = Class.forName("jdk.jfr.consumer.RecordingFile");
+            Class<?> object = Class.forName("jdk.jfr.consumer.RecordedObject");
+            Class<?> event = Class.forName("jdk.jfr.consumer.RecordedEvent");
+            Class<?> eventType = Class.forName("jdk.jfr.EventType");
+            Class<?> instant = Class.forName("java.time.Instant");
+            Class<?> duration = Class.forName("java.time.Duration");
+
+            // EventStream is in JDK 14 and later
+            String eventStream = "jdk.jfr.consumer.EventStream";
+            consumer = Class.forName("java.util.function.Consumer");
+            openFile = optionalMethod(eventStream, "openFile", path);
+            onEvent = optionalMethod(eventStream, "onEvent",
+                    String.class, consumer);
+            setOrdered = optionalMethod(eventStream, "setOrdered",
+                    boolean.class);
+            start = optionalMethod(eventStream, "start");
+            closeStream = optionalMethod(eventStream, "close");
+
+            recordingFile = file.getConstructor(path);
+            hasMoreEvents = file.getMethod("hasMoreEvents");
+            readEvent = file.getMethod("readEvent");
+            closeFile = file.getMethod("close");
+            getEventType = event.getMethod("getEventType");
+            getEventTypeName = eventType.getMethod("getName");
+
+            getStartTime = event.getMethod("getStartTime");
+            getDuration = event.getMethod("getDuration");
+            hasField = object.getMethod("hasField", String.class);
+            getLong = object.getMethod("getLong", String.class);
+            getString = object.getMethod("getString", String.class);
+            getFieldDuration = object.getMethod("getDuration", String.class);
+            getInstant = object.getMethod("getInstant", String.class);
+            toPath = File.class.getMethod("toPath");
+            instantSeconds = instant.getMethod("getEpochSecond");
+            instantNanos = instant.getMethod("getNano");
+            durationSeconds = duration.getMethod("getSeconds");
+            durationNanos = duration.getMethod("getNano");
+        }
+    }
+
+    /**
+     * A pause of a GC, in absolute time.
+     */
+    static private class Pause {
+
+        private String name;
+        private double startSec;
+        private double durationSec;
+
+        public Pause(String name, double startSec, double durationSec) {
+            this.name = name;
+            this.startSec = startSec;
+            this.durationSec = durationSec;
+        }
+    }
+
+    /**
+     * What the recording says about one GC, collected from all the events
+     * with its GC id.
+     */
+    static private class GC {
+
+        final private long id;
+        private String name;
+        private String cause;
+        private double startSec = -1.0;
+        private double durationSec;
+        private double sumOfPausesSec;
+        private boolean young;
+        private boolean old;
+        private boolean promotionFailed;
+        private double heapUsedAfter = -1.0;
+        private double heapCommittedAfter = -1.0;
+        final private List<Pause> pauses = new ArrayList<Pause>();
+
+        public boolean isYoung() {
+            if (young || old) {
+                return young;
+            }
+            for (String collector : YOUNG_COLLECTORS) {
+                if (collector.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * It returns whether this GC ran (partly) concurrently with the
+         * application, i.e., whether it lasted longer than its pauses.
+         */
+        public boolean isConcurrent() {
+            return pauses.size() > 1 ||
+                    durationSec > sumOfPausesSec * 1.01 + 0.001;
+        }
+
+        public GC(long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A GC activity to be added to the GC trace.
+     */
+    static private class Activity {
+
+        private String name;
+        private double startSec;
+        private double durationSec;
+
+        public Activity(String name, double startSec, double durationSec) {
+            this.name = name;
+            this.startSec = startSec;
+            this.durationSec = durationSec;
+        }
+    }
+
+    private void ensureGCActivityAdded(GCTrace gcTrace, String name) {
+        if (!gcActivityNames.contains(name)) {
+            if (name.equals("Remark")) {
+                ensureGCActivityAdded(gcTrace, "Initial Mark");
+            }
+
+            gcActivityNames.add(name);
+            gcTrace.addGCActivityName(gcActivityNames.indexOf(name), name);
+        }
+    }
+
+    public void setupGCActivityNames(GCTrace gcTrace) {
+        for (String name : SHARED_ACTIVITIES) {
+            ensureGCActivityAdded(gcTrace, name);
+        }
+    }
+
+    /**
+     * The GCs of a recording, collected from its events.
+     */
+    static private class Contents implements EventHandler {
+
+        final private JFR jfr;
+        final private Map<Long, GC> gcs = new HashMap<Long, GC>();
+        private double jvmStartSec = -1.0;
+
+        private GC gc(Object event) throws IOException {
+            long id = jfr.getLong(event, "gcId");
+            GC gc = gcs.get(id);
+            if (gc == null) {
+                gc = new GC(id);
+                gcs.put(id, gc);
+            }
+            return gc;
+        }
+
+        public void event(String name, Object event) throws IOException {
+            if (name.equals(GARBAGE_COLLECTION)) {
+                GC gc = gc(event);
+                gc.name = jfr.getString(event, "name");
+                gc.cause = jfr.getString(event, "cause");
+                gc.startSec = jfr.eventStartSec(event);
+                gc.durationSec = jfr.eventDurationSec(event);
+                gc.sumOfPausesSec = jfr.getDurationSec(event, "sumOfPauses");
+            } else if (name.equals(GC_PHASE_PAUSE)) {
+                gc(event).pauses.add(new Pause(
+                        jfr.getString(event, "name"),
+                        jfr.eventStartSec(event),
+                        jfr.eventDurationSec(event)));
+            } else if (name.equals(GC_HEAP_SUMMARY)) {
+                if ("After GC".equals(jfr.getString(event, "when"))) {
+                    GC gc = gc(event);
+                    gc.heapUsedAfter = jfr.getLong(event, "heapUsed");
+                    gc.heapCommittedAfter =
+                            jfr.getLong(event, "heapSpace.committedSize");
+                }
+            } else if (name.equals(YOUNG_GARBAGE_COLLECTION)) {
+                gc(event).young = true;
+            } else if (name.equals(OLD_GARBAGE_COLLECTION)) {
+                gc(event).old = true;
+            } else if (name.equals(PROMOTION_FAILED)) {
+                gc(event).promotionFailed = true;
+            } else if (name.equals(JVM_INFORMATION)) {
+                if (jfr.hasField(event, "jvmStartTime")) {
+                    jvmStartSec = jfr.getInstantSec(event, "jvmStartTime");
+                }
+            }
+        }
+
+        /**
+         * It returns the GCs, in the order they happened.
+         */
+        public List<GC> gcs() {
+            // GC ids increase with time, events in a recording do not
+            List<GC> list = new ArrayList<GC>(gcs.values());
+            Collections.sort(list, new Comparator<GC>() {
+
+                public int compare(GC gc1, GC gc2) {
+                    return gc1.id < gc2.id ? -1 : (gc1.id == gc2.id ? 0 : 1);
+                }
+            });
+            return list;
+        }
+
+        public double jvmStartSec() {
+            return jvmStartSec;
+        }
+
+        public Contents(JFR jfr) {
+            this.jfr = jfr;
+        }
+    }
+
+    /**
+     * It returns the name of the GC activity for a pause of a concurrent
+     * GC, using the names of the HotSpot GC log reader where they apply.
+     */
+    static private String concurrentPauseName(String pauseName) {
+        if (pauseName.contains("Initial Mark") ||
+                pauseName.contains("Init Mark") ||
+                pauseName.contains("Mark Start")) {
+            return "Initial Mark";
+        }
+        if (pauseName.contains("Remark") || pauseName.contains("Mark End")) {
+            return "Remark";
+        }
+        return pauseName;
+    }
+
+    /**
+     * It adds the GC activities of the given GC to the list.
+     */
+    static private void addActivities(GC gc, List<Activity> activities) {
+        List<Pause> pauses = gc.pauses;
+        if (pauses.isEmpty()) {
+            // no jdk.GCPhasePause events, assume a single pause
+            pauses = new ArrayList<Pause>();
+            pauses.add(new Pause(null, gc.startSec, gc.sumOfPausesSec));
+        }
+
+        if (gc.isYoung()) {
+            String name = gc.promotionFailed ?
+                "Young GC (Promotion Failed)" : "Young GC";
+            for (Pause pause : pauses) {
+                activities.add(new Activity(name,
+                        pause.startSec, pause.durationSec));
+            }
+        } else if (gc.isConcurrent()) {
+            for (Pause pause : pauses) {
+                String name = pause.name != null ?
+                    concurrentPauseName(pause.name) : gc.name;
+                activities.add(new Activity(name,
+                        pause.startSec, pause.durationSec));
+            }
+        } else {
+            String name = "System.gc()".equals(gc.cause) ?
+                "Full GC (System)" : "Full GC";
+            for (Pause pause : pauses) {
+                activities.add(new Activity(name,
+                        pause.startSec, pause.durationSec));
+            }
+        }
+    }
+
+    /**
+     * It feeds the heap occupancy after each GC to an old generation
+     * forecast. The recording only has the occupancy of the whole heap,
+     * which is used as that of the old generation: right after a GC the
+     * young generation is (nearly) empty.
+     */
+    static private OldGenForecast newOldGenForecast(List<GC> gcs,
+            double baseSec) {
+        OldGenForecast forecast = new OldGenForecast();
+        forecast.set_keep_series(true);
+        double prevUsed = -1.0;
+        for (GC gc : gcs) {
+            if (gc.startSec < 0.0) {
+                continue;
+            }
+            double begSec = gc.startSec - baseSec;
+            double endSec = begSec + gc.durationSec;
+            double used = gc.heapUsedAfter / BYTES_PER_MB;
+            double committed = gc.heapCommittedAfter / BYTES_PER_MB;
+            if (gc.isYoung()) {
+                if (gc.heapUsedAfter >= 0.0) {
+                    double usedBeg = prevUsed >= 0.0 ? prevUsed : used;
+                    forecast.young_gc(begSec, endSec, usedBeg, used,
+                            committed, Math.max(0.0, used - usedBeg));
+                }
+            } else if (gc.isConcurrent()) {
+                forecast.cms_initial_mark(begSec);
+                forecast.cms_sweep_end(endSec);
+            } else if (gc.heapUsedAfter >= 0.0) {
+                forecast.full_gc(endSec, used, committed);
+            }
+            if (gc.heapUsedAfter >= 0.0) {
+                prevUsed = used;
+            }
+        }
+        return forecast;
+    }
+
+    public void readFile(
+            File file,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle) throws IOException {
+        try {
+            throttle.started();
+
+            Contents contents = new Contents(JFR.instance());
+            JFR.instance().read(file, EVENT_NAMES, contents);
+            List<GC> gcs = contents.gcs();
+            double jvmStartSec = contents.jvmStartSec();
+
+            List<Activity> activities = new ArrayList<Activity>();
+            double baseSec = jvmStartSec;
+            for (GC gc : gcs) {
+                if (gc.startSec < 0.0) {
+                    // the recording started or ended in the middle of it
+                    continue;
+                }
+                addActivities(gc, activities);
+                if (jvmStartSec < 0.0 &&
+                        (baseSec < 0.0 || gc.startSec < baseSec)) {
+                    baseSec = gc.startSec;
+                }
+            }
+            Collections.sort(activities, new Comparator<Activity>() {
+
+                public int compare(Activity a1, Activity a2) {
+                    return Double.compare(a1.startSec, a2.startSec);
+                }
+            });
+
+            gcTrace.setOldGenForecast(newOldGenForecast(gcs, baseSec));
+
+            for (Activity activity : activities) {
+                if (!throttle.shouldContinue()) {
+                    break;
+                }
+
+                double startSec = Math.max(0.0, activity.startSec - baseSec);
+                throttle.beforeAddingGCActivity(startSec);
+
+                ensureGCActivityAdded(gcTrace, activity.name);
+                int id = gcActivityNames.indexOf(activity.name);
+                gcTrace.addGCActivity(id, startSec, activity.durationSec);
+
+                throttle.afterAddingGCActivity(startSec);
+            }
+        } finally {
+            throttle.finished();
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gctracegenerator.file.simple;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The GC activities of a range of a simple GC log. The range is read and
+ * tokenized as bytes, the numbers are parsed into primitive arrays and the
+ * GC activity names are looked up in a hash table of their bytes, so that
+ * a chunk allocates nothing per line once its arrays have grown to the
+ * size of the range. A chunk owns the lines that start in its range, so
+ * consecutive ranges of a file can be read independently and their GC
+ * activities concatenated in order.
+ * <p>
+ * Whitespace is found among the bytes, which assumes that the file is in
+ * a charset that encodes it as in ASCII (the GC activity names are decoded
+ * with the default charset, as <tt>FileReader</tt> would).
+ *
+ * @see gchisto.gctracegenerator.file.simple.GCLogFileReader
+ */
+class Chunk {
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    static final private double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * The largest integer below which all integers are exactly
+     * representable as doubles.
+     */
+    static final private long MAX_EXACT_LONG = 1L << 53;
+    static final private Charset NAME_CHARSET = Charset.defaultCharset();
+    static final private Charset NUMBER_CHARSET = Charset.forName("ISO-8859-1");
+    static final private int MAX_TOKENS = 6;
+    static final private int INITIAL_CAPACITY = 1024;
+    static final private int LINE_READ_SIZE = 4096;
+
+    private byte[] buffer = new byte[0];
+    final private int[] tokenStarts = new int[MAX_TOKENS];
+    final private int[] tokenEnds = new int[MAX_TOKENS];
+    private int tokenNum;
+    /**
+     * The open-addressing hash table of the GC activity names: each slot
+     * holds the local ID of a name plus one, or zero if it is empty.
+     */
+    private int[] nameTable = new int[16];
+    private byte[][] nameBytes = new byte[8][];
+    private int[] nameHashes = new int[8];
+    private String[] names = new String[8];
+    private int nameNum;
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private double[] startSecs = new double[INITIAL_CAPACITY];
+    private double[] durationSecs = new double[INITIAL_CAPACITY];
+    private double[] overheadPercs = new double[INITIAL_CAPACITY];
+    private boolean[] stws = new boolean[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int lineNum;
+    private int errorLine;
+    private int errorID;
+
+    /**
+     * It reads and parses the lines that start in the given range of the
+     * given file, replacing the previous contents of this chunk.
+     *
+     * @param channel The channel of the file. It is only read with
+     * absolute positions, so it can be shared by chunks that are read
+     * concurrently.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param fileSize The size of the file.
+     */
+    void read(FileChannel channel, long from, long to, long fileSize)
+            throws IOException {
+        // Read the byte before the range too, to tell whether a line
+        // starts at its beginning, and past the range up to the end of
+        // the last line that starts in it.
+        long readFrom = Math.max(from - 1, 0);
+        int length = (int) (to - readFrom);
+        ensureBufferCapacity(length);
+        readFully(channel, readFrom, 0, length);
+        while (readFrom + length < fileSize &&
+                (length == 0 || buffer[length - 1] != '\n')) {
+            int more = (int) Math.min(LINE_READ_SIZE,
+                    fileSize - (readFrom + length));
+            ensureBufferCapacity(length + more);
+            readFully(channel, readFrom + length, length, more);
+            length += more;
+        }
+
+        int lineStart = 0;
+        if (from > 0) {
+            lineStart = 1;
+            while (lineStart <= length && buffer[lineStart - 1] != '\n') {
+                lineStart += 1;
+            }
+        }
+        parse(lineStart, (int) (to - readFrom), length);
+    }
+
+    private void readFully(FileChannel channel, long position,
+            int offset, int length) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, length);
+        while (byteBuffer.hasRemaining()) {
+            int read = channel.read(byteBuffer,
+                    position + byteBuffer.position() - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * It parses the lines that start at, or after, <tt>from</tt> and
+     * before <tt>end</tt> in the buffer, which holds data up to
+     * <tt>length</tt>. It stops at the first line that cannot be parsed.
+     */
+    private void parse(int from, int end, int length) {
+        size = 0;
+        lineNum = 0;
+        errorLine = -1;
+        errorID = -1;
+        int lineStart = from;
+        while (lineStart < end) {
+            int lineEnd = tokenize(lineStart, length);
+            if (!parseLine()) {
+                errorLine = lineNum;
+                lineNum += 1;
+                return;
+            }
+            lineNum += 1;
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * It finds the tokens of the line that starts at <tt>from</tt> and
+     * returns the index of its end.
+     */
+    private int tokenize(int from, int length) {
+        tokenNum = 0;
+        int i = from;
+        while (true) {
+            while (i < length && isBlank(buffer[i])) {
+                i += 1;
+            }
+            if (i == length || buffer[i] == '\n') {
+                return i;
+            }
+            int start = i;
+            while (i < length && !isBlank(buffer[i]) && buffer[i] != '\n') {
+                i += 1;
+            }
+            if (tokenNum < MAX_TOKENS) {
+                tokenStarts[tokenNum] = start;
+                tokenEnds[tokenNum] = i;
+            }
+            tokenNum += 1;
+        }
+    }
+
+    private boolean parseLine() {
+        if (tokenNum == 0) {
+            return true;
+        }
+        if (tokenNum < 3) {
+            return false;
+        }
+
+        int id = lookupName(tokenStarts[0], tokenEnds[0]);
+        try {
+            double startSec = parseDouble(tokenStarts[1], tokenEnds[1]);
+            double durationSec = parseDouble(tokenStarts[2], tokenEnds[2]);
+            // the GC activity name is added once these have been parsed
+            errorID = id;
+
+            // The optional tokens are the overhead of a concurrent GC
+            // activity and / or the space before and after it.
+            int remaining = tokenNum - 3;
+            boolean stw = remaining == 0 || remaining == 2;
+            double overheadPerc = 100.0;
+            int next = 3;
+            if (!stw) {
+                overheadPerc = parseDouble(tokenStarts[next], tokenEnds[next]);
+                next += 1;
+            }
+            if (remaining >= 2) {
+                // the spaces are not used, but they have to be valid
+                parseLong(tokenStarts[next], tokenEnds[next]);
+                parseLong(tokenStarts[next + 1], tokenEnds[next + 1]);
+            }
+
+            ensureCapacity(size + 1);
+            ids[size] = id;
+            startSecs[size] = startSec;
+            durationSecs[size] = durationSec;
+            overheadPercs[size] = overheadPerc;
+            stws[size] = stw;
+            lines[size] = lineNum;
+            size += 1;
+            errorID = -1;
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static private boolean isBlank(byte b) {
+        // the delimiters of StringTokenizer, other than the new line
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f';
+    }
+
+    private int lookupName(int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; ++i) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = nameTable.length - 1;
+        int slot = hash & mask;
+        while (nameTable[slot] != 0) {
+            int id = nameTable[slot] - 1;
+            if (nameHashes[id] == hash && sameBytes(nameBytes[id], from, to)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = nameNum;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, 2 * id);
+            nameBytes = Arrays.copyOf(nameBytes, 2 * id);
+            nameHashes = Arrays.copyOf(nameHashes, 2 * id);
+        }
+        names[id] = new String(buffer, from, to - from, NAME_CHARSET);
+        nameBytes[id] = Arrays.copyOfRange(buffer, from, to);
+        nameHashes[id] = hash;
+        nameNum += 1;
+        nameTable[slot] = id + 1;
+        if (2 * nameNum > nameTable.length) {
+            rehashNames();
+        }
+        return id;
+    }
+
+    private boolean sameBytes(byte[] bytes, int from, int to) {
+        if (bytes.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            if (bytes[i] != buffer[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehashNames() {
+        nameTable = new int[2 * nameTable.length];
+        int mask = nameTable.length - 1;
+        for (int id = 0; id < nameNum; ++id) {
+            int slot = nameHashes[id] & mask;
+            while (nameTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            nameTable[slot] = id + 1;
+        }
+    }
+
+    /**
+     * It parses a plain decimal number directly, when it has few enough
+     * digits to be converted exactly with a single division, and hands
+     * anything else (exponents, long fractions, special values) to
+     * <tt>Double.parseDouble()</tt>, so that the result is always the
+     * same as that of the latter.
+     */
+    private double parseDouble(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i += 1;
+        }
+        long mantissa = 0;
+        int digitNum = 0;
+        int fractionDigitNum = 0;
+        boolean point = false;
+        for (; i < to; ++i) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_LONG / 10) {
+                    return parseDoubleSlowly(from, to);
+                }
+                mantissa = 10 * mantissa + (b - '0');
+                digitNum += 1;
+                if (point) {
+                    fractionDigitNum += 1;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return parseDoubleSlowly(from, to);
+            }
+        }
+        if (digitNum == 0 || fractionDigitNum >= POWERS_OF_TEN.length) {
+            return parseDoubleSlowly(from, to);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigitNum];
+        return negative ? -value : value;
+    }
+
+    private double parseDoubleSlowly(int from, int to) {
+        return Double.parseDouble(
+                new String(buffer, from, to - from, NUMBER_CHARSET));
+    }
+
+    private long parseLong(int from, int to) {
+        if (to - from > 0 && to - from <= 18) {
+            int i = from;
+            boolean negative = buffer[i] == '-';
+            if (negative) {
+                i += 1;
+            }
+            long value = 0;
+            for (; i < to; ++i) {
+                byte b = buffer[i];
+                if (b < '0' || b > '9') {
+                    return parseLongSlowly(from, to);
+                }
+                value = 10 * value + (b - '0');
+            }
+            if (i > from + (negative ? 1 : 0)) {
+                return negative ? -value : value;
+            }
+        }
+        return parseLongSlowly(from, to);
+    }
+
+    private long parseLongSlowly(int from, int to) {
+        return Long.parseLong(
+                new String(buffer, from, to - from, NUMBER_CHARSET));
+    }
+
+    private void ensureBufferCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity,
+                    buffer.length + buffer.length / 2));
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (ids.length < capacity) {
+            int newCapacity = 2 * ids.length;
+            ids = Arrays.copyOf(ids, newCapacity);
+            startSecs = Arrays.copyOf(startSecs, newCapacity);
+            durationSecs = Arrays.copyOf(durationSecs, newCapacity);
+            overheadPercs = Arrays.copyOf(overheadPercs, newCapacity);
+            stws = Arrays.copyOf(stws, newCapacity);
+            lines = Arrays.copyOf(lines, newCapacity);
+        }
+    }
+
+    /**
+     * It returns the number of GC activities in this chunk.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * It returns the number of lines that start in the range of this
+     * chunk, up to the first one that could not be parsed.
+     */
+    int getLineNum() {
+        return lineNum;
+    }
+
+    /**
+     * It returns the index, in this chunk, of the line that could not be
+     * parsed, or -1 if all of them were parsed. It comes after the lines
+     * of all the GC activities of this chunk.
+     */
+    int getErrorLine() {
+        return errorLine;
+    }
+
+    /**
+     * It returns the local ID of the GC activity name of the line that
+     * could not be parsed, if the line got far enough for the name to be
+     * added to the GC trace, or -1 otherwise.
+     */
+    int getErrorID() {
+        return errorID;
+    }
+
+    /**
+     * It returns the number of GC activity names that appear in this
+     * chunk. Their IDs are local to this chunk and they are kept when
+     * the chunk is reused.
+     */
+    int getNameNum() {
+        return nameNum;
+    }
+
+    String getName(int id) {
+        return names[id];
+    }
+
+    int getID(int index) {
+        return ids[index];
+    }
+
+    double getStartSec(int index) {
+        return startSecs[index];
+    }
+
+    double getDurationSec(int index) {
+        return durationSecs[index];
+    }
+
+    double getOverheadPerc(int index) {
+        return overheadPercs[index];
+    }
+
+    boolean isSTW(int index) {
+        return stws[index];
+    }
+
+    /**
+     * It returns the index, in this chunk, of the line of the GC activity
+     * with the given index.
+     */
+    int getLine(int index) {
+        return lines[index];
+    }
+}
@@ -26,47 +26,61 @@ package gchisto.gctracegenerator.file.simple;
 import gchisto.gctrace.GCTrace;
 import gchisto.gctracegenerator.file.GCLogFileReaderThrottle;
 import gchisto.utils.Comparisons;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
+ * A reader of simple GC logs. The file is read in chunks of bytes, which
+ * are tokenized and parsed without creating any objects per line. Files
+ * of more than one chunk are parsed by several threads, a few chunks ahead
+ * of the one whose GC activities are being added to the GC trace, and the
+ * chunks are added in file order, so the result is the same as reading
+ * the file line by line.
+ * <p>
+ * The number of threads is given by the <tt>gchisto.simple.threads</tt>
+ * system property (by default, the number of processors); 1 reads the
+ * file on the calling thread only.
  *
  * @author tony
+ * @see gchisto.gctracegenerator.file.simple.Chunk
  */
 public class GCLogFileReader
         implements gchisto.gctracegenerator.file.GCLogFileReader {
 
+    static final public int DEFAULT_THREADS = Integer.getInteger(
+            "gchisto.simple.threads",
+            Runtime.getRuntime().availableProcessors());
+    static final public int DEFAULT_CHUNK_SIZE = 1 << 20;
+    /**
+     * How many chunks per thread are parsed ahead of the one whose GC
+     * activities are being added.
+     */
+    static final private int CHUNKS_PER_THREAD = 2;
+
     final private String[] SHARED_ACTIVITIES = {"YoungGC", "FullGC"};
     final private List<String> gcActivityNames = new ArrayList<String>();
-
-    private double parseDouble(StringTokenizer st) {
-        assert st.hasMoreTokens();
-        String str = st.nextToken();
-        return Double.parseDouble(str);
-    }
-
-    private String parseString(StringTokenizer st) {
-        assert st.hasMoreTokens();
-        String str = st.nextToken();
-        return str;
-    }
-
-    private long parseLong(StringTokenizer st) {
-        assert st.hasMoreTokens();
-        String str = st.nextToken();
-        return Long.parseLong(str);
-    }
-
-    private int mapGCActivityNameToID(String name)
-            throws IOException {
-        return gcActivityNames.indexOf(name);
-    }
+    final private int threads;
+    final private int chunkSize;
+    /**
+     * It maps the local GC activity name IDs of each chunk to the IDs of
+     * the names in the GC trace, or to -1 for the names that have not been
+     * looked up yet.
+     */
+    final private Map<Chunk, int[]> globalIDs = new HashMap<Chunk, int[]>();
 
     private double checkBounds(double value) throws NumberFormatException {
         if (value < 0.0) {
@@ -110,6 +124,155 @@ public class GCLogFileReader
         }
     }
 
+    /**
+     * It returns the ID in the GC trace of the GC activity name with the
+     * given local ID in the given chunk, adding the name to the GC trace
+     * if it is not in it.
+     */
+    private int mapGCActivityNameToID(GCTrace gcTrace, Chunk chunk, int id) {
+        int[] ids = globalIDs.get(chunk);
+        if (ids == null || ids.length < chunk.getNameNum()) {
+            int oldLength = ids == null ? 0 : ids.length;
+            ids = ids == null ? new int[chunk.getNameNum()] :
+                Arrays.copyOf(ids, chunk.getNameNum());
+            Arrays.fill(ids, oldLength, ids.length, -1);
+            globalIDs.put(chunk, ids);
+        }
+        if (ids[id] < 0) {
+            String name = chunk.getName(id);
+            ensureGCActivityAdded(gcTrace, name);
+            ids[id] = gcActivityNames.indexOf(name);
+        }
+        return ids[id];
+    }
+
+    /**
+     * It adds the GC activities of the given chunk to the given GC trace.
+     *
+     * @param firstLine The line number of the first line of the chunk.
+     * @return Whether the throttle allowed all of them to be added.
+     */
+    private boolean addGCActivities(Chunk chunk,
+            int firstLine,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle)
+            throws IOException {
+        for (int i = 0; i < chunk.size(); ++i) {
+            if (!throttle.shouldContinue()) {
+                return false;
+            }
+            double startSec = chunk.getStartSec(i);
+            double durationSec = chunk.getDurationSec(i);
+
+            throttle.beforeAddingGCActivity(startSec);
+
+            int id = mapGCActivityNameToID(gcTrace, chunk, chunk.getID(i));
+            try {
+                startSec = checkBounds(startSec);
+                durationSec = checkBounds(durationSec);
+            } catch (NumberFormatException e) {
+                throw new IOException("parsing error, line " +
+                        (firstLine + chunk.getLine(i)));
+            }
+
+            if (chunk.isSTW(i)) {
+                gcTrace.addGCActivity(id, startSec, durationSec);
+            } else {
+                gcTrace.addGCActivity(id, startSec, durationSec,
+                        chunk.getOverheadPerc(i));
+            }
+            throttle.afterAddingGCActivity(startSec);
+        }
+
+        if (chunk.getErrorLine() >= 0) {
+            if (chunk.getErrorID() >= 0) {
+                mapGCActivityNameToID(gcTrace, chunk, chunk.getErrorID());
+            }
+            throw new IOException("parsing error, line " +
+                    (firstLine + chunk.getErrorLine()));
+        }
+        return true;
+    }
+
+    private void readSequentially(FileChannel channel,
+            long fileSize,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle)
+            throws IOException {
+        Chunk chunk = new Chunk();
+        int firstLine = 1;
+        for (long from = 0; from < fileSize; from += chunkSize) {
+            chunk.read(channel, from, Math.min(from + chunkSize, fileSize),
+                    fileSize);
+            if (!addGCActivities(chunk, firstLine, gcTrace, throttle)) {
+                return;
+            }
+            firstLine += chunk.getLineNum();
+        }
+    }
+
+    static private Future<Chunk> submit(ExecutorService executor,
+            final Chunk chunk,
+            final FileChannel channel,
+            final long from,
+            final long to,
+            final long fileSize) {
+        return executor.submit(new Callable<Chunk>() {
+
+            public Chunk call() throws IOException {
+                chunk.read(channel, from, to, fileSize);
+                return chunk;
+            }
+        });
+    }
+
+    private void readConcurrently(FileChannel channel,
+            long fileSize,
+            GCTrace gcTrace,
+            GCLogFileReaderThrottle throttle)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            LinkedList<Future<Chunk>> futures =
+                    new LinkedList<Future<Chunk>>();
+            long from = 0;
+            while (from < fileSize &&
+                    futures.size() < CHUNKS_PER_THREAD * threads) {
+                long to = Math.min(from + chunkSize, fileSize);
+                futures.add(submit(executor, new Chunk(), channel,
+                        from, to, fileSize));
+                from = to;
+            }
+
+            int firstLine = 1;
+            while (!futures.isEmpty()) {
+                Chunk chunk = futures.removeFirst().get();
+                if (!addGCActivities(chunk, firstLine, gcTrace, throttle)) {
+                    return;
+                }
+                firstLine += chunk.getLineNum();
+
+                // the chunk, and its GC activity names, are reused
+                if (from < fileSize) {
+                    long to = Math.min(from + chunkSize, fileSize);
+                    futures.add(submit(executor, chunk, channel,
+                            from, to, fileSize));
+                    from = to;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public void setupGCActivityNames(GCTrace gcTrace) {
         for (String name : SHARED_ACTIVITIES) {
             ensureGCActivityAdded(gcTrace, name);
@@ -120,78 +283,36 @@ public class GCLogFileReader
             GCTrace gcTrace,
             GCLogFileReaderThrottle throttle)
             throws IOException {
-        FileReader reader = new FileReader(file);
-        BufferedReader bufferedReader = new BufferedReader(reader);
-        int lineCount = 0;
-        String line = bufferedReader.readLine();
-
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
         try {
             throttle.started();
-            while (throttle.shouldContinue() && line != null) {
-                lineCount += 1;
-                StringTokenizer st = new StringTokenizer(line);
-
-                if (st.countTokens() > 0) {
-                    String activityName = parseString(st);
-                    Double startSec = parseDouble(st);
-                    Double durationSec = parseDouble(st);
-
-                    throttle.beforeAddingGCActivity(startSec);
-
-                    ensureGCActivityAdded(gcTrace, activityName);
-                    assert gcActivityNames.contains(activityName);
-                    int id = mapGCActivityNameToID(activityName);
-
-                    int remaining = st.countTokens();
-                    boolean stw;
-                    double overheadPerc;
-                    long[] spacesBefore;
-                    long[] spacesAfter;
-
-                    assert remaining <= 3;
-                    if (remaining == 0 || remaining == 2) {
-                        stw = true;
-                        overheadPerc = 100.0;
-                    } else {
-                        assert remaining == 1 || remaining == 3;
-                        stw = false;
-                        overheadPerc = parseDouble(st);
-                    }
-                    if (remaining == 0 || remaining == 1) {
-                        spacesBefore = new long[0];
-                        spacesAfter = new long[0];
-                    } else {
-                        assert remaining == 2 || remaining == 3;
-                        spacesBefore = new long[1];
-                        spacesBefore[0] = parseLong(st);
-                        spacesAfter = new long[1];
-                        spacesAfter[0] = parseLong(st);
-                    }
-                    assert !st.hasMoreTokens();
-
-                    startSec = checkBounds(startSec);
-                    durationSec = checkBounds(durationSec);
-
-                    if (stw) {
-                        gcTrace.addGCActivity(id, startSec, durationSec);
-                    } else {
-                        gcTrace.addGCActivity(id, startSec, durationSec, overheadPerc);
-                    }
-                    throttle.afterAddingGCActivity(startSec);
-                }
-
-                line = bufferedReader.readLine();
+            FileChannel channel = randomAccessFile.getChannel();
+            long fileSize = channel.size();
+            if (threads > 1 && fileSize > chunkSize) {
+                readConcurrently(channel, fileSize, gcTrace, throttle);
+            } else {
+                readSequentially(channel, fileSize, gcTrace, throttle);
             }
-        } catch (NoSuchElementException e) {
-            throw new IOException("parsing error, line " + lineCount);
-        } catch (NumberFormatException e) {
-            throw new IOException("parsing error, line " + lineCount);
         } finally {
             throttle.finished();
-            reader.close();
+            globalIDs.clear();
+            randomAccessFile.close();
         }
     }
 
     public GCLogFileReader() {
+        this(DEFAULT_THREADS, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * It creates a new reader.
+     *
+     * @param threads The number of threads that parse the file; 1 parses
+     * it on the thread that reads it.
+     * @param chunkSize The number of bytes of each chunk of the file.
+     */
+    public GCLogFileReader(int threads, int chunkSize) {
+        this.threads = threads;
+        this.chunkSize = chunkSize;
     }
 }
@@ -57,9 +57,10 @@ public class MainPanel extends javax.swing.JPanel {
 
         "gchisto.gui.panels.gcstats.Panel",
         "gchisto.gui.panels.gcdistribution.Panel",
-        "gchisto.gui.panels.gctimeline.Panel"
-
-//        "gchisto.gui.panels.gcdata.Panel",
+        "gchisto.gui.panels.gctimeline.Panel",
+        "gchisto.gui.panels.oldgen.Panel",
+        "gchisto.gui.panels.younggen.Panel",
+        "gchisto.gui.panels.gcdata.Panel"
     };
     /**
      * The main GC trace set of the application.
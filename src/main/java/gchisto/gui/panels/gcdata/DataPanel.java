@@ -30,50 +30,71 @@ import gchisto.gctrace.GCTraceCheckpoint;
 import gchisto.gctrace.RCWithGCTraceCheckpoint;
 import gchisto.gctrace.GCTraceListener;
 import gchisto.gctrace.RCWithGCTraceCheckpointCallback;
+import gchisto.gui.utils.SuspendablePanel;
 import gchisto.utils.Locker;
 import gchisto.utils.Refresher;
 import gchisto.utils.WorkerThread;
 import gchisto.utils.errorchecking.ArgumentChecking;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableCellRenderer;
 
 /**
+ * A panel that shows the raw data of a GC trace in a table, one GC activity
+ * per row. Only the visible rows are formatted, so the cost of showing a
+ * trace does not grow with its size.
  *
  * @author  tony
  */
 public class DataPanel extends javax.swing.JPanel
-        implements GCTraceListener, RCWithGCTraceCheckpointCallback {
+        implements GCTraceListener, RCWithGCTraceCheckpointCallback,
+                   SuspendablePanel {
 
-    final private GCTrace gcTrace;
-    final private Refresher refresher;
-    final private Locker locker = new Locker();
+    /**
+     * It formats the numbers of a column with a given format.
+     */
+    private class Renderer extends DefaultTableCellRenderer {
 
-    String getString(GCActivity gcActivity) {
-        return String.format("%20s %12.4f %12.6f\n",
-                gcActivity.getName(),
-                gcActivity.getStartSec(),
-                gcActivity.getDurationSec());
-    }
+        final private String format;
+
+        protected void setValue(Object value) {
+            setText((value == null) ? "" : String.format(format, value));
+        }
 
-    private void updateTextArea(int from, int to) {
-        GCActivitySet allGCActivities = gcTrace.getAllGCActivities();
-        StringBuilder strBuilder = new StringBuilder();
-        for (int i = from; i < to; ++i) {
-            GCActivity gcActivity = allGCActivities.get(i);
-            String str = getString(gcActivity);
-            strBuilder.append(str);
+        private Renderer(String format) {
+            this.format = format;
+            setHorizontalAlignment(RIGHT);
         }
-        textArea.append(strBuilder.toString());
     }
 
+    final private GCTrace gcTrace;
+    final private Refresher refresher;
+    final private Locker locker = new Locker();
+    final private DataTableModel model;
+
     public void refresh(GCTraceCheckpoint checkpoint) {
-        int from = checkpoint.prevAllGCActivitiesSize();
-        int to = checkpoint.allGCActivitiesSize();
-        updateTextArea(from, to);
+        final int rowCount = checkpoint.allGCActivitiesSize();
+        SwingUtilities.invokeLater(new Runnable() {
+
+            public void run() {
+                model.setRowCount(rowCount);
+            }
+        });
     }
 
     public void possiblyRefresh() {
         refresher.possiblyRefresh();
     }
 
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refresher.suspend();
+        } else {
+            refresher.resume();
+        }
+    }
+
     public void gcActivityAdded(
             GCTrace gcTrace,
             GCActivitySet gcActivitySet,
@@ -88,15 +109,51 @@ public class DataPanel extends javax.swing.JPanel
             String gcActivityName) {
     }
 
+    /**
+     * It selects, and scrolls to, the first GC activity that starts at, or
+     * after, the time in the time field.
+     */
+    private void goToTime() {
+        double timeSec;
+        try {
+            timeSec = Double.parseDouble(timeField.getText().trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int index = model.indexAtTime(timeSec);
+        if (index == -1) {
+            return;
+        }
+        int row = model.rowOf(index);
+        table.setRowSelectionInterval(row, row);
+        table.scrollRectToVisible(table.getCellRect(row, 0, true));
+    }
+
     DataPanel(GCTrace gcTrace) {
         ArgumentChecking.notNull(gcTrace, "gcTrace");
 
         this.gcTrace = gcTrace;
+        this.model = new DataTableModel(gcTrace.getAllGCActivities());
         GCTraceCheckpoint checkpoint = new GCTraceCheckpoint(gcTrace);
         this.refresher = new Refresher(
                 WorkerThread.instance(),
                 new RCWithGCTraceCheckpoint(checkpoint, locker, this));
         initComponents();
+
+        table.getColumnModel().getColumn(DataTableModel.COLUMN_START)
+                .setCellRenderer(new Renderer("%1.4f"));
+        table.getColumnModel().getColumn(DataTableModel.COLUMN_DURATION)
+                .setCellRenderer(new Renderer("%1.6f"));
+        table.getTableHeader().setToolTipText("Click to sort");
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column != -1) {
+                    model.sortBy(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
     }
 
     /** This method is called from within the constructor to
@@ -107,26 +164,72 @@ public class DataPanel extends javax.swing.JPanel
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
 
-        textAreaPane = new javax.swing.JScrollPane();
-        textArea = new javax.swing.JTextArea();
+        tablePane = new javax.swing.JScrollPane();
+        table = new javax.swing.JTable();
+        timeLabel = new javax.swing.JLabel();
+        timeField = new javax.swing.JTextField();
+        goButton = new javax.swing.JButton();
+
+        table.setModel(model);
+        table.setFillsViewportHeight(true);
+        tablePane.setViewportView(table);
+
+        timeLabel.setText("Go to time (sec):");
+
+        timeField.setColumns(10);
+        timeField.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                timeFieldActionPerformed(evt);
+            }
+        });
 
-        textArea.setColumns(20);
-        textArea.setRows(5);
-        textAreaPane.setViewportView(textArea);
+        goButton.setText("Go");
+        goButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                goButtonActionPerformed(evt);
+            }
+        });
 
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addComponent(textAreaPane, javax.swing.GroupLayout.DEFAULT_SIZE, 400, Short.MAX_VALUE)
+            .addComponent(tablePane, javax.swing.GroupLayout.DEFAULT_SIZE, 400, Short.MAX_VALUE)
+            .addGroup(layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(timeLabel)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(timeField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(goButton)
+                .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-            .addComponent(textAreaPane, javax.swing.GroupLayout.DEFAULT_SIZE, 300, Short.MAX_VALUE)
+            .addGroup(layout.createSequentialGroup()
+                .addComponent(tablePane, javax.swing.GroupLayout.DEFAULT_SIZE, 265, Short.MAX_VALUE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(timeLabel)
+                    .addComponent(timeField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(goButton))
+                .addContainerGap())
         );
     }// </editor-fold>//GEN-END:initComponents
+
+    private void timeFieldActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_timeFieldActionPerformed
+        goToTime();
+    }//GEN-LAST:event_timeFieldActionPerformed
+
+    private void goButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_goButtonActionPerformed
+        goToTime();
+    }//GEN-LAST:event_goButtonActionPerformed
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
-    private javax.swing.JTextArea textArea;
-    private javax.swing.JScrollPane textAreaPane;
+    private javax.swing.JButton goButton;
+    private javax.swing.JTable table;
+    private javax.swing.JScrollPane tablePane;
+    private javax.swing.JTextField timeField;
+    private javax.swing.JLabel timeLabel;
     // End of variables declaration//GEN-END:variables
 }
@@ -0,0 +1,308 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.gcdata;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gcactivity.GCActivitySet;
+import gchisto.utils.errorchecking.ArgumentChecking;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * The table model behind the raw GC data view. It does not hold any copies
+ * of the GC activities; each cell is read from the GC activity set of the
+ * trace when the table asks for it, which it only does for the rows that
+ * are visible. Sorting by start time uses the order of the set itself;
+ * sorting by duration uses an index permutation over the set that is
+ * extended, not rebuilt, when new GC activities arrive.
+ */
+public class DataTableModel extends AbstractTableModel {
+
+    static final public int COLUMN_NAME = 0;
+    static final public int COLUMN_START = 1;
+    static final public int COLUMN_DURATION = 2;
+    static final private String[] COLUMN_NAMES = {
+        "GC Activity", "Start (sec)", "Duration (sec)"
+    };
+    
+    /**
+     * The GC activities shown in the table, in increasing start order.
+     */
+    final private GCActivitySet gcActivities;
+    /**
+     * The number of GC activities currently shown. GC activities beyond
+     * this are not shown until <tt>setRowCount()</tt> is called again.
+     */
+    private int rowCount = 0;
+    /**
+     * The column the rows are sorted by, either <tt>COLUMN_START</tt> or
+     * <tt>COLUMN_DURATION</tt>.
+     */
+    private int sortColumn = COLUMN_START;
+    private boolean ascending = true;
+    /**
+     * The indexes of the GC activities ordered by increasing duration. Only
+     * the first <tt>durationOrderSize</tt> entries are valid and it is
+     * only created the first time the rows are sorted by duration.
+     */
+    private int[] durationOrder = null;
+    /**
+     * The inverse of <tt>durationOrder</tt>: the position in it of the
+     * index of each GC activity.
+     */
+    private int[] durationPositions = null;
+    private int durationOrderSize = 0;
+    private int[] mergeBuffer = null;
+    /**
+     * The durations of the GC activities, by index. They are copied from
+     * the GC activity set in index order, which reads a compressed set
+     * sequentially, as the sort reads them in random order.
+     */
+    private double[] durations = null;
+
+    private double durationSec(int index) {
+        return durations[index];
+    }
+
+    /**
+     * It merge-sorts the given range of <tt>array</tt> by duration, using
+     * <tt>buffer</tt> as scratch space. The sort is stable, so GC
+     * activities of equal duration stay in start order.
+     */
+    private void sortByDuration(int[] array, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortByDuration(array, buffer, from, middle);
+        sortByDuration(array, buffer, middle, to);
+        mergeByDuration(array, buffer, from, middle, to);
+    }
+
+    private void mergeByDuration(int[] array, int[] buffer,
+            int from, int middle, int to) {
+        if (durationSec(array[middle - 1]) <= durationSec(array[middle])) {
+            // already in order
+            return;
+        }
+        System.arraycopy(array, from, buffer, from, to - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            if (durationSec(buffer[j]) < durationSec(buffer[i])) {
+                array[k++] = buffer[j++];
+            } else {
+                array[k++] = buffer[i++];
+            }
+        }
+        while (i < middle) {
+            array[k++] = buffer[i++];
+        }
+        while (j < to) {
+            array[k++] = buffer[j++];
+        }
+    }
+
+    /**
+     * It brings the duration order up to date with the number of rows,
+     * by sorting the new indexes and merging them into the existing ones.
+     */
+    private void updateDurationOrder() {
+        if (durationOrder == null) {
+            durationOrder = new int[Math.max(16, rowCount)];
+            mergeBuffer = new int[durationOrder.length];
+            durationPositions = new int[durationOrder.length];
+            durations = new double[durationOrder.length];
+        } else if (durationOrder.length < rowCount) {
+            int length = Math.max(rowCount, durationOrder.length * 2);
+            int[] newDurationOrder = new int[length];
+            System.arraycopy(durationOrder, 0,
+                    newDurationOrder, 0, durationOrderSize);
+            durationOrder = newDurationOrder;
+            mergeBuffer = new int[length];
+            durationPositions = new int[length];
+            double[] newDurations = new double[length];
+            System.arraycopy(durations, 0, newDurations, 0, durationOrderSize);
+            durations = newDurations;
+        }
+        int from = durationOrderSize;
+        for (int i = from; i < rowCount; ++i) {
+            durationOrder[i] = i;
+            durations[i] = gcActivities.getDurationSec(i);
+        }
+        sortByDuration(durationOrder, mergeBuffer, from, rowCount);
+        if (from > 0 && from < rowCount) {
+            mergeByDuration(durationOrder, mergeBuffer, 0, from, rowCount);
+        }
+        for (int position = 0; position < rowCount; ++position) {
+            durationPositions[durationOrder[position]] = position;
+        }
+        durationOrderSize = rowCount;
+    }
+
+    /**
+     * It returns the index, in the GC activity set, of the GC activity
+     * shown in the given row.
+     *
+     * @param row The row in the table.
+     * @return The index of the GC activity in the GC activity set.
+     */
+    public int indexAt(int row) {
+        assert 0 <= row && row < rowCount;
+
+        int position = ascending ? row : rowCount - 1 - row;
+        if (sortColumn == COLUMN_START) {
+            return position;
+        } else {
+            return durationOrder[position];
+        }
+    }
+
+    /**
+     * It returns the row in which the GC activity with the given index in
+     * the GC activity set is shown.
+     *
+     * @param index The index of the GC activity in the GC activity set.
+     * @return The row in which the GC activity is shown.
+     */
+    public int rowOf(int index) {
+        assert 0 <= index && index < rowCount;
+
+        int position = index;
+        if (sortColumn == COLUMN_DURATION) {
+            position = durationPositions[index];
+        }
+        return ascending ? position : rowCount - 1 - position;
+    }
+
+    /**
+     * It returns the index, in the GC activity set, of the first GC
+     * activity that starts at, or after, the given time. If there is no
+     * such GC activity, it returns the index of the last one. It does a
+     * binary search, relying on the GC activity set being ordered by
+     * start time.
+     *
+     * @param timeSec The time to look for, in seconds.
+     * @return The index of the GC activity closest to the given time,
+     * or -1 if the table is empty.
+     */
+    public int indexAtTime(double timeSec) {
+        if (rowCount == 0) {
+            return -1;
+        }
+        return Math.min(gcActivities.indexAtOrAfter(timeSec), rowCount - 1);
+    }
+
+    /**
+     * It sorts the rows by the given column. Sorting by the column the
+     * rows are already sorted by reverses the order.
+     *
+     * @param column The column to sort the rows by. Sorting by the name
+     * column is not supported and it is ignored.
+     */
+    public void sortBy(int column) {
+        if (column == COLUMN_NAME) {
+            return;
+        }
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = (column == COLUMN_START);
+        }
+        if (sortColumn == COLUMN_DURATION) {
+            updateDurationOrder();
+        }
+        fireTableDataChanged();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * It makes the first <tt>rowCount</tt> GC activities in the set visible
+     * in the table. It should be called on the event dispatching thread.
+     *
+     * @param rowCount The new number of rows, which should not be smaller
+     * than the current one.
+     */
+    public void setRowCount(int rowCount) {
+        assert rowCount >= this.rowCount;
+
+        int prevRowCount = this.rowCount;
+        if (rowCount == prevRowCount) {
+            return;
+        }
+        this.rowCount = rowCount;
+        if (sortColumn == COLUMN_DURATION) {
+            updateDurationOrder();
+            fireTableDataChanged();
+        } else if (ascending) {
+            fireTableRowsInserted(prevRowCount, rowCount - 1);
+        } else {
+            fireTableRowsInserted(0, rowCount - prevRowCount - 1);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    public Class<?> getColumnClass(int column) {
+        return (column == COLUMN_NAME) ? String.class : Double.class;
+    }
+
+    public Object getValueAt(int row, int column) {
+        GCActivity gcActivity = gcActivities.get(indexAt(row));
+        switch (column) {
+            case COLUMN_NAME:
+                return gcActivity.getName();
+            case COLUMN_START:
+                return gcActivity.getStartSec();
+            case COLUMN_DURATION:
+                return gcActivity.getDurationSec();
+            default:
+                assert false;
+                return null;
+        }
+    }
+
+    /**
+     * It creates a new table model over the given GC activity set.
+     *
+     * @param gcActivities The GC activities to show, in increasing start
+     * order.
+     */
+    public DataTableModel(GCActivitySet gcActivities) {
+        ArgumentChecking.notNull(gcActivities, "gcActivities");
+
+        this.gcActivities = gcActivities;
+    }
+}
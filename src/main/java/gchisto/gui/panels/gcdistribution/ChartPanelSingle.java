@@ -32,7 +32,8 @@ import gchisto.gctrace.RCWithGCTraceCheckpoint;
 import gchisto.gctrace.RCWithGCTraceCheckpointCallback;
 import gchisto.gui.utils.AbstractChartPanel;
 import gchisto.gui.utils.GroupActivatingPanel;
-import gchisto.jfreechart.extensions.ChartLocker;
+import gchisto.gui.utils.SuspendablePanel;
+import gchisto.utils.Locker;
 import gchisto.utils.Refresher;
 import gchisto.utils.WorkerThread;
 import java.awt.BorderLayout;
@@ -51,11 +52,12 @@ import org.jfree.chart.renderer.xy.XYItemRenderer;
  * @author Tony Printezis
  */
 public class ChartPanelSingle extends AbstractChartPanel
-        implements GCTraceListener, RCWithGCTraceCheckpointCallback {
+        implements GCTraceListener, RCWithGCTraceCheckpointCallback,
+                   SuspendablePanel {
 
     final private Dataset dataset;
     final private Refresher refresher;
-    final private ChartLocker locker = new ChartLocker();
+    final private Locker locker = new Locker();
     final private GCTraceCheckpoint checkpoint;
     private GroupActivatingPanel groupActivatingPanel;
 
@@ -68,7 +70,6 @@ public class ChartPanelSingle extends AbstractChartPanel
         JFreeChart chart = ChartFactory.createXYBarChart(getTitle(),
                 "Buckets (sec)", false, "Count",
                 dataset, PlotOrientation.VERTICAL, true, true, false);
-        chart.addProgressListener(locker);
         XYPlot plot = (XYPlot) chart.getPlot();
         XYItemRenderer renderer = plot.getRenderer();
         renderer.setToolTipGenerator(dataset);
@@ -97,6 +98,14 @@ public class ChartPanelSingle extends AbstractChartPanel
         refresher.possiblyRefresh();
     }
 
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refresher.suspend();
+        } else {
+            refresher.resume();
+        }
+    }
+
     public void gcActivityAdded(
             GCTrace gcTrace,
             GCActivitySet gcActivitySet,
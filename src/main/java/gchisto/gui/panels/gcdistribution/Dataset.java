@@ -32,9 +32,6 @@ import gchisto.jfreechart.extensions.IntervalXYDatasetWithGroups;
 import gchisto.utils.Comparisons;
 import gchisto.utils.Conversions;
 import gchisto.utils.Formatting;
-import java.util.ArrayList;
-import java.util.ArrayList;
-import java.util.List;
 import org.jfree.chart.labels.XYToolTipGenerator;
 import org.jfree.data.DomainOrder;
 import org.jfree.data.xy.XYDataset;
@@ -52,18 +49,41 @@ public class Dataset extends AbstractDatasetWithGroups
     static final private double BUCKET_DURATION_MS = 5;
     static final private int INITIAL_BUCKET_LEN = 200;
     static final private double BUCKET_RESIZING_FACTOR = 1.5;
-    private int gcTraceSize;
     /**
-     * It contains the buckets that will provide the data for the dataset
-     * generators. The indexing is buckets[GC activity ID][bucket ID].
+     * An immutable snapshot of the buckets. Each update creates a new
+     * snapshot, copying only the bucket arrays that it changes, so a chart
+     * can be drawn from the current one while the next one is built.
      */
-    final private List<int[]> buckets = new ArrayList<int[]>();
+    static private class Buckets {
+
+        /**
+         * The bucket counts. The indexing is counts[GC activity ID][bucket ID].
+         */
+        final private int[][] counts;
+        /**
+         * The highest non-empty bucket index, one per GC activity.
+         */
+        final private int[] maxIndex;
+        /**
+         * The highest of the <tt>maxIndex</tt> values.
+         */
+        final private int maxMaxIndex;
+
+        private Buckets(int[][] counts, int[] maxIndex, int maxMaxIndex) {
+            assert counts.length == maxIndex.length;
+
+            this.counts = counts;
+            this.maxIndex = maxIndex;
+            this.maxMaxIndex = maxMaxIndex;
+        }
+    }
     /**
-     * The number of buckets, one per GC activity set in the GC trace, that
-     * ensures that it encompasses all buckets that have non-zero values.
+     * The current buckets that provide the data for the dataset. It is
+     * only replaced by <tt>updateBuckets()</tt> and
+     * <tt>addGCActivity()</tt>, which should not be called concurrently.
      */
-    final private List<Integer> maxIndex = new ArrayList<Integer>();
-    private int maxMaxIndex;
+    private volatile Buckets buckets =
+            new Buckets(new int[0][], new int[0], 0);
     final private GCTrace gcTrace;
     final private GCTraceCheckpoint checkpoint;
 
@@ -79,14 +99,12 @@ public class Dataset extends AbstractDatasetWithGroups
     private double getHighValue(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize() :
                 "series = " + series + ", length = " + checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxMaxIndex :
-                "series = " + series + ", item = " + item + ", max index = " + maxMaxIndex;
-
+        int[][] counts = buckets.counts;
         double total = 0.0;
         while (series >= 0) {
             if (isGroupActive(series)) {
-                if (item < buckets.get(series).length) {
-                    total += buckets.get(series)[item];
+                if (item < counts[series].length) {
+                    total += counts[series][item];
                 }
             }
             --series;
@@ -106,8 +124,8 @@ public class Dataset extends AbstractDatasetWithGroups
     private double getLowValue(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize() :
                 "series = " + series + ", length = " + checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxMaxIndex :
-                "series = " + series + ", item = " + item + ", max index = " + maxMaxIndex;
+        assert 0 <= item && item <= buckets.maxMaxIndex :
+                "series = " + series + ", item = " + item + ", max index = " + buckets.maxMaxIndex;
 
         --series;
         while (series >= 0) {
@@ -177,7 +195,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public int getItemCount(int series) {
         assert 0 <= series && series < checkpoint.gcTraceSize();
 
-        return (isGroupActive(series)) ? maxIndex.get(series) + 1 : 0;
+        return (isGroupActive(series)) ? buckets.maxIndex[series] + 1 : 0;
     }
 
     /**
@@ -197,7 +215,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     public Number getX(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getXValue(series, item);
     }
@@ -219,7 +237,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     public double getXValue(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getBucketStartSec(item) + bucketDurationSec() / 2.0;
     }
@@ -241,7 +259,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     public Number getY(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getYValue(series, item);
     }
@@ -263,7 +281,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     public double getYValue(int series, int item) {
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getHighValue(series, item);
     }
@@ -285,7 +303,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public Number getStartX(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getStartXValue(series, item);
     }
@@ -307,7 +325,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public double getStartXValue(int series, int item) {
         assert isGroupActive(series) : "series = " + series;
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getBucketStartSec(item);
     }
@@ -329,7 +347,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public Number getEndX(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getEndXValue(series, item);
     }
@@ -351,7 +369,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public double getEndXValue(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getBucketStartSec(item + 1);
     }
@@ -373,7 +391,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public Number getStartY(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getStartYValue(series, item);
     }
@@ -395,7 +413,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public double getStartYValue(int series, int item) {
         assert isGroupActive(series) : "series = " + series;
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getLowValue(series, item);
     }
@@ -418,7 +436,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public Number getEndY(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getEndYValue(series, item);
     }
@@ -441,7 +459,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public double getEndYValue(int series, int item) {
         assert isGroupActive(series);
         assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= item && item <= buckets.maxIndex[series];
 
         return getHighValue(series, item);
     }
@@ -450,7 +468,8 @@ public class Dataset extends AbstractDatasetWithGroups
         String gcActivityName = (String) getSeriesKey(series);
         double startSec = getBucketStartSec(item);
         double endSec = getBucketStartSec(item + 1);
-        int value = buckets.get(series)[item];
+        int[] bucket = buckets.counts[series];
+        int value = (item < bucket.length) ? bucket[item] : 0;
         String str = String.format("%s count in [%s sec, %s sec) = %s",
                 gcActivityName,
                 Formatting.formatDouble(startSec),
@@ -505,42 +524,35 @@ public class Dataset extends AbstractDatasetWithGroups
         return (double) index * bucketDurationSec();
     }
 
-    private void incrementBucket(int id, int bucketIndex) {
-        int[] bucket = buckets.get(id);
-        int bucketLen = bucket.length;
-        if (bucketIndex >= bucketLen) {
-            int newLen = (int) ((double) bucketIndex * BUCKET_RESIZING_FACTOR);
-            int[] newBucket = new int[newLen];
-            assert newBucket.length == newLen;
-            System.arraycopy(bucket, 0, newBucket, 0, bucketLen);
-
-            buckets.set(id, newBucket);
-            bucket = newBucket;
-            bucketLen = newLen;
-        }
-        assert bucketIndex < bucketLen;
-        bucket[bucketIndex] += 1;
-
-        if (bucketIndex > maxIndex.get(id)) {
-            maxIndex.set(id, bucketIndex);
-        }
-    }
-
-    private void updateMaxMaxIndex() {
-        for (int i = 0; i < gcTraceSize; ++i) {
-            if (maxIndex.get(i) > maxMaxIndex) {
-                maxMaxIndex = maxIndex.get(i);
-            }
+    /**
+     * It returns a copy of the given bucket array that is long enough to
+     * include the given bucket index.
+     */
+    private int[] copyBucket(int[] bucket, int bucketIndex) {
+        int newLen = bucket.length;
+        if (bucketIndex >= newLen) {
+            newLen = (int) ((double) bucketIndex * BUCKET_RESIZING_FACTOR);
         }
+        assert bucketIndex < newLen;
+        int[] newBucket = new int[newLen];
+        System.arraycopy(bucket, 0, newBucket, 0, bucket.length);
+        return newBucket;
     }
 
     public void updateBuckets() {
-        assert buckets.size() == gcTraceSize;
-        assert maxIndex.size() == gcTraceSize;
+        Buckets prev = buckets;
+        int gcTraceSize = prev.counts.length;
+        assert gcTraceSize <= checkpoint.gcTraceSize();
 
+        int[][] counts = prev.counts.clone();
+        int[] maxIndex = prev.maxIndex.clone();
+        int maxMaxIndex = prev.maxMaxIndex;
         for (int i = 0; i < gcTraceSize; ++i) {
             GCActivitySet gcActivitySet = gcTrace.get(i);
 
+            // the bucket array of a GC activity is only copied if the
+            // GC activity has new entries
+            int[] bucket = null;
             int from = checkpoint.prevSize(i);
             int to = checkpoint.size(i);
             for (int j = from; j < to; ++j) {
@@ -548,22 +560,41 @@ public class Dataset extends AbstractDatasetWithGroups
                 if (gcActivity.isSTW()) {
                     double durationSec = gcActivity.getDurationSec();
                     int index = getBucketIndex(durationSec);
-                    incrementBucket(i, index);
+                    if (bucket == null || index >= bucket.length) {
+                        bucket = copyBucket(
+                                (bucket == null) ? counts[i] : bucket, index);
+                    }
+                    bucket[index] += 1;
+                    if (index > maxIndex[i]) {
+                        maxIndex[i] = index;
+                    }
                 }
             }
+            if (bucket != null) {
+                counts[i] = bucket;
+            }
+            if (maxIndex[i] > maxMaxIndex) {
+                maxMaxIndex = maxIndex[i];
+            }
         }
-        updateMaxMaxIndex();
+        buckets = new Buckets(counts, maxIndex, maxMaxIndex);
     }
 
     public void addGCActivity(int id, String groupName) {
-        addGroup(id, groupName);
-
+        Buckets prev = buckets;
+        int gcTraceSize = prev.counts.length;
         assert id == gcTraceSize;
-        int[] newBucket = new int[INITIAL_BUCKET_LEN];
-        buckets.add(id, newBucket);
-        maxIndex.add(id, 0);
-        gcTraceSize += 1;
-        assert id + 1 == gcTraceSize;
+
+        int[][] counts = new int[gcTraceSize + 1][];
+        int[] maxIndex = new int[gcTraceSize + 1];
+        System.arraycopy(prev.counts, 0, counts, 0, gcTraceSize);
+        System.arraycopy(prev.maxIndex, 0, maxIndex, 0, gcTraceSize);
+        counts[id] = new int[INITIAL_BUCKET_LEN];
+        maxIndex[id] = 0;
+        // the buckets are published before the group, as the number of
+        // groups determines the number of series a chart will look at
+        buckets = new Buckets(counts, maxIndex, prev.maxMaxIndex);
+        addGroup(id, groupName);
     }
 
     private void addGCActivities() {
@@ -571,7 +602,7 @@ public class Dataset extends AbstractDatasetWithGroups
         for (int i = 0; i < newGCTraceSize; ++i) {
             addGCActivity(i, gcTrace.get(i).getGCActivityName());
         }
-        assert newGCTraceSize == gcTraceSize;
+        assert newGCTraceSize == buckets.counts.length;
     }
 
     /**
@@ -587,7 +618,6 @@ public class Dataset extends AbstractDatasetWithGroups
 
         this.gcTrace = gcTrace;
         this.checkpoint = checkpoint;
-        this.gcTraceSize = 0;
 
         addGCActivities();
         updateBuckets();
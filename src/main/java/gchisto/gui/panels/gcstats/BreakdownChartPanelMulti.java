@@ -24,8 +24,8 @@
 package gchisto.gui.panels.gcstats;
 
 import gchisto.jfreechart.extensions.ChangingCategoryDatasetWithTTG;
-import gchisto.jfreechart.extensions.ChartLocker;
 import gchisto.jfreechart.extensions.SwappingCategoryDatasetWithTTG;
+import gchisto.utils.Locker;
 import java.awt.BorderLayout;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -49,7 +49,7 @@ import org.jfree.chart.renderer.category.CategoryItemRenderer;
 public class BreakdownChartPanelMulti extends GCStatsChartPanel {
 
     final ChangingCategoryDatasetWithTTG dataset;
-    final ChartLocker locker;
+    final Locker locker;
 
     /**
      * It creates a chart for the given dataset and adds the chart to the panel.
@@ -63,7 +63,6 @@ public class BreakdownChartPanelMulti extends GCStatsChartPanel {
         CategoryAxis domainAxis = chart.getCategoryPlot().getDomainAxis();
         domainAxis.setCategoryLabelPositions(
                 CategoryLabelPositions.createUpRotationLabelPositions(Math.PI / 6.0));
-        chart.addProgressListener(locker);
         CategoryPlot plot = (CategoryPlot) chart.getPlot();
         CategoryItemRenderer renderer = plot.getRenderer();
         renderer.setToolTipGenerator(dataset);
@@ -94,7 +93,7 @@ public class BreakdownChartPanelMulti extends GCStatsChartPanel {
     public BreakdownChartPanelMulti(
             String title, String unitName,
             ChangingCategoryDatasetWithTTG dataset,
-            ChartLocker locker) {
+            Locker locker) {
         super(title, unitName);
 
         this.dataset = new SwappingCategoryDatasetWithTTG(dataset);
@@ -24,8 +24,7 @@
 package gchisto.gui.panels.gcstats;
 
 import gchisto.jfreechart.extensions.ChangingPieDatasetWithTTG;
-import gchisto.jfreechart.extensions.ChartLocker;
-import gchisto.jfreechart.extensions.ChartLocker;
+import gchisto.utils.Locker;
 import java.awt.BorderLayout;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -44,7 +43,7 @@ import org.jfree.chart.plot.PiePlot;
 public class BreakdownChartPanelSingle extends GCStatsChartPanel {
 
     final private ChangingPieDatasetWithTTG dataset;
-    final private ChartLocker locker;
+    final private Locker locker;
 
     /**
      * It creates a chart for the given dataset and adds the chart to the panel.
@@ -54,7 +53,6 @@ public class BreakdownChartPanelSingle extends GCStatsChartPanel {
     private void addChart() {
         JFreeChart chart = ChartFactory.createPieChart(
                 getTitle(), dataset, false, true, false);
-        chart.addProgressListener(locker);
         PiePlot plot = (PiePlot) chart.getPlot();
         plot.setToolTipGenerator(dataset);
         
@@ -84,7 +82,7 @@ public class BreakdownChartPanelSingle extends GCStatsChartPanel {
     public BreakdownChartPanelSingle(
             String title, String unitName,
             ChangingPieDatasetWithTTG dataset,
-            ChartLocker locker) {
+            Locker locker) {
         super(title, unitName);
 
         this.dataset = dataset;
@@ -23,7 +23,6 @@
  */
 package gchisto.gui.panels.gcstats;
 
-import gchisto.gcactivity.GCActivitySet;
 import gchisto.gctrace.GCActivityNames;
 import gchisto.gctrace.GCTrace;
 import gchisto.gctrace.GCTraceSet;
@@ -38,9 +37,16 @@ import gchisto.utils.Formatter;
 import gchisto.utils.Formatting;
 import gchisto.utils.NumberSeq;
 import gchisto.utils.errorchecking.ArgumentChecking;
-import gchisto.utils.errorchecking.ShouldNotReachHereException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.general.PieDataset;
 
@@ -137,25 +143,170 @@ public class DatasetGenerator {
         Formatting.doubleFormatter(), Formatting.doubleFormatter(),
         Formatting.doubleFormatter(), Formatting.doubleFormatter()
     };
-    final GCTraceSet gcTraceSet;
     /**
-     * A list that contains the names of the loaded GC traces.
+     * The minimum number of rows that have to be recomputed before the
+     * work is split across several threads.
      */
-    private List<String> gcTraceNames;
-    private List<String> longGCTraceNames;
+    static final private int PARALLEL_ROW_THRESHOLD = 16;
     /**
-     * A list that contains the names of all the GC activites in all the
-     * loaded traces, as well as the aggregate GC activity.
+     * The executor that recomputes rows in parallel. It is created the
+     * first time it is needed.
+     *
+     * @see #executor()
      */
-    private List<String> gcActivityNames;
+    static private ExecutorService executor;
+    final GCTraceSet gcTraceSet;
+
     /**
-     * A list that contains the names of all the GC activities in all the
-     * loaded traces, without the aggregate GC activity.
+     * The values of all the metrics for a single GC trace. It is computed
+     * from the number sequences of the GC activity sets of the GC trace
+     * and it is never modified after that. It also records the number of
+     * GC activities and the GC activity name mapping of the GC trace when
+     * it was computed, so that it can be recomputed only when they change.
      */
-    private List<String> gcActivityNamesMinusAggregate;
-    private NumberSeq[][] seqs;
-    private int gcTraceNum;
-    private int gcActivityNum;
+    static private class Row {
+
+        final private GCTrace gcTrace;
+        final private int allGCActivitiesSize;
+        final private int[] globalIDs;
+        final private int gcActivityNum;
+        /**
+         * The value of each metric for each GC activity, indexed by metric
+         * and then by GC activity, with the aggregate GC activity first.
+         */
+        final private double[][] values;
+        final private boolean[] valid;
+
+        /**
+         * It returns whether this row still reflects the given GC trace.
+         */
+        private boolean isCurrent(GCTrace gcTrace, int gcActivityNum) {
+            return this.gcTrace == gcTrace &&
+                    this.gcActivityNum == gcActivityNum &&
+                    globalIDs == gcTrace.getGlobalActivityIDs() &&
+                    allGCActivitiesSize == gcTrace.getAllGCActivities().size();
+        }
+
+        private Row(GCTrace gcTrace, int gcActivityNum) {
+            this.gcTrace = gcTrace;
+            this.gcActivityNum = gcActivityNum;
+            // read before the number sequences, so that a GC activity
+            // added while they are being read is picked up next time
+            this.allGCActivitiesSize = gcTrace.getAllGCActivities().size();
+            this.globalIDs = gcTrace.getGlobalActivityIDs();
+
+            NumberSeq[] seqs = new NumberSeq[1 + gcActivityNum];
+            seqs[AGGREGATE_GC_ACTIVITY_INDEX] =
+                    gcTrace.getAllGCActivities().getNumberSeq();
+            // GC activity names that have not been merged into the
+            // GC trace set yet will be picked up by the next update
+            int gcActivitySetNum = Math.min(globalIDs.length, gcTrace.size());
+            for (int j = 0; j < gcActivitySetNum; ++j) {
+                int index = globalIDs[j];
+                if (index < gcActivityNum) {
+                    seqs[FIRST_GC_ACTIVITY_INDEX + index] =
+                            gcTrace.get(j).getNumberSeq();
+                }
+            }
+
+            values = new double[METRIC_LENGTH][1 + gcActivityNum];
+            valid = new boolean[1 + gcActivityNum];
+            double allNum = seqs[AGGREGATE_GC_ACTIVITY_INDEX].getNumD();
+            double allSum = seqs[AGGREGATE_GC_ACTIVITY_INDEX].getSum();
+            double lastTimeStampSec = gcTrace.getLastTimeStampSec();
+            for (int i = 0; i < seqs.length; ++i) {
+                NumberSeq seq = seqs[i];
+                if (seq == null) {
+                    for (int metric = METRIC_FIRST; metric <= METRIC_LAST; ++metric) {
+                        values[metric][i] = UNAVAILABLE_VALUE;
+                    }
+                    continue;
+                }
+
+                double sum = seq.getSum();
+                valid[i] = true;
+                values[METRIC_NUM][i] = seq.getNum();
+                values[METRIC_NUM_PERC][i] =
+                        Calculations.perc(seq.getNumD(), allNum);
+                values[METRIC_TOTAL][i] = sum;
+                values[METRIC_TOTAL_PERC][i] = Calculations.perc(sum, allSum);
+                if (Comparisons.eq(lastTimeStampSec, 0.0)) {
+                    values[METRIC_OVERHEAD_PERC][i] = 0.0;
+                } else {
+                    values[METRIC_OVERHEAD_PERC][i] =
+                            Calculations.perc(sum, lastTimeStampSec);
+                }
+                values[METRIC_AVG][i] = Conversions.secToMS(seq.getAvg());
+                values[METRIC_SIGMA][i] = Conversions.secToMS(seq.getSigma());
+                values[METRIC_MIN][i] = Conversions.secToMS(seq.getMin());
+                values[METRIC_MAX][i] = Conversions.secToMS(seq.getMax());
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the names and metric values of the loaded
+     * GC traces. <tt>update()</tt> and <tt>refresh()</tt> build a new one
+     * and publish it, so charts can be drawn from the current one without
+     * any locking.
+     */
+    static private class State {
+
+        /**
+         * A list that contains the names of the loaded GC traces.
+         */
+        final private List<String> gcTraceNames;
+        final private List<String> longGCTraceNames;
+        /**
+         * A list that contains the names of all the GC activites in all the
+         * loaded traces, as well as the aggregate GC activity.
+         */
+        final private List<String> gcActivityNames;
+        /**
+         * A list that contains the names of all the GC activities in all the
+         * loaded traces, without the aggregate GC activity.
+         */
+        final private List<String> gcActivityNamesMinusAggregate;
+        /**
+         * The GC activity names that the GC activity name lists were
+         * created from.
+         */
+        final private GCActivityNames allGCActivityNames;
+        final private Row[] rows;
+        /**
+         * The value of each metric, indexed by metric, GC trace, and GC
+         * activity. It shares the arrays of the rows.
+         */
+        final private double[][][] values;
+        final private int gcTraceNum;
+        final private int gcActivityNum;
+
+        private State(
+                List<String> gcTraceNames,
+                List<String> longGCTraceNames,
+                List<String> gcActivityNames,
+                List<String> gcActivityNamesMinusAggregate,
+                GCActivityNames allGCActivityNames,
+                Row[] rows,
+                int gcActivityNum) {
+            this.gcTraceNames = gcTraceNames;
+            this.longGCTraceNames = longGCTraceNames;
+            this.gcActivityNames = gcActivityNames;
+            this.gcActivityNamesMinusAggregate = gcActivityNamesMinusAggregate;
+            this.allGCActivityNames = allGCActivityNames;
+            this.rows = rows;
+            this.gcTraceNum = rows.length;
+            this.gcActivityNum = gcActivityNum;
+
+            values = new double[METRIC_LENGTH][rows.length][];
+            for (int metric = METRIC_FIRST; metric <= METRIC_LAST; ++metric) {
+                for (int i = 0; i < rows.length; ++i) {
+                    values[metric][i] = rows[i].values[metric];
+                }
+            }
+        }
+    }
+    private volatile State state;
 
     /**
      * It returns the name of the metric with the given ID.
@@ -246,53 +397,62 @@ public class DatasetGenerator {
         final private boolean ignoreAggregate;
 
         public Comparable getRowKey(int row) {
-            assert 0 <= row && row < gcTraceNum;
+            State state = DatasetGenerator.this.state;
+            assert 0 <= row && row < state.gcTraceNum;
 
-            return gcTraceNames.get(row);
+            return state.gcTraceNames.get(row);
         }
 
         public int getRowIndex(Comparable rowKey) {
+            State state = DatasetGenerator.this.state;
+
             String stringKey = (String) rowKey;
 
-            return gcTraceNames.indexOf(stringKey);
+            return state.gcTraceNames.indexOf(stringKey);
         }
 
         public List getRowKeys() {
-            assert gcTraceNum <= gcTraceNames.size();
+            State state = DatasetGenerator.this.state;
+            assert state.gcTraceNum <= state.gcTraceNames.size();
 
-            return gcTraceNames.subList(0, gcTraceNum);
+            return state.gcTraceNames.subList(0, state.gcTraceNum);
         }
 
         public Comparable getColumnKey(int column) {
-            assert !ignoreAggregate || 0 <= column && column < gcActivityNum :
-                    "column = " + column + ", gcActivityNum = " + gcActivityNum;
-            assert ignoreAggregate || 0 <= column && column < gcActivityNum + 1 :
-                    "column = " + column + ", gcActivityNum = " + gcActivityNum;
+            State state = DatasetGenerator.this.state;
+            assert !ignoreAggregate || 0 <= column && column < state.gcActivityNum :
+                    "column = " + column + ", gcActivityNum = " + state.gcActivityNum;
+            assert ignoreAggregate || 0 <= column && column < state.gcActivityNum + 1 :
+                    "column = " + column + ", gcActivityNum = " + state.gcActivityNum;
 
             if (ignoreAggregate) {
-                return gcActivityNamesMinusAggregate.get(column);
+                return state.gcActivityNamesMinusAggregate.get(column);
             } else {
-                return gcActivityNames.get(column);
+                return state.gcActivityNames.get(column);
             }
         }
 
         public int getColumnIndex(Comparable columnKey) {
+            State state = DatasetGenerator.this.state;
+
             String stringKey = (String) columnKey;
 
             if (ignoreAggregate) {
-                return gcActivityNamesMinusAggregate.indexOf(stringKey);
+                return state.gcActivityNamesMinusAggregate.indexOf(stringKey);
             } else {
-                return gcActivityNames.indexOf(stringKey);
+                return state.gcActivityNames.indexOf(stringKey);
             }
         }
 
         public List getColumnKeys() {
+            State state = DatasetGenerator.this.state;
+
             if (ignoreAggregate) {
-                assert gcActivityNum <= gcActivityNamesMinusAggregate.size();
-                return gcActivityNamesMinusAggregate.subList(0, gcActivityNum);
+                assert state.gcActivityNum <= state.gcActivityNamesMinusAggregate.size();
+                return state.gcActivityNamesMinusAggregate.subList(0, state.gcActivityNum);
             } else {
-                assert 1 + gcActivityNum <= gcActivityNames.size();
-                return gcActivityNames.subList(0, 1 + gcActivityNum);
+                assert 1 + state.gcActivityNum <= state.gcActivityNames.size();
+                return state.gcActivityNames.subList(0, 1 + state.gcActivityNum);
             }
         }
 
@@ -304,70 +464,48 @@ public class DatasetGenerator {
         }
 
         public int getRowCount() {
-            return gcTraceNum;
+            State state = DatasetGenerator.this.state;
+
+            return state.gcTraceNum;
         }
 
         public int getColumnCount() {
+            State state = DatasetGenerator.this.state;
+
             if (ignoreAggregate) {
-                return gcActivityNum;
+                return state.gcActivityNum;
             } else {
-                return gcActivityNum + 1;
+                return state.gcActivityNum + 1;
             }
         }
 
         public Number getValue(int row, int column) {
-            if (row >= gcTraceNum) {
+            State state = DatasetGenerator.this.state;
+
+            if (row >= state.gcTraceNum) {
                 return UNAVAILABLE_VALUE;
             }
-            if (ignoreAggregate && column >= gcActivityNum) {
+            if (ignoreAggregate && column >= state.gcActivityNum) {
                 return UNAVAILABLE_VALUE;
             }
-            if (!ignoreAggregate && column >= (gcActivityNum + 1)) {
+            if (!ignoreAggregate && column >= (state.gcActivityNum + 1)) {
                 return UNAVAILABLE_VALUE;
             }
 
-            assert 0 <= row && row < gcTraceNum;
-            assert !ignoreAggregate || 0 <= column && column < gcActivityNum :
-                    "column = " + column + ", gcActivityNum = " + gcActivityNum;
-            assert ignoreAggregate || 0 <= column && column < gcActivityNum + 1 :
-                    "column = " + column + ", gcActivityNum = " + gcActivityNum;
+            assert 0 <= row && row < state.gcTraceNum;
+            assert !ignoreAggregate || 0 <= column && column < state.gcActivityNum :
+                    "column = " + column + ", gcActivityNum = " + state.gcActivityNum;
+            assert ignoreAggregate || 0 <= column && column < state.gcActivityNum + 1 :
+                    "column = " + column + ", gcActivityNum = " + state.gcActivityNum;
 
             if (ignoreAggregate) {
                 column = FIRST_GC_ACTIVITY_INDEX + column;
             }
-            if (seqs[row][column] == null) {
-                return UNAVAILABLE_VALUE;
-            }
-
-            switch (metric) {
-                case METRIC_NUM:
-                    return seqs[row][column].getNum();
-                case METRIC_NUM_PERC:
-                    return Calculations.perc(seqs[row][column].getNumD(),
-                            seqs[row][AGGREGATE_GC_ACTIVITY_INDEX].getNumD());
-                case METRIC_TOTAL:
-                    return seqs[row][column].getSum();
-                case METRIC_TOTAL_PERC:
-                    return Calculations.perc(seqs[row][column].getSum(),
-                            seqs[row][AGGREGATE_GC_ACTIVITY_INDEX].getSum());
-                case METRIC_OVERHEAD_PERC:
-                    double lastTimeStampSec = gcTraceSet.get(row).getLastTimeStampSec();
-                    if (Comparisons.eq(lastTimeStampSec, 0.0)) {
-                        return 0.0;
-                    } else {
-                        return Calculations.perc(seqs[row][column].getSum(), lastTimeStampSec);
-                    }
-                case METRIC_AVG:
-                    return Conversions.secToMS(seqs[row][column].getAvg());
-                case METRIC_SIGMA:
-                    return Conversions.secToMS(seqs[row][column].getSigma());
-                case METRIC_MIN:
-                    return Conversions.secToMS(seqs[row][column].getMin());
-                case METRIC_MAX:
-                    return Conversions.secToMS(seqs[row][column].getMax());
-                default:
-                    throw new ShouldNotReachHereException();
+            double value = state.values[metric][row][column];
+            if (metric == METRIC_NUM) {
+                return (int) value;
             }
+            return value;
         }
 
         // for pie dataset
@@ -400,14 +538,15 @@ public class DatasetGenerator {
         public String generateToolTip(
                 CategoryDataset dataset,
                 int row, int column) {
+            State state = DatasetGenerator.this.state;
             assert this == dataset;
 
-            String gcTraceName = longGCTraceNames.get(row);
+            String gcTraceName = state.longGCTraceNames.get(row);
             String gcActivityName;
             if (ignoreAggregate) {
-                gcActivityName = gcActivityNamesMinusAggregate.get(column);
+                gcActivityName = state.gcActivityNamesMinusAggregate.get(column);
             } else {
-                gcActivityName = gcActivityNames.get(column);
+                gcActivityName = state.gcActivityNames.get(column);
             }
             String metricName = METRIC_NAMES[metric];
             String unitName = METRIC_UNIT_NAMES[metric];
@@ -430,88 +569,242 @@ public class DatasetGenerator {
         }
     }
 
-    synchronized void checkpoint() {
-        gcTraceNum = gcTraceSet.size();
-        GCActivityNames allGCActivityNames = gcTraceSet.getAllGCActivityNames();
-        gcActivityNum = allGCActivityNames.size();
+    /**
+     * It returns the executor that recomputes rows in parallel.
+     */
+    synchronized static private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "GC Stats Dataset Generator");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return executor;
     }
 
-    public void update() {
-        checkpoint();
+    /**
+     * It recomputes the rows with the given indexes. If there are enough
+     * of them, they are split into slices that are recomputed in parallel.
+     *
+     * @param gcTraces The GC traces of the rows.
+     * @param rows The rows, the ones with the given indexes are replaced.
+     * @param indexes The indexes of the rows to recompute.
+     * @param gcActivityNum The number of GC activity names in the GC
+     * trace set.
+     */
+    static private void computeRows(
+            final GCTrace[] gcTraces,
+            final Row[] rows,
+            final int[] indexes,
+            final int gcActivityNum) {
+        int threads = Math.min(
+                indexes.length / PARALLEL_ROW_THRESHOLD,
+                Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (int index : indexes) {
+                rows[index] = new Row(gcTraces[index], gcActivityNum);
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+        int sliceLength = (indexes.length + threads - 1) / threads;
+        for (int start = 0; start < indexes.length; start += sliceLength) {
+            final int from = start;
+            final int to = Math.min(start + sliceLength, indexes.length);
+            futures.add(executor().submit(new Runnable() {
+
+                public void run() {
+                    for (int i = from; i < to; ++i) {
+                        int index = indexes[i];
+                        rows[index] = new Row(gcTraces[index], gcActivityNum);
+                    }
+                }
+            }));
+        }
+        // waiting on the futures also publishes the rows to this thread
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * It returns the indexes of the rows that do not reflect the
+     * corresponding GC traces.
+     */
+    static private int[] staleRows(
+            GCTrace[] gcTraces, Row[] rows, int gcActivityNum) {
+        int[] indexes = new int[rows.length];
+        int num = 0;
+        for (int i = 0; i < rows.length; ++i) {
+            if (rows[i] == null || !rows[i].isCurrent(gcTraces[i], gcActivityNum)) {
+                indexes[num] = i;
+                num += 1;
+            }
+        }
+        int[] ret = new int[num];
+        System.arraycopy(indexes, 0, ret, 0, num);
+        return ret;
+    }
+
+    /**
+     * It brings the GC trace and GC activity names up-to-date with the GC
+     * trace set and recomputes the rows of the GC traces that have changed.
+     * Rows of GC traces that have not changed, as well as name lists that
+     * have not changed, are reused.
+     */
+    synchronized public void update() {
+        State prev = state;
+        GCTrace[] gcTraces = gcTraceSet.toArray(new GCTrace[gcTraceSet.size()]);
+        int gcTraceNum = gcTraces.length;
+        GCActivityNames allGCActivityNames = gcTraceSet.getAllGCActivityNames();
+        int gcActivityNum = allGCActivityNames.size();
 
         // the number of rows
-        gcTraceNames = new ArrayList<String>(gcTraceNum);
-        longGCTraceNames = new ArrayList<String>(gcTraceNum);
+        List<String> gcTraceNames = new ArrayList<String>(gcTraceNum);
+        List<String> longGCTraceNames = new ArrayList<String>(gcTraceNum);
         for (int i = 0; i < gcTraceNum; ++i) {
-            gcTraceNames.add(i, gcTraceSet.get(i).getName());
-            longGCTraceNames.add(i, gcTraceSet.get(i).getLongName());
+            gcTraceNames.add(i, gcTraces[i].getName());
+            longGCTraceNames.add(i, gcTraces[i].getLongName());
+        }
+        if (prev != null && gcTraceNames.equals(prev.gcTraceNames) &&
+                longGCTraceNames.equals(prev.longGCTraceNames)) {
+            gcTraceNames = prev.gcTraceNames;
+            longGCTraceNames = prev.longGCTraceNames;
+        } else {
+            gcTraceNames = Collections.unmodifiableList(gcTraceNames);
+            longGCTraceNames = Collections.unmodifiableList(longGCTraceNames);
         }
 
         // the number of columns
-        GCActivityNames allGCActivityNames = gcTraceSet.getAllGCActivityNames();
         // +1 for the aggregate name
-        gcActivityNames = new ArrayList<String>(1 + gcActivityNum);
-        gcActivityNamesMinusAggregate = new ArrayList<String>(gcActivityNum);
-        gcActivityNames.add(AGGREGATE_GC_ACTIVITY_NAME);
-        for (int i = 0; i < gcActivityNum; ++i) {
-            String gcActivityName = allGCActivityNames.get(i);
-            gcActivityNames.add(gcActivityName);
-            gcActivityNamesMinusAggregate.add(gcActivityName);
+        List<String> gcActivityNames;
+        List<String> gcActivityNamesMinusAggregate;
+        if (prev != null && prev.allGCActivityNames == allGCActivityNames &&
+                prev.gcActivityNum == gcActivityNum) {
+            gcActivityNames = prev.gcActivityNames;
+            gcActivityNamesMinusAggregate = prev.gcActivityNamesMinusAggregate;
+        } else {
+            gcActivityNames = new ArrayList<String>(1 + gcActivityNum);
+            gcActivityNamesMinusAggregate = new ArrayList<String>(gcActivityNum);
+            gcActivityNames.add(AGGREGATE_GC_ACTIVITY_NAME);
+            for (int i = 0; i < gcActivityNum; ++i) {
+                String gcActivityName = allGCActivityNames.get(i);
+                gcActivityNames.add(gcActivityName);
+                gcActivityNamesMinusAggregate.add(gcActivityName);
+            }
+            gcActivityNames = Collections.unmodifiableList(gcActivityNames);
+            gcActivityNamesMinusAggregate =
+                    Collections.unmodifiableList(gcActivityNamesMinusAggregate);
         }
         assert gcActivityNames.size() == 1 + gcActivityNum;
         assert gcActivityNamesMinusAggregate.size() == gcActivityNum;
         assert gcActivityNames.get(AGGREGATE_GC_ACTIVITY_INDEX).equals(AGGREGATE_GC_ACTIVITY_NAME);
         assert FIRST_GC_ACTIVITY_INDEX + gcActivityNum == gcActivityNames.size();
-        for (int i = 0; i < gcActivityNum; ++i) {
-            assert !gcActivityNames.get(FIRST_GC_ACTIVITY_INDEX + i).equals(AGGREGATE_GC_ACTIVITY_NAME);
-            assert !gcActivityNamesMinusAggregate.get(i).equals(AGGREGATE_GC_ACTIVITY_NAME);
-        }
 
-        seqs = new NumberSeq[gcTraceNum][1 + gcActivityNum];
-        for (int i = 0; i < gcTraceNum; ++i) {
-            NumberSeq[] rowSeq = seqs[i];
+        // reuse the rows of the GC traces that are still there, even if
+        // they have moved
+        Row[] rows = new Row[gcTraceNum];
+        if (prev != null) {
+            Map<GCTrace, Row> prevRows = new IdentityHashMap<GCTrace, Row>();
+            for (Row row : prev.rows) {
+                prevRows.put(row.gcTrace, row);
+            }
+            for (int i = 0; i < gcTraceNum; ++i) {
+                rows[i] = prevRows.get(gcTraces[i]);
+            }
+        }
+        computeRows(gcTraces, rows,
+                staleRows(gcTraces, rows, gcActivityNum), gcActivityNum);
 
-            GCTrace gcTrace = gcTraceSet.get(i);
-            rowSeq[AGGREGATE_GC_ACTIVITY_INDEX] =
-                    gcTrace.getAllGCActivities().getNumberSeq();
+        state = new State(
+                gcTraceNames, longGCTraceNames,
+                gcActivityNames, gcActivityNamesMinusAggregate,
+                allGCActivityNames, rows, gcActivityNum);
+    }
 
-            for (GCActivitySet gcActivitySet : gcTrace) {
-                String gcActivityName = gcActivitySet.getGCActivityName();
-                int index = allGCActivityNames.indexOf(gcActivityName);
-                assert index != -1;
-                rowSeq[FIRST_GC_ACTIVITY_INDEX + index] = gcActivitySet.getNumberSeq();
-            }
+    /**
+     * It recomputes the rows of the GC traces to which GC activities have
+     * been added since they were last computed. The GC trace and GC
+     * activity names are left as they are; they are brought up-to-date
+     * by <tt>update()</tt>.
+     *
+     * @return Whether any rows were recomputed.
+     *
+     * @see #update()
+     */
+    synchronized public boolean refresh() {
+        State prev = state;
+        GCTrace[] gcTraces = new GCTrace[prev.gcTraceNum];
+        for (int i = 0; i < gcTraces.length; ++i) {
+            gcTraces[i] = prev.rows[i].gcTrace;
         }
+        Row[] rows = prev.rows.clone();
+        int[] indexes = staleRows(gcTraces, rows, prev.gcActivityNum);
+        if (indexes.length == 0) {
+            return false;
+        }
+        computeRows(gcTraces, rows, indexes, prev.gcActivityNum);
+
+        state = new State(
+                prev.gcTraceNames, prev.longGCTraceNames,
+                prev.gcActivityNames, prev.gcActivityNamesMinusAggregate,
+                prev.allGCActivityNames, rows, prev.gcActivityNum);
+        return true;
     }
 
     public int getGCTraceNum() {
-        return gcTraceNum;
+        return state.gcTraceNum;
     }
 
     public String getGCTraceName(int id) {
-        assert 0 <= id && id < gcTraceNum;
-        return gcTraceNames.get(id);
+        State state = this.state;
+        assert 0 <= id && id < state.gcTraceNum;
+        return state.gcTraceNames.get(id);
     }
 
     public String getLongGCTraceName(int id) {
-        assert 0 <= id && id < gcTraceNum;
-        return gcTraceSet.get(id).getLongName();
+        State state = this.state;
+        assert 0 <= id && id < state.gcTraceNum;
+        return state.longGCTraceNames.get(id);
     }
 
     public int getGCActivityNum() {
-        return 1 + gcActivityNum;
+        return 1 + state.gcActivityNum;
     }
 
     public String getGCActivityName(int id) {
-        assert 0 <= id && id < 1 + gcActivityNum;
-        return gcActivityNames.get(id);
+        State state = this.state;
+        assert 0 <= id && id < 1 + state.gcActivityNum;
+        return state.gcActivityNames.get(id);
     }
 
     public boolean isValueValid(int row, int column) {
-        assert 0 <= row && row < gcTraceNum;
-        assert 0 <= column && column < 1 + gcActivityNum;
+        State state = this.state;
+        assert 0 <= row && row < state.gcTraceNum;
+        assert 0 <= column && column < 1 + state.gcActivityNum;
 
-        return seqs[row][column] != null;
+        return state.rows[row].valid[column];
     }
 
     public ChangingCategoryDataset newCategoryDataset(
@@ -0,0 +1,212 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.gcstats;
+
+import gchisto.utils.Locker;
+import gchisto.utils.MessageReporter;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.renderer.category.LayeredBarRenderer;
+
+/**
+ * A panel that contains a chart that shows, for each group of GC traces,
+ * the median, 90th, and 99th percentile of the durations of a GC activity
+ * over all the GC traces in the group. The percentiles are drawn as
+ * layered bars, one set per group, so that hundreds of GC traces can be
+ * compared in a single chart. The panel also contains the controls that
+ * select how GC traces are grouped and which GC activity is shown. It
+ * should be used when more than one GC traces have been loaded.
+ *
+ * @see FleetDataset
+ */
+public class FleetChartPanel extends GCStatsChartPanel {
+
+    final private FleetDataset dataset;
+    final private Locker locker;
+    final private JComboBox groupByComboBox =
+            new JComboBox(FleetDataset.getGroupByNames());
+    final private JTextField hostNamePatternField =
+            new JTextField(FleetDataset.DEFAULT_HOST_NAME_PATTERN, 12);
+    final private JComboBox gcActivityComboBox = new JComboBox();
+    /**
+     * Whether the GC activity combo box is being filled in, in which case
+     * its selection changes should be ignored.
+     */
+    private boolean fillingGCActivityComboBox;
+
+    /**
+     * It creates the controls that select how the GC traces are grouped
+     * and which GC activity is shown, and adds them to the panel.
+     */
+    private void addControls() {
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(new JLabel("Group by:"));
+        controls.add(groupByComboBox);
+        controls.add(new JLabel("Host name pattern:"));
+        controls.add(hostNamePatternField);
+        controls.add(new JLabel("GC activity:"));
+        controls.add(gcActivityComboBox);
+
+        ActionListener groupByListener = new ActionListener() {
+
+            public void actionPerformed(ActionEvent e) {
+                groupByChanged();
+            }
+        };
+        groupByComboBox.addActionListener(groupByListener);
+        hostNamePatternField.addActionListener(groupByListener);
+        gcActivityComboBox.addActionListener(new ActionListener() {
+
+            public void actionPerformed(ActionEvent e) {
+                gcActivityChanged();
+            }
+        });
+        fillGCActivityComboBox();
+
+        mainPanel().add(BorderLayout.NORTH, controls);
+    }
+
+    /**
+     * It creates a chart for the dataset and adds the chart to the panel.
+     */
+    private void addChart() {
+        JFreeChart chart = ChartFactory.createBarChart(
+                getTitle(), null, "Duration" + unitSuffix(),
+                dataset, PlotOrientation.VERTICAL, true, true, false);
+        CategoryAxis domainAxis = chart.getCategoryPlot().getDomainAxis();
+        domainAxis.setCategoryLabelPositions(
+                CategoryLabelPositions.createUpRotationLabelPositions(Math.PI / 6.0));
+        CategoryPlot plot = (CategoryPlot) chart.getPlot();
+        LayeredBarRenderer renderer = new LayeredBarRenderer();
+        renderer.setToolTipGenerator(dataset);
+        plot.setRenderer(renderer);
+
+        mainPanel().add(BorderLayout.CENTER, new ChartPanel(chart));
+    }
+
+    private void groupByChanged() {
+        int groupBy = groupByComboBox.getSelectedIndex();
+        hostNamePatternField.setEnabled(
+                groupBy == FleetDataset.GROUP_BY_HOST_NAME);
+        try {
+            dataset.setGroupBy(groupBy, hostNamePatternField.getText());
+        } catch (PatternSyntaxException e) {
+            MessageReporter.showError("Invalid host name pattern: " +
+                    e.getDescription());
+            return;
+        }
+        update();
+    }
+
+    private void gcActivityChanged() {
+        if (fillingGCActivityComboBox) {
+            return;
+        }
+        Object selected = gcActivityComboBox.getSelectedItem();
+        if (selected != null) {
+            dataset.setGCActivityName((String) selected);
+            update();
+        }
+    }
+
+    /**
+     * It fills in the GC activity combo box with the names of the GC
+     * activities in the dataset, keeping the current selection.
+     */
+    private void fillGCActivityComboBox() {
+        List<String> gcActivityNames = dataset.getGCActivityNames();
+        int itemCount = gcActivityComboBox.getItemCount();
+        if (itemCount == gcActivityNames.size()) {
+            return;
+        }
+
+        Object selected = gcActivityComboBox.getSelectedItem();
+        if (selected == null) {
+            selected = FleetDataset.ALL_GC_ACTIVITIES_NAME;
+        }
+        fillingGCActivityComboBox = true;
+        try {
+            DefaultComboBoxModel model = new DefaultComboBoxModel();
+            model.addElement(FleetDataset.ALL_GC_ACTIVITIES_NAME);
+            for (String gcActivityName : gcActivityNames) {
+                if (!gcActivityName.equals(FleetDataset.ALL_GC_ACTIVITIES_NAME)) {
+                    model.addElement(gcActivityName);
+                }
+            }
+            model.setSelectedItem(selected);
+            gcActivityComboBox.setModel(model);
+        } finally {
+            fillingGCActivityComboBox = false;
+        }
+    }
+
+    public void refreshDataset() {
+        updateDataset();
+    }
+
+    public void updateDataset() {
+        locker.doWhileLocked(new Runnable() {
+
+            public void run() {
+                dataset.datasetChanged();
+            }
+        });
+        SwingUtilities.invokeLater(new Runnable() {
+
+            public void run() {
+                fillGCActivityComboBox();
+            }
+        });
+    }
+
+    /**
+     * It creates a new instance of this panel and adds a chart into it.
+     *
+     * @param title The title of the panel.
+     * @param dataset The dataset that will provide the values for the chart.
+     * @param locker The locker that protects the dataset.
+     */
+    public FleetChartPanel(
+            String title,
+            FleetDataset dataset,
+            Locker locker) {
+        super(title, "ms");
+
+        this.dataset = dataset;
+        this.locker = locker;
+
+        addControls();
+        addChart();
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.gcstats;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gcactivity.GCActivitySet;
+import gchisto.gctrace.GCTrace;
+import gchisto.gctrace.GCTraceSet;
+import gchisto.gctracegenerator.file.FileGCTrace;
+import gchisto.jfreechart.extensions.AbstractChangingDataset;
+import gchisto.jfreechart.extensions.ChangingCategoryDatasetWithTTG;
+import gchisto.utils.Conversions;
+import gchisto.utils.Formatting;
+import gchisto.utils.QuantileSketch;
+import gchisto.utils.errorchecking.ArgumentChecking;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jfree.data.category.CategoryDataset;
+
+/**
+ * A dataset that groups the loaded GC traces by a tag (a pattern over
+ * their host names, their directories, or their labels) and, for each
+ * group, shows the median, 90th, and 99th percentile of the durations of
+ * a GC activity over all the GC traces in the group. Its rows are the
+ * percentiles and its columns are the groups.
+ * <p>
+ * The durations of each GC trace are kept in quantile sketches, one per
+ * GC activity, that are brought up-to-date incrementally as GC activities
+ * are added to it. The sketches of each group are kept up-to-date the
+ * same way, and they are only rebuilt, by merging the sketches of the
+ * GC traces in the group, when GC traces move between groups.
+ *
+ * @see gchisto.utils.QuantileSketch
+ */
+public class FleetDataset extends AbstractChangingDataset
+        implements ChangingCategoryDatasetWithTTG {
+
+    /**
+     * Group GC traces by the part of their host name that matches a
+     * pattern.
+     */
+    static final public int GROUP_BY_HOST_NAME = 0;
+    /**
+     * Group GC traces by the directory their file is in.
+     */
+    static final public int GROUP_BY_DIRECTORY = 1;
+    /**
+     * Group GC traces by their label.
+     *
+     * @see gchisto.gctrace.GCTrace#getLabel()
+     */
+    static final public int GROUP_BY_LABEL = 2;
+    /**
+     * The names of the ways GC traces can be grouped.
+     */
+    static final private String[] GROUP_BY_NAMES = {
+        "Host Name", "Directory", "Label"
+    };
+    /**
+     * The default pattern for the host name of a GC trace. It matches
+     * the host name up to the first dot, dash, or underscore. The first
+     * group of the pattern, if there is one, is used as the group name.
+     */
+    static final public String DEFAULT_HOST_NAME_PATTERN = "^([^._-]+)";
+    /**
+     * The name of the group for the GC traces whose tag is not available.
+     */
+    static final private String OTHER_GROUP_NAME = "(other)";
+    /**
+     * The name that stands for all GC activities.
+     */
+    static final public String ALL_GC_ACTIVITIES_NAME = "All";
+    /**
+     * The quantiles that are shown, from the largest to the smallest so
+     * that they can be layered on top of each other.
+     */
+    static final private double[] QUANTILES = { 0.99, 0.90, 0.50 };
+    static final private String[] QUANTILE_NAMES = { "p99", "p90", "Median" };
+    static final private List<String> QUANTILE_NAME_LIST =
+            Collections.unmodifiableList(Arrays.asList(QUANTILE_NAMES));
+
+    /**
+     * The durations of the GC activities of one GC trace, or of one group
+     * of GC traces, one sketch per GC activity name.
+     */
+    static private class Sketches {
+
+        final private QuantileSketch all = new QuantileSketch();
+        final private Map<String, QuantileSketch> byName =
+                new HashMap<String, QuantileSketch>();
+
+        private QuantileSketch get(String gcActivityName) {
+            if (gcActivityName == null) {
+                return all;
+            }
+            return byName.get(gcActivityName);
+        }
+
+        private void add(String gcActivityName, double durationSec) {
+            all.add(durationSec);
+            QuantileSketch sketch = byName.get(gcActivityName);
+            if (sketch == null) {
+                sketch = new QuantileSketch();
+                byName.put(gcActivityName, sketch);
+            }
+            sketch.add(durationSec);
+        }
+
+        private void merge(Sketches sketches) {
+            all.merge(sketches.all);
+            for (Map.Entry<String, QuantileSketch> entry : sketches.byName.entrySet()) {
+                QuantileSketch sketch = byName.get(entry.getKey());
+                if (sketch == null) {
+                    sketch = new QuantileSketch();
+                    byName.put(entry.getKey(), sketch);
+                }
+                sketch.merge(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * The sketches of a GC trace, along with how many of its GC activities
+     * they include and the group it is in.
+     */
+    static private class TraceSketches {
+
+        final private GCTrace gcTrace;
+        final private Sketches sketches = new Sketches();
+        private int gcActivityNum;
+        private String groupName;
+
+        private TraceSketches(GCTrace gcTrace) {
+            this.gcTrace = gcTrace;
+        }
+    }
+
+    /**
+     * An immutable snapshot of the percentiles of each group.
+     */
+    static private class State {
+
+        final private List<String> groupNames;
+        final private int[] groupTraceNums;
+        /**
+         * The percentiles of each group, in ms, indexed by quantile and
+         * then by group, or <tt>null</tt> if a group has no GC activities
+         * with the selected name.
+         */
+        final private Double[][] values;
+        final private List<String> gcActivityNames;
+
+        private State(List<String> groupNames, int[] groupTraceNums,
+                Double[][] values, List<String> gcActivityNames) {
+            this.groupNames = groupNames;
+            this.groupTraceNums = groupTraceNums;
+            this.values = values;
+            this.gcActivityNames = gcActivityNames;
+        }
+    }
+    final private GCTraceSet gcTraceSet;
+    /**
+     * The sketches of the loaded GC traces, in the order of the GC trace
+     * set. The following fields are only accessed while holding the lock
+     * on this object.
+     */
+    final private List<TraceSketches> traces = new ArrayList<TraceSketches>();
+    final private Map<String, Sketches> groups = new HashMap<String, Sketches>();
+    final private Map<String, Integer> groupTraceNums = new HashMap<String, Integer>();
+    private int groupBy = GROUP_BY_HOST_NAME;
+    private Pattern hostNamePattern = Pattern.compile(DEFAULT_HOST_NAME_PATTERN);
+    /**
+     * The name of the GC activity whose percentiles are shown, or
+     * <tt>null</tt> for all GC activities.
+     */
+    private String gcActivityName;
+    private volatile State state = new State(
+            Collections.<String>emptyList(), new int[0],
+            new Double[QUANTILES.length][0], Collections.<String>emptyList());
+
+    /**
+     * It returns the names of the ways GC traces can be grouped, indexed
+     * by <tt>GROUP_BY_HOST_NAME</tt>, <tt>GROUP_BY_DIRECTORY</tt>, and
+     * <tt>GROUP_BY_LABEL</tt>.
+     *
+     * @return The names of the ways GC traces can be grouped.
+     */
+    static public String[] getGroupByNames() {
+        return GROUP_BY_NAMES.clone();
+    }
+
+    /**
+     * It returns the name of the group of the given GC trace.
+     */
+    private String groupName(GCTrace gcTrace) {
+        File file = null;
+        if (gcTrace instanceof FileGCTrace) {
+            file = ((FileGCTrace) gcTrace).getFile();
+        }
+
+        String groupName = null;
+        switch (groupBy) {
+            case GROUP_BY_HOST_NAME:
+                String hostName = (file != null) ? file.getName() : gcTrace.getName();
+                Matcher matcher = hostNamePattern.matcher(hostName);
+                if (matcher.find()) {
+                    groupName = (matcher.groupCount() > 0) ?
+                        matcher.group(1) : matcher.group();
+                }
+                break;
+            case GROUP_BY_DIRECTORY:
+                if (file != null && file.getAbsoluteFile().getParentFile() != null) {
+                    groupName = file.getAbsoluteFile().getParent();
+                }
+                break;
+            case GROUP_BY_LABEL:
+                groupName = gcTrace.getLabel();
+                break;
+            default:
+                assert false : "groupBy = " + groupBy;
+        }
+        if (groupName == null || groupName.length() == 0) {
+            groupName = OTHER_GROUP_NAME;
+        }
+        return groupName;
+    }
+
+    /**
+     * It works out the group of each GC trace and, if any GC traces have
+     * moved between groups, it rebuilds the sketches of all the groups by
+     * merging the sketches of their GC traces.
+     *
+     * @param force Whether to rebuild the sketches of the groups even if
+     * no GC traces have moved between groups.
+     * @return Whether the groups were rebuilt.
+     */
+    private boolean regroup(boolean force) {
+        boolean changed = force;
+        for (TraceSketches trace : traces) {
+            String groupName = groupName(trace.gcTrace);
+            if (!groupName.equals(trace.groupName)) {
+                trace.groupName = groupName;
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+
+        groups.clear();
+        groupTraceNums.clear();
+        for (TraceSketches trace : traces) {
+            Sketches group = groups.get(trace.groupName);
+            if (group == null) {
+                group = new Sketches();
+                groups.put(trace.groupName, group);
+                groupTraceNums.put(trace.groupName, 0);
+            }
+            group.merge(trace.sketches);
+            groupTraceNums.put(trace.groupName,
+                    groupTraceNums.get(trace.groupName) + 1);
+        }
+        return true;
+    }
+
+    /**
+     * It adds the GC activities that have been added to the given GC trace
+     * since the last time to its sketches and to the sketches of its
+     * group.
+     *
+     * @return Whether any GC activities were added.
+     */
+    private boolean addNewGCActivities(TraceSketches trace) {
+        Sketches group = groups.get(trace.groupName);
+        assert group != null;
+
+        // GC activities are added to a GC trace while holding its lock
+        synchronized (trace.gcTrace) {
+            GCActivitySet gcActivities = trace.gcTrace.getAllGCActivities();
+            int gcActivityNum = gcActivities.size();
+            if (gcActivityNum == trace.gcActivityNum) {
+                return false;
+            }
+            for (int i = trace.gcActivityNum; i < gcActivityNum; ++i) {
+                GCActivity gcActivity = gcActivities.get(i);
+                trace.sketches.add(gcActivity.getName(), gcActivity.getDurationSec());
+                group.add(gcActivity.getName(), gcActivity.getDurationSec());
+            }
+            trace.gcActivityNum = gcActivityNum;
+            return true;
+        }
+    }
+
+    /**
+     * It publishes a new snapshot with the current percentiles of each
+     * group.
+     */
+    private void publish() {
+        List<String> groupNames = new ArrayList<String>(new TreeSet<String>(groups.keySet()));
+        int groupNum = groupNames.size();
+        int[] traceNums = new int[groupNum];
+        Double[][] values = new Double[QUANTILES.length][groupNum];
+        TreeSet<String> gcActivityNames = new TreeSet<String>();
+        for (int i = 0; i < groupNum; ++i) {
+            String groupName = groupNames.get(i);
+            Sketches group = groups.get(groupName);
+            traceNums[i] = groupTraceNums.get(groupName);
+            gcActivityNames.addAll(group.byName.keySet());
+
+            QuantileSketch sketch = group.get(gcActivityName);
+            if (sketch != null && sketch.getNum() > 0) {
+                for (int q = 0; q < QUANTILES.length; ++q) {
+                    values[q][i] = Conversions.secToMS(sketch.getQuantile(QUANTILES[q]));
+                }
+            }
+        }
+
+        List<String> gcActivityNameList = new ArrayList<String>(1 + gcActivityNames.size());
+        gcActivityNameList.add(ALL_GC_ACTIVITIES_NAME);
+        gcActivityNameList.addAll(gcActivityNames);
+        state = new State(
+                Collections.unmodifiableList(groupNames), traceNums, values,
+                Collections.unmodifiableList(gcActivityNameList));
+    }
+
+    /**
+     * It brings the set of GC traces up-to-date with the GC trace set,
+     * regroups them if necessary, and adds any new GC activities. It should
+     * be called when GC traces are added, removed, renamed, or relabelled,
+     * while holding the lock on the GC trace set.
+     */
+    synchronized public void update() {
+        Map<GCTrace, TraceSketches> prevTraces =
+                new IdentityHashMap<GCTrace, TraceSketches>();
+        for (TraceSketches trace : traces) {
+            prevTraces.put(trace.gcTrace, trace);
+        }
+        traces.clear();
+        for (GCTrace gcTrace : gcTraceSet.toArray(new GCTrace[gcTraceSet.size()])) {
+            TraceSketches trace = prevTraces.remove(gcTrace);
+            if (trace == null) {
+                trace = new TraceSketches(gcTrace);
+            }
+            traces.add(trace);
+        }
+        // new GC traces are not in a group yet, so they are picked up by
+        // regroup(), but removed ones have to be taken out of theirs
+        regroup(!prevTraces.isEmpty());
+        for (TraceSketches trace : traces) {
+            addNewGCActivities(trace);
+        }
+        publish();
+    }
+
+    /**
+     * It adds the GC activities that have been added to the GC traces since
+     * the last time to the sketches.
+     *
+     * @return Whether any GC activities were added.
+     */
+    synchronized public boolean refresh() {
+        boolean changed = false;
+        for (TraceSketches trace : traces) {
+            if (addNewGCActivities(trace)) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            publish();
+        }
+        return changed;
+    }
+
+    /**
+     * It changes the way the GC traces are grouped.
+     *
+     * @param groupBy One of <tt>GROUP_BY_HOST_NAME</tt>,
+     * <tt>GROUP_BY_DIRECTORY</tt>, or <tt>GROUP_BY_LABEL</tt>.
+     * @param hostNamePattern The pattern for the host names, used when
+     * grouping by host name.
+     * @throws java.util.regex.PatternSyntaxException If the host name
+     * pattern is not valid.
+     */
+    synchronized public void setGroupBy(int groupBy, String hostNamePattern) {
+        ArgumentChecking.withinBounds(groupBy,
+                GROUP_BY_HOST_NAME, GROUP_BY_LABEL, "groupBy");
+        ArgumentChecking.notNull(hostNamePattern, "hostNamePattern");
+
+        this.hostNamePattern = Pattern.compile(hostNamePattern);
+        this.groupBy = groupBy;
+        if (regroup(false)) {
+            publish();
+        }
+    }
+
+    /**
+     * It changes the GC activity whose percentiles are shown.
+     *
+     * @param gcActivityName The name of the GC activity whose percentiles
+     * will be shown, or <tt>ALL_GC_ACTIVITIES_NAME</tt> for all of them.
+     */
+    synchronized public void setGCActivityName(String gcActivityName) {
+        ArgumentChecking.notNull(gcActivityName, "gcActivityName");
+
+        if (gcActivityName.equals(ALL_GC_ACTIVITIES_NAME)) {
+            gcActivityName = null;
+        }
+        this.gcActivityName = gcActivityName;
+        publish();
+    }
+
+    /**
+     * It returns the names of the GC activities that appear in the loaded
+     * GC traces, with <tt>ALL_GC_ACTIVITIES_NAME</tt> first.
+     *
+     * @return The names of the GC activities that appear in the loaded GC
+     * traces.
+     */
+    public List<String> getGCActivityNames() {
+        return state.gcActivityNames;
+    }
+
+    public Comparable getRowKey(int row) {
+        return QUANTILE_NAMES[row];
+    }
+
+    public int getRowIndex(Comparable rowKey) {
+        return QUANTILE_NAME_LIST.indexOf(rowKey);
+    }
+
+    public List getRowKeys() {
+        return QUANTILE_NAME_LIST;
+    }
+
+    public Comparable getColumnKey(int column) {
+        return state.groupNames.get(column);
+    }
+
+    public int getColumnIndex(Comparable columnKey) {
+        return state.groupNames.indexOf(columnKey);
+    }
+
+    public List getColumnKeys() {
+        return state.groupNames;
+    }
+
+    public Number getValue(Comparable rowKey, Comparable columnKey) {
+        return getValue(getRowIndex(rowKey), getColumnIndex(columnKey));
+    }
+
+    public int getRowCount() {
+        return QUANTILES.length;
+    }
+
+    public int getColumnCount() {
+        return state.groupNames.size();
+    }
+
+    public Number getValue(int row, int column) {
+        State state = this.state;
+        if (row < 0 || column < 0 || column >= state.groupNames.size()) {
+            return null;
+        }
+        return state.values[row][column];
+    }
+
+    public String generateToolTip(
+            CategoryDataset dataset,
+            int row, int column) {
+        State state = this.state;
+        assert this == dataset;
+
+        if (column >= state.groupNames.size()) {
+            return null;
+        }
+        Number value = state.values[row][column];
+        String traces = (state.groupTraceNums[column] == 1) ? " trace" : " traces";
+        return String.format("[%s, %d%s] %s = %s ms",
+                state.groupNames.get(column),
+                state.groupTraceNums[column], traces,
+                QUANTILE_NAMES[row],
+                (value == null) ? "N/A" : Formatting.formatDouble(value.doubleValue()));
+    }
+
+    /**
+     * It creates a new fleet dataset for the given GC trace set.
+     *
+     * @param gcTraceSet The GC trace set whose GC traces will be grouped.
+     */
+    public FleetDataset(GCTraceSet gcTraceSet) {
+        ArgumentChecking.notNull(gcTraceSet, "gcTraceSet");
+
+        this.gcTraceSet = gcTraceSet;
+    }
+}
@@ -24,6 +24,7 @@
 package gchisto.gui.panels.gcstats;
 
 import gchisto.gui.utils.AbstractChartPanel;
+import gchisto.gui.utils.SuspendablePanel;
 import gchisto.utils.Refresher;
 import gchisto.utils.WorkerThread;
 
@@ -31,7 +32,8 @@ import gchisto.utils.WorkerThread;
  *
  * @author tony
  */
-abstract public class GCStatsChartPanel extends AbstractChartPanel {
+abstract public class GCStatsChartPanel extends AbstractChartPanel
+        implements SuspendablePanel {
 
     private class RefreshCallback extends AbstractRefresherCallback {
 
@@ -57,6 +59,16 @@ abstract public class GCStatsChartPanel extends AbstractChartPanel {
         updateRefresher.possiblyRefresh();
     }
 
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refreshRefresher.suspend();
+            updateRefresher.suspend();
+        } else {
+            updateRefresher.resume();
+            refreshRefresher.resume();
+        }
+    }
+
     abstract public void refreshDataset();
 
     abstract public void updateDataset();
@@ -24,7 +24,7 @@
 package gchisto.gui.panels.gcstats;
 
 import gchisto.jfreechart.extensions.ChangingCategoryDatasetWithTTG;
-import gchisto.jfreechart.extensions.ChartLocker;
+import gchisto.utils.Locker;
 import java.awt.BorderLayout;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -43,7 +43,7 @@ import org.jfree.chart.renderer.category.CategoryItemRenderer;
 public class MetricChartPanel extends GCStatsChartPanel {
 
     final private ChangingCategoryDatasetWithTTG dataset;
-    final private ChartLocker locker;
+    final private Locker locker;
 
     /**
      * It creates a chart for the given dataset and adds the chart to the panel.
@@ -55,7 +55,6 @@ public class MetricChartPanel extends GCStatsChartPanel {
                 null, "Time" + unitSuffix(),
                 dataset, PlotOrientation.VERTICAL,
                 true, true, false);
-        chart.addProgressListener(locker);
         CategoryPlot plot = (CategoryPlot) chart.getPlot();
         CategoryItemRenderer renderer = plot.getRenderer();
         renderer.setToolTipGenerator(dataset);
@@ -86,7 +85,7 @@ public class MetricChartPanel extends GCStatsChartPanel {
     public MetricChartPanel(
             String title, String unitName,
             ChangingCategoryDatasetWithTTG dataset,
-            ChartLocker locker) {
+            Locker locker) {
         super(title, unitName);
 
         this.dataset = dataset;
@@ -30,9 +30,12 @@ import gchisto.gctrace.GCTraceListener;
 import gchisto.gctrace.GCTraceSet;
 import gchisto.gctrace.GCTraceSetListener;
 import gchisto.gui.panels.VisualizationPanel;
+import gchisto.gui.utils.TabVisibilityManager;
 import gchisto.jfreechart.extensions.ChangingCategoryDatasetWithTTG;
 import gchisto.jfreechart.extensions.ChangingPieDatasetWithTTG;
-import gchisto.jfreechart.extensions.ChartLocker;
+import gchisto.utils.Locker;
+import gchisto.utils.Refresher;
+import gchisto.utils.WorkerThread;
 import java.util.LinkedList;
 import java.util.List;
 import javax.swing.JPanel;
@@ -65,7 +68,32 @@ public class Panel extends javax.swing.JPanel
      * TODO
      */
     private DatasetGenerator datasetGenerator;
-    final private ChartLocker locker = new ChartLocker();
+    /**
+     * The dataset that groups the GC traces for the fleet chart.
+     */
+    private FleetDataset fleetDataset;
+    final private Locker locker = new Locker();
+    /**
+     * It suspends refreshing for the charts that are not showing.
+     */
+    final private TabVisibilityManager visibilityManager;
+    /**
+     * It recomputes the metric values of the GC traces that GC activities
+     * have been added to, and refreshes the charts if any have changed.
+     */
+    final private Refresher refresher = new Refresher(WorkerThread.instance(),
+            new AbstractRefresherCallback() {
+
+        public void refresh() {
+            boolean changed = datasetGenerator.refresh();
+            if (fleetDataset.refresh()) {
+                changed = true;
+            }
+            if (changed) {
+                refreshPanels();
+            }
+        }
+    });
 
     private void createBreakdownChartPanelSingle(
             int metric,
@@ -147,6 +175,7 @@ public class Panel extends javax.swing.JPanel
             assert gcTraceNum > 2;
         // the main tabbed pane should contain panelsMulti and panelsAll
         }
+        visibilityManager.update();
     }
 
     synchronized public void gcTraceRenamed(GCTrace gcTrace) {
@@ -177,6 +206,7 @@ public class Panel extends javax.swing.JPanel
             assert gcTraceNum > 1;
         // the main tabbed pane should contain panelsMulti and panelsAll
         }
+        visibilityManager.update();
     }
 
     synchronized public void gcTraceMovedUp(GCTrace gcTrace) {
@@ -191,7 +221,7 @@ public class Panel extends javax.swing.JPanel
             GCTrace gcTrace,
             GCActivitySet gcActivitySet,
             GCActivity gcActivity) {
-        refresh();
+        refresher.possiblyRefresh();
     }
 
     public void gcActivityNameAdded(
@@ -201,12 +231,15 @@ public class Panel extends javax.swing.JPanel
         update();
     }
 
-    private void refresh() {
+    private void refreshPanels() {
         locker.doWhileLocked(new Runnable() {
 
             public void run() {
                 int gcTraceNum = gcTraceSet.size();
-                assert gcTraceNum > 0;
+                if (gcTraceNum == 0) {
+                    // the GC trace was removed after it was refreshed
+                    return;
+                }
                 if (gcTraceNum == 1) {
                     for (GCStatsChartPanel panel : panelsSingle) {
                         panel.refresh();
@@ -228,6 +261,7 @@ public class Panel extends javax.swing.JPanel
 
             public void run() {
                 datasetGenerator.update();
+                fleetDataset.update();
 
                 int gcTraceNum = gcTraceSet.size();
                 if (gcTraceNum == 1) {
@@ -259,6 +293,9 @@ public class Panel extends javax.swing.JPanel
         createBreakdownChartPanelMulti(DatasetGenerator.METRIC_TOTAL_PERC, datasetGenerator, panelsMulti);
         createBreakdownChartPanelMulti(DatasetGenerator.METRIC_OVERHEAD_PERC, datasetGenerator, panelsMulti);
 
+        panelsMulti.add(new FleetChartPanel(
+                CHART_PREFIX + "Fleet Percentiles", fleetDataset, locker));
+
         createMetricChartPanel(DatasetGenerator.METRIC_AVG, datasetGenerator, panelsAll);
         createMetricChartPanel(DatasetGenerator.METRIC_SIGMA, datasetGenerator, panelsAll);
         createMetricChartPanel(DatasetGenerator.METRIC_MIN, datasetGenerator, panelsAll);
@@ -280,6 +317,7 @@ public class Panel extends javax.swing.JPanel
     public void setGCTraceSet(GCTraceSet gcTraceSet) {
         this.gcTraceSet = gcTraceSet;
         this.datasetGenerator = new DatasetGenerator(gcTraceSet);
+        this.fleetDataset = new FleetDataset(gcTraceSet);
         create();
     }
 
@@ -288,6 +326,7 @@ public class Panel extends javax.swing.JPanel
      */
     public Panel() {
         initComponents();
+        visibilityManager = new TabVisibilityManager(tabbedPane);
     }
 
     /** This method is called from within the constructor to
@@ -23,7 +23,6 @@
  */
 package gchisto.gui.panels.gctimeline;
 
-import gchisto.jfreechart.extensions.ChartLocker;
 import gchisto.gcactivity.GCActivity;
 import gchisto.gcactivity.GCActivitySet;
 import gchisto.gctrace.GCTrace;
@@ -33,6 +32,8 @@ import gchisto.gctrace.RCWithGCTraceCheckpoint;
 import gchisto.gctrace.RCWithGCTraceCheckpointCallback;
 import gchisto.gui.utils.AbstractChartPanel;
 import gchisto.gui.utils.GroupActivatingPanel;
+import gchisto.gui.utils.SuspendablePanel;
+import gchisto.utils.Locker;
 import gchisto.utils.Refresher;
 import gchisto.utils.WorkerThread;
 import java.awt.BorderLayout;
@@ -51,11 +52,12 @@ import org.jfree.chart.renderer.xy.XYItemRenderer;
  * @author Tony Printezis
  */
 public class ChartPanel extends AbstractChartPanel
-        implements GCTraceListener, RCWithGCTraceCheckpointCallback {
+        implements GCTraceListener, RCWithGCTraceCheckpointCallback,
+                   SuspendablePanel {
 
     final private Dataset dataset;
     final private Refresher refresher;
-    final private ChartLocker locker = new ChartLocker();
+    final private Locker locker = new Locker();
     final private GCTraceCheckpoint checkpoint;
     private GroupActivatingPanel groupActivatingTable;
 
@@ -68,7 +70,6 @@ public class ChartPanel extends AbstractChartPanel
         JFreeChart chart = ChartFactory.createXYBarChart(getTitle(),
                 "Elapsed Time (sec)", false, "Time" + unitSuffix(),
                 dataset, PlotOrientation.VERTICAL, true, true, false);
-        chart.addProgressListener(locker);
         XYPlot plot = (XYPlot) chart.getPlot();
         XYItemRenderer renderer = plot.getRenderer();
         renderer.setToolTipGenerator(dataset);
@@ -96,6 +97,14 @@ public class ChartPanel extends AbstractChartPanel
         refresher.possiblyRefresh();
     }
 
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refresher.suspend();
+        } else {
+            refresher.resume();
+        }
+    }
+
     public void gcActivityAdded(
             GCTrace gcTrace,
             GCActivitySet gcActivitySet,
@@ -0,0 +1,246 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.oldgen;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gcactivity.GCActivitySet;
+import gchisto.gctrace.GCTrace;
+import gchisto.gctrace.GCTraceListener;
+import gchisto.gui.utils.AbstractChartPanel;
+import gchisto.gui.utils.SuspendablePanel;
+import gchisto.utils.Refresher;
+import gchisto.utils.RefresherCallback;
+import gchisto.utils.WorkerThread;
+import gchisto.utils.errorchecking.ArgumentChecking;
+import gcparser.OldGenForecast;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.annotations.XYTextAnnotation;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.ValueMarker;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.title.TextTitle;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.ui.TextAnchor;
+
+/**
+ * A panel that contains a chart of the old generation occupancy of a GC
+ * trace over application elapsed time. The chart also shows the live set
+ * samples, the live set trend, and markers at the forecast times of the
+ * next full GC, of a concurrent mode failure, and of the live set filling
+ * the old generation.
+ */
+public class ChartPanel extends AbstractChartPanel
+        implements GCTraceListener, RefresherCallback, SuspendablePanel {
+
+    static private final int SERIES_USED = 0;
+    static private final int SERIES_COMMITTED = 1;
+    static private final int SERIES_LIVE_SET = 2;
+    static private final int SERIES_TREND = 3;
+
+    final private GCTrace gcTrace;
+    final private Refresher refresher;
+    final private JFreeChart chart;
+    final private XYPlot plot;
+    /**
+     * The analysis currently shown in the chart.
+     */
+    private OldGenForecast shownForecast;
+
+    /**
+     * A snapshot of an analysis, created by the worker thread and applied
+     * to the chart in the event dispatch thread.
+     */
+    private class Snapshot implements Runnable {
+
+        final private XYSeriesCollection dataset = new XYSeriesCollection();
+        final private List<ValueMarker> markers = new ArrayList<ValueMarker>();
+        private XYTextAnnotation annotation;
+        private String subtitle;
+
+        private XYSeries createSeries(String name,
+                List<Double> times, List<Double> data) {
+            XYSeries series = new XYSeries(name, true, true);
+            for (int i = 0; i < times.size(); ++i) {
+                series.add(times.get(i), data.get(i), false);
+            }
+            return series;
+        }
+
+        private void addMarker(String label, double timeSec) {
+            if (timeSec < 0.0) {
+                return;
+            }
+            ValueMarker marker = new ValueMarker(timeSec);
+            marker.setPaint(Color.RED);
+            marker.setLabel(label);
+            marker.setLabelTextAnchor(TextAnchor.TOP_LEFT);
+            markers.add(marker);
+        }
+
+        public void run() {
+            plot.setDataset(dataset);
+            plot.clearDomainMarkers();
+            for (ValueMarker marker : markers) {
+                plot.addDomainMarker(marker);
+            }
+            plot.clearAnnotations();
+            if (annotation != null) {
+                plot.addAnnotation(annotation);
+            }
+            chart.clearSubtitles();
+            chart.addSubtitle(new TextTitle(subtitle));
+        }
+
+        private Snapshot(OldGenForecast forecast) {
+            if (forecast == null || !forecast.keeps_series() ||
+                    forecast.timestamp() < 0.0) {
+                subtitle = "No old generation data";
+                return;
+            }
+
+            dataset.addSeries(createSeries("Old Gen Used",
+                    forecast.og_used_time(), forecast.og_used_data()));
+            dataset.addSeries(createSeries("Old Gen Committed",
+                    forecast.og_used_time(), forecast.og_commit_data()));
+            dataset.addSeries(createSeries("Live Set",
+                    forecast.live_set_time(), forecast.live_set_data()));
+
+            double nowSec = forecast.timestamp();
+            double fullSec = forecast.time_to_full_gc();
+            addMarker("Full GC", fullSec < 0.0 ? -1.0 : nowSec + fullSec);
+            if (forecast.cms_cycle_count() > 0) {
+                double cmfSec = forecast.time_to_cmf();
+                addMarker("CMF", cmfSec < 0.0 ? -1.0 : nowSec + cmfSec);
+            }
+            if (!forecast.has_trend()) {
+                subtitle = String.format(
+                        "Promotion rate %.3f MB/s, too few live set samples",
+                        forecast.promo_rate());
+                return;
+            }
+
+            double exhaustionSec = forecast.time_to_exhaustion();
+            addMarker("Old Gen Full",
+                    exhaustionSec < 0.0 ? -1.0 : nowSec + exhaustionSec);
+
+            // The trend line spans the live set samples it was fit to and
+            // extends up to the latest forecast.
+            List<Double> liveSetTimes = forecast.live_set_time();
+            int first = liveSetTimes.size() - forecast.window_size();
+            double fromSec = liveSetTimes.get(first);
+            double toSec = nowSec;
+            for (ValueMarker marker : markers) {
+                toSec = Math.max(toSec, marker.getValue());
+            }
+            XYSeries trend = new XYSeries("Live Set Trend", true, true);
+            trend.add(fromSec, forecast.live_set_at(fromSec), false);
+            trend.add(toSec, forecast.live_set_at(toSec), false);
+            dataset.addSeries(trend);
+
+            annotation = new XYTextAnnotation(
+                    String.format("%+.3f MB/s", forecast.live_set_slope()),
+                    nowSec, forecast.live_set_at(nowSec));
+            annotation.setTextAnchor(TextAnchor.BOTTOM_RIGHT);
+
+            subtitle = String.format(
+                    "Live set %.3f MB, %+.3f MB/s (z = %.2f)%s, " +
+                    "promotion rate %.3f MB/s",
+                    forecast.live_set_at(nowSec),
+                    forecast.live_set_slope(),
+                    forecast.leak_z(),
+                    forecast.leak_suspected() ? ", leak suspected" : "",
+                    forecast.promo_rate());
+        }
+    }
+
+    public boolean shouldRefresh() {
+        return gcTrace.getOldGenForecast() != shownForecast;
+    }
+
+    public void beforeAddingTask() {
+    }
+
+    public void refresh() {
+        OldGenForecast forecast = gcTrace.getOldGenForecast();
+        shownForecast = forecast;
+        SwingUtilities.invokeLater(new Snapshot(forecast));
+    }
+
+    public void possiblyRefresh() {
+        refresher.possiblyRefresh();
+    }
+
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refresher.suspend();
+        } else {
+            refresher.resume();
+        }
+    }
+
+    public void gcActivityAdded(
+            GCTrace gcTrace,
+            GCActivitySet gcActivitySet,
+            GCActivity gcActivity) {
+        assert gcTrace == this.gcTrace;
+        possiblyRefresh();
+    }
+
+    public void gcActivityNameAdded(
+            GCTrace gcTrace,
+            int id,
+            String gcActivityName) {
+    }
+
+    /**
+     * It creates a new instance of this panel for the given GC trace and
+     * adds an (initially empty) chart into it.
+     *
+     * @param gcTrace The GC trace whose old generation data will be shown.
+     */
+    public ChartPanel(GCTrace gcTrace) {
+        super(gcTrace.getName(), "MB");
+
+        ArgumentChecking.notNull(gcTrace, "gcTrace");
+
+        this.gcTrace = gcTrace;
+        this.refresher = new Refresher(WorkerThread.instance(), this);
+
+        chart = ChartFactory.createXYLineChart(getTitle(),
+                "Elapsed Time (sec)", "Size (MB)", new XYSeriesCollection(),
+                PlotOrientation.VERTICAL, true, true, false);
+        plot = (XYPlot) chart.getPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        renderer.setSeriesShapesVisible(SERIES_USED, false);
+        renderer.setSeriesShapesVisible(SERIES_COMMITTED, false);
+        renderer.setSeriesLinesVisible(SERIES_LIVE_SET, false);
+        renderer.setSeriesShapesVisible(SERIES_TREND, false);
+        plot.setRenderer(renderer);
+
+        mainPanel().add(BorderLayout.CENTER,
+                new org.jfree.chart.ChartPanel(chart));
+        possiblyRefresh();
+    }
+}
@@ -58,7 +58,7 @@ public class Panel extends javax.swing.JPanel
      * @see Model
      */
     static private String[] COLUMN_NAMES = {
-        "Name", "Time Added"
+        "Name", "Label", "Time Added"
     };
     
     /**
@@ -67,7 +67,7 @@ public class Panel extends javax.swing.JPanel
      * @see Model
      */
     static private Class[] COLUMN_CLASSES = {
-        String.class, String.class
+        String.class, String.class, String.class
     };
     
     /**
@@ -76,7 +76,7 @@ public class Panel extends javax.swing.JPanel
      * @see Model
      */
     static private boolean[] COLUMN_EDITABLE = {
-        true, false
+        true, true, false
     };
     
     /**
@@ -148,7 +148,8 @@ public class Panel extends javax.swing.JPanel
      *
      * <ul>
      * <li>column 0 (<tt>String</tt>): the name of the trace
-     * <li>column 1 (<tt>String</tt>): the date/time the trace was read
+     * <li>column 1 (<tt>String</tt>): the label of the trace
+     * <li>column 2 (<tt>String</tt>): the date/time the trace was read
      *</ul>
      */
     private class Model extends AbstractTableModel {
@@ -217,6 +218,8 @@ public class Panel extends javax.swing.JPanel
                 case 0:
                     return gcTrace.getName();
                 case 1:
+                    return gcTrace.getLabel();
+                case 2:
                     return gcTrace.getAddedDate().toString();
                 default:
                     throw new ShouldNotReachHereException();
@@ -231,12 +234,17 @@ public class Panel extends javax.swing.JPanel
          * @param columnIndex The column index of the specified table cell.
          */
         public void setValueAt(Object value, int rowIndex, int columnIndex) {
-            assert columnIndex == 0;
+            assert columnIndex == 0 || columnIndex == 1;
             assert COLUMN_EDITABLE[columnIndex];
             assert value instanceof String;
             
-            String newName = (String) value;
-            renameTrace(rowIndex, newName);
+            if (columnIndex == 0) {
+                String newName = (String) value;
+                renameTrace(rowIndex, newName);
+            } else {
+                String label = ((String) value).trim();
+                labelTrace(rowIndex, label.length() > 0 ? label : null);
+            }
         }
         
     }
@@ -374,6 +382,20 @@ public class Panel extends javax.swing.JPanel
         gcTraceSet.rename(traceName, newName);
     }
     
+    /**
+     * It sets the label of the given GC trace.
+     *
+     * @param index The index of the GC trace to be labelled.
+     * @param label The new label of the GC trace, or <tt>null</tt> to
+     * remove it.
+     */
+    private void labelTrace(int index, String label) {
+        ArgumentChecking.withinBounds(index, 0, gcTraceSet.size() - 1, "index");
+        
+        String traceName = gcTraceSet.findGCTrace(index).getName();
+        gcTraceSet.setLabel(traceName, label);
+    }
+    
     /**
      * It removes the currently selected GC trace.
      */
@@ -0,0 +1,332 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.younggen;
+
+import gchisto.gcactivity.GCActivity;
+import gchisto.gcactivity.GCActivitySet;
+import gchisto.gctrace.GCTrace;
+import gchisto.gctrace.GCTraceListener;
+import gchisto.gui.utils.AbstractChartPanel;
+import gchisto.gui.utils.SuspendablePanel;
+import gchisto.utils.Refresher;
+import gchisto.utils.RefresherCallback;
+import gchisto.utils.WorkerThread;
+import gchisto.utils.errorchecking.ArgumentChecking;
+import gcparser.YoungGenSimulator;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.ValueMarker;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.chart.title.TextTitle;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.ui.TextAnchor;
+
+/**
+ * A panel that contains a chart and a table of the young GC frequency,
+ * pause times and promotion rate of a GC trace predicted for other young
+ * generation sizes by <tt>gcparser.YoungGenSimulator</tt>. The first two
+ * rows of the table are the measured GC trace and the replay of the
+ * measured young generation configuration; the predictions are only shown
+ * if the replay is close enough to the measured GC trace.
+ *
+ * @see gcparser.YoungGenSimulator
+ */
+public class ChartPanel extends AbstractChartPanel
+        implements GCTraceListener, RefresherCallback, SuspendablePanel {
+
+    static private final String[] COLUMN_NAMES = {
+        "", "Young (MB)", "Eden (MB)", "Survivor (MB)", "SR", "TT",
+        "Young GCs", "Interval (sec)", "Mean (ms)", "50% (ms)", "90% (ms)",
+        "99% (ms)", "Max (ms)", "Promotion (MB/s)", "Young GC Load (%)",
+        "Survivors (MB)", "Overflows"
+    };
+
+    final private GCTrace gcTrace;
+    final private Refresher refresher;
+    final private JFreeChart chart;
+    final private XYPlot plot;
+    /**
+     * The subtitle of the chart. It is updated, rather than replaced, so
+     * that the legend, which is also a subtitle, stays.
+     */
+    final private TextTitle subtitleTitle = new TextTitle("");
+    final private TableModel tableModel = new TableModel();
+    /**
+     * The model currently shown in the chart and the table.
+     */
+    private YoungGenSimulator shownSimulator;
+
+    /**
+     * The rows of the table, one per scenario.
+     */
+    private class TableModel extends AbstractTableModel {
+
+        private List<String> labels = new ArrayList<String>();
+        private List<YoungGenSimulator.Result> results =
+                new ArrayList<YoungGenSimulator.Result>();
+
+        public int getRowCount() {
+            return results.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            YoungGenSimulator.Result result = results.get(row);
+            YoungGenSimulator.Scenario scenario = result.scenario();
+            switch (column) {
+                case 0:
+                    return labels.get(row);
+                case 1:
+                    return String.format("%.1f", scenario.young_size());
+                case 2:
+                    return String.format("%.1f", scenario.eden_size());
+                case 3:
+                    return String.format("%.1f", scenario.survivor_size());
+                case 4:
+                    return String.format("%.0f", scenario.survivor_ratio());
+                case 5:
+                    return row == 0 ? "" :
+                            Integer.toString(scenario.tenuring_threshold());
+                case 6:
+                    return Integer.toString(result.ygc_count());
+                case 7:
+                    return String.format("%.3f", result.interval());
+                case 8:
+                    return String.format("%.3f", result.pause_mean() * 1000.0);
+                case 9:
+                    return percentile(result, 0.50);
+                case 10:
+                    return percentile(result, 0.90);
+                case 11:
+                    return percentile(result, 0.99);
+                case 12:
+                    return percentile(result, 1.0);
+                case 13:
+                    return String.format("%.3f", result.promo_rate());
+                case 14:
+                    return String.format("%.3f", result.ygc_load());
+                case 15:
+                    return String.format("%.3f", result.survivor_mean());
+                default:
+                    return Integer.toString(result.overflow_count());
+            }
+        }
+
+        private String percentile(YoungGenSimulator.Result result,
+                double p) {
+            return String.format("%.3f", result.pause_percentile(p) * 1000.0);
+        }
+
+        private void setRows(List<String> labels,
+                List<YoungGenSimulator.Result> results) {
+            this.labels = labels;
+            this.results = results;
+            fireTableDataChanged();
+        }
+    }
+
+    /**
+     * A snapshot of the predictions, created by the worker thread and
+     * applied to the chart and the table in the event dispatch thread.
+     */
+    private class Snapshot implements Runnable {
+
+        final private XYSeriesCollection pauseDataset =
+                new XYSeriesCollection();
+        final private XYSeriesCollection promoDataset =
+                new XYSeriesCollection();
+        final private List<String> labels = new ArrayList<String>();
+        final private List<YoungGenSimulator.Result> results =
+                new ArrayList<YoungGenSimulator.Result>();
+        private ValueMarker marker;
+        private String subtitle;
+
+        public void run() {
+            plot.setDataset(0, pauseDataset);
+            plot.setDataset(1, promoDataset);
+            plot.clearDomainMarkers();
+            if (marker != null) {
+                plot.addDomainMarker(marker);
+            }
+            subtitleTitle.setText(subtitle);
+            tableModel.setRows(labels, results);
+        }
+
+        private void addRow(String label, YoungGenSimulator.Result result) {
+            labels.add(label);
+            results.add(result);
+        }
+
+        private Snapshot(YoungGenSimulator simulator) {
+            if (simulator == null) {
+                subtitle = "No young generation data";
+                return;
+            }
+
+            addRow("Measured", simulator.observed());
+            addRow("Replayed", simulator.replayed());
+            List<String> problems = simulator.validate();
+            if (!problems.isEmpty()) {
+                StringBuilder builder = new StringBuilder(
+                        "The model does not reproduce the measured trace: ");
+                for (int i = 0; i < problems.size(); ++i) {
+                    builder.append(i == 0 ? "" : "; ").append(problems.get(i));
+                }
+                subtitle = builder.toString();
+                return;
+            }
+
+            List<YoungGenSimulator.Result> predicted;
+            try {
+                predicted = simulator.simulate(simulator.default_scenarios(),
+                        Runtime.getRuntime().availableProcessors());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subtitle = "Interrupted";
+                return;
+            } catch (ExecutionException e) {
+                subtitle = "Failed: " + e.getCause();
+                return;
+            }
+
+            XYSeries mean = new XYSeries("Mean Pause", true, true);
+            XYSeries p99 = new XYSeries("99% Pause", true, true);
+            XYSeries promo = new XYSeries("Promotion Rate", true, true);
+            for (YoungGenSimulator.Result result : predicted) {
+                double youngMB = result.scenario().young_size();
+                mean.add(youngMB, result.pause_mean() * 1000.0, false);
+                p99.add(youngMB, result.pause_percentile(0.99) * 1000.0,
+                        false);
+                promo.add(youngMB, result.promo_rate(), false);
+                addRow("", result);
+            }
+            pauseDataset.addSeries(mean);
+            pauseDataset.addSeries(p99);
+            promoDataset.addSeries(promo);
+
+            marker = new ValueMarker(simulator.young_size());
+            marker.setPaint(Color.RED);
+            marker.setLabel("Measured");
+            marker.setLabelTextAnchor(TextAnchor.TOP_LEFT);
+
+            subtitle = String.format(
+                    "Long-lived fraction %.3f, lambda %.3f MB, " +
+                    "pause %.3f ms + %.3f ms/MB copied",
+                    simulator.long_lived_fraction(), simulator.lambda(),
+                    simulator.pause_fixed() * 1000.0,
+                    simulator.pause_per_mb() * 1000.0);
+        }
+    }
+
+    public boolean shouldRefresh() {
+        return gcTrace.getYoungGenSimulator() != shownSimulator;
+    }
+
+    public void beforeAddingTask() {
+    }
+
+    public void refresh() {
+        YoungGenSimulator simulator = gcTrace.getYoungGenSimulator();
+        shownSimulator = simulator;
+        SwingUtilities.invokeLater(new Snapshot(simulator));
+    }
+
+    public void possiblyRefresh() {
+        refresher.possiblyRefresh();
+    }
+
+    public void setRefreshSuspended(boolean suspended) {
+        if (suspended) {
+            refresher.suspend();
+        } else {
+            refresher.resume();
+        }
+    }
+
+    public void gcActivityAdded(
+            GCTrace gcTrace,
+            GCActivitySet gcActivitySet,
+            GCActivity gcActivity) {
+        assert gcTrace == this.gcTrace;
+        possiblyRefresh();
+    }
+
+    public void gcActivityNameAdded(
+            GCTrace gcTrace,
+            int id,
+            String gcActivityName) {
+    }
+
+    /**
+     * It creates a new instance of this panel for the given GC trace and
+     * adds an (initially empty) chart and table into it.
+     *
+     * @param gcTrace The GC trace whose young generation will be modeled.
+     */
+    public ChartPanel(GCTrace gcTrace) {
+        super(gcTrace.getName());
+
+        ArgumentChecking.notNull(gcTrace, "gcTrace");
+
+        this.gcTrace = gcTrace;
+        this.refresher = new Refresher(WorkerThread.instance(), this);
+
+        chart = ChartFactory.createXYLineChart(getTitle(),
+                "Young Gen Size (MB)", "Pause Time (ms)",
+                new XYSeriesCollection(), PlotOrientation.VERTICAL,
+                true, true, false);
+        chart.addSubtitle(subtitleTitle);
+        plot = (XYPlot) chart.getPlot();
+        plot.setRenderer(0, new XYLineAndShapeRenderer());
+        plot.setRangeAxis(1, new NumberAxis("Promotion Rate (MB/s)"));
+        plot.setDataset(1, new XYSeriesCollection());
+        plot.mapDatasetToRangeAxis(1, 1);
+        XYLineAndShapeRenderer promoRenderer = new XYLineAndShapeRenderer();
+        promoRenderer.setSeriesPaint(0, Color.GREEN.darker());
+        plot.setRenderer(1, promoRenderer);
+
+        JTable table = new JTable(tableModel);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(0,
+                table.getRowHeight() * 10));
+        mainPanel().add(BorderLayout.CENTER,
+                new org.jfree.chart.ChartPanel(chart));
+        mainPanel().add(BorderLayout.SOUTH, scrollPane);
+        possiblyRefresh();
+    }
+}
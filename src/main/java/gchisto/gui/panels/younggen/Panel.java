@@ -0,0 +1,41 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.panels.younggen;
+
+import gchisto.gctrace.GCTrace;
+import gchisto.gui.utils.TabbedPane;
+
+/**
+ * The panel that shows, for each GC trace, the young GC frequency, pause
+ * times and promotion rate predicted for other young generation sizes.
+ */
+public class Panel extends TabbedPane<ChartPanel> {
+
+    protected ChartPanel newPanel(GCTrace gcTrace) {
+        ChartPanel panel = new ChartPanel(gcTrace);
+        gcTrace.addListener(panel);
+        return panel;
+    }
+
+    protected void updatePanel(ChartPanel panel) {
+        panel.possiblyRefresh();
+    }
+
+    public String getPanelName() {
+        return "Young Gen";
+    }
+}
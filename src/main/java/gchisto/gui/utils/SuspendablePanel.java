@@ -0,0 +1,34 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.utils;
+
+/**
+ * A panel whose refreshing can be suspended while it is not showing. Any
+ * changes that happen while it is suspended should be caught up on with a
+ * single refresh when it is resumed.
+ */
+public interface SuspendablePanel {
+
+    /**
+     * It suspends or resumes the refreshing of the panel.
+     *
+     * @param suspended Whether the refreshing of the panel should be
+     * suspended or not.
+     */
+    public void setRefreshSuspended(boolean suspended);
+    
+}
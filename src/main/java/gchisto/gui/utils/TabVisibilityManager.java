@@ -0,0 +1,87 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.gui.utils;
+
+import gchisto.utils.errorchecking.ArgumentChecking;
+import java.awt.Component;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import javax.swing.JTabbedPane;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * It keeps the refreshing of the panels in a tabbed pane in step with their
+ * visibility. Only the panel in the selected tab is refreshed, and only
+ * while the tabbed pane itself is showing; all other panels that implement
+ * <tt>SuspendablePanel</tt> are suspended.
+ *
+ * @see    gchisto.gui.utils.SuspendablePanel
+ */
+public class TabVisibilityManager implements ChangeListener, HierarchyListener {
+
+    final private JTabbedPane tabbedPane;
+
+    /**
+     * It suspends or resumes each of the panels in the tabbed pane,
+     * depending on whether it is currently showing. It should also be
+     * called after tabs are added to, or removed from, the tabbed pane.
+     */
+    public void update() {
+        Component selected = tabbedPane.isShowing() ?
+            tabbedPane.getSelectedComponent() : null;
+        for (int i = 0; i < tabbedPane.getTabCount(); ++i) {
+            Component component = tabbedPane.getComponentAt(i);
+            if (component instanceof SuspendablePanel) {
+                SuspendablePanel panel = (SuspendablePanel) component;
+                panel.setRefreshSuspended(component != selected);
+            }
+        }
+    }
+
+    public void stateChanged(ChangeEvent e) {
+        update();
+    }
+
+    public void hierarchyChanged(HierarchyEvent e) {
+        if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+            // hierarchy events are delivered while holding the AWT tree
+            // lock, so do the update once it has been released
+            SwingUtilities.invokeLater(new Runnable() {
+
+                public void run() {
+                    update();
+                }
+            });
+        }
+    }
+
+    /**
+     * It creates a new visibility manager and registers it with the
+     * given tabbed pane.
+     *
+     * @param tabbedPane The tabbed pane whose panels will be managed.
+     */
+    public TabVisibilityManager(JTabbedPane tabbedPane) {
+        ArgumentChecking.notNull(tabbedPane, "tabbedPane");
+
+        this.tabbedPane = tabbedPane;
+        tabbedPane.addChangeListener(this);
+        tabbedPane.addHierarchyListener(this);
+    }
+}
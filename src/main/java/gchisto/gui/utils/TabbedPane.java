@@ -28,6 +28,7 @@ import gchisto.gctrace.GCTraceSet;
 import gchisto.gctrace.GCTraceSetListener;
 import gchisto.gui.panels.VisualizationPanel;
 import gchisto.utils.errorchecking.ArgumentChecking;
+import java.awt.Component;
 import java.util.HashMap;
 import java.util.Map;
 import javax.swing.JPanel;
@@ -40,24 +41,70 @@ abstract public class TabbedPane<T extends JPanel>
         extends javax.swing.JPanel
         implements VisualizationPanel, GCTraceSetListener {
 
+    /**
+     * The panels that have been created so far, keyed by GC trace. A
+     * panel is only created the first time its tab is shown.
+     */
     final protected Map<GCTrace, T> map = new HashMap<GCTrace, T>();
     
+    /**
+     * The empty panels that stand in for the panels of the GC traces
+     * whose tab has not been shown yet.
+     */
+    final private Map<GCTrace, JPanel> placeholders =
+            new HashMap<GCTrace, JPanel>();
+    
     protected GCTraceSet gcTraceSet;
 
+    final private TabVisibilityManager visibilityManager;
+
     abstract protected T newPanel(GCTrace gcTrace);
     
     abstract protected void updatePanel(T panel);
     
+    /**
+     * It returns the component currently in the tab of the given GC trace,
+     * which is either its panel or its placeholder.
+     */
+    private JPanel tabComponent(GCTrace gcTrace) {
+        JPanel panel = map.get(gcTrace);
+        return (panel != null) ? panel : placeholders.get(gcTrace);
+    }
+    
+    /**
+     * It creates the panel of the selected tab, if it is showing and the
+     * panel has not been created yet.
+     */
+    synchronized private void createSelectedPanel() {
+        if (!tabbedPane.isShowing()) {
+            return;
+        }
+        Component selected = tabbedPane.getSelectedComponent();
+        for (Map.Entry<GCTrace, JPanel> entry : placeholders.entrySet()) {
+            if (entry.getValue() == selected) {
+                GCTrace gcTrace = entry.getKey();
+                placeholders.remove(gcTrace);
+                
+                T panel = newPanel(gcTrace);
+                map.put(gcTrace, panel);
+                tabbedPane.setComponentAt(
+                        tabbedPane.indexOfComponent(selected), panel);
+                updatePanel(panel);
+                return;
+            }
+        }
+    }
+    
     synchronized public void gcTraceAdded(GCTrace gcTrace) {
-        T panel = newPanel(gcTrace);
+        JPanel placeholder = new JPanel();
         String name = gcTrace.getName();
-        map.put(gcTrace, panel);
-        tabbedPane.add(name, panel);
-        updatePanel(panel);
+        placeholders.put(gcTrace, placeholder);
+        tabbedPane.add(name, placeholder);
+        visibilityManager.update();
     }
     
     synchronized public void gcTraceRenamed(GCTrace gcTrace) {
-        T panel = map.get(gcTrace);
+        JPanel panel = tabComponent(gcTrace);
         assert panel != null;
         int index = tabbedPane.indexOfComponent(panel);
         String name = gcTrace.getName();
@@ -65,29 +112,33 @@ abstract public class TabbedPane<T extends JPanel>
     }
     
     synchronized public void gcTraceRemoved(GCTrace gcTrace) {
-        T panel = map.get(gcTrace);
+        JPanel panel = tabComponent(gcTrace);
         map.remove(gcTrace);
+        placeholders.remove(gcTrace);
         tabbedPane.remove(panel);
+        visibilityManager.update();
     }
     
     synchronized public void gcTraceMovedUp(GCTrace gcTrace) {
-        T panel = map.get(gcTrace);
-        assert panel != null;        assert panel != null;
+        JPanel panel = tabComponent(gcTrace);
+        assert panel != null;
 
         String name = gcTrace.getName();
         int index = tabbedPane.indexOfComponent(panel);
         assert index > 0;
         tabbedPane.remove(panel);
         tabbedPane.add(panel, name, index - 1);
+        visibilityManager.update();
     }
 
     synchronized public void gcTraceMovedDown(GCTrace gcTrace) {
-        T panel = map.get(gcTrace);
+        JPanel panel = tabComponent(gcTrace);
         assert panel != null;
         String name = gcTrace.getName();
         int index = tabbedPane.indexOfComponent(panel);
         tabbedPane.remove(panel);
         tabbedPane.add(panel, name, index + 1);
+        visibilityManager.update();
     }
 
     public JPanel getPanel() {
@@ -109,6 +160,14 @@ abstract public class TabbedPane<T extends JPanel>
     /** Creates new form TabbedPane */
     public TabbedPane() {
         initComponents();
+        
+        visibilityManager = new TabVisibilityManager(tabbedPane) {
+
+            public void update() {
+                createSelectedPanel();
+                super.update();
+            }
+        };
     }
     
     /** This method is called from within the constructor to
@@ -23,10 +23,13 @@
  */
 package gchisto.jfreechart.extensions;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
+ * A dataset whose series are grouped by GC activity. The group names and
+ * whether each group is active are kept in immutable arrays that are
+ * replaced whenever they change, so that a chart that is being drawn
+ * always sees a consistent set of groups without having to lock them.
  *
  * @author tony
  */
@@ -34,63 +37,96 @@ public class AbstractDatasetWithGroups extends AbstractChangingDataset
         implements DatasetWithGroups {
 
     /**
-     * A list that contains the names of all the GC activites in all the
-     * loaded traces, as well as the aggregate GC activity.
+     * An immutable snapshot of the groups of the dataset.
      */
-    final private List<String> groupNames = new ArrayList<String>();
+    static private class Groups {
+
+        /**
+         * The names of the groups.
+         */
+        final private String[] names;
+        /**
+         * An array with one entry per group that dictates whether that
+         * group is active (i.e., whether it will be displayed in the chart).
+         */
+        final private boolean[] active;
+
+        private Groups(String[] names, boolean[] active) {
+            assert names.length == active.length;
+
+            this.names = names;
+            this.active = active;
+        }
+    }
+    
     /**
-     * An array with one entry per GC activity in the GC trace that
-     * dictates whether that GC activity is groupActive (i.e., whether
-     * it will be displayed in the chart).
+     * The current groups of the dataset. It is only replaced while
+     * holding the lock on this object.
      */
-    final private List<Boolean> groupActive = new ArrayList<Boolean>();
-    
-    private int groupNum;
+    private volatile Groups groups = new Groups(new String[0], new boolean[0]);
 
     public int getGroupCount() {
-        return groupNum;
+        return groups.names.length;
     }
 
     public String getGroupName(int group) {
-        assert 0 <= group && group < groupNum;
+        String[] names = groups.names;
+        assert 0 <= group && group < names.length;
 
-        return groupNames.get(group);
+        return names[group];
     }
 
     protected int indexOfGroupName(String groupName) {
-        return groupNames.indexOf(groupName);
+        String[] names = groups.names;
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i].equals(groupName)) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     public boolean isGroupActive(int group) {
-        assert 0 <= group && group < groupNum;
+        boolean[] active = groups.active;
+        assert 0 <= group && group < active.length;
 
-        return groupActive.get(group);
+        return active[group];
     }
 
     public void setGroupActive(int group, boolean active) {
-        assert 0 <= group && group < groupNames.size();
+        synchronized (this) {
+            Groups prev = groups;
+            assert 0 <= group && group < prev.names.length;
 
-        groupActive.set(group, active);
+            boolean[] newActive = prev.active.clone();
+            newActive[group] = active;
+            groups = new Groups(prev.names, newActive);
+        }
         datasetChanged();
     }
     
     synchronized public void addGroup(int id, String groupName) {
-        groupNames.add(id, groupName);
-        groupActive.add(id, true);
-        groupNum += 1;
-        
-        assert groupNames.size() == groupNum;
-        assert groupActive.size() == groupNum;
+        Groups prev = groups;
+        int groupNum = prev.names.length;
+        assert 0 <= id && id <= groupNum;
+
+        String[] names = new String[groupNum + 1];
+        boolean[] active = new boolean[groupNum + 1];
+        System.arraycopy(prev.names, 0, names, 0, id);
+        System.arraycopy(prev.active, 0, active, 0, id);
+        names[id] = groupName;
+        active[id] = true;
+        System.arraycopy(prev.names, id, names, id + 1, groupNum - id);
+        System.arraycopy(prev.active, id, active, id + 1, groupNum - id);
+        groups = new Groups(names, active);
     }
     
     public AbstractDatasetWithGroups() {
-        groupNum = 0;
     }
     
     public AbstractDatasetWithGroups(String[] groupNames) {
-        this();
-        for (int i = 0; i < groupNames.length; ++i) {
-            addGroup(i, groupNames[i]);
-        }
+        boolean[] active = new boolean[groupNames.length];
+        Arrays.fill(active, true);
+        groups = new Groups(groupNames.clone(), active);
     }
 }
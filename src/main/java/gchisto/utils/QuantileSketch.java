@@ -0,0 +1,243 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gchisto.utils;
+
+import gchisto.utils.errorchecking.ShouldNotReachHereException;
+
+/**
+ * A sketch of the distribution of a sequence of non-negative numbers, from
+ * which quantiles (like the median or the 99th percentile) can be
+ * estimated. The numbers are counted in buckets whose bounds grow
+ * geometrically, so that each estimated quantile is within a fixed
+ * relative error of the real one, and the space taken up only depends
+ * on the range of the numbers, not on how many there are.
+ * <p>
+ * Two sketches with the same relative accuracy can be merged, and the
+ * result is the same as if all the numbers had been added to a single
+ * sketch. This makes it possible to keep one sketch per GC trace and
+ * combine them into sketches for groups of GC traces.
+ */
+public class QuantileSketch {
+    
+    /**
+     * The default relative accuracy of the estimated quantiles.
+     */
+    static final public double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    
+    /**
+     * Numbers up to this value are counted as zero.
+     */
+    static final private double MIN_VALUE = 1.0e-9;
+    
+    /**
+     * The relative accuracy of the estimated quantiles.
+     */
+    final private double relativeAccuracy;
+    
+    /**
+     * The ratio between the upper and the lower bound of each bucket.
+     */
+    final private double gamma;
+    
+    /**
+     * The natural logarithm of <tt>gamma</tt>.
+     */
+    final private double logGamma;
+    
+    /**
+     * The bucket counts. Bucket <tt>i</tt> contains the numbers in the
+     * range (<tt>gamma^(i-1)</tt>, <tt>gamma^i</tt>], and is stored at
+     * <tt>counts[i - offset]</tt>.
+     */
+    private int[] counts;
+    
+    /**
+     * The index of the bucket stored at <tt>counts[0]</tt>.
+     */
+    private int offset;
+    
+    /**
+     * How many numbers up to <tt>MIN_VALUE</tt> were added to this sketch.
+     */
+    private int zeroNum;
+    
+    /**
+     * How many numbers were added to this sketch.
+     */
+    private int num;
+    
+    /**
+     * It returns the index of the bucket that the given number falls in.
+     */
+    private int bucketIndex(double number) {
+        return (int) Math.ceil(Math.log(number) / logGamma);
+    }
+    
+    /**
+     * It returns the value that represents all the numbers in the bucket
+     * with the given index. It is within the relative accuracy of all of
+     * them.
+     */
+    private double bucketValue(int index) {
+        return 2.0 * Math.pow(gamma, index) / (gamma + 1.0);
+    }
+    
+    /**
+     * It makes sure that there are counts for the buckets with indexes
+     * in the given range.
+     */
+    private void ensureBuckets(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            counts = new int[maxIndex - minIndex + 1];
+            offset = minIndex;
+            return;
+        }
+        
+        int oldMaxIndex = offset + counts.length - 1;
+        if (minIndex >= offset && maxIndex <= oldMaxIndex) {
+            return;
+        }
+        
+        int newMinIndex = Math.min(minIndex, offset);
+        int newMaxIndex = Math.max(maxIndex, oldMaxIndex);
+        int[] newCounts = new int[newMaxIndex - newMinIndex + 1];
+        System.arraycopy(counts, 0, newCounts, offset - newMinIndex, counts.length);
+        counts = newCounts;
+        offset = newMinIndex;
+    }
+    
+    /**
+     * It returns the relative accuracy of the estimated quantiles.
+     *
+     * @return The relative accuracy of the estimated quantiles.
+     */
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+    
+    /**
+     * It returns how many numbers were added to this sketch.
+     *
+     * @return How many numbers were added to this sketch.
+     */
+    public int getNum() {
+        return num;
+    }
+    
+    /**
+     * It adds a new number to the sketch.
+     *
+     * @param number The new number to be added to the sketch. It should
+     * not be negative.
+     */
+    public void add(double number) {
+        assert number >= 0.0 : "number = " + number;
+        
+        if (number <= MIN_VALUE) {
+            ++zeroNum;
+        } else {
+            int index = bucketIndex(number);
+            ensureBuckets(index, index);
+            ++counts[index - offset];
+        }
+        ++num;
+    }
+    
+    /**
+     * It adds all the numbers that were added to the given sketch to this
+     * one.
+     *
+     * @param sketch The sketch to be merged into this one. It should have
+     * the same relative accuracy as this one.
+     */
+    public void merge(QuantileSketch sketch) {
+        assert sketch.gamma == gamma;
+        
+        if (sketch.counts.length > 0) {
+            ensureBuckets(sketch.offset,
+                    sketch.offset + sketch.counts.length - 1);
+            int base = sketch.offset - offset;
+            for (int i = 0; i < sketch.counts.length; ++i) {
+                counts[base + i] += sketch.counts[i];
+            }
+        }
+        zeroNum += sketch.zeroNum;
+        num += sketch.num;
+    }
+    
+    /**
+     * It estimates the given quantile of the numbers added to this sketch.
+     *
+     * @param quantile The quantile to be estimated, between <tt>0</tt>
+     * and <tt>1</tt> (e.g., <tt>0.99</tt> for the 99th percentile).
+     * @return The estimated quantile, or <tt>0</tt> if the sketch is
+     * empty.
+     */
+    public double getQuantile(double quantile) {
+        assert 0.0 <= quantile && quantile <= 1.0 : "quantile = " + quantile;
+        
+        if (num == 0) {
+            return 0.0;
+        }
+        
+        long rank = (long) (quantile * (num - 1));
+        long seen = zeroNum;
+        if (rank < seen) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (rank < seen) {
+                return bucketValue(offset + i);
+            }
+        }
+        throw new ShouldNotReachHereException();
+    }
+    
+    /**
+     * It empties the sketch.
+     */
+    public void empty() {
+        counts = new int[0];
+        offset = 0;
+        zeroNum = 0;
+        num = 0;
+    }
+    
+    /**
+     * It creates a new sketch instance with the default relative accuracy.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+    
+    /**
+     * It creates a new sketch instance.
+     *
+     * @param relativeAccuracy The relative accuracy of the estimated
+     * quantiles, between <tt>0</tt> and <tt>1</tt>.
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        assert 0.0 < relativeAccuracy && relativeAccuracy < 1.0;
+        
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1.0 + relativeAccuracy) / (1.0 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        empty();
+    }
+    
+}
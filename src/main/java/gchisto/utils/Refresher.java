@@ -40,6 +40,8 @@ public class Refresher {
     final private RefresherCallback callback;
     boolean inProgress = false;
     boolean pending = false;
+    boolean suspended = false;
+    boolean missed = false;
 
     private void addTask() {
         inProgress = true;
@@ -63,6 +65,11 @@ public class Refresher {
     }
 
     synchronized public void possiblyRefreshInternal() {
+        if (suspended) {
+            // remember that something changed; resume() will pick it up
+            missed = true;
+            return;
+        }
         if (callback.shouldRefresh()) {
             if (!inProgress) {
                 addTask();
@@ -72,6 +79,34 @@ public class Refresher {
         }
     }
 
+    /**
+     * It stops this refresher from adding refresh tasks, typically because
+     * the component it refreshes is not showing. Refresh requests made
+     * while suspended are coalesced into a single one that is issued when
+     * the refresher is resumed.
+     */
+    synchronized public void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * It resumes a suspended refresher and, if any refresh requests were
+     * made while it was suspended, it issues one refresh to catch up.
+     */
+    synchronized public void resume() {
+        if (suspended) {
+            suspended = false;
+            if (missed) {
+                missed = false;
+                possiblyRefreshInternal();
+            }
+        }
+    }
+
+    synchronized public boolean isSuspended() {
+        return suspended;
+    }
+
     public Refresher(
             WorkerThread workerThread,
             RefresherCallback callback) {
@@ -0,0 +1,123 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.regex.*;
+
+public class AppTimeGCParser extends GCParser
+{
+	public AppTimeGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		// _debug = System.err;	// XXX
+	}
+
+	public boolean parse(String filename, int line, String s)
+	{
+		Matcher m = matcher(_stopped_pattern, s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			stopped(m);
+			return true;
+		}
+
+		m = matcher(_concurrent_pattern, s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			final double conc_time = Double.parseDouble(
+				m.group(concurrent_time_grp));
+			final double timestamp_end = get_ts(m, timestamp_grp);
+			add_dp(GCMetric.app_conc_time, conc_time);
+			add_ts(GCMetric.app_conc_time,
+				Math.max(timestamp_end - conc_time, 0.0),
+				timestamp_end);
+			return true;
+		}
+
+		return false;
+	}
+
+	private void stopped(Matcher m)
+	{
+		// The line is printed when the safepoint ends, so the timestamp
+		// (if any) is the end of the stopped period.
+		final double stopped_time = Double.parseDouble(
+			m.group(stopped_time_grp));
+		final double timestamp_end = get_ts(m, timestamp_grp);
+		final double timestamp_beg =
+			Math.max(timestamp_end - stopped_time, 0.0);
+
+		add_dp(GCMetric.app_stop_time, stopped_time);
+		add_ts(GCMetric.app_stop_time, timestamp_beg, timestamp_end);
+		if (m.group(ttsp_time_grp) != null)
+		{
+			add_dp(GCMetric.app_ttsp_time, m, ttsp_time_grp);
+			// Not every stopped-time line has it, so it has
+			// timestamps of its own.
+			add_ts(GCMetric.app_ttsp_time, timestamp_beg,
+				timestamp_end);
+		}
+
+		// The stopped time includes gc pauses.  If no gc pause was
+		// recorded since the previous stopped-time line, the safepoint
+		// was for something else (biased lock revocation, deopt, ...).
+		final long gc_count = gcstats().stats(GCMetric.tgc_time).n();
+		if (gc_count == _gc_count)
+		{
+			add_dp(GCMetric.app_stop_ngc, stopped_time);
+			add_ts(GCMetric.app_stop_ngc, timestamp_beg,
+				timestamp_end);
+
+			if (!gcstats().has_generated_timestamps())
+			{
+				TimingWindowData tw = gcstats().timing_window();
+				tw.add_pause_time(timestamp_end, stopped_time);
+			}
+		}
+		_gc_count = gc_count;
+	}
+
+	// Value of the tgc_time count at the previous stopped-time line.
+	private long _gc_count;
+
+	// -XX:+PrintGCApplicationStoppedTime
+	// 
+	// Total time for which application threads were stopped: 0.0012345 seconds
+	// 
+	// or (jdk8 and later)
+	// 
+	// Total time for which application threads were stopped: 0.0012345 seconds, Stopping threads took: 0.0000789 seconds
+	private static Pattern _stopped_pattern = Pattern.compile(
+		timestamp_re +
+		"Total time for which application threads were stopped: " +
+		gc_time_re + " seconds" +
+		"(, Stopping threads took: " + gc_time_re + " seconds)?");
+
+	// -XX:+PrintGCApplicationConcurrentTime
+	// 
+	// Application time: 0.9876543 seconds
+	private static Pattern _concurrent_pattern = Pattern.compile(
+		timestamp_re + "Application time: " + gc_time_re + " seconds");
+
+	private static final int timestamp_grp = timestamp_re_time_group;
+	private static final int stopped_time_grp = timestamp_re_groups + 1;
+	private static final int ttsp_time_grp =
+		stopped_time_grp + gc_time_re_groups + 1;
+	private static final int concurrent_time_grp = timestamp_re_groups + 1;
+}
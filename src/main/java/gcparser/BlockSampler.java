@@ -0,0 +1,178 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A random sample of the blocks of a file, for estimating the contents of
+ * a log too long to read in full.  The file is split into as many equal
+ * strata as there are blocks, and one block is placed at a random offset
+ * in each, so the sample covers the whole file.  A block holds the lines
+ * that start in it:  the partial line at its start is left to the block
+ * (or the unsampled part of the file) before it, and the last line is
+ * read to its end.  If the blocks would cover the file, the whole file is
+ * read as consecutive blocks instead.
+ */
+public class BlockSampler
+{
+	public static final int default_block_size = 64 * 1024;
+
+	public BlockSampler(File file, int blocks, int block_size, Random r)
+	throws IOException
+	{
+		if (blocks <= 0 || block_size <= 0)
+		{
+			throw new IllegalArgumentException(
+				"blocks and block_size must be positive");
+		}
+		_file = file;
+		_length = file.length();
+		_block_size = block_size;
+		_population = Math.max(1,
+			(_length + block_size - 1) / block_size);
+
+		if ((long) blocks >= _population)
+		{
+			// Read it all.
+			_offsets = new long[(int) _population];
+			for (int i = 0; i < _offsets.length; ++i)
+			{
+				_offsets[i] = (long) i * block_size;
+			}
+			return;
+		}
+
+		_offsets = new long[blocks];
+		final double stratum = (double) _length / blocks;
+		for (int i = 0; i < blocks; ++i)
+		{
+			final double slack = stratum - block_size;
+			_offsets[i] = (long) (i * stratum + r.nextDouble() * slack);
+		}
+	}
+
+	public int blocks() { return _offsets.length; }
+	public int block_size() { return _block_size; }
+	public long length() { return _length; }
+	public long offset(int i) { return _offsets[i]; }
+
+	// The number of blocks of block_size in the file, i.e., the size of
+	// the population the blocks are sampled from.
+	public long population() { return _population; }
+
+	// True if the sample is the whole file.
+	public boolean is_complete()
+	{
+		return _offsets.length == _population;
+	}
+
+	/**
+	 * Returns the bytes of the lines that start in block i.
+	 */
+	public byte[] read(int i) throws IOException
+	{
+		final long beg = _offsets[i];
+		return read(beg, Math.min(beg + _block_size, _length));
+	}
+
+	/**
+	 * Returns the bytes of the lines that start in the given number of
+	 * bytes before block i, e.g., to bring a parser up to date with the
+	 * state of the log at the start of the block.
+	 */
+	public byte[] read_before(int i, int bytes) throws IOException
+	{
+		final long end = _offsets[i];
+		return read(Math.max(0, end - bytes), end);
+	}
+
+	// Returns the bytes of the lines that start between beg and end.
+	private byte[] read(long beg, long end) throws IOException
+	{
+		if (beg >= end) return new byte[0];
+		RandomAccessFile raf = new RandomAccessFile(_file, "r");
+		try
+		{
+			// Include the byte before beg, to tell whether a line
+			// starts at beg, and read past end to complete the last
+			// line.
+			final long from = Math.max(0, beg - 1);
+			byte[] buf = new byte[(int) (end - from) + 256];
+			raf.seek(from);
+			int n = fill(raf, buf, 0);
+
+			int first = 0;
+			if (beg > 0)
+			{
+				while (first < n && buf[first] != '\n') ++first;
+				++first;
+			}
+			// A line that starts at or after end belongs to the
+			// next block.
+			final int own = (int) (end - from);
+			if (first >= own) return new byte[0];
+
+			int last = own - 1;
+			while (true)
+			{
+				while (last < n && buf[last] != '\n') ++last;
+				if (last < n || n < buf.length) break;
+				buf = Arrays.copyOf(buf, buf.length * 2);
+				n = fill(raf, buf, n);
+			}
+			return Arrays.copyOfRange(buf, first, Math.min(last + 1, n));
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	public BufferedReader open(int i) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(
+			new ByteArrayInputStream(read(i))));
+	}
+
+	// Read from the file into buf starting at off, until buf is full or
+	// the file ends; return the number of bytes in buf.
+	private static int fill(RandomAccessFile raf, byte[] buf, int off)
+	throws IOException
+	{
+		while (off < buf.length)
+		{
+			int r = raf.read(buf, off, buf.length - off);
+			if (r < 0) break;
+			off += r;
+		}
+		return off;
+	}
+
+	private final File _file;
+	private final long _length;
+	private final int _block_size;
+	private final long _population;
+	private final long[] _offsets;
+}
@@ -0,0 +1,101 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+/**
+ * The text of the line being parsed, as given to the regex matchers.  It
+ * counts the characters the matchers examine and throws
+ * BudgetExceededException once a line has taken more than its budget, so
+ * a pattern that backtracks badly on a malformed line gives up on that
+ * line instead of stalling the whole parse.  The budget is proportional to
+ * the length of the line (with a minimum for short lines); well-formed
+ * lines take a small fraction of it.
+ */
+public class BoundedCharSequence implements CharSequence
+{
+	// Steps allowed per character of the line, unless another value is
+	// given to the constructor; 0 turns the budget off.
+	public static final int default_steps_per_char =
+		Integer.getInteger("gcparser.line.budget", 1000);
+
+	// The budget of lines shorter than this is that of a line this long.
+	public static final int min_chars = 256;
+
+	public static class BudgetExceededException extends RuntimeException
+	{
+		public BudgetExceededException(long steps, int length)
+		{
+			super("exceeded " + steps + " steps on a line of " +
+				length + " characters");
+		}
+	}
+
+	public BoundedCharSequence(int steps_per_char)
+	{
+		if (steps_per_char <= 0)
+		{
+			throw new IllegalArgumentException(
+				"steps_per_char must be positive");
+		}
+		_steps_per_char = steps_per_char;
+		reset("");
+	}
+
+	public BoundedCharSequence()
+	{
+		this(default_steps_per_char);
+	}
+
+	// Start a new line, with a new budget.
+	public void reset(String s)
+	{
+		_s = s;
+		_budget = (long) _steps_per_char * Math.max(s.length(), min_chars);
+		_left = _budget;
+	}
+
+	// True if s is the line this sequence currently holds.
+	public boolean holds(String s) { return s == _s; }
+
+	public int steps_per_char() { return _steps_per_char; }
+
+	// Steps taken on the current line so far.
+	public long steps() { return _budget - _left; }
+
+	public char charAt(int index)
+	{
+		if (--_left < 0)
+		{
+			throw new BudgetExceededException(_budget, _s.length());
+		}
+		return _s.charAt(index);
+	}
+
+	public int length() { return _s.length(); }
+
+	public CharSequence subSequence(int beg, int end)
+	{
+		return _s.subSequence(beg, end);
+	}
+
+	public String toString() { return _s; }
+
+	private final int _steps_per_char;
+	private String _s;
+	private long _budget;
+	private long _left;
+}
@@ -46,7 +46,7 @@ public class CMSGCParser extends GCParser
 	{
 		Matcher m;
 
-		m = _cms_phase_beg_pattern.matcher(s);
+		m = matcher(_cms_phase_beg_pattern, s);
 		if (m.find())
 		{
 			_cms_phase_beg_matcher = m;
@@ -55,7 +55,7 @@ public class CMSGCParser extends GCParser
 			return true;
 		}
 
-		m = _cms_concurrent_phase_pattern.matcher(s);
+		m = matcher(_cms_concurrent_phase_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -64,7 +64,7 @@ public class CMSGCParser extends GCParser
 			return true;
 		}
 
-		m = _cms_imark_pattern.matcher(s);
+		m = matcher(_cms_imark_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -89,12 +89,14 @@ public class CMSGCParser extends GCParser
 			{
 				TimingWindowData tw = gcstats().timing_window();
 				tw.add_pause_time(timestamp, pause_time);
+				gcstats().old_gen_forecast().cms_initial_mark(
+					gcstats().timestamp_offset() + timestamp);
 			}
 
 			return true;
 		}
 
-		m = _cms_rmark_pattern.matcher(s);
+		m = matcher(_cms_rmark_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -173,11 +175,30 @@ public class CMSGCParser extends GCParser
 			_cms_concurrent_phase_timestamp_grp);
 		add_ts(active_metric, _cms_phase_beg_timestamp,
 			timestamp_end);
+		gcstats().save_gc_event(false, active_time,
+			_cms_phase_beg_timestamp, timestamp_end);
 
 		if (gcstats().has_generated_timestamps()) return;
 
+		if (active_metric == GCMetric.cms_cs_a_time)
+		{
+			gcstats().old_gen_forecast().cms_sweep_end(
+				gcstats().timestamp_offset() + timestamp_end);
+		}
+
+		// The [Times: ...] output (if any) follows the phase on the
+		// same line; prefer it to assuming a single thread.
 		TimingWindowData tw = gcstats().timing_window();
-		tw.add_concurrent_time(timestamp_end, active_time, 1);
+		final double cpu_time = TimesGCParser.cpu_time(_text);
+		if (cpu_time >= 0.0)
+		{
+			tw.add_concurrent_cpu_time(timestamp_end, active_time,
+				cpu_time);
+		}
+		else
+		{
+			tw.add_concurrent_time(timestamp_end, active_time, 1);
+		}
 		if (is_reset)
 		{
 			final double th_alloc_sum =
@@ -234,8 +255,15 @@ public class CMSGCParser extends GCParser
 		timestamp_re_groups + 1 + cms_heap_size_re_groups +
 		cms_heap_report_re_groups - 1;
 
+	// The phases printed between the [GC and the CMS-remark are skipped
+	// up to the first remark, without going past another [GC:  a greedy
+	// .* there ran to the end of the line and back from each [GC.
+	private static final String _cms_rmark_skip_re =
+		"(?:[^\\[]++|\\[(?!GC|1 (?:AS)?CMS-remark: ))*+";
+
 	private static Pattern _cms_rmark_pattern = Pattern.compile(
-		timestamp_re + "\\[GC.*\\[1 (AS)?CMS-remark: " +
+		timestamp_re + "\\[GC" + _cms_rmark_skip_re +
+		"\\[1 (AS)?CMS-remark: " +
 		cms_heap_size_re + "\\] " +
 		cms_heap_report_re + "\\]");
 	private static final int _cms_rmark_timestamp_grp =
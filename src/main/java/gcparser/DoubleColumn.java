@@ -0,0 +1,513 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An append-only column of doubles.  Up to a threshold the values are kept
+ * in a plain array; beyond it they are compressed in blocks of block_size
+ * values, each of which can be decoded on its own:
+ *
+ * - values that are exact multiples of a power of ten (timestamps and
+ *   sizes as printed in the logs) are scaled to longs and stored as
+ *   deltas of deltas, which take a bit or two each when the values are
+ *   evenly spaced;
+ *
+ * - other values (durations) are stored as the xor of their bits with
+ *   those of the previous value, with only the meaningful bits written
+ *   (Gorilla encoding), which takes a bit for a repeated value.
+ *
+ * Each block uses whichever of the two is smaller.  Reads decode a whole
+ * block and keep it, so sequential scans decode each block once.  The
+ * column is safe for one appending thread and any number of reading
+ * threads, without any locking.
+ */
+public class DoubleColumn extends AbstractList<Double> implements RandomAccess
+{
+	public static final int block_shift = 8;
+	public static final int block_size = 1 << block_shift;
+	private static final int block_mask = block_size - 1;
+
+	// Columns longer than this are compressed, unless another threshold
+	// is given to the constructor.
+	public static final int default_threshold =
+		Integer.getInteger("gcparser.column.threshold", 65536);
+
+	// The scales tried for the delta-of-delta encoding; the index of the
+	// one used is stored in the block header.
+	private static final double[] scales = { 1.0, 1.0e3, 1.0e6, 1.0e9 };
+	private static final double max_scaled = (double) (1L << 52);
+
+	public DoubleColumn()
+	{
+		this(default_threshold);
+	}
+
+	public DoubleColumn(int threshold)
+	{
+		_threshold = threshold;
+		_state = new State(new double[16], null);
+	}
+
+	public int size() { return _size; }
+
+	public Double get(int i) { return get_double(i); }
+
+	public double get_double(int i)
+	{
+		// Read the size before the state, so that the state has the value.
+		final int size = _size;
+		if (i < 0 || i >= size)
+		{
+			throw new IndexOutOfBoundsException(i + " >= " + size);
+		}
+		final State state = _state;
+		if (state.blocks == null) return state.raw[i];
+
+		final int block = i >>> block_shift;
+		if (block == state.blocks.length) return state.raw[i & block_mask];
+		Decoded decoded = _decoded;
+		if (decoded == null || decoded.block != block)
+		{
+			double[] vals = new double[block_size];
+			decode(state.blocks[block], vals);
+			decoded = new Decoded(block, vals);
+			_decoded = decoded;
+		}
+		return decoded.vals[i & block_mask];
+	}
+
+	// The index of the first value that is not less than val, or the size
+	// of the column if there is none; the values must be in ascending
+	// order.  Only the first value of each block is decoded while looking
+	// for the block, so that a search decodes a single block.
+	public int first_at_or_after(double val)
+	{
+		final int size = _size;
+		final State state = _state;
+		int low = 0;
+		int high = size;
+		if (state.blocks != null)
+		{
+			int lo_block = 0;
+			int hi_block = state.blocks.length;
+			while (lo_block < hi_block)
+			{
+				int mid = (lo_block + hi_block) >>> 1;
+				if (first(state.blocks[mid]) < val) lo_block = mid + 1;
+				else hi_block = mid;
+			}
+			// The value is in the block before the first one that starts
+			// at or after it, unless that is the first block.
+			if (lo_block > 0) low = (lo_block - 1) << block_shift;
+			if (lo_block < state.blocks.length) high = lo_block << block_shift;
+		}
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (get_double(mid) < val) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	public boolean add(Double val)
+	{
+		add(val.doubleValue());
+		return true;
+	}
+
+	// Only one thread may append values.
+	public void add(double val)
+	{
+		final State state = _state;
+		final int size = _size;
+		if (state.blocks == null)
+		{
+			double[] raw = state.raw;
+			if (size == raw.length)
+			{
+				raw = new double[2 * size];
+				System.arraycopy(state.raw, 0, raw, 0, size);
+				_state = new State(raw, null);
+			}
+			raw[size] = val;
+			if (size + 1 > _threshold)
+			{
+				_state = compress(raw, size + 1);
+			}
+			_size = size + 1;
+			return;
+		}
+
+		state.raw[size & block_mask] = val;
+		if (((size + 1) & block_mask) == 0)
+		{
+			long[][] blocks = new long[state.blocks.length + 1][];
+			System.arraycopy(state.blocks, 0, blocks, 0, state.blocks.length);
+			blocks[state.blocks.length] = encode(state.raw);
+			_state = new State(new double[block_size], blocks);
+		}
+		_size = size + 1;
+	}
+
+	// The number of bytes taken up by the values (not counting the object
+	// headers of the blocks).
+	public long footprint()
+	{
+		final State state = _state;
+		long bytes = 8L * state.raw.length;
+		if (state.blocks != null)
+		{
+			bytes += 8L * state.blocks.length;
+			for (long[] block:  state.blocks) bytes += 8L * block.length;
+		}
+		return bytes;
+	}
+
+	public boolean compressed() { return _state.blocks != null; }
+
+	// Encode all the full blocks of the given values and keep the rest in
+	// a block-sized array.
+	private static State compress(double[] raw, int size)
+	{
+		final int full = size >>> block_shift;
+		long[][] blocks = new long[full][];
+		double[] block = new double[block_size];
+		for (int b = 0; b < full; ++b)
+		{
+			System.arraycopy(raw, b << block_shift, block, 0, block_size);
+			blocks[b] = encode(block);
+		}
+		double[] tail = new double[block_size];
+		System.arraycopy(raw, full << block_shift, tail, 0, size & block_mask);
+		return new State(tail, blocks);
+	}
+
+	static long[] encode(double[] vals)
+	{
+		long[] xor = encode_xor(vals);
+		int scale = scale_index(vals);
+		if (scale < 0) return xor;
+		long[] dod = encode_dod(vals, scale);
+		return dod.length < xor.length ? dod : xor;
+	}
+
+	static void decode(long[] block, double[] vals)
+	{
+		BitReader r = new BitReader(block);
+		if (r.read(1) == 0)
+		{
+			decode_xor(r, vals);
+		}
+		else
+		{
+			decode_dod(r, vals);
+		}
+	}
+
+	// The first value of the given block.
+	private static double first(long[] block)
+	{
+		BitReader r = new BitReader(block);
+		if (r.read(1) == 0) return Double.longBitsToDouble(r.read(64));
+		double scale = scales[(int) r.read(2)];
+		return r.read(64) / scale;
+	}
+
+	// The index of the smallest scale that turns all the values into longs
+	// without losing anything, or -1 if there is none.
+	private static int scale_index(double[] vals)
+	{
+		for (int s = 0; s < scales.length; ++s)
+		{
+			boolean exact = true;
+			for (int i = 0; exact && i < vals.length; ++i)
+			{
+				// Compare the bits, since -0.0 == 0.0 but is not
+				// decoded as such.
+				double scaled = vals[i] * scales[s];
+				exact = Math.abs(scaled) < max_scaled &&
+					Double.doubleToRawLongBits(
+					Math.round(scaled) / scales[s]) ==
+					Double.doubleToRawLongBits(vals[i]);
+			}
+			if (exact) return s;
+		}
+		return -1;
+	}
+
+	private static long[] encode_xor(double[] vals)
+	{
+		BitWriter w = new BitWriter();
+		w.write(0, 1);
+		long prev = Double.doubleToRawLongBits(vals[0]);
+		w.write(prev, 64);
+		int prev_lead = -1;
+		int prev_trail = 0;
+		for (int i = 1; i < vals.length; ++i)
+		{
+			long bits = Double.doubleToRawLongBits(vals[i]);
+			long xor = bits ^ prev;
+			prev = bits;
+			if (xor == 0)
+			{
+				w.write(0, 1);
+				continue;
+			}
+			int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trail = Long.numberOfTrailingZeros(xor);
+			if (prev_lead >= 0 && lead >= prev_lead && trail >= prev_trail)
+			{
+				// The meaningful bits fit in the previous window.
+				w.write(2, 2);
+				w.write(xor >>> prev_trail, 64 - prev_lead - prev_trail);
+			}
+			else
+			{
+				int len = 64 - lead - trail;
+				w.write(3, 2);
+				w.write(lead, 5);
+				w.write(len & 63, 6);
+				w.write(xor >>> trail, len);
+				prev_lead = lead;
+				prev_trail = trail;
+			}
+		}
+		return w.bits();
+	}
+
+	private static void decode_xor(BitReader r, double[] vals)
+	{
+		long prev = r.read(64);
+		vals[0] = Double.longBitsToDouble(prev);
+		int lead = 0;
+		int trail = 0;
+		for (int i = 1; i < vals.length; ++i)
+		{
+			if (r.read(1) != 0)
+			{
+				if (r.read(1) != 0)
+				{
+					lead = (int) r.read(5);
+					int len = (int) r.read(6);
+					if (len == 0) len = 64;
+					trail = 64 - lead - len;
+				}
+				prev ^= r.read(64 - lead - trail) << trail;
+			}
+			vals[i] = Double.longBitsToDouble(prev);
+		}
+	}
+
+	private static long[] encode_dod(double[] vals, int scale)
+	{
+		BitWriter w = new BitWriter();
+		w.write(1, 1);
+		w.write(scale, 2);
+		long prev = Math.round(vals[0] * scales[scale]);
+		w.write(prev, 64);
+		long prev_delta = 0;
+		for (int i = 1; i < vals.length; ++i)
+		{
+			long cur = Math.round(vals[i] * scales[scale]);
+			long delta = cur - prev;
+			long dod = delta - prev_delta;
+			prev = cur;
+			prev_delta = delta;
+			if (dod == 0)
+			{
+				w.write(0, 1);
+			}
+			else if (fits(dod, 7))
+			{
+				w.write(2, 2);
+				w.write(dod, 7);
+			}
+			else if (fits(dod, 12))
+			{
+				w.write(6, 3);
+				w.write(dod, 12);
+			}
+			else if (fits(dod, 20))
+			{
+				w.write(14, 4);
+				w.write(dod, 20);
+			}
+			else
+			{
+				w.write(15, 4);
+				w.write(dod, 64);
+			}
+		}
+		return w.bits();
+	}
+
+	private static void decode_dod(BitReader r, double[] vals)
+	{
+		double scale = scales[(int) r.read(2)];
+		long prev = r.read(64);
+		vals[0] = prev / scale;
+		long delta = 0;
+		for (int i = 1; i < vals.length; ++i)
+		{
+			if (r.read(1) != 0)
+			{
+				if (r.read(1) == 0)
+				{
+					delta += r.read_signed(7);
+				}
+				else if (r.read(1) == 0)
+				{
+					delta += r.read_signed(12);
+				}
+				else if (r.read(1) == 0)
+				{
+					delta += r.read_signed(20);
+				}
+				else
+				{
+					delta += r.read(64);
+				}
+			}
+			prev += delta;
+			vals[i] = prev / scale;
+		}
+	}
+
+	// Whether val fits in a two's complement field of the given width.
+	private static boolean fits(long val, int bits)
+	{
+		long half = 1L << (bits - 1);
+		return -half <= val && val < half;
+	}
+
+	private static class BitWriter
+	{
+		// Write the low count bits of val, most significant first.
+		void write(long val, int count)
+		{
+			if (count == 0) return;
+			if (count < 64) val &= (1L << count) - 1;
+			int free = 64 - _used;
+			if (count <= free)
+			{
+				_cur |= val << (free - count);
+				_used += count;
+			}
+			else
+			{
+				_cur |= val >>> (count - free);
+				flush();
+				_cur = val << (64 - (count - free));
+				_used = count - free;
+			}
+			if (_used == 64) flush();
+		}
+
+		long[] bits()
+		{
+			long[] ret = new long[_len + (_used > 0 ? 1 : 0)];
+			System.arraycopy(_words, 0, ret, 0, _len);
+			if (_used > 0) ret[_len] = _cur;
+			return ret;
+		}
+
+		private void flush()
+		{
+			if (_len == _words.length)
+			{
+				long[] words = new long[2 * _len];
+				System.arraycopy(_words, 0, words, 0, _len);
+				_words = words;
+			}
+			_words[_len++] = _cur;
+			_cur = 0;
+			_used = 0;
+		}
+
+		private long[] _words = new long[64];
+		private int _len;
+		private long _cur;
+		private int _used;
+	}
+
+	private static class BitReader
+	{
+		BitReader(long[] words) { _words = words; }
+
+		// Read count bits, most significant first.
+		long read(int count)
+		{
+			if (count == 0) return 0;
+			int word = _pos >>> 6;
+			int bit = _pos & 63;
+			_pos += count;
+			long hi = _words[word] << bit;
+			if (bit + count > 64)
+			{
+				hi |= _words[word + 1] >>> (64 - bit);
+			}
+			return count == 64 ? hi : hi >>> (64 - count);
+		}
+
+		long read_signed(int count)
+		{
+			return read(count) << (64 - count) >> (64 - count);
+		}
+
+		private final long[] _words;
+		private int _pos;
+	}
+
+	// The values, published as a whole whenever an array is replaced, so
+	// that reads need no locking.
+	private static class State
+	{
+		State(double[] raw, long[][] blocks)
+		{
+			this.raw = raw;
+			this.blocks = blocks;
+		}
+
+		// The values, until the column is compressed; then the values of
+		// the last block, which is not full.
+		final double[] raw;
+		// The full blocks, once the column is compressed.
+		final long[][] blocks;
+	}
+
+	// The most recently decoded block.
+	private static class Decoded
+	{
+		Decoded(int block, double[] vals)
+		{
+			this.block = block;
+			this.vals = vals;
+		}
+
+		final int block;
+		final double[] vals;
+	}
+
+	private final int _threshold;
+	private volatile State _state;
+	private volatile int _size;
+	private Decoded _decoded;
+}
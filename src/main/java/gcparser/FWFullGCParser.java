@@ -35,7 +35,7 @@ public class FWFullGCParser extends GCParser
 
 	public boolean parse(String filename, int line, String s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = matcher(_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -46,6 +46,7 @@ public class FWFullGCParser extends GCParser
 				th_used_end_grp, th_commit_end_grp,
 				pg_used_beg_grp, pg_used_end_grp,
 				pg_commit_end_grp, gc_time_grp);
+			add_gc_cause(gc_cause(m, system_grp, 0, cmf_grp), true);
 			return true;
 		}
 
@@ -91,6 +92,10 @@ public class FWFullGCParser extends GCParser
 		heap_size_status_re + "\\], " + gc_time_secs_re + "\\]");
 
 	private static final int timestamp_grp = timestamp_re_time_group;
+	private static final int system_grp = timestamp_re_groups + 1;
+	private static final int cmf_grp =
+		timestamp_re_groups + full_gc_re_groups + timestamp_re_groups +
+		1 + cms_gen_re_groups;
 
 	private static final int og_heap_report_grp =
 		timestamp_re_groups + full_gc_re_groups + timestamp_re_groups +
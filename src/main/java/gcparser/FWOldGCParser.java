@@ -35,7 +35,7 @@ public class FWOldGCParser extends GCParser
 
 	public boolean parse(String filename, int line, String s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = matcher(_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -45,6 +45,8 @@ public class FWOldGCParser extends GCParser
 				og_commit_end_grp, th_used_beg_grp,
 				th_used_end_grp, th_commit_end_grp,
 				gc_time_grp);
+			add_gc_cause(gc_cause(m, 0, promo_failed_grp, cmf_grp),
+				true);
 			return true;
 		}
 
@@ -89,6 +91,8 @@ public class FWOldGCParser extends GCParser
 		heap_report_re + "\\] " + heap_report_re + "\\]");
 
 	private static final int timestamp_grp = timestamp_re_time_group;
+	private static final int promo_failed_grp =
+		timestamp_re_groups * 2 + fw_young_gen_re_groups;
 
 	private static final int yg_heap_report_grp =
 		timestamp_re_groups * 2 + fw_young_gen_re_groups;
@@ -99,6 +103,10 @@ public class FWOldGCParser extends GCParser
 	private static final int yg_commit_end_grp =
 		yg_heap_report_grp + heap_report_re_commit_size_group;
 
+	private static final int cmf_grp =
+		yg_heap_report_grp + heap_report_re_groups +
+		timestamp_re_groups + 1 + cms_gen_re_groups;
+
 	private static final int og_heap_report_grp =
 		yg_heap_report_grp + heap_report_re_groups +
 		timestamp_re_groups + fw_old_gen_re_groups;
@@ -35,7 +35,7 @@ public class FWYoungGCParser extends GCParser
 
 	public boolean parse(String filename, int line, String s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = matcher(_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -45,6 +45,7 @@ public class FWYoungGCParser extends GCParser
 				yg_commit_end_grp, th_used_beg_grp,
 				th_used_end_grp, th_commit_end_grp,
 				gc_time_grp);
+			add_gc_cause(gc_cause(m, 0, promo_failed_grp, 0), false);
 			return true;
 		}
 
@@ -73,6 +74,8 @@ public class FWYoungGCParser extends GCParser
 		heap_report_re + "\\]");
 
 	private static final int timestamp_grp = timestamp_re_time_group;
+	private static final int promo_failed_grp =
+		timestamp_re_groups * 2 + fw_young_gen_re_groups;
 
 	private static final int yg_used_beg_grp =
 		timestamp_re_groups * 2 + fw_young_gen_re_groups + 1;
@@ -0,0 +1,42 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+/**
+ * The cause of a collection, when the log says what it is.  Each cause maps
+ * to the metrics that break down the young and full gc pause times by cause
+ * (null if the cause does not apply to that kind of collection).
+ */
+public enum GCCause
+{
+	unknown			(null, null),
+	system_gc		(null, GCMetric.fgc_sys_time),
+	promotion_failed	(GCMetric.ygc_pf_time, GCMetric.fgc_pf_time),
+	concurrent_mode_failure	(null, GCMetric.fgc_cmf_time);
+
+	GCCause(GCMetric young_metric, GCMetric full_metric)
+	{
+		_young_metric = young_metric;
+		_full_metric = full_metric;
+	}
+
+	public GCMetric young_metric() { return _young_metric; }
+	public GCMetric full_metric() { return _full_metric; }
+
+	private final GCMetric _young_metric;
+	private final GCMetric _full_metric;
+};
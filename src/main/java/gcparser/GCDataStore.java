@@ -27,7 +27,6 @@ import java.io.File;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.Iterator;
 
@@ -37,19 +36,34 @@ public class GCDataStore extends GCStats
 		boolean has_time_zero)
 	{
 		super(enabled_map, cpu_count, has_time_zero);
+		old_gen_forecast().set_keep_series(true);
+		create_columns();
+	}
 
+	/**
+	 * Discard the data collected so far, e.g., after parsing the lines
+	 * before a sampled block of a log (see GCParserDriver.parse_sampled()).
+	 * The statistics and the state of the parsers are kept.
+	 */
+	public void discard_data()
+	{
+		create_columns();
+	}
+
+	private void create_columns()
+	{
 		Class<GCMetric> c = GCMetric.class;
-		_data_map = new EnumMap<GCMetric, ArrayList<Double>>(c);
-		_time_map = new EnumMap<GCMetric, ArrayList<Double>>(c);
+		_data_map = new EnumMap<GCMetric, DoubleColumn>(c);
+		_time_map = new EnumMap<GCMetric, DoubleColumn>(c);
 
-		ArrayList<Double> tlist = null;
+		DoubleColumn tlist = null;
 		for (GCMetric metric:  GCMetric.values())
 		{
-			_data_map.put(metric, new ArrayList<Double>());
+			_data_map.put(metric, new DoubleColumn());
 			switch (metric.timestamp_type())
 			{
 			case 0:	 tlist = null; break;
-			case 1:  tlist = new ArrayList<Double>(); break;
+			case 1:  tlist = new DoubleColumn(); break;
 			}
 			_time_map.put(metric, tlist);
 		}
@@ -58,7 +72,7 @@ public class GCDataStore extends GCStats
 	public void add(GCMetric metric, double val)
 	{
 		super.add(metric, val);
-		_data_map.get(metric).add(new Double(val));
+		_data_map.get(metric).add(val);
 	}
 
 	public void add(GCMetric metric, String s)
@@ -70,19 +84,19 @@ public class GCDataStore extends GCStats
 	public void add_timestamp(GCMetric metric, double beg, double end)
 	{
 		super.add_timestamp(metric, beg, end);
-		ArrayList<Double> tlist = _time_map.get(metric);
+		DoubleColumn tlist = _time_map.get(metric);
 		if (tlist != null)
 		{
 			tlist.add(timestamp_offset() + beg);
 		}
 	}
 
-	public ArrayList<Double> data(GCMetric metric)
+	public DoubleColumn data(GCMetric metric)
 	{
 		return _data_map.get(metric);
 	}
 
-	public ArrayList<Double> time(GCMetric metric)
+	public DoubleColumn time(GCMetric metric)
 	{
 		return _time_map.get(metric);
 	}
@@ -100,11 +114,11 @@ public class GCDataStore extends GCStats
 	{
 		if (disabled(metric)) return;
 
-		ArrayList<Double> d = data(metric);
+		DoubleColumn d = data(metric);
 		if (d.size() == 0) return;
 		Iterator<Double> diter = d.iterator();
 
-		ArrayList<Double> t = time(metric);
+		DoubleColumn t = time(metric);
 		Iterator<Double> titer = t.iterator();
 		// t != null ? t.iterator() : new NumberIterator(0.0, 1.0);
 
@@ -131,6 +145,6 @@ public class GCDataStore extends GCStats
 		return filename.toString();
 	}
 
-	private EnumMap<GCMetric, ArrayList<Double>> _data_map;
-	private EnumMap<GCMetric, ArrayList<Double>> _time_map;
+	private EnumMap<GCMetric, DoubleColumn> _data_map;
+	private EnumMap<GCMetric, DoubleColumn> _time_map;
 }
@@ -0,0 +1,186 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The files of a rotated gc log set, i.e., the files written by a single
+ * run of a JVM with -Xloggc:gc.log -XX:+UseGCLogFileRotation:
+ *
+ * <pre>
+ * 	gc.log.0 gc.log.1 ... gc.log.N.current
+ * </pre>
+ *
+ * <p>
+ * The files are one continuous log, but once the JVM has wrapped around
+ * the file numbers do not give the order of the files, so they are
+ * ordered by the first timestamp in each file.  Compressed (.gz) members
+ * are accepted too.
+ * </p>
+ */
+public class GCLogFileSet
+{
+	// The number of lines searched for the first timestamp of a file
+	// (past the header that the JVM writes at the start of each file).
+	public static final int first_timestamp_lines = 1000;
+
+	// A member of a set:  base.N, base.N.current, with an optional .gz.
+	private static final Pattern member_pattern =
+		Pattern.compile("(.*)\\.(\\d+)(\\.current)?(\\.gz)?");
+
+	// A timestamp at the start of a line, possibly after a datestamp.
+	private static final Pattern timestamp_pattern =
+		Pattern.compile("^(?:\\S+: *)?" + GCParser.gc_time_re + ": ");
+
+	/**
+	 * Returns the name of the set the file is a member of (e.g., gc.log
+	 * for gc.log.3.current), or null if the file is not a member of a
+	 * rotated set.
+	 */
+	public static String base_name(String name)
+	{
+		Matcher m = member_pattern.matcher(name);
+		return m.matches() ? m.group(1) : null;
+	}
+
+	private static int rotation_index(String name)
+	{
+		Matcher m = member_pattern.matcher(name);
+		return m.matches() ? Integer.parseInt(m.group(2)) : -1;
+	}
+
+	/**
+	 * Returns the files of the rotated set that the given file is a
+	 * member of, in the order they were written.  The file may also name
+	 * the set itself (e.g., gc.log); if there is no such set, the list
+	 * contains just the file.
+	 */
+	public static List<File> rotated_set(File file) throws IOException
+	{
+		File dir = file.getAbsoluteFile().getParentFile();
+		String base = base_name(file.getName());
+		if (base == null) base = file.getName();
+
+		ArrayList<File> files = new ArrayList<File>();
+		String[] names = dir.list();
+		if (names != null)
+		{
+			for (String name:  names)
+			{
+				if (base.equals(base_name(name)))
+				{
+					files.add(new File(dir, name));
+				}
+			}
+		}
+		if (files.isEmpty())
+		{
+			files.add(file);
+			return files;
+		}
+		// An unrotated log of the same name, if any, comes first.
+		File base_file = new File(dir, base);
+		if (base_file.isFile()) files.add(base_file);
+		return order(files);
+	}
+
+	/**
+	 * Returns the files ordered by their first timestamp.  Files without
+	 * a timestamp are ordered by their rotation index, after the others.
+	 */
+	public static List<File> order(List<File> files) throws IOException
+	{
+		final double[] first_ts = new double[files.size()];
+		Integer[] order = new Integer[files.size()];
+		for (int i = 0; i < first_ts.length; ++i)
+		{
+			first_ts[i] = first_timestamp(files.get(i));
+			order[i] = i;
+		}
+
+		final List<File> f = files;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				final boolean ha = first_ts[a] >= 0.0;
+				final boolean hb = first_ts[b] >= 0.0;
+				if (ha && hb && first_ts[a] != first_ts[b])
+				{
+					return first_ts[a] < first_ts[b] ? -1 : 1;
+				}
+				if (ha != hb) return ha ? -1 : 1;
+				return rotation_index(f.get(a).getName()) -
+					rotation_index(f.get(b).getName());
+			}
+		});
+
+		ArrayList<File> ordered = new ArrayList<File>(files.size());
+		for (Integer i:  order) ordered.add(files.get(i));
+		return ordered;
+	}
+
+	public static InputStream open(File file) throws IOException
+	{
+		InputStream is = new FileInputStream(file);
+		if (file.getName().endsWith(".gz"))
+		{
+			return new GZIPInputStream(is);
+		}
+		return is;
+	}
+
+	/**
+	 * Returns the first timestamp in the file, or -1.0 if there is none
+	 * in the first first_timestamp_lines lines.
+	 */
+	public static double first_timestamp(File file) throws IOException
+	{
+		BufferedReader r =
+			new BufferedReader(new InputStreamReader(open(file)));
+		try
+		{
+			String s = r.readLine();
+			for (int n = 0; s != null && n < first_timestamp_lines; ++n)
+			{
+				Matcher m = timestamp_pattern.matcher(s);
+				if (m.find()) return Double.parseDouble(m.group(1));
+				s = r.readLine();
+			}
+		}
+		finally
+		{
+			r.close();
+		}
+		return -1.0;
+	}
+
+	private GCLogFileSet() { }
+}
@@ -0,0 +1,623 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates synthetic gc logs in the formats understood by the parsers in
+ * this package (and by the simple format reader of the GUI), for parser
+ * and GUI throughput benchmarks.  The output is produced by a small heap
+ * model:  each young gc promotes a (randomly varying) amount to the old
+ * gen, and an old gen collection (a full gc or, for cms, a concurrent
+ * cycle) is started when the old gen fills, leaving the live set.  The
+ * pause times are drawn from log-normal distributions.
+ *
+ * <p>
+ * Lines are formatted into a byte buffer without creating intermediate
+ * strings so the output can be written at (close to) disk speed.
+ * </p>
+ */
+public class GCLogGenerator
+{
+	public enum Format
+	{
+		defnew, parnew, cms, parallel, parallelold, simple
+	}
+
+	// Old gen occupancy (fraction of capacity) that starts a cms cycle.
+	public static final double cms_initiating_occupancy = 0.75;
+
+	public GCLogGenerator() { }
+
+	public void set_format(Format format) { _format = format; }
+	public void set_seed(long seed)       { _random.setSeed(seed); }
+
+	// Heap sizes, in MB.
+	public void set_young_size(double mb)  { _young_size = mb * 1024.0; }
+	public void set_old_size(double mb)    { _old_size = mb * 1024.0; }
+	public void set_live_size(double mb)   { _live = mb * 1024.0; }
+	public void set_survivor_ratio(int sr) { _survivor_ratio = sr; }
+
+	// Live set growth, in KB per second.
+	public void set_leak_rate(double kb)   { _leak_rate = kb; }
+
+	// Mean time between young gcs, in seconds.
+	public void set_interval(double secs)  { _interval = secs; }
+
+	// Number of young gcs per old gen collection (on average).
+	public void set_full_every(int n)      { _full_every = Math.max(n, 1); }
+
+	// Mean pause times (ms) and the sigma of the underlying normal
+	// distribution.
+	public void set_young_pause(double ms, double sigma)
+	{
+		_young_pause = ms / 1000.0;
+		_young_sigma = sigma;
+	}
+
+	public void set_full_pause(double ms, double sigma)
+	{
+		_full_pause = ms / 1000.0;
+		_full_sigma = sigma;
+	}
+
+	// Probability that a cms cycle ends in a concurrent mode failure.
+	public void set_failure_rate(double p) { _failure_rate = p; }
+
+	// Whether [Times: ...] is appended to stop-the-world events.
+	public void set_times(boolean times)   { _times = times; }
+
+	public long events_written() { return _events; }
+	public long bytes_written()  { return _bytes; }
+
+	/**
+	 * Write events until at least max_bytes bytes or max_events events
+	 * have been written (a value <= 0 means no limit).
+	 */
+	public void generate(OutputStream os, long max_bytes, long max_events)
+	throws IOException
+	{
+		_os = os;
+		final double young_commit = _young_size *
+			(_survivor_ratio + 1.0) / (_survivor_ratio + 2.0);
+		final double survivor = _young_size / (_survivor_ratio + 2.0);
+		final double promo_mean = Math.max(_old_size *
+			(_format == Format.cms ? cms_initiating_occupancy : 1.0) -
+			_live, 0.0) / _full_every;
+		final double live_beg = _live;
+		_old = _live;
+
+		while ((max_bytes <= 0 || _bytes + _len < max_bytes) &&
+			(max_events <= 0 || _events < max_events))
+		{
+			_timestamp += -Math.log(1.0 - _random.nextDouble()) *
+				_interval;
+			_live = Math.min(live_beg + _leak_rate * _timestamp,
+				_old_size);
+
+			final double yg_beg = young_commit - survivor +
+				_yg_used;
+			final double yg_end = Math.min(survivor,
+				survivor * (0.2 + 0.6 * _random.nextDouble()));
+			final double promo = Math.min(_old_size - _old,
+				promo_mean * 2.0 * _random.nextDouble());
+			final double old_beg = _old;
+			_old += promo;
+			_yg_used = yg_end;
+
+			if (_old >= _old_size && _format != Format.cms)
+			{
+				full_gc(yg_beg, young_commit, old_beg);
+			}
+			else
+			{
+				young_gc(yg_beg, yg_end, young_commit, old_beg);
+				if (_format == Format.cms &&
+					_old >= _old_size * cms_initiating_occupancy)
+				{
+					cms_cycle(young_commit);
+				}
+			}
+			if (_len >= flush_len) flush();
+		}
+		flush();
+		_os.flush();
+	}
+
+	private double pause(double mean, double sigma)
+	{
+		final double mu = Math.log(mean) - sigma * sigma / 2.0;
+		return Math.exp(mu + sigma * _random.nextGaussian());
+	}
+
+	private void young_gc(double yg_beg, double yg_end, double yg_commit,
+		double old_beg)
+	{
+		final double t = pause(_young_pause, _young_sigma);
+		final double th_commit = yg_commit + _old_size;
+		switch (_format)
+		{
+		case simple:
+			simple("YoungGC", _timestamp, t);
+			break;
+		case parallel:
+		case parallelold:
+			ts(_timestamp); put("[GC [PSYoungGen: ");
+			size_status(yg_beg, yg_end, yg_commit); put("] ");
+			size_status(yg_beg + old_beg, yg_end + _old, th_commit);
+			put(", "); secs(t); put("]");
+			times(t); eol();
+			break;
+		default:
+			ts(_timestamp); put("[GC "); ts(_timestamp);
+			put(_format == Format.defnew ? "[DefNew: " : "[ParNew: ");
+			size_status(yg_beg, yg_end, yg_commit); put(", ");
+			secs(t * 0.98); put("] ");
+			size_status(yg_beg + old_beg, yg_end + _old, th_commit);
+			put(", "); secs(t); put("]");
+			times(t); eol();
+			break;
+		}
+		_timestamp += t;
+		++_events;
+	}
+
+	private void full_gc(double yg_beg, double yg_commit, double old_beg)
+	{
+		final double t = pause(_full_pause, _full_sigma);
+		final double th_commit = yg_commit + _old_size;
+		final double th_beg = yg_beg + old_beg;
+		final double old_end = _live;
+		switch (_format)
+		{
+		case simple:
+			simple("FullGC", _timestamp, t);
+			break;
+		case parallel:
+		case parallelold:
+			if (_format == Format.parallelold)
+			{
+				phase("pre compact", t * 0.001);
+				phase("marking phase", t * 0.45);
+				phase("summary phase", t * 0.05);
+				phase("adjust roots", t * 0.08);
+				phase("compaction phase", t * 0.38);
+				phase("post compact", t * 0.039);
+			}
+			ts(_timestamp); put("[Full GC [PSYoungGen: ");
+			size_status(yg_beg, 0.0, yg_commit);
+			put(_format == Format.parallelold ?
+				"] [ParOldGen: " : "] [PSOldGen: ");
+			size_status(old_beg, old_end, _old_size); put("] ");
+			size_status(th_beg, old_end, th_commit);
+			put(" [PSPermGen: ");
+			size_status(_perm_size / 2, _perm_size / 2, _perm_size);
+			put("], "); secs(t); put("]");
+			times(t); eol();
+			break;
+		default:
+			ts(_timestamp); put("[Full GC "); ts(_timestamp);
+			put("[Tenured: ");
+			size_status(old_beg, old_end, _old_size); put(", ");
+			secs(t * 0.99); put("] ");
+			size_status(th_beg, old_end, th_commit);
+			put(", [Perm: ");
+			size_status(_perm_size / 2, _perm_size / 2, _perm_size);
+			put("], "); secs(t); put("]");
+			times(t); eol();
+			break;
+		}
+		_old = old_end;
+		_yg_used = 0.0;
+		_timestamp += t;
+		++_events;
+	}
+
+	private void cms_cycle(double yg_commit)
+	{
+		final double th_commit = yg_commit + _old_size;
+		if (_random.nextDouble() < _failure_rate)
+		{
+			// The cycle did not finish in time; the next young gc
+			// fails and is followed by a full collection.
+			final double t = pause(_full_pause, _full_sigma);
+			final double yg = yg_commit * 0.9;
+			_timestamp += _interval / 2.0;
+			ts(_timestamp); put("[GC "); ts(_timestamp);
+			put("[ParNew: "); size_status(yg, yg, yg_commit);
+			put(", "); secs(t * 0.1); put("]");
+			ts(_timestamp + t * 0.1);
+			put("[CMS (concurrent mode failure): ");
+			size_status(_old, _live, _old_size); put(", ");
+			secs(t * 0.9); put("] ");
+			size_status(yg + _old, _live, th_commit); put(", ");
+			secs(t); put("]");
+			times(t); eol();
+			_old = _live;
+			_yg_used = 0.0;
+			_timestamp += t;
+			++_events;
+			return;
+		}
+
+		final double im = pause(_young_pause / 4.0, _young_sigma);
+		_timestamp += 0.001;
+		if (_format == Format.simple)
+		{
+			simple("InitialMark", _timestamp, im);
+		}
+		else
+		{
+			ts(_timestamp); put("[GC [1 CMS-initial-mark: ");
+			size(_old); put("("); size(_old_size); put(")] ");
+			size(_old + _yg_used); put("("); size(th_commit);
+			put("), "); secs(im); put("]");
+			times(im); eol();
+		}
+		_timestamp += im;
+		++_events;
+
+		// Marking is proportional to the live set, sweeping to the
+		// size of the old gen.
+		concurrent_phase("mark", _live / 1024.0 * 0.002);
+		concurrent_phase("preclean", _old_size / 1024.0 * 0.0001);
+
+		final double rm = pause(_young_pause * 2.0, _young_sigma);
+		if (_format == Format.simple)
+		{
+			simple("Remark", _timestamp, rm);
+		}
+		else
+		{
+			ts(_timestamp); put("[GC[YG occupancy: ");
+			size_num(_yg_used); put(" K ("); size_num(yg_commit);
+			put(" K)]"); ts(_timestamp); put("[Rescan (parallel) , ");
+			secs(rm * 0.9); put("]"); ts(_timestamp + rm * 0.9);
+			put("[weak refs processing, "); secs(rm * 0.1);
+			put("] [1 CMS-remark: "); size(_old); put("(");
+			size(_old_size); put(")] "); size(_old + _yg_used);
+			put("("); size(th_commit); put("), "); secs(rm); put("]");
+			times(rm); eol();
+		}
+		_timestamp += rm;
+		++_events;
+
+		concurrent_phase("sweep", _old_size / 1024.0 * 0.001);
+		_old = _live;
+		concurrent_phase("reset", 0.01);
+	}
+
+	private void concurrent_phase(String name, double secs)
+	{
+		final double t = secs * (0.5 + _random.nextDouble());
+		if (_format != Format.simple)
+		{
+			ts(_timestamp); put("[CMS-concurrent-"); put(name);
+			put("-start]"); eol();
+		}
+		_timestamp += t;
+		if (_format != Format.simple)
+		{
+			ts(_timestamp); put("[CMS-concurrent-"); put(name);
+			put(": "); fixed(t * 0.9, 3); put("/"); secs(t);
+			put("]");
+			if (_times)
+			{
+				put(" [Times: user="); fixed(t * 0.9, 2);
+				put(" sys=0.00, real="); fixed(t, 2);
+				put(" secs]");
+			}
+			eol();
+		}
+	}
+
+	private void phase(String name, double t)
+	{
+		ts(_timestamp); put("["); put(name); put(", "); secs(t);
+		put("]"); eol();
+	}
+
+	private void simple(String name, double start, double duration)
+	{
+		put(name); put(" "); fixed(start, 6); put(" ");
+		fixed(duration, 6); eol();
+	}
+
+	// Formatting helpers; each appends to the output buffer.
+
+	private void ts(double t) { fixed(t, 3); put(": "); }
+
+	private void secs(double t) { fixed(t, 7); put(" secs"); }
+
+	private void times(double t)
+	{
+		if (!_times) return;
+		put(" [Times: user="); fixed(t * 3.0, 2);
+		put(" sys=0.00, real="); fixed(t, 2); put(" secs]");
+	}
+
+	private void size_num(double kb) { put(Math.round(kb)); }
+
+	private void size(double kb) { put(Math.round(kb)); put("K"); }
+
+	private void size_status(double beg, double end, double commit)
+	{
+		size(beg); put("->"); size(end); put("("); size(commit);
+		put(")");
+	}
+
+	private void fixed(double v, int decimals)
+	{
+		long scale = 1;
+		for (int i = 0; i < decimals; ++i) scale *= 10;
+		long n = Math.round(v * scale);
+		if (n < 0) { put("-"); n = -n; }
+		put(n / scale);
+		if (decimals == 0) return;
+		ensure(decimals + 1);
+		_buf[_len++] = '.';
+		long frac = n % scale;
+		for (int i = decimals - 1; i >= 0; --i)
+		{
+			_buf[_len + i] = (byte) ('0' + frac % 10);
+			frac /= 10;
+		}
+		_len += decimals;
+	}
+
+	private void put(long v)
+	{
+		ensure(20);
+		if (v == 0)
+		{
+			_buf[_len++] = '0';
+			return;
+		}
+		int beg = _len;
+		while (v > 0)
+		{
+			_buf[_len++] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		for (int i = beg, j = _len - 1; i < j; ++i, --j)
+		{
+			final byte b = _buf[i]; _buf[i] = _buf[j]; _buf[j] = b;
+		}
+	}
+
+	private void put(String s)
+	{
+		final int n = s.length();
+		ensure(n);
+		for (int i = 0; i < n; ++i) _buf[_len++] = (byte) s.charAt(i);
+	}
+
+	private void eol()
+	{
+		ensure(1);
+		_buf[_len++] = '\n';
+	}
+
+	private void ensure(int n)
+	{
+		if (_len + n > _buf.length)
+		{
+			byte[] b = new byte[Math.max(_buf.length * 2, _len + n)];
+			System.arraycopy(_buf, 0, b, 0, _len);
+			_buf = b;
+		}
+	}
+
+	private void flush() throws IOException
+	{
+		_os.write(_buf, 0, _len);
+		_bytes += _len;
+		_len = 0;
+	}
+
+	private static long parse_size(String s)
+	{
+		final char c = Character.toUpperCase(s.charAt(s.length() - 1));
+		long scale = 1;
+		switch (c)
+		{
+		case 'K': scale = 1L << 10; break;
+		case 'M': scale = 1L << 20; break;
+		case 'G': scale = 1L << 30; break;
+		}
+		if (scale != 1) s = s.substring(0, s.length() - 1);
+		return (long) (Double.parseDouble(s) * scale);
+	}
+
+	private static double[] parse_pause(String s)
+	{
+		String[] a = s.split(",");
+		double[] d = { Double.parseDouble(a[0]), 0.5 };
+		if (a.length > 1) d[1] = Double.parseDouble(a[1]);
+		return d;
+	}
+
+	public static void usage(PrintStream s)
+	{
+		s.println("usage:  GCLogGenerator [-f format] [-s size | " +
+			"-n events] [-o file] [-z] [options]");
+		s.print("formats:");
+		for (Format f:  Format.values()) s.print(" " + f);
+		s.println();
+		s.println("options:  --young mb --old mb --live mb " +
+			"--survivor-ratio n --interval secs --full-every n");
+		s.println("          --young-pause ms[,sigma] " +
+			"--full-pause ms[,sigma] --leak kb/s --failure-rate p");
+		s.println("          --times --seed n");
+	}
+
+	public static void main(String argv[]) throws IOException
+	{
+		GCLogGenerator g = new GCLogGenerator();
+		long max_bytes = 0;
+		long max_events = 0;
+		String ofile = null;
+		boolean gzip = false;
+		String[] a = argv;
+		final int n = a.length;
+		for (int i = 0; i < n; ++i)
+		{
+			// -f format	# output format
+			// -s size	# stop after size (uncompressed) bytes; K, M, G suffix
+			// -n events	# stop after this many events
+			// -o file	# output file (default stdout)
+			// -z		# gzip the output
+			String s = a[i];
+			final boolean has_arg = i + 1 < n;
+			if (has_arg && (s.equals("-f") || s.equals("--format")))
+			{
+				g.set_format(Format.valueOf(a[++i]));
+			}
+			else if (has_arg && (s.equals("-s") ||
+				s.equals("--size")))
+			{
+				max_bytes = parse_size(a[++i]);
+			}
+			else if (has_arg && (s.equals("-n") ||
+				s.equals("--events")))
+			{
+				max_events = Long.parseLong(a[++i]);
+			}
+			else if (has_arg && (s.equals("-o") ||
+				s.equals("--output")))
+			{
+				ofile = a[++i];
+			}
+			else if (s.equals("-z") || s.equals("--gzip"))
+			{
+				gzip = true;
+			}
+			else if (s.equals("--times")) g.set_times(true);
+			else if (has_arg && s.equals("--seed"))
+			{
+				g.set_seed(Long.parseLong(a[++i]));
+			}
+			else if (has_arg && s.equals("--young"))
+			{
+				g.set_young_size(Double.parseDouble(a[++i]));
+			}
+			else if (has_arg && s.equals("--old"))
+			{
+				g.set_old_size(Double.parseDouble(a[++i]));
+			}
+			else if (has_arg && s.equals("--live"))
+			{
+				g.set_live_size(Double.parseDouble(a[++i]));
+			}
+			else if (has_arg && s.equals("--survivor-ratio"))
+			{
+				g.set_survivor_ratio(Integer.parseInt(a[++i]));
+			}
+			else if (has_arg && s.equals("--interval"))
+			{
+				g.set_interval(Double.parseDouble(a[++i]));
+			}
+			else if (has_arg && s.equals("--full-every"))
+			{
+				g.set_full_every(Integer.parseInt(a[++i]));
+			}
+			else if (has_arg && s.equals("--young-pause"))
+			{
+				double[] p = parse_pause(a[++i]);
+				g.set_young_pause(p[0], p[1]);
+			}
+			else if (has_arg && s.equals("--full-pause"))
+			{
+				double[] p = parse_pause(a[++i]);
+				g.set_full_pause(p[0], p[1]);
+			}
+			else if (has_arg && s.equals("--leak"))
+			{
+				g.set_leak_rate(Double.parseDouble(a[++i]));
+			}
+			else if (has_arg && s.equals("--failure-rate"))
+			{
+				g.set_failure_rate(Double.parseDouble(a[++i]));
+			}
+			else
+			{
+				usage(System.err);
+				System.exit(2);
+			}
+		}
+		if (max_bytes <= 0 && max_events <= 0) max_events = 10000;
+
+		OutputStream os = ofile == null ? (OutputStream) System.out :
+			new FileOutputStream(ofile);
+		if (gzip || ofile != null && ofile.endsWith(".gz"))
+		{
+			os = new GZIPOutputStream(os, 1 << 16);
+		}
+		else
+		{
+			os = new BufferedOutputStream(os, 1 << 16);
+		}
+		try
+		{
+			g.generate(os, max_bytes, max_events);
+		}
+		finally
+		{
+			os.close();
+		}
+	}
+
+	private static final int flush_len = 1 << 16;
+
+	private Format		_format = Format.parnew;
+	private final Random	_random = new Random(0);
+
+	// Configuration (sizes in KB, times in seconds).
+	private double	_young_size = 64 * 1024.0;
+	private double	_old_size = 512 * 1024.0;
+	private double	_perm_size = 64 * 1024.0;
+	private double	_live = 128 * 1024.0;
+	private int	_survivor_ratio = 8;
+	private double	_leak_rate;
+	private double	_interval = 1.0;
+	private int	_full_every = 50;
+	private double	_young_pause = 0.020;
+	private double	_young_sigma = 0.5;
+	private double	_full_pause = 0.500;
+	private double	_full_sigma = 0.3;
+	private double	_failure_rate;
+	private boolean	_times;
+
+	// Heap model state.
+	private double	_timestamp;
+	private double	_old;
+	private double	_yg_used;
+
+	// Output.
+	private OutputStream _os;
+	private byte[]	_buf = new byte[flush_len + 1024];
+	private int	_len;
+	private long	_bytes;
+	private long	_events;
+}
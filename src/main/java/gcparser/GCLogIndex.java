@@ -0,0 +1,485 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A sparse index of a gc log that maps the timestamps at the start of its
+ * lines (the uptime printed by -XX:+PrintGCTimeStamps and, if present, the
+ * date printed by -XX:+PrintGCDateStamps) to the offsets of the lines in
+ * the file, so that the part of a long log between two times can be read
+ * without reading the rest.
+ *
+ * <p>
+ * The index is built without parsing the log:  the file is sampled at
+ * evenly spaced offsets and the first timestamped line after each one is
+ * recorded.  It is saved next to the log (gc.log.gcidx for gc.log) and
+ * rebuilt when the log has changed since.  Compressed (.gz) logs cannot be
+ * indexed, since they cannot be read from the middle.
+ * </p>
+ */
+public class GCLogIndex
+{
+	public static final String suffix = ".gcidx";
+
+	// The maximum number of entries, and the minimum distance between
+	// them in bytes.
+	public static final int max_entries = 4096;
+	public static final long min_stride = 64 * 1024;
+
+	// The number of bytes searched for a timestamped line from each
+	// sample offset.
+	public static final int scan_bytes = 64 * 1024;
+
+	// The entry date of logs without date stamps.
+	public static final long no_date = Long.MIN_VALUE;
+
+	// The date stamp printed by -XX:+PrintGCDateStamps.
+	public static final String date_format = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+	public static final String date_re =
+		"[0-9]{4}-[0-9]{2}-[0-9]{2}T[0-9]{2}:[0-9]{2}:[0-9]{2}" +
+		"\\.[0-9]{3}[-+][0-9]{4}";
+
+	// Other forms accepted for the times given by the user, in local
+	// time.
+	private static final String[] user_date_formats =
+	{
+		date_format, "yyyy-MM-dd'T'HH:mm:ss.SSS", "yyyy-MM-dd'T'HH:mm:ss",
+		"yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss"
+	};
+
+	private static final String header = "# gcparser log index 1";
+
+	// A timestamp at the start of a line, possibly after a date stamp.
+	private static final Pattern line_pattern = Pattern.compile(
+		"(?:(" + date_re + "): *)?" + GCParser.gc_time_re + ": ");
+
+	/**
+	 * Returns the index of the log, loaded from the index file if it is
+	 * up to date and built (and saved, if possible) otherwise.  Returns
+	 * null if the log cannot be indexed (see can_index()).
+	 */
+	public static GCLogIndex load(File log) throws IOException
+	{
+		if (!can_index(log)) return null;
+
+		File file = index_file(log);
+		if (file.isFile())
+		{
+			GCLogIndex index = read(log, file);
+			if (index != null) return index;
+		}
+
+		GCLogIndex index = build(log);
+		try
+		{
+			index.save(file);
+		}
+		catch (IOException e)
+		{
+			// The directory may be read-only; the index is cheap to
+			// build again.
+			file.delete();
+		}
+		return index;
+	}
+
+	public static boolean can_index(File log)
+	{
+		return log.isFile() && !log.getName().endsWith(".gz");
+	}
+
+	public static File index_file(File log)
+	{
+		return new File(log.getPath() + suffix);
+	}
+
+	/**
+	 * Builds the index of the log by sampling it at up to max_entries
+	 * offsets, at least min_stride bytes apart.
+	 */
+	public static GCLogIndex build(File log) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(log, "r");
+		try
+		{
+			final long length = raf.length();
+			final long stride = Math.max(min_stride,
+				(length + max_entries - 1) / max_entries);
+			GCLogIndex index = new GCLogIndex(length, log.lastModified());
+			byte[] buf = new byte[scan_bytes];
+			for (long pos = 0; pos < length; pos += stride)
+			{
+				index.sample(raf, pos, buf);
+			}
+			return index;
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the uptime at the start of the line, or -1.0 if the line
+	 * does not start with a timestamp.
+	 */
+	public static double uptime(String s)
+	{
+		Matcher m = line_pattern.matcher(s);
+		return m.lookingAt() ? Double.parseDouble(m.group(2)) : -1.0;
+	}
+
+	/**
+	 * Parses a date given as in the log or in one of a few shorter forms
+	 * (in local time), and returns it in milliseconds since the epoch.
+	 */
+	public static long parse_date(String s) throws ParseException
+	{
+		ParseException error = null;
+		for (String format:  user_date_formats)
+		{
+			SimpleDateFormat f = new SimpleDateFormat(format);
+			f.setLenient(false);
+			try
+			{
+				return f.parse(s.trim()).getTime();
+			}
+			catch (ParseException e)
+			{
+				if (error == null) error = e;
+			}
+		}
+		throw error;
+	}
+
+	public int size() { return _size; }
+
+	// The length and modification time of the log when it was indexed.
+	public long length() { return _length; }
+	public long last_modified() { return _last_modified; }
+
+	public long offset(int i) { return _offsets[i]; }
+	public double uptime(int i) { return _uptimes[i]; }
+	public long date(int i) { return _dates[i]; }
+
+	public boolean has_dates()
+	{
+		return _size > 0 && _dates[0] != no_date;
+	}
+
+	// True if the uptimes never decrease, i.e., the log is from a single
+	// run of the JVM.  Otherwise the whole log has to be read for any
+	// time slice.
+	public boolean is_ordered() { return _ordered; }
+
+	/**
+	 * Returns the offset of a line from which all the lines stamped at or
+	 * after beg can be read:  that of the last entry before beg, or 0.
+	 */
+	public long offset_before(double beg)
+	{
+		if (!_ordered) return 0;
+		int i = search(beg);
+		// Lines stamped exactly beg may come before the entry.
+		while (i > 0 && _uptimes[i - 1] >= beg) --i;
+		return i > 0 ? _offsets[i - 1] : 0;
+	}
+
+	/**
+	 * Returns the offset up to which the lines stamped at or before end
+	 * can be read:  that of the first entry after end, or the length of
+	 * the log.
+	 */
+	public long offset_after(double end)
+	{
+		if (!_ordered) return _length;
+		int i = search(end);
+		while (i < _size && _uptimes[i] <= end) ++i;
+		return i < _size ? _offsets[i] : _length;
+	}
+
+	/**
+	 * Returns the uptime at the given date (in milliseconds since the
+	 * epoch), from the nearest entry with a date at or before it, or -1.0
+	 * if the log has no date stamps.
+	 */
+	public double uptime_at(long date)
+	{
+		if (!has_dates()) return -1.0;
+		int i = Arrays.binarySearch(_dates, 0, _size, date);
+		if (i < 0) i = Math.max(0, -i - 2);
+		return _uptimes[i] + (date - _dates[i]) / 1000.0;
+	}
+
+	/**
+	 * Returns the uptime that s gives, either as seconds or as a date
+	 * (see parse_date()).
+	 */
+	public double to_uptime(String s) throws IOException
+	{
+		try
+		{
+			return Double.parseDouble(s.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			// not a number, try a date
+		}
+
+		final long date;
+		try
+		{
+			date = parse_date(s);
+		}
+		catch (ParseException e)
+		{
+			throw new IOException("bad time " + s);
+		}
+		if (!has_dates())
+		{
+			throw new IOException("the log has no date stamps for " + s);
+		}
+		return uptime_at(date);
+	}
+
+	/**
+	 * Returns the part of the log between the offsets, from
+	 * offset_before() and offset_after().
+	 */
+	public static InputStream open(File log, long beg, long end)
+	throws IOException
+	{
+		final RandomAccessFile raf = new RandomAccessFile(log, "r");
+		raf.seek(beg);
+		final long n = end - beg;
+		return new InputStream()
+		{
+			public int read() throws IOException
+			{
+				if (_read >= n) return -1;
+				int b = raf.read();
+				if (b >= 0) ++_read;
+				return b;
+			}
+
+			public int read(byte[] b, int off, int len)
+			throws IOException
+			{
+				if (_read >= n) return -1;
+				len = (int) Math.min(len, n - _read);
+				int r = raf.read(b, off, len);
+				if (r > 0) _read += r;
+				return r;
+			}
+
+			public void close() throws IOException
+			{
+				raf.close();
+			}
+
+			private long _read;
+		};
+	}
+
+	public void save(File file) throws IOException
+	{
+		PrintWriter w = new PrintWriter(new BufferedWriter(
+			new FileWriter(file)));
+		try
+		{
+			w.println(header);
+			w.println(_length + " " + _last_modified);
+			for (int i = 0; i < _size; ++i)
+			{
+				w.print(_offsets[i]);
+				w.print(' ');
+				w.print(_uptimes[i]);
+				if (_dates[i] != no_date)
+				{
+					w.print(' ');
+					w.print(_dates[i]);
+				}
+				w.println();
+			}
+		}
+		finally
+		{
+			w.close();
+		}
+		if (w.checkError()) throw new IOException("cannot write " + file);
+	}
+
+	// Read the index file of the log; return null if it is not up to date
+	// or cannot be read.
+	private static GCLogIndex read(File log, File file) throws IOException
+	{
+		BufferedReader r = new BufferedReader(new FileReader(file));
+		try
+		{
+			if (!header.equals(r.readLine())) return null;
+			String[] f = r.readLine().split(" ");
+			GCLogIndex index = new GCLogIndex(Long.parseLong(f[0]),
+				Long.parseLong(f[1]));
+			if (index._length != log.length() ||
+				index._last_modified != log.lastModified())
+			{
+				return null;
+			}
+
+			String s = r.readLine();
+			while (s != null)
+			{
+				f = s.split(" ");
+				long date = f.length > 2 ? Long.parseLong(f[2]) :
+					no_date;
+				index.add(Long.parseLong(f[0]),
+					Double.parseDouble(f[1]), date);
+				s = r.readLine();
+			}
+			return index;
+		}
+		catch (RuntimeException e)
+		{
+			// A truncated or garbled index file is built again.
+			return null;
+		}
+		finally
+		{
+			r.close();
+		}
+	}
+
+	private GCLogIndex(long length, long last_modified)
+	{
+		_length = length;
+		_last_modified = last_modified;
+		_offsets = new long[64];
+		_uptimes = new double[64];
+		_dates = new long[64];
+		_ordered = true;
+	}
+
+	// Add an entry for the first timestamped line that starts in the
+	// scan_bytes after pos, if any.
+	private void sample(RandomAccessFile raf, long pos, byte[] buf)
+	throws IOException
+	{
+		// The byte before pos tells whether a line starts at pos.
+		final long beg = Math.max(0, pos - 1);
+		raf.seek(beg);
+		final int n = raf.read(buf, 0,
+			(int) Math.min(buf.length, _length - beg));
+		int i = 0;
+		if (pos > 0)
+		{
+			while (i < n && buf[i] != '\n') ++i;
+			++i;
+		}
+
+		while (i < n)
+		{
+			int j = i;
+			while (j < n && buf[j] != '\n') ++j;
+			// A line cut off by the end of the buffer (not the end
+			// of the log) may have its timestamp cut off too.
+			if (j == n && beg + n < _length && j - i < 64) return;
+
+			String s = new String(buf, i, Math.min(j - i, 64),
+				"ISO-8859-1");
+			Matcher m = line_pattern.matcher(s);
+			if (m.lookingAt())
+			{
+				long date = no_date;
+				if (m.group(1) != null)
+				{
+					try
+					{
+						date = new SimpleDateFormat(date_format)
+							.parse(m.group(1)).getTime();
+					}
+					catch (ParseException e)
+					{
+						// keep the uptime only
+					}
+				}
+				final long offset = beg + i;
+				if (_size == 0 || offset > _offsets[_size - 1])
+				{
+					add(offset, Double.parseDouble(m.group(2)),
+						date);
+				}
+				return;
+			}
+			i = j + 1;
+		}
+	}
+
+	private void add(long offset, double uptime, long date)
+	{
+		if (_size == _offsets.length)
+		{
+			_offsets = Arrays.copyOf(_offsets, _size * 2);
+			_uptimes = Arrays.copyOf(_uptimes, _size * 2);
+			_dates = Arrays.copyOf(_dates, _size * 2);
+		}
+		if (_size > 0)
+		{
+			if (uptime < _uptimes[_size - 1]) _ordered = false;
+			// The dates are only used if every entry has one.
+			if ((date == no_date) != (_dates[0] == no_date))
+			{
+				date = no_date;
+				Arrays.fill(_dates, 0, _size, no_date);
+			}
+		}
+		_offsets[_size] = offset;
+		_uptimes[_size] = uptime;
+		_dates[_size] = date;
+		++_size;
+	}
+
+	// Return the index of the first entry with an uptime at or after t
+	// (or _size).
+	private int search(double t)
+	{
+		int i = Arrays.binarySearch(_uptimes, 0, _size, t);
+		return i < 0 ? -i - 1 : i;
+	}
+
+	private final long _length;
+	private final long _last_modified;
+	private long[] _offsets;
+	private double[] _uptimes;
+	private long[] _dates;
+	private int _size;
+	private boolean _ordered;
+}
@@ -35,6 +35,12 @@ public enum GCMetric
 	cms_rm_time	(1),
 	tgc_time	(1),
 
+	/* pauses by cause (also included in ygc_time and fgc_time) */
+	ygc_pf_time	(1),	/* young gc, promotion failed              */
+	fgc_sys_time	(1),	/* full gc, System.gc()                    */
+	fgc_pf_time	(1),	/* full gc, promotion failed               */
+	fgc_cmf_time	(1),	/* full gc, cms concurrent mode failure    */
+
 	/* concurrent gc activity */
 	cms_cm_a_time	(1),	/* cms concurrent mark     'active'  time  */
 	cms_cm_e_time	(2),	/* cms concurrent mark     'elapsed' time  */
@@ -45,6 +51,26 @@ public enum GCMetric
 	cms_cr_a_time	(1),	/* cms concurrent reset    'active'  time  */
 	cms_cr_e_time	(2),	/* cms concurrent reset    'elapsed' time  */
 
+	/* cpu times reported by [Times: user=... sys=..., real=... secs] */
+	gc_user_time	(1),	/* user cpu time of the gc event            */
+	gc_sys_time	(2),	/* system cpu time of the gc event          */
+	gc_real_time	(2),	/* elapsed time of the gc event             */
+	gc_stw_cpu	(1),	/* user + sys for stop-the-world events     */
+	gc_stw_par	(1),	/* user / real for stop-the-world events    */
+	gc_cgc_cpu	(1),	/* user + sys for concurrent phases         */
+	gc_cgc_par	(1),	/* user / real for concurrent phases        */
+
+	/* application stopped and concurrent time, safepoints */
+	app_stop_time	(1),	/* application threads stopped (any reason) */
+	app_ttsp_time	(1),	/* time to stop threads (reach safepoint)   */
+	app_stop_ngc	(1),	/* application threads stopped, not for gc  */
+	app_conc_time	(1),	/* application time between safepoints      */
+	sp_spin_time	(1),	/* safepoint sync: spinning                 */
+	sp_block_time	(2),	/* safepoint sync: blocking                 */
+	sp_sync_time	(2),	/* safepoint sync: total                    */
+	sp_clean_time	(2),	/* safepoint cleanup                        */
+	sp_vmop_time	(2),	/* safepoint vm operation                   */
+
 	/* heap sizes */
 	yg_used_beg	(1),	/* young gen sizes */
 	yg_used_end	(2),
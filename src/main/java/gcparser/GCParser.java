@@ -28,13 +28,15 @@ import java.util.regex.*;
 
 public abstract class GCParser
 {
-	// Frequently-used regular expressions.
+	// Frequently-used regular expressions.  Repetitions that can never
+	// give characters back to what follows them are possessive, so a
+	// failed match does not retry every shorter repetition first.
 	public static final String full_gc_re 	=
 		"\\[Full GC (\\(System\\) )?";
 	public static final int full_gc_re_groups = 1;
 
 	public static final String heap_size_re =
-		"([0-9]+)([KM])";
+		"([0-9]++)([KM])";
 	public static final int heap_size_re_size_group = 1;
 	public static final int heap_size_re_unit_group = 2;
 	public static final int heap_size_re_groups = 2;
@@ -77,7 +79,7 @@ public abstract class GCParser
 		heap_size_change_re_groups + heap_size_paren_re_groups;
 
 	public static final String gc_time_re =
-		"([0-9]+\\.[0-9]+)";
+		"([0-9]++\\.[0-9]++)";
 	public static final int gc_time_re_groups = 1;
 
 	public static final String gc_time_secs_re =
@@ -92,14 +94,26 @@ public abstract class GCParser
 	public static final int gc_time_ms_re_groups = 
 		gc_time_re_groups + 1;
 
+	// Cpu times printed after a gc event:
+	// [Times: user=0.41 sys=0.02, real=0.05 secs]
+	public static final String times_re =
+		"\\[Times: user=" + gc_time_re + " sys=" + gc_time_re +
+		", real=" + gc_time_re + " secs\\]";
+	public static final int times_re_user_group = 1;
+	public static final int times_re_sys_group = 2;
+	public static final int times_re_real_group = 3;
+	public static final int times_re_groups = gc_time_re_groups * 3;
+
+	// A timestamp never starts in the middle of a number; without the
+	// lookbehind a long run of digits is retried from each of them.
 	public static final String timestamp_re =
-		"(" + gc_time_re + ": *)?";
+		"((?<![0-9])" + gc_time_re + ": *+)?";
 	public static final int timestamp_re_time_group = 2;
 	public static final int timestamp_re_groups =
 		gc_time_re_groups + 1;
 
 	public static final String timestamp_range_re =
-		"(" + gc_time_re + "-" + gc_time_re + ": *)?";
+		"((?<![0-9])" + gc_time_re + "-" + gc_time_re + ": *+)?";
 	public static final int timestamp_range_re_groups =
 		gc_time_re_groups * 2 + 1;
 
@@ -206,6 +220,7 @@ public abstract class GCParser
 		_gcstats = gcstats;
 		_verbose = verbose;
 		_vstream = vstream;
+		_parse_stats = new ParseStats(getClass().getSimpleName());
 	}
 
 	public GCParser(GCStats gcstats)
@@ -264,6 +279,30 @@ public abstract class GCParser
 
 	public long match_count() { return _match_count; }
 
+	// Self-instrumentation counters, updated by the driver only when
+	// --stats-self is in effect.
+	public ParseStats parse_stats() { return _parse_stats; }
+
+	// The text of the line being parsed, set by the driver when lines
+	// are parsed with a budget (see BoundedCharSequence).
+	public void set_bounded_text(BoundedCharSequence text)
+	{
+		_bounded_text = text;
+	}
+
+	// Return a matcher of s by p.  It counts against the budget of the
+	// line if s is the line the driver is parsing with a budget.  Parsers
+	// must be done with their matchers' find() before they record any
+	// data, so a line that runs out of budget has left nothing behind.
+	protected Matcher matcher(Pattern p, String s)
+	{
+		if (_bounded_text != null && _bounded_text.holds(s))
+		{
+			return p.matcher(_bounded_text);
+		}
+		return p.matcher(s);
+	}
+
 	protected void save_match_state(String filename, int line, String s)
 	{
 		_filename = filename;
@@ -300,7 +339,9 @@ public abstract class GCParser
 	// Add a generic data point.
 	protected void add_dp(GCMetric metric, double d)
 	{
-		vtrace(metric.toString() + ':' + d);
+		// Check verbose() here so the trace string is not built (and
+		// allocated) for every data point in non-verbose runs.
+		if (verbose()) vtrace(metric.toString() + ':' + d);
 		gcstats().add(metric, d);
 	}
 
@@ -312,8 +353,15 @@ public abstract class GCParser
 	// Add a time stamp.
 	protected void add_ts(GCMetric metric, double beg, double end)
 	{
-		vtrace(metric.toString() + ".beg:" + beg);
+		if (verbose()) vtrace(metric.toString() + ".beg:" + beg);
 		gcstats().add_timestamp(metric, beg, end);
+		// Exactly one tgc_time timestamp is added per pause (after the
+		// pause time itself); remember the pause so the cpu times and
+		// cause printed with it can be attached.
+		if (metric == GCMetric.tgc_time)
+		{
+			gcstats().save_gc_event(true, _pause_time, beg, end);
+		}
 	}
 
 // 	protected void add_ts(GCMetric metric, Matcher m, int group)
@@ -325,7 +373,8 @@ public abstract class GCParser
 	// Add a pause time data point.
 	protected void add_pt(GCMetric metric, double pause_time)
 	{
-		vtrace(metric.toString() + ':' + pause_time);
+		if (verbose()) vtrace(metric.toString() + ':' + pause_time);
+		_pause_time = pause_time;
 		gcstats().add(metric, pause_time);
 		gcstats().add(GCMetric.tgc_time, pause_time);
 	}
@@ -358,7 +407,7 @@ public abstract class GCParser
 	// Add a size data point to the specified metric.
 	protected void add_sz(GCMetric metric, double val)
 	{
-		vtrace(metric.toString() + ':' + val);
+		if (verbose()) vtrace(metric.toString() + ':' + val);
 		gcstats().add(metric, val);
 	}
 
@@ -421,6 +470,42 @@ public abstract class GCParser
 		return 0.0;
 	}
 
+	// The cause of a collection, from the optional groups captured by
+	// full_gc_re, promo_failed_re and cms_gen_re.  A group number of 0
+	// means the pattern has no such group.
+	protected static GCCause gc_cause(Matcher m, int system_grp,
+		int promo_failed_grp, int cmf_grp)
+	{
+		if (system_grp > 0 && m.group(system_grp) != null)
+		{
+			return GCCause.system_gc;
+		}
+		if (promo_failed_grp > 0 && m.group(promo_failed_grp) != null)
+		{
+			return GCCause.promotion_failed;
+		}
+		if (cmf_grp > 0 && m.group(cmf_grp) != null)
+		{
+			return GCCause.concurrent_mode_failure;
+		}
+		return GCCause.unknown;
+	}
+
+	// Record the cause of the collection just added (with add_young_gc(),
+	// add_full_gc(), ...) and add its pause time to the per-cause metric.
+	protected void add_gc_cause(GCCause cause, boolean full_gc)
+	{
+		gcstats().save_gc_cause(cause);
+		GCMetric metric = full_gc ? cause.full_metric() :
+			cause.young_metric();
+		if (metric == null) return;
+
+		final double beg = gcstats().gc_event_timestamp_beg();
+		final double end = gcstats().gc_event_timestamp_end();
+		add_dp(metric, gcstats().gc_event_duration());
+		add_ts(metric, beg, end);
+	}
+
 	protected void add_rate(GCMetric metric, double value,
 		double prev_timestamp, double cur_timestamp)
 	{
@@ -488,6 +573,16 @@ public abstract class GCParser
 			}
 		}
 
+		if (!gcstats().has_generated_timestamps())
+		{
+			final double ofs = gcstats().timestamp_offset();
+			gcstats().old_gen_forecast().young_gc(ofs + timestamp_beg,
+				ofs + timestamp_end,
+				th_used_beg - yg_used_beg,
+				th_used_end - yg_used_end,
+				th_commit_end - yg_commit_end, yg_promo);
+		}
+
 		gcstats().save_yg_info(yg_used_beg, yg_used_end,
 			yg_commit_end, timestamp_beg, timestamp_end);
 		gcstats().save_heap_sizes(th_used_beg, th_used_end,
@@ -563,6 +658,10 @@ public abstract class GCParser
 			}
 
 			tw.reset(timestamp_end, tha_stats.sum());
+
+			gcstats().old_gen_forecast().full_gc(
+				gcstats().timestamp_offset() + timestamp_end,
+				og_used_end, og_commit_end);
 		}
 
 		gcstats().save_heap_sizes(th_used_beg, th_used_end,
@@ -637,6 +736,12 @@ public abstract class GCParser
 	protected String _text;		// Text from the line.
 	protected long   _match_count;  // Number of lines matched.
 
+	protected final ParseStats _parse_stats;
+	private BoundedCharSequence _bounded_text;
+
+	// The most recent pause time passed to add_pt().
+	private double _pause_time;
+
 	/* ------------------------------------------------------------------ */
 
 	// XXX - debugging.
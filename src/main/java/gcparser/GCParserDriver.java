@@ -24,6 +24,7 @@
 package gcparser;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -40,6 +41,7 @@ import java.util.EnumMap;
 import java.util.Formatter;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.ResourceBundle;
 
 import java.util.regex.*;
@@ -53,6 +55,16 @@ public class GCParserDriver
 	public static final int COMPARE_STATISTICS	= 0x04;
 	public static final int PRINT_STATISTICS	= 0x05;
 	public static final int SAVE_DATA		= 0x06;
+	public static final int SELF_STATISTICS		= 0x07;
+
+	// Maximum number of unmatched lines kept as samples when collecting
+	// self statistics.
+	public static final int UNMATCHED_SAMPLE_MAX	= 20;
+
+	// Maximum number of quarantined lines kept for the report, and the
+	// number of characters of each that are kept.
+	public static final int QUARANTINED_LINE_MAX	= 20;
+	public static final int QUARANTINED_TEXT_MAX	= 160;
 
 	public static void main(String argv[]) throws IOException
 	{
@@ -75,6 +87,9 @@ public class GCParserDriver
 		_gc_stats = create_gc_stats(_actions, enabled_map, _cpu_count,
 			_has_time_zero);
 		_gc_parsers = create_gc_parsers(_gc_stats, verbose);
+		_times_parser = find_times_parser(_gc_parsers);
+		_parse_stats_order = parse_stats();
+		set_line_budget(BoundedCharSequence.default_steps_per_char);
 	}
 
 	public GCParserDriver(BitSet actions)
@@ -87,6 +102,7 @@ public class GCParserDriver
 		boolean verbose = false;
 		boolean enable_value = false;
 		String enable_list = null;
+		int line_budget = BoundedCharSequence.default_steps_per_char;
 
 		_actions = new BitSet();
 		_suffix = ".dat";
@@ -106,9 +122,14 @@ public class GCParserDriver
 			// -n		# number of cpus
 			// -o pattern	# output file pattern (use %{metric})
 			// -p		# print statistics (the default)
+			// -R		# each file names a rotated log set
 			// -s		# save data
 			// -t		# terse
+			// -T beg,end	# parse only the lines between two times
+			// --sample n[,kb]	# estimate from n random blocks
 			// -v		# verbose
+			// --line-budget n	# regex steps per char of a line (0 = no limit)
+			// --stats-self	# print parser self statistics
 			// 
 			// ???
 			// -z		# each file includes time zero
@@ -172,6 +193,10 @@ public class GCParserDriver
 				_actions.set(COLLECT_DATA);
 				_actions.set(SAVE_DATA);
 			}
+			else if (s.equals("-R") || s.equals("--rotated"))
+			{
+				_rotated = true;
+			}
 			else if (s.equals("-s") ||
 				s.equals("--save") ||
 				s.equals("--savedata"))
@@ -179,6 +204,26 @@ public class GCParserDriver
 				_actions.set(COLLECT_DATA);
 				_actions.set(SAVE_DATA);
 			}
+			else if (i + 1 < n && (s.equals("-T") ||
+				s.equals("--time-slice")))
+			{
+				_slice = argv[++i].split(",", -1);
+				if (_slice.length != 2)
+				{
+					usage(System.err, s + " " + argv[i]);
+					System.exit(2);
+				}
+				// A slice does not start at time zero.
+				_has_time_zero = false;
+			}
+			else if (i + 1 < n && s.equals("--sample"))
+			{
+				String[] f = argv[++i].split(",");
+				_sample_blocks = Integer.parseInt(f[0]);
+				_sample_block_size = f.length > 1 ?
+					Integer.parseInt(f[1]) * 1024 :
+					BlockSampler.default_block_size;
+			}
 			else if (s.equals("-t") || s.equals("--terse"))
 			{
 				_actions.set(TERSE);
@@ -188,6 +233,14 @@ public class GCParserDriver
 				_actions.set(VERBOSE);
 				verbose = true;
 			}
+			else if (i + 1 < n && s.equals("--line-budget"))
+			{
+				line_budget = Integer.parseInt(argv[++i]);
+			}
+			else if (s.equals("--stats-self"))
+			{
+				_actions.set(SELF_STATISTICS);
+			}
 			else if (s.equals("-z") || s.equals("--time-zero"))
 			{
 				_has_time_zero = true;
@@ -214,7 +267,10 @@ public class GCParserDriver
 		}
 		_next_arg = i;
 
-		if (_actions.isEmpty()) _actions.set(PRINT_STATISTICS);
+		if (_actions.isEmpty() || _actions.equals(self_stats_only()))
+		{
+			_actions.set(PRINT_STATISTICS);
+		}
 
 		ArrayList<String> unknown = new ArrayList<String>();
 		_enabled_map = create_enabled_map(enable_list, enable_value,
@@ -228,6 +284,9 @@ public class GCParserDriver
 		_gc_stats = create_gc_stats(_actions, _enabled_map, _cpu_count,
 			_has_time_zero);
 		_gc_parsers = create_gc_parsers(_gc_stats, verbose);
+		_times_parser = find_times_parser(_gc_parsers);
+		_parse_stats_order = parse_stats();
+		set_line_budget(line_budget);
 	}
 
 	public GCParserDriver(String argv[])
@@ -258,6 +317,35 @@ public class GCParserDriver
 		return _actions.get(SAVE_DATA);
 	}
 
+	public boolean should_collect_self_stats()
+	{
+		return _actions.get(SELF_STATISTICS);
+	}
+
+	/**
+	 * Limit the work the parsers may do on each line to steps_per_char
+	 * characters examined per character of the line (see
+	 * BoundedCharSequence).  Lines that take more are quarantined:  they
+	 * are left out of the statistics and reported instead.  If a line was
+	 * matched and only the cpu times at its end take more, the line is
+	 * kept and only its cpu times are left out.  A value of 0 removes the
+	 * limit.
+	 */
+	public void set_line_budget(int steps_per_char)
+	{
+		_bounded_text = steps_per_char > 0 ?
+			new BoundedCharSequence(steps_per_char) : null;
+		for (GCParser parser:  _gc_parsers)
+		{
+			parser.set_bounded_text(_bounded_text);
+		}
+	}
+
+	public int line_budget()
+	{
+		return _bounded_text != null ? _bounded_text.steps_per_char() : 0;
+	}
+
 	public String prefix() { return _prefix; }
 	public String suffix() { return _suffix; }
 
@@ -295,6 +383,11 @@ public class GCParserDriver
 				d[i].print_statistics(System.out, new_name);
 			}
 			if (should_save()) d[i].save_data();
+			if (should_collect_self_stats())
+			{
+				d[i].print_self_statistics(System.out);
+			}
+			d[i].print_quarantined_lines(System.err);
 		}
 
 		final boolean terse = _actions.get(TERSE);
@@ -322,7 +415,17 @@ public class GCParserDriver
 	{
 		if (argv.length == index)
 		{
-			parse(System.in, "-");
+			InputStreamReader ir = new InputStreamReader(System.in);
+			if (_slice != null)
+			{
+				parse(new TimeSliceReader(ir,
+					slice_uptime(null, _slice[0], false),
+					slice_uptime(null, _slice[1], true)), "-");
+			}
+			else
+			{
+				parse(new BufferedReader(ir), "-");
+			}
 		}
 		else
 		{
@@ -336,12 +439,40 @@ public class GCParserDriver
 			int i = index;
 			do
 			{
-				parse(new File(argv[i]));
+				if (_sample_blocks > 0)
+				{
+					parse_sampled(new File(argv[i]),
+						_sample_blocks, _sample_block_size);
+					print_sampled_statistics(System.out);
+				}
+				else if (_rotated)
+				{
+					parse_rotated_set(new File(argv[i]));
+				}
+				else if (_slice != null)
+				{
+					parse_slice(new File(argv[i]), _slice[0],
+						_slice[1], false);
+				}
+				else
+				{
+					parse(new File(argv[i]));
+				}
 			} while(++i < argv.length);
 		}
 
-		if (should_print()) print_statistics(System.out);
+		// The estimates of a sample are printed above instead.
+		if (should_print() && _sample_blocks == 0)
+		{
+			print_statistics(System.out);
+		}
 		if (should_save()) save_data();
+		if (should_collect_self_stats())
+		{
+			if (should_print()) System.out.println();
+			print_self_statistics(System.out);
+		}
+		print_quarantined_lines(System.err);
 	}
 
 	/**
@@ -372,23 +503,163 @@ public class GCParserDriver
 	public boolean
 	parse(List<GCParser> parsers, String filename, int line, String s)
 	{
+		if (_bounded_text != null) _bounded_text.reset(s);
 		Iterator<GCParser> iterator = parsers.iterator();
+		GCParser parser = null;
 		boolean matched = false;
-		do {
-			matched = iterator.next().parse(filename, line, s);
-		} while (!matched && iterator.hasNext());
+		try
+		{
+			do {
+				parser = iterator.next();
+				matched = parser.parse(filename, line, s);
+			} while (!matched && iterator.hasNext());
+		}
+		catch (BoundedCharSequence.BudgetExceededException e)
+		{
+			quarantine_line(parser, e, false, filename, line, s);
+			return false;
+		}
+		if (matched) parse_trailing(parser, filename, line, s);
 		return matched;
 	}
 
+	// Give the cpu times printed at the end of a gc event line to the
+	// TimesGCParser, since the line was consumed by another parser.
+	private void parse_trailing(GCParser parser, String filename, int line,
+		String s)
+	{
+		if (_times_parser == null || parser == _times_parser) return;
+
+		// The line has been recorded already, so it stays matched and
+		// only its cpu times are left out.
+		try
+		{
+			_times_parser.parse_trailing(filename, line, s);
+		}
+		catch (BoundedCharSequence.BudgetExceededException e)
+		{
+			quarantine_line(_times_parser, e, true, filename, line, s);
+		}
+	}
+
+	/**
+	 * Same as parse(List, String, int, String), but also records the time
+	 * spent and the number of characters examined by each parser, and
+	 * samples the lines that no parser matched.
+	 */
+	public boolean
+	parse_instrumented(List<GCParser> parsers, String filename, int line,
+		String s)
+	{
+		// Count the line terminator too.
+		final int bytes = s.length() + 1;
+		if (_bounded_text != null) _bounded_text.reset(s);
+		Iterator<GCParser> iterator = parsers.iterator();
+		GCParser parser = null;
+		boolean matched = false;
+		++_lines_read;
+		_bytes_read += bytes;
+		long beg = 0;
+		try
+		{
+			do {
+				parser = iterator.next();
+				beg = System.nanoTime();
+				matched = parser.parse(filename, line, s);
+				final long end = System.nanoTime();
+				parser.parse_stats().add(matched, end - beg, bytes);
+			} while (!matched && iterator.hasNext());
+		}
+		catch (BoundedCharSequence.BudgetExceededException e)
+		{
+			final long end = System.nanoTime();
+			parser.parse_stats().add(false, end - beg, bytes);
+			quarantine_line(parser, e, false, filename, line, s);
+			return false;
+		}
+
+		if (matched) parse_trailing(parser, filename, line, s);
+		else sample_unmatched_line(filename, line, s);
+		return matched;
+	}
+
+	// Record a line on which a parser ran out of budget; trailing is true
+	// if the line was matched and only its cpu times were left out.  Only
+	// the first QUARANTINED_LINE_MAX lines are kept, as they are more
+	// likely to show the cause than a random sample.
+	private void quarantine_line(GCParser parser, RuntimeException e,
+		boolean trailing, String filename, int line, String s)
+	{
+		if (_quarantined_count++ >= QUARANTINED_LINE_MAX) return;
+
+		String text = s;
+		if (text.length() > QUARANTINED_TEXT_MAX)
+		{
+			text = text.substring(0, QUARANTINED_TEXT_MAX) + "...";
+		}
+		String where = parser.getClass().getSimpleName() + " " +
+			e.getMessage() + (trailing ? " (cpu times only)" : "") +
+			':' + text;
+		_quarantined_lines.add(trace_line(filename, line, where));
+	}
+
+	// Reservoir sampling (algorithm R) so the samples are spread over the
+	// whole input instead of clustering at the start of the first file.
+	private void sample_unmatched_line(String filename, int line, String s)
+	{
+		final long n = ++_unmatched_count;
+		if (_unmatched_samples.size() < UNMATCHED_SAMPLE_MAX)
+		{
+			_unmatched_samples.add(trace_line(filename, line, s));
+			return;
+		}
+
+		final long slot = (long) (_random.nextDouble() * n);
+		if (slot < UNMATCHED_SAMPLE_MAX)
+		{
+			_unmatched_samples.set((int) slot,
+				trace_line(filename, line, s));
+		}
+	}
+
+	private static String trace_line(String filename, int line, String s)
+	{
+		StringBuilder sb = new StringBuilder();
+		if (filename != null)
+		{
+			sb.append(filename);
+			sb.append(':');
+		}
+		sb.append(line);
+		sb.append(':');
+		sb.append(s);
+		return sb.toString();
+	}
+
 	public void parse(BufferedReader r, String filename) throws IOException
 	{
+		parse(r, filename, false);
+	}
+
+	/**
+	 * Parse the input read from r.  If continued is true, the next input
+	 * parsed continues this one (see GCStats.end_of_file(boolean)).
+	 */
+	public void parse(BufferedReader r, String filename, boolean continued)
+	throws IOException
+	{
+		final boolean instrumented = should_collect_self_stats();
+		final long beg = instrumented ? System.nanoTime() : 0;
 		int line = 0;
 		long matches = 0;
 		String s = r.readLine();
 		while (s != null)
 		{
 			++line;
-			if (parse(_gc_parsers, filename, line, s))
+			boolean matched = instrumented ?
+				parse_instrumented(_gc_parsers, filename, line, s) :
+				parse(_gc_parsers, filename, line, s);
+			if (matched)
 			{
 				++matches;
 				boolean should_sort = 
@@ -402,7 +673,8 @@ public class GCParserDriver
 			}
 			s = r.readLine();
 		}
-		_gc_stats.end_of_file();
+		_gc_stats.end_of_file(continued);
+		if (instrumented) _parse_nanos += System.nanoTime() - beg;
 	}
 
 	public void parse(InputStream is, String filename) throws IOException
@@ -412,12 +684,193 @@ public class GCParserDriver
 	}
 
 	public void parse(File file) throws IOException
+	{
+		parse(file, false);
+	}
+
+	public void parse(File file, boolean continued) throws IOException
 	{
 		InputStream inputStreamForFile = streamForFile(file);
 		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStreamForFile));
-		parse(reader, file.getName());
+		parse(reader, file.getName(), continued);
 		reader.close();
 	}
+
+	/**
+	 * Parse the files of the rotated log set that file is a member of (or
+	 * names) as one continuous log.
+	 */
+	public void parse_rotated_set(File file) throws IOException
+	{
+		List<File> files = GCLogFileSet.rotated_set(file);
+		for (int i = 0; i < files.size(); ++i)
+		{
+			final boolean continued = i + 1 < files.size();
+			if (_slice != null)
+			{
+				parse_slice(files.get(i), _slice[0], _slice[1],
+					continued);
+			}
+			else
+			{
+				parse(files.get(i), continued);
+			}
+		}
+	}
+
+	/**
+	 * Parse the lines of the file printed between the uptimes beg and end
+	 * (see TimeSliceReader).  Only the part of the file that the index of
+	 * the file (see GCLogIndex) gives for those times is read; files that
+	 * cannot be indexed are read from the start.  If the part read does
+	 * not start at the start of the file, it is named file@offset in
+	 * messages and its line numbers are counted from the offset.
+	 */
+	public void parse_slice(File file, double beg, double end,
+		boolean continued)
+	throws IOException
+	{
+		parse_slice(file, GCLogIndex.load(file), beg, end, continued);
+	}
+
+	/**
+	 * Same as parse_slice(File, double, double, boolean), but beg and end
+	 * are given as seconds of uptime or as dates (see GCLogIndex.to_uptime);
+	 * an empty string leaves that end of the slice open.
+	 */
+	public void parse_slice(File file, String beg, String end,
+		boolean continued)
+	throws IOException
+	{
+		GCLogIndex index = GCLogIndex.load(file);
+		parse_slice(file, index, slice_uptime(index, beg, false),
+			slice_uptime(index, end, true), continued);
+	}
+
+	private void parse_slice(File file, GCLogIndex index, double beg,
+		double end, boolean continued)
+	throws IOException
+	{
+		long offset = 0;
+		InputStream is;
+		if (index != null)
+		{
+			offset = index.offset_before(beg);
+			is = GCLogIndex.open(file, offset, index.offset_after(end));
+		}
+		else
+		{
+			is = streamForFile(file);
+		}
+
+		BufferedReader reader = new TimeSliceReader(
+			new InputStreamReader(is), beg, end);
+		String name = file.getName();
+		if (offset > 0) name += "@" + offset;
+		try
+		{
+			parse(reader, name, continued);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parse a random sample of blocks of the file (see BlockSampler)
+	 * instead of all of it, for a quick look at a long log, and estimate
+	 * the statistics of the whole file from them (see SampledStats and
+	 * print_sampled_statistics()).  Each block is parsed on its own, as
+	 * if it were a file, after the lines in the quarter of a block before
+	 * it, and its data is returned in file order; the estimates from the
+	 * last sample parsed are also kept in this driver.  The sample
+	 * is the same every time for the same file and arguments.
+	 */
+	public List<GCDataStore>
+	parse_sampled(File file, int blocks, int block_size)
+	throws IOException
+	{
+		// The blocks of a compressed log cannot be read on their own.
+		if (!GCLogIndex.can_index(file))
+		{
+			throw new IOException("cannot sample " + file);
+		}
+		Random random = new Random(file.length());
+		BlockSampler sampler =
+			new BlockSampler(file, blocks, block_size, random);
+		SampledStats stats = new SampledStats(sampler, random);
+
+		BitSet actions = (BitSet) _actions.clone();
+		actions.set(COLLECT_DATA);
+		actions.clear(SELF_STATISTICS);
+		ArrayList<GCDataStore> data =
+			new ArrayList<GCDataStore>(sampler.blocks());
+		for (int i = 0; i < sampler.blocks(); ++i)
+		{
+			GCParserDriver d = new GCParserDriver(actions,
+				_enabled_map, _prefix, _suffix, _cpu_count);
+			d.set_line_budget(line_budget());
+			final String name = file.getName() + "@" + sampler.offset(i);
+			GCDataStore block_data = (GCDataStore) d.gc_stats();
+
+			// The values that depend on the GCs before them (e.g.,
+			// the amount allocated since the last GC) are wrong for
+			// the first GCs of a block, so the lines before it are
+			// parsed first and their data discarded.
+			byte[] bytes = sampler.read_before(i, block_size / 4);
+			d.parse(new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(bytes))), name, true);
+			block_data.discard_data();
+
+			bytes = sampler.read(i);
+			d.parse(new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(bytes))), name);
+			stats.add(i, block_data, bytes.length);
+			data.add(block_data);
+
+			_quarantined_count += d.quarantined_count();
+			for (String line:  d.quarantined_lines())
+			{
+				if (_quarantined_lines.size() >= QUARANTINED_LINE_MAX)
+				{
+					break;
+				}
+				_quarantined_lines.add(line);
+			}
+		}
+		_sampled_stats = stats;
+		return data;
+	}
+
+	// The estimates of the last sample parsed, or null.
+	public SampledStats sampled_stats() { return _sampled_stats; }
+
+	public void print_sampled_statistics(PrintStream s)
+	{
+		if (_sampled_stats != null) _sampled_stats.print(s);
+	}
+
+	private static double
+	slice_uptime(GCLogIndex index, String s, boolean end)
+	throws IOException
+	{
+		if (s.trim().length() == 0)
+		{
+			return end ? Double.POSITIVE_INFINITY :
+				Double.NEGATIVE_INFINITY;
+		}
+		if (index != null) return index.to_uptime(s);
+		try
+		{
+			return Double.parseDouble(s.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("bad time " + s +
+				" (dates need an uncompressed log)");
+		}
+	}
 	
 	private InputStream streamForFile(File logFile) throws IOException, FileNotFoundException {
 		FileInputStream uncompressedFileStream = new FileInputStream(logFile);
@@ -456,6 +909,98 @@ public class GCParserDriver
 		print_statistics(s);
 	}
 
+	/**
+	 * Returns the self-instrumentation counters of each parser.  The
+	 * counters are only updated if the SELF_STATISTICS action is set.
+	 */
+	public List<ParseStats> parse_stats()
+	{
+		ArrayList<ParseStats> list =
+			new ArrayList<ParseStats>(_gc_parsers.size());
+		for (GCParser parser:  _gc_parsers)
+		{
+			list.add(parser.parse_stats());
+		}
+		return list;
+	}
+
+	public long lines_read() { return _lines_read; }
+	public long bytes_read() { return _bytes_read; }
+	public long unmatched_count() { return _unmatched_count; }
+
+	// The number of lines left out because a parser ran out of budget on
+	// them (see set_line_budget), and the first of them.
+	public long quarantined_count() { return _quarantined_count; }
+
+	public List<String> quarantined_lines()
+	{
+		return _quarantined_lines;
+	}
+
+	// Total time spent reading and parsing input, including I/O.
+	public long parse_nanos() { return _parse_nanos; }
+
+	public List<String> unmatched_samples()
+	{
+		return _unmatched_samples;
+	}
+
+	public void print_self_statistics(PrintStream s)
+	{
+		// Print the parsers in creation order so runs can be compared
+		// regardless of the order produced by sort_gc_parsers().
+		long parser_nanos = 0;
+		for (ParseStats ps:  _parse_stats_order)
+		{
+			parser_nanos += ps.nanos();
+		}
+
+		s.println(ParseStats.hdr);
+		for (ParseStats ps:  _parse_stats_order)
+		{
+			s.println(ps.format(parser_nanos));
+		}
+
+		final double secs = _parse_nanos / 1.0e9;
+		final double mb = _bytes_read / (1024.0 * 1024.0);
+		s.println();
+		s.println(String.format("%-18s = %12d", "lines_read",
+			_lines_read));
+		s.println(String.format("%-18s = %12d", "lines_unmatched",
+			_unmatched_count));
+		s.println(String.format("%-18s = %12d", "lines_quarantined",
+			_quarantined_count));
+		s.println(GCStats.format_rate("parse_throughput", mb, "MiB",
+			secs, "s"));
+		s.println(GCStats.format_load("parser_share",
+			parser_nanos / 1.0e9, secs));
+
+		if (_unmatched_samples.isEmpty()) return;
+		s.println();
+		s.println("sampled unmatched lines:");
+		for (String line:  _unmatched_samples)
+		{
+			s.println(line);
+		}
+	}
+
+	public void print_quarantined_lines(PrintStream s)
+	{
+		if (_quarantined_count == 0) return;
+
+		s.println(_quarantined_count + " line(s) quarantined after " +
+			"exceeding the budget of " + line_budget() +
+			" steps per character:");
+		for (String line:  _quarantined_lines)
+		{
+			s.println(line);
+		}
+		if (_quarantined_count > _quarantined_lines.size())
+		{
+			s.println("...");
+		}
+	}
+
 	public void save_data(String prefix, String suffix) throws IOException
 	{
 		_gc_stats.save(prefix, suffix);
@@ -555,6 +1100,13 @@ public class GCParserDriver
 		return b;
 	}
 
+	private static BitSet self_stats_only()
+	{
+		BitSet b = new BitSet();
+		b.set(SELF_STATISTICS);
+		return b;
+	}
+
 	public static GCMetric[]
 	parse_metric_names(String names[], Collection<String> unrecognized)
 	{
@@ -661,7 +1213,7 @@ public class GCParserDriver
 	protected ArrayList<GCParser>
 	create_gc_parsers(GCStats gc_stats, boolean verbose)
 	{
-		ArrayList<GCParser> parsers = new ArrayList<GCParser>(7);
+		ArrayList<GCParser> parsers = new ArrayList<GCParser>(11);
 		parsers.add(new ParGCYoungGCParser(gc_stats, verbose));
 		parsers.add(new FWYoungGCParser(gc_stats, verbose));
 		parsers.add(new ParGCFullGCParser(gc_stats, verbose));
@@ -670,9 +1222,25 @@ public class GCParserDriver
 		parsers.add(new FWOldGCParser(gc_stats, verbose));
 		parsers.add(new FWFullGCParser(gc_stats, verbose));
 		parsers.add(new VerboseGCParser(gc_stats, verbose));
+		parsers.add(new AppTimeGCParser(gc_stats, verbose));
+		parsers.add(new SafepointGCParser(gc_stats, verbose));
+		parsers.add(new TimesGCParser(gc_stats, verbose));
 		return parsers;
 	}
 
+	private static TimesGCParser
+	find_times_parser(ArrayList<GCParser> parsers)
+	{
+		for (GCParser parser:  parsers)
+		{
+			if (parser instanceof TimesGCParser)
+			{
+				return (TimesGCParser) parser;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Sort the GCParsers in descending order by match_count.
 	 */
@@ -730,9 +1298,31 @@ public class GCParserDriver
 	private final int _next_arg;
 
 	private ArrayList<GCParser> _gc_parsers;
+	private final List<ParseStats> _parse_stats_order;
+	private final TimesGCParser _times_parser;
+
+	// Self statistics (see SELF_STATISTICS).
+	private long _lines_read;
+	private long _bytes_read;
+	private long _parse_nanos;
+	private long _unmatched_count;
+	private final ArrayList<String> _unmatched_samples =
+		new ArrayList<String>(UNMATCHED_SAMPLE_MAX);
+	private final Random _random = new Random(0);
+
+	// Lines quarantined by the per-line budget (see set_line_budget).
+	private BoundedCharSequence _bounded_text;
+	private long _quarantined_count;
+	private final ArrayList<String> _quarantined_lines =
+		new ArrayList<String>(QUARANTINED_LINE_MAX);
 	private BitSet _actions;
 	private String _prefix;
 	private String _suffix;
 	private int _cpu_count;
 	private boolean _has_time_zero;
+	private boolean _rotated;
+	private String[] _slice;
+	private int _sample_blocks;
+	private int _sample_block_size;
+	private SampledStats _sampled_stats;
 }
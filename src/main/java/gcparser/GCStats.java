@@ -44,6 +44,11 @@ public class GCStats
 		"%-18s = %12.3f / %12.3f = %9.3f %s/%s";
 	public static final String load_fmt_str =
 		"%-18s = %12.3f / %12.3f = %9.3f%%";
+	public static final String cpu_count_fmt_str =
+		"%-18s = %12d (from the gc cpu times)";
+	// The shortest real time of an event for its parallelism to be used
+	// to find the cpu count (see times_max_parallelism()).
+	public static final double times_min_real = 0.1;
 
 	GCStats(EnumMap<GCMetric, Boolean> enabled_map, int cpu_count,
 		boolean input_has_time_zero, int file_timestamp_gap,
@@ -142,11 +147,29 @@ public class GCStats
 	 * maintain accurate timestamps.
 	 */
 	public void end_of_file()
+	{
+		end_of_file(false);
+	}
+
+	/**
+	 * Same as end_of_file(), but if continued is true the next file
+	 * continues this one (e.g., the next file of a rotated log set), so
+	 * its timestamps are used as they are instead of being moved past the
+	 * end of this file.
+	 */
+	public void end_of_file(boolean continued)
 	{
 // 		eof_debug(true);
 
 		_elapsed_time += _timestamp_end - _timestamp_beg;
 
+		if (continued)
+		{
+			// Only the time after the end of this file is elapsed.
+			_timestamp_beg = _timestamp_end;
+			return;
+		}
+
 		long end = (long) Math.ceil(_timestamp_end);
 		long addend = _file_timestamp_gap + _file_timestamp_gap_min - 1;
 		_timestamp_ofs = (end + addend) / _file_timestamp_gap *
@@ -163,6 +186,68 @@ public class GCStats
 		return _cpu_count;
 	}
 
+	// The most recent gc event (a pause or a concurrent phase) is saved so
+	// that the [Times: ...] output that follows it can be attached to it.
+	public void
+	save_gc_event(boolean stw, double duration, double timestamp_beg,
+		double timestamp_end)
+	{
+		_event_pending = true;
+		_event_cause = GCCause.unknown;
+		_event_stw = stw;
+		_event_duration = duration;
+		_event_timestamp_beg = timestamp_beg;
+		_event_timestamp_end = timestamp_end;
+	}
+
+	public void save_gc_cause(GCCause cause) { _event_cause = cause; }
+
+	public boolean gc_event_pending()  { return _event_pending; }
+	public GCCause gc_event_cause()    { return _event_cause; }
+	public boolean gc_event_stw()      { return _event_stw; }
+	public double gc_event_duration()  { return _event_duration; }
+	public double gc_event_timestamp_beg() { return _event_timestamp_beg; }
+	public double gc_event_timestamp_end() { return _event_timestamp_end; }
+
+	// Called once cpu times have been recorded for the saved gc event,
+	// with its user + sys and its real time.
+	public void gc_event_times_added(double cpu, double real)
+	{
+		_event_pending = false;
+		if (real > 0.0)
+		{
+			// Real times are printed to 10ms, so only longer events
+			// give a parallelism that can be relied on.
+			final double par = cpu / real;
+			_times_max_par_all = Math.max(_times_max_par_all, par);
+			if (real >= times_min_real)
+			{
+				_times_max_par = Math.max(_times_max_par, par);
+			}
+		}
+		if (_event_stw)
+		{
+			_times_stw_covered += _event_duration;
+		}
+		else
+		{
+			_times_cgc_covered += _event_duration;
+		}
+	}
+
+	// The total pause (or concurrent phase active) time of the gc events
+	// for which cpu times were reported.
+	public double times_stw_covered() { return _times_stw_covered; }
+	public double times_cgc_covered() { return _times_cgc_covered; }
+
+	// The highest parallelism ((user + sys) / real) of the gc events for
+	// which cpu times were reported, counting only those that took at
+	// least times_min_real if there are any; 0 if there are none.
+	public double times_max_parallelism()
+	{
+		return _times_max_par > 0.0 ? _times_max_par : _times_max_par_all;
+	}
+
 	public Stats stats(GCMetric metric)
 	{
 		return _stats_map.get(metric);
@@ -185,6 +270,8 @@ public class GCStats
 
 	public TimingWindowData timing_window() { return _window_data; }
 
+	public OldGenForecast old_gen_forecast() { return _old_gen_forecast; }
+
 	// The sizes of the total heap are saved after each GC (young or full)
 	// and used to compute the amount allocated:
 	// 
@@ -336,13 +423,44 @@ public class GCStats
 				gcstats.stats(GCMetric.cms_cp_a_time).sum() +
 				gcstats.stats(GCMetric.cms_cs_a_time).sum() + 
 				gcstats.stats(GCMetric.cms_cr_a_time).sum();
-			cpu_time_tot = elapsed_time * gcstats.cpu_count();
-			cpu_time_stw = tgc_time * gcstats.cpu_count();
-			// XXX - need an estimate of the average number of
-			// threads used during concurrent phases.
-			cpu_time_cgc = cgc_time;
+			has_stop_time =
+				gcstats.stats(GCMetric.app_stop_time).n() > 0;
+			stop_time = gcstats.stats(GCMetric.app_stop_time).sum();
+			ngc_stw_time = gcstats.stats(GCMetric.app_stop_ngc).sum();
+			// Use the cpu time actually reported by [Times: ...]
+			// where available.  The machine has at least as many
+			// cpus as the gc was seen to keep busy, so the count
+			// given (by default 1) is raised to that if it is lower;
+			// otherwise the loads could exceed 100%.
+			has_times = gcstats.stats(GCMetric.gc_user_time).n() > 0;
+			cpu_count_given = gcstats.cpu_count();
+			cpu_count = has_times ? Math.max(cpu_count_given,
+				(int) Math.round(gcstats.times_max_parallelism())) :
+				cpu_count_given;
+
+			cpu_time_tot = elapsed_time * cpu_count;
+			// Pauses make all cpus unavailable to the mutators.
+			cpu_time_paused = tgc_time * cpu_count;
+			// Safepoints that are not gc pauses stop the mutators
+			// just the same.
+			cpu_time_ngc = ngc_stw_time * cpu_count;
+
+			// Events without cpu times fall back to the old
+			// estimates:  all cpus busy during a pause, one thread
+			// during a concurrent phase.
+			stw_cpu = gcstats.stats(GCMetric.gc_stw_cpu).sum();
+			stw_covered = gcstats.times_stw_covered();
+			cgc_cpu = gcstats.stats(GCMetric.gc_cgc_cpu).sum();
+			cgc_covered = gcstats.times_cgc_covered();
+			cpu_time_stw = stw_cpu + Math.max(tgc_time -
+				stw_covered, 0.0) * cpu_count;
+			cpu_time_cgc = cgc_cpu +
+				Math.max(cgc_time - cgc_covered, 0.0);
+			// The cpu time left to the mutators is what the gc
+			// (and the other safepoints) did not use, counted the
+			// same way as the loads, so that the shares add up.
 			cpu_time_mut = cpu_time_tot - cpu_time_stw -
-				cpu_time_cgc;
+				cpu_time_ngc - cpu_time_cgc;
 		}
 
 		public final double alloc;
@@ -351,8 +469,20 @@ public class GCStats
 		public final double ygc_time;
 		public final double tgc_time;
 		public final double cgc_time;
+		public final boolean has_stop_time;
+		public final double stop_time;
+		public final double ngc_stw_time;
+		public final boolean has_times;
+		public final int cpu_count_given;
+		public final int cpu_count;
+		public final double stw_cpu;
+		public final double stw_covered;
+		public final double cgc_cpu;
+		public final double cgc_covered;
 		public final double cpu_time_tot;
+		public final double cpu_time_paused;
 		public final double cpu_time_stw;
+		public final double cpu_time_ngc;
 		public final double cpu_time_cgc;
 		public final double cpu_time_mut;
 	};
@@ -370,6 +500,22 @@ public class GCStats
 				x.elapsed_time, "s"));
 		s.println(format_rate("promo/ygc_time", x.promo, MiB,
 				x.ygc_time, "s"));
+		if (x.has_times)
+		{
+			if (x.cpu_count != x.cpu_count_given)
+			{
+				s.println(String.format(cpu_count_fmt_str,
+					"cpu_count", x.cpu_count));
+			}
+			s.println(format_rate("stw_cpu/stw_time", x.stw_cpu,
+				"s", x.stw_covered, "s"));
+			// Only CMS reports cpu times for concurrent phases.
+			if (x.cgc_covered > 0.0)
+			{
+				s.println(format_rate("cgc_cpu/cgc_time",
+					x.cgc_cpu, "s", x.cgc_covered, "s"));
+			}
+		}
 
 		s.println(format_load("gc_stw_load", x.cpu_time_stw,
 			x.cpu_time_tot));
@@ -378,6 +524,12 @@ public class GCStats
 		s.println(format_load("gc_load",
 				x.cpu_time_stw + x.cpu_time_cgc,
 				x.cpu_time_tot));
+
+		if (!x.has_stop_time) return;
+		s.println(format_load("app_stopped_load", x.stop_time,
+				x.elapsed_time));
+		s.println(format_load("non_gc_stw_load", x.cpu_time_ngc,
+				x.cpu_time_tot));
 	}
 
 	public static void
@@ -453,6 +605,24 @@ public class GCStats
 				y.cpu_time_stw + y.cpu_time_cgc,
 				y.cpu_time_tot,
 				(rate_y - rate_x) * 100.0));
+
+		if (!x.has_stop_time && !y.has_stop_time) return;
+
+		rate_x = x.stop_time / x.elapsed_time;
+		rate_y = y.stop_time / y.elapsed_time;
+		s.println(format_load("app_stopped_load", x.stop_time,
+				x.elapsed_time));
+		s.println(format_load("app_stopped_load", y.stop_time,
+				y.elapsed_time,
+				(rate_y - rate_x) * 100.0));
+
+		rate_x = x.cpu_time_ngc / x.cpu_time_tot;
+		rate_y = y.cpu_time_ngc / y.cpu_time_tot;
+		s.println(format_load("non_gc_stw_load", x.cpu_time_ngc,
+				x.cpu_time_tot));
+		s.println(format_load("non_gc_stw_load", y.cpu_time_ngc,
+				y.cpu_time_tot,
+				(rate_y - rate_x) * 100.0));
 	}
 
 	public void print_rates(PrintStream s)
@@ -467,6 +637,9 @@ public class GCStats
 		if (has_generated_timestamps()) return;
 		s.println();
 		print_rates(s);
+		if (_old_gen_forecast.timestamp() < 0.0) return;
+		s.println();
+		_old_gen_forecast.print(s);
 	}
 	
 	public static void print_comparison(PrintStream s, String name,
@@ -547,11 +720,24 @@ public class GCStats
 	private double	_timestamp_ofs;
 	private double	_elapsed_time;
 
+	// The most recent gc event; see save_gc_event().
+	private boolean	_event_pending;
+	private boolean	_event_stw;
+	private GCCause	_event_cause = GCCause.unknown;
+	private double	_event_duration;
+	private double	_event_timestamp_beg;
+	private double	_event_timestamp_end;
+	private double	_times_stw_covered;
+	private double	_times_cgc_covered;
+	private double	_times_max_par;
+	private double	_times_max_par_all;
+
 	// Counter for generating timestamps when they are not present in the
 	// input.
 	private long  	_timestamp;
 
 	private TimingWindowData _window_data;
+	private final OldGenForecast _old_gen_forecast = new OldGenForecast();
 
 	private final int	_cpu_count;
 
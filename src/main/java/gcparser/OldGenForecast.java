@@ -0,0 +1,440 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Streaming analysis of old generation occupancy.  The parsers report the
+ * old gen occupancy after each collection; the occupancy after a full gc
+ * (or after a cms sweep) approximates the live set.  A robust (Theil-Sen)
+ * line is fit to the most recent live set samples, a Mann-Kendall test is
+ * used to detect monotonic growth (a leak), and the smoothed promotion rate
+ * is used to forecast the time until the next full gc and, for cms, the
+ * time until a concurrent mode failure.
+ *
+ * All timestamps are absolute (they include the offset for the current
+ * input file), so the samples from several files form a single series.
+ */
+public class OldGenForecast
+{
+	// The number of live set samples used for the trend.
+	public static final int window_max = 128;
+	// Weight given to the most recent promotion rate.
+	public static final double promo_rate_weight = 0.1;
+	// One-sided 95% critical value for the Mann-Kendall statistic.
+	public static final double leak_z_min = 1.645;
+	// Minimum number of live set samples before a trend is reported.
+	public static final int trend_samples_min = 4;
+
+	public static final String fmt_str = "%-18s = %12.3f %s";
+
+	public OldGenForecast() { }
+
+	// Keep the full occupancy and live set series (for plotting).
+	public void set_keep_series(boolean keep)
+	{
+		if (keep && _og_used_time == null)
+		{
+			_og_used_time = new ArrayList<Double>();
+			_og_used_data = new ArrayList<Double>();
+			_og_commit_data = new ArrayList<Double>();
+			_live_set_time = new ArrayList<Double>();
+			_live_set_data = new ArrayList<Double>();
+		}
+	}
+
+	public boolean keeps_series() { return _og_used_time != null; }
+
+	public void
+	young_gc(double timestamp_beg, double timestamp_end, double og_used_beg,
+		double og_used_end, double og_commit_end, double promo)
+	{
+		if (_sweep_done)
+		{
+			// The first young gc after a cms sweep; the old gen
+			// occupancy at its start is (roughly) the live set.
+			_sweep_done = false;
+			add_live_set(timestamp_beg, og_used_beg);
+		}
+
+		if (_young_timestamp_end >= 0.0)
+		{
+			final double elapsed = timestamp_end - _young_timestamp_end;
+			if (elapsed > 0.0)
+			{
+				final double rate = promo / elapsed;
+				_promo_rate = _promo_rate < 0.0 ? rate :
+					_promo_rate + promo_rate_weight *
+					(rate - _promo_rate);
+			}
+		}
+		_young_timestamp_end = timestamp_end;
+
+		add_occupancy(timestamp_end, og_used_end, og_commit_end);
+	}
+
+	public void
+	full_gc(double timestamp_end, double og_used_end, double og_commit_end)
+	{
+		// Objects that survived a full gc are promoted; don't count
+		// the drop in occupancy against the next promotion rate.
+		_young_timestamp_end = timestamp_end;
+		_sweep_done = false;
+		add_live_set(timestamp_end, og_used_end);
+		add_occupancy(timestamp_end, og_used_end, og_commit_end);
+	}
+
+	public void cms_initial_mark(double timestamp)
+	{
+		_cms_cycle_beg = timestamp;
+	}
+
+	public void cms_sweep_end(double timestamp)
+	{
+		if (_cms_cycle_beg >= 0.0 && timestamp >= _cms_cycle_beg)
+		{
+			final double t = timestamp - _cms_cycle_beg;
+			_cms_cycle_time = _cms_cycle_cnt == 0 ? t :
+				Math.max(_cms_cycle_time, t);
+			++_cms_cycle_cnt;
+		}
+		_cms_cycle_beg = -1.0;
+		_sweep_done = true;
+	}
+
+	/**
+	 * Append the state of a forecast of the log that follows this one
+	 * (e.g., the next file of a rotated log set, parsed separately), as
+	 * if that log had been fed to this forecast too.
+	 */
+	public void append(OldGenForecast next)
+	{
+		// The live set samples still in next's window, oldest first.
+		final int n = next.window_size();
+		final int first = (int) (next._live_set_cnt > window_max ?
+			next._live_set_cnt % window_max : 0);
+		// Count the samples that have left next's window first, so that
+		// the ones added below are in the ring in the order fit_trend()
+		// reads them.
+		_live_set_cnt += next._live_set_cnt - n;
+		for (int i = 0; i < n; ++i)
+		{
+			final int j = (first + i) % window_max;
+			add_live_set(next._window_time[j], next._window_data[j]);
+		}
+		if (_live_set_time != null && next._live_set_time != null)
+		{
+			// Replace the window samples added above with the
+			// full series.
+			final int size = _live_set_time.size();
+			_live_set_time.subList(size - n, size).clear();
+			_live_set_data.subList(size - n, size).clear();
+			_live_set_time.addAll(next._live_set_time);
+			_live_set_data.addAll(next._live_set_data);
+		}
+
+		if (next._timestamp >= 0.0)
+		{
+			_timestamp = next._timestamp;
+			_og_used = next._og_used;
+			_og_commit = next._og_commit;
+		}
+		if (_og_used_time != null && next._og_used_time != null)
+		{
+			_og_used_time.addAll(next._og_used_time);
+			_og_used_data.addAll(next._og_used_data);
+			_og_commit_data.addAll(next._og_commit_data);
+		}
+
+		if (next._promo_rate >= 0.0) _promo_rate = next._promo_rate;
+		if (next._young_timestamp_end >= 0.0)
+		{
+			_young_timestamp_end = next._young_timestamp_end;
+		}
+
+		if (next._cms_cycle_cnt > 0)
+		{
+			_cms_cycle_time = _cms_cycle_cnt == 0 ?
+				next._cms_cycle_time :
+				Math.max(_cms_cycle_time, next._cms_cycle_time);
+			_cms_cycle_cnt += next._cms_cycle_cnt;
+		}
+		if (next._cms_cycle_beg >= 0.0 || next._cms_cycle_cnt > 0)
+		{
+			_cms_cycle_beg = next._cms_cycle_beg;
+			_sweep_done = next._sweep_done;
+		}
+	}
+
+	private void
+	add_occupancy(double timestamp, double og_used, double og_commit)
+	{
+		_timestamp = timestamp;
+		_og_used = og_used;
+		_og_commit = og_commit;
+		if (_og_used_time != null)
+		{
+			_og_used_time.add(timestamp);
+			_og_used_data.add(og_used);
+			_og_commit_data.add(og_commit);
+		}
+	}
+
+	private void add_live_set(double timestamp, double live)
+	{
+		final int i = (int) (_live_set_cnt % window_max);
+		_window_time[i] = timestamp;
+		_window_data[i] = live;
+		++_live_set_cnt;
+		_trend_valid = false;
+		if (_live_set_time != null)
+		{
+			_live_set_time.add(timestamp);
+			_live_set_data.add(live);
+		}
+	}
+
+	// Fit the trend over the current window (if not already done).
+	private void fit_trend()
+	{
+		if (_trend_valid) return;
+		_trend_valid = true;
+
+		final int n = window_size();
+		if (n < 2)
+		{
+			_slope = 0.0;
+			_intercept = n == 1 ? _window_data[0] : 0.0;
+			_leak_z = 0.0;
+			return;
+		}
+
+		// Oldest sample first.
+		final int first = (int) (_live_set_cnt > window_max ?
+			_live_set_cnt % window_max : 0);
+		double[] t = new double[n];
+		double[] d = new double[n];
+		for (int i = 0; i < n; ++i)
+		{
+			t[i] = _window_time[(first + i) % window_max];
+			d[i] = _window_data[(first + i) % window_max];
+		}
+
+		// Theil-Sen:  the median of the pairwise slopes, and the
+		// median of the residual intercepts.  Mann-Kendall:  the sum
+		// of the signs of the pairwise differences.
+		double[] slopes = new double[n * (n - 1) / 2];
+		int cnt = 0;
+		long s = 0;
+		for (int i = 0; i < n - 1; ++i)
+		{
+			for (int j = i + 1; j < n; ++j)
+			{
+				final double dd = d[j] - d[i];
+				if (dd > 0.0) ++s; else if (dd < 0.0) --s;
+				final double dt = t[j] - t[i];
+				if (dt > 0.0) slopes[cnt++] = dd / dt;
+			}
+		}
+		_slope = cnt > 0 ? median(slopes, cnt) : 0.0;
+
+		double[] intercepts = new double[n];
+		for (int i = 0; i < n; ++i)
+		{
+			intercepts[i] = d[i] - _slope * t[i];
+		}
+		_intercept = median(intercepts, n);
+
+		final double var = n * (n - 1.0) * (2.0 * n + 5.0) / 18.0;
+		if (s > 0) _leak_z = (s - 1) / Math.sqrt(var);
+		else if (s < 0) _leak_z = (s + 1) / Math.sqrt(var);
+		else _leak_z = 0.0;
+	}
+
+	private static double median(double[] a, int n)
+	{
+		Arrays.sort(a, 0, n);
+		final int h = n / 2;
+		return (n & 1) != 0 ? a[h] : (a[h - 1] + a[h]) / 2.0;
+	}
+
+	public int window_size()
+	{
+		return (int) Math.min(_live_set_cnt, window_max);
+	}
+
+	public long live_set_count() { return _live_set_cnt; }
+	public double timestamp()    { return _timestamp; }
+	public double og_used()      { return _og_used; }
+	public double og_commit()    { return _og_commit; }
+	public double promo_rate()   { return Math.max(_promo_rate, 0.0); }
+	public int cms_cycle_count() { return _cms_cycle_cnt; }
+	// The longest cms cycle (initial mark through sweep).
+	public double cms_cycle_time() { return _cms_cycle_time; }
+
+	// Live set trend, in MB/s and MB.
+	public double live_set_slope()     { fit_trend(); return _slope; }
+	public double live_set_intercept() { fit_trend(); return _intercept; }
+	public double live_set_at(double timestamp)
+	{
+		fit_trend();
+		return _intercept + _slope * timestamp;
+	}
+
+	public double leak_z() { fit_trend(); return _leak_z; }
+
+	public boolean has_trend()
+	{
+		return window_size() >= trend_samples_min;
+	}
+
+	public boolean leak_suspected()
+	{
+		return has_trend() && leak_z() > leak_z_min &&
+			live_set_slope() > 0.0;
+	}
+
+	// The forecasts below are in seconds from the last collection; a
+	// negative value means no forecast is possible (e.g., nothing is being
+	// promoted or the live set is not growing).
+
+	// Time until promotion fills the (currently committed) old gen.
+	public double time_to_full_gc()
+	{
+		final double rate = promo_rate();
+		if (_timestamp < 0.0 || rate <= 0.0) return -1.0;
+		return Math.max(_og_commit - _og_used, 0.0) / rate;
+	}
+
+	// Time until a cms cycle can no longer complete before the old gen
+	// fills, i.e., until the headroom above the live set is less than the
+	// amount promoted during the longest cycle seen.
+	public double time_to_cmf()
+	{
+		if (_cms_cycle_cnt == 0 || _timestamp < 0.0) return -1.0;
+		final double margin = promo_rate() * _cms_cycle_time;
+		return time_to_live_set(_og_commit - margin);
+	}
+
+	// Time until the live set trend reaches the committed old gen, at
+	// which point collections can no longer reclaim space.
+	public double time_to_exhaustion()
+	{
+		if (_timestamp < 0.0) return -1.0;
+		return time_to_live_set(_og_commit);
+	}
+
+	private double time_to_live_set(double limit)
+	{
+		if (!has_trend()) return -1.0;
+		final double live = live_set_at(_timestamp);
+		if (live >= limit) return 0.0;
+		final double slope = live_set_slope();
+		if (slope <= 0.0) return -1.0;
+		return (limit - live) / slope;
+	}
+
+	public ArrayList<Double> og_used_time()   { return _og_used_time; }
+	public ArrayList<Double> og_used_data()   { return _og_used_data; }
+	public ArrayList<Double> og_commit_data() { return _og_commit_data; }
+	public ArrayList<Double> live_set_time()  { return _live_set_time; }
+	public ArrayList<Double> live_set_data()  { return _live_set_data; }
+
+	public static String format(String name, double val, String units)
+	{
+		return String.format(fmt_str, name, val, units);
+	}
+
+	public void print(PrintStream s)
+	{
+		if (_timestamp < 0.0) return;
+
+		final String MiB = "MiB";
+		s.println(format("og_used", _og_used, MiB));
+		s.println(format("og_commit", _og_commit, MiB));
+		s.println(format("promo_rate", promo_rate(), MiB + "/s"));
+		s.println(String.format("%-18s = %12d", "live_set_samples",
+			window_size()));
+		if (has_trend())
+		{
+			s.println(format("live_set", live_set_at(_timestamp),
+				MiB));
+			s.println(format("live_set_slope", live_set_slope(),
+				MiB + "/s"));
+			s.println(format("live_set_trend_z", leak_z(),
+				leak_suspected() ? "leak suspected" : ""));
+		}
+		if (_cms_cycle_cnt > 0)
+		{
+			s.println(format("cms_cycle_max", _cms_cycle_time, "s"));
+		}
+		print_forecast(s, "time_to_full_gc", time_to_full_gc());
+		if (_cms_cycle_cnt > 0)
+		{
+			print_forecast(s, "time_to_cmf", time_to_cmf());
+		}
+		if (has_trend())
+		{
+			print_forecast(s, "time_to_exhaustion",
+				time_to_exhaustion());
+		}
+	}
+
+	private static void print_forecast(PrintStream s, String name, double t)
+	{
+		if (t < 0.0)
+		{
+			s.println(String.format("%-18s = %12s", name, "-"));
+		}
+		else
+		{
+			s.println(format(name, t, "s"));
+		}
+	}
+
+	private final double[] _window_time = new double[window_max];
+	private final double[] _window_data = new double[window_max];
+	private long	_live_set_cnt;
+	private boolean	_trend_valid;
+	private double	_slope;
+	private double	_intercept;
+	private double	_leak_z;
+
+	// Old gen occupancy after the most recent collection.
+	private double	_timestamp = -1.0;
+	private double	_og_used;
+	private double	_og_commit;
+
+	// Smoothed promotion rate (MB/s); negative until computed.
+	private double	_promo_rate = -1.0;
+	private double	_young_timestamp_end = -1.0;
+
+	private double	_cms_cycle_beg = -1.0;
+	private double	_cms_cycle_time;
+	private int	_cms_cycle_cnt;
+	private boolean	_sweep_done;
+
+	// Optional full series.
+	private ArrayList<Double> _og_used_time;
+	private ArrayList<Double> _og_used_data;
+	private ArrayList<Double> _og_commit_data;
+	private ArrayList<Double> _live_set_time;
+	private ArrayList<Double> _live_set_data;
+}
@@ -38,7 +38,7 @@ public class ParCompactPhaseGCParser extends GCParser
 	{
 		for (int i = 0; i < _patterns.length; ++i)
 		{
-			Matcher m = _patterns[i].matcher(s);
+			Matcher m = matcher(_patterns[i], s);
 			if (m.find())
 			{
 				save_match_state(filename, line, s);
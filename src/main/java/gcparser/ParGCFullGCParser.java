@@ -35,7 +35,7 @@ public class ParGCFullGCParser extends GCParser
 
 	public boolean parse(String filename, int line, String s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = matcher(_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -46,6 +46,7 @@ public class ParGCFullGCParser extends GCParser
 				th_used_end_grp, th_commit_end_grp,
 				pg_used_beg_grp, pg_used_end_grp,
 				pg_commit_end_grp, gc_time_grp);
+			add_gc_cause(gc_cause(m, system_grp, 0, 0), true);
 			return true;
 		}
 
@@ -83,6 +84,7 @@ public class ParGCFullGCParser extends GCParser
 		gc_time_secs_re + "\\]");
 
 	private static final int timestamp_grp = timestamp_re_time_group;
+	private static final int system_grp = timestamp_re_groups + 1;
 
 	private static final int yg_used_beg_grp =
 		timestamp_re_groups + full_gc_re_groups +
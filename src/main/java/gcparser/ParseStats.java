@@ -0,0 +1,76 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+/**
+ * Self-instrumentation counters for a single GCParser:  the number of lines
+ * it was asked to parse, the number it matched, the time spent in its
+ * parse() method and the number of characters it examined.
+ */
+public class ParseStats
+{
+	public static final String hdr1 =
+"    parser                    tried    matched      msecs  %time        MB";
+	public static final String hdr2 =
+"------------------------- ---------- ---------- ---------- ------ ---------";
+	public static final String hdr = hdr1 + GCStats.eol + hdr2;
+
+	public static final String data_fmt_str =
+		"%-25s %10d %10d %10.3f %6.2f %9.3f";
+
+	public ParseStats(String name)
+	{
+		_name = name;
+	}
+
+	public String name() { return _name; }
+
+	public long lines_tried()   { return _lines_tried; }
+	public long lines_matched() { return _lines_matched; }
+	public long nanos()         { return _nanos; }
+	public long bytes()         { return _bytes; }
+
+	// Record one call to parse().  The byte count is the length of the
+	// line plus the line terminator.
+	public void add(boolean matched, long nanos, int bytes)
+	{
+		++_lines_tried;
+		if (matched) ++_lines_matched;
+		_nanos += nanos;
+		_bytes += bytes;
+	}
+
+	public void reset()
+	{
+		_lines_tried = _lines_matched = _nanos = _bytes = 0;
+	}
+
+	public String format(long total_nanos)
+	{
+		final double pct = total_nanos > 0 ?
+			_nanos * 100.0 / total_nanos : 0.0;
+		return String.format(data_fmt_str, _name, _lines_tried,
+			_lines_matched, _nanos / 1.0e6, pct,
+			_bytes / (1024.0 * 1024.0));
+	}
+
+	private final String _name;
+	private long _lines_tried;
+	private long _lines_matched;
+	private long _nanos;
+	private long _bytes;
+}
@@ -0,0 +1,105 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.regex.*;
+
+public class SafepointGCParser extends GCParser
+{
+	public SafepointGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		// _debug = System.err;	// XXX
+	}
+
+	public boolean parse(String filename, int line, String s)
+	{
+		Matcher m = matcher(_pattern, s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			debug(s, m);	// XXX
+
+			// The table reports times in milliseconds.
+			final double spin = ms_to_secs(m, spin_grp);
+			final double block = ms_to_secs(m, block_grp);
+			final double sync = ms_to_secs(m, sync_grp);
+			final double cleanup = ms_to_secs(m, cleanup_grp);
+			final double vmop = ms_to_secs(m, vmop_grp);
+
+			add_dp(GCMetric.sp_spin_time, spin);
+			add_dp(GCMetric.sp_block_time, block);
+			add_dp(GCMetric.sp_sync_time, sync);
+			add_dp(GCMetric.sp_clean_time, cleanup);
+			add_dp(GCMetric.sp_vmop_time, vmop);
+
+			// Add just one timestamp since the underlying list is
+			// shared by all the sp_* metrics.
+			final double ts = Double.parseDouble(
+				m.group(timestamp_grp));
+			add_ts(GCMetric.sp_spin_time, ts,
+				ts + sync + cleanup + vmop);
+			return true;
+		}
+
+		return false;
+	}
+
+	private static double ms_to_secs(Matcher m, int group)
+	{
+		return Long.parseLong(m.group(group)) / 1000.0;
+	}
+
+	// XXX
+	private void debug(String s, Matcher m)
+	{
+		if (_debug == null) return;
+		debug(s); debug();
+		debug(m, vmop_name_grp, "op");
+		debug(m, spin_grp,      " spin");
+		debug(m, block_grp,     " block");
+		debug(m, sync_grp,      " sync");
+		debug(m, cleanup_grp,   " cleanup");
+		debug(m, vmop_grp,      " vmop");
+		debug();
+	}
+
+	// One row of the table printed by -XX:+PrintSafepointStatistics:
+	// 
+	//          vmop                    [threads: total initially_running wait_to_block]    [time: spin block sync cleanup vmop] page_trap_count
+	// 1.234: ParallelGCFailedAllocation       [      12          0              0    ]      [     0     0     0     0    10    ]  0
+	//
+	// The vmop name stops at a ':' as well as at the '[', so a line of
+	// many timestamps is not scanned to its end from each of them.
+	private static final String count_re = "([0-9]++)";
+
+	private static Pattern _pattern = Pattern.compile(
+		"(?<![0-9])" + gc_time_re + ": +([^\\[:]+?) +" +
+		"\\[ *" + count_re + " +" + count_re + " +" + count_re +
+		" *\\] +" +
+		"\\[ *" + count_re + " +" + count_re + " +" + count_re + " +" +
+		count_re + " +" + count_re + " *\\] +" + count_re);
+
+	private static final int timestamp_grp = 1;
+	private static final int vmop_name_grp = timestamp_grp + 1;
+	private static final int threads_total_grp = vmop_name_grp + 1;
+	private static final int spin_grp = threads_total_grp + 3;
+	private static final int block_grp = spin_grp + 1;
+	private static final int sync_grp = block_grp + 1;
+	private static final int cleanup_grp = sync_grp + 1;
+	private static final int vmop_grp = cleanup_grp + 1;
+}
@@ -0,0 +1,395 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Estimates of the statistics of a whole log from the data of a sample of
+ * its blocks (see BlockSampler), with 95% confidence intervals.
+ *
+ * <p>
+ * The blocks are treated as a simple random sample of the blocks of the
+ * file.  The count of each metric is estimated by scaling the count in
+ * the sample by the size of the file over the size of the sample, and its
+ * mean by the ratio of the sums to the counts in the blocks; the intervals
+ * of both come from the variance between the blocks.  The intervals of
+ * the percentiles come from resampling the blocks (a block bootstrap), so
+ * that the values of a block are not taken to be independent of each
+ * other; a percentile with too few values above it in the sample has no
+ * upper bound (it is shown as Infinity).  If the sample is the whole file
+ * the estimates are exact.
+ * </p>
+ */
+public class SampledStats
+{
+	public static final double z = 1.96;
+	public static final int bootstrap_samples = 200;
+	// How far below a percentile the scan of a resample starts.
+	public static final double bootstrap_window = 0.01;
+	// The number of values in a sample above a percentile needed to
+	// bound it from above.
+	public static final int min_tail_values = 10;
+	public static final double[] percentiles = { 0.50, 0.90, 0.99 };
+
+	public static final String hdr1 =
+"     what      count (est.)        +/-        mean         +/-";
+	public static final String hdr2 =
+"------------- ------------ ---------- ----------- -----------";
+	public static final String pct_hdr1 =
+"     what       p50  [95% interval]          p90  [95% interval]          p99  [95% interval]";
+	public static final String pct_hdr2 =
+"------------- ---------------------------- ---------------------------- ----------------------------";
+
+	// The estimates of one metric.
+	public static class Estimate
+	{
+		public double count;
+		public double count_error;
+		public double mean;
+		public double mean_error;
+		// For each of percentiles, the estimate and its interval.
+		public double[] pct = new double[percentiles.length];
+		public double[] pct_lo = new double[percentiles.length];
+		public double[] pct_hi = new double[percentiles.length];
+	}
+
+	public SampledStats(BlockSampler sampler, Random random)
+	{
+		_sampler = sampler;
+		_random = random;
+		_bytes = new long[sampler.blocks()];
+		_metrics = new EnumMap<GCMetric, Values>(GCMetric.class);
+	}
+
+	/**
+	 * Add the data parsed from block i, which holds the given number of
+	 * bytes of lines.
+	 */
+	public void add(int i, GCDataStore data, long bytes)
+	{
+		_bytes[i] = bytes;
+		for (GCMetric metric:  GCMetric.values())
+		{
+			if (!data.enabled(metric)) continue;
+			List<Double> values = data.data(metric);
+			if (values == null || values.isEmpty()) continue;
+
+			Values v = _metrics.get(metric);
+			if (v == null)
+			{
+				v = new Values(_bytes.length);
+				_metrics.put(metric, v);
+			}
+			v.add(i, values);
+		}
+	}
+
+	public BlockSampler sampler() { return _sampler; }
+
+	// The fraction of the file that the sample holds.
+	public double fraction()
+	{
+		long sum = 0;
+		for (long b:  _bytes) sum += b;
+		return _sampler.length() > 0 ?
+			Math.min(1.0, (double) sum / _sampler.length()) : 1.0;
+	}
+
+	/**
+	 * Returns the estimates of the metric, or null if it has no values in
+	 * the sample.
+	 */
+	public Estimate estimate(GCMetric metric)
+	{
+		Values v = _metrics.get(metric);
+		return v != null ? v.estimate() : null;
+	}
+
+	public void print(PrintStream s)
+	{
+		final BlockSampler sampler = _sampler;
+		s.println(String.format("sampled %d of %d blocks of %d KiB " +
+			"(%.2f%% of %d bytes)", sampler.blocks(),
+			sampler.population(), sampler.block_size() / 1024,
+			fraction() * 100.0, sampler.length()));
+		s.println();
+
+		EnumMap<GCMetric, Estimate> estimates =
+			new EnumMap<GCMetric, Estimate>(GCMetric.class);
+		for (GCMetric metric:  _metrics.keySet())
+		{
+			estimates.put(metric, estimate(metric));
+		}
+
+		s.println(hdr1);
+		s.println(hdr2);
+		for (GCMetric metric:  estimates.keySet())
+		{
+			Estimate e = estimates.get(metric);
+			s.println(String.format("%-13s %12.0f %10.0f %11.4f %11.4f",
+				metric, e.count, e.count_error, e.mean,
+				e.mean_error));
+		}
+
+		s.println();
+		s.println(pct_hdr1);
+		s.println(pct_hdr2);
+		for (GCMetric metric:  estimates.keySet())
+		{
+			Estimate e = estimates.get(metric);
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%-13s", metric));
+			for (int j = 0; j < percentiles.length; ++j)
+			{
+				sb.append(String.format(" %8.4f [%8.4f, %8.4f]",
+					e.pct[j], e.pct_lo[j], e.pct_hi[j]));
+			}
+			s.println(sb.toString());
+		}
+	}
+
+	// The values of one metric in each block.
+	private class Values
+	{
+		Values(int blocks)
+		{
+			_counts = new int[blocks];
+			_sums = new double[blocks];
+			_values = new double[64];
+			_blocks = new int[64];
+		}
+
+		void add(int block, List<Double> values)
+		{
+			final int n = values.size();
+			if (_size + n > _values.length)
+			{
+				int capacity = Math.max(_size + n, _size * 2);
+				_values = Arrays.copyOf(_values, capacity);
+				_blocks = Arrays.copyOf(_blocks, capacity);
+			}
+			double sum = 0.0;
+			for (int i = 0; i < n; ++i)
+			{
+				final double val = values.get(i);
+				sum += val;
+				_values[_size] = val;
+				_blocks[_size] = block;
+				++_size;
+			}
+			_counts[block] += n;
+			_sums[block] += sum;
+		}
+
+		Estimate estimate()
+		{
+			final int n = _counts.length;
+			final double f = fraction();
+			Estimate e = new Estimate();
+
+			long count = 0;
+			double sum = 0.0;
+			for (int i = 0; i < n; ++i)
+			{
+				count += _counts[i];
+				sum += _sums[i];
+			}
+			e.count = count / f;
+			e.mean = sum / count;
+
+			// The variance of the block counts and of the residuals
+			// of the block sums from the ratio estimate.
+			if (n > 1 && f < 1.0)
+			{
+				final double mean_count = (double) count / n;
+				double var_count = 0.0;
+				double var_resid = 0.0;
+				for (int i = 0; i < n; ++i)
+				{
+					final double d = _counts[i] - mean_count;
+					final double r = _sums[i] - e.mean * _counts[i];
+					var_count += d * d;
+					var_resid += r * r;
+				}
+				var_count /= n - 1;
+				var_resid /= n - 1;
+				final double fpc = 1.0 - f;
+				final double blocks = n / f;
+				e.count_error = z * blocks *
+					Math.sqrt(fpc * var_count / n);
+				e.mean_error = z * Math.sqrt(fpc * var_resid / n) /
+					mean_count;
+
+				// The values of a single block do not show how much
+				// the mean varies between blocks.
+				int with_values = 0;
+				for (int i = 0; i < n; ++i)
+				{
+					if (_counts[i] > 0) ++with_values;
+				}
+				if (with_values < 2)
+				{
+					e.mean_error = Double.POSITIVE_INFINITY;
+				}
+			}
+
+			percentiles(e, f < 1.0);
+			return e;
+		}
+
+		// Fill in the percentiles of the estimate, with their intervals
+		// if bootstrap is true.
+		private void percentiles(Estimate e, boolean bootstrap)
+		{
+			final int m = _size;
+			final int n = _counts.length;
+
+			// Sort the values, keeping the block of each:  sort the
+			// values alone, then place the blocks by the rank of their
+			// values (the order of the blocks of equal values does not
+			// matter).
+			double[] sorted = Arrays.copyOf(_values, m);
+			Arrays.sort(sorted);
+			int[] ranks = new int[m];
+			int[] next = new int[m + 1];
+			for (int i = 0; i < m; ++i)
+			{
+				ranks[i] = Arrays.binarySearch(sorted, _values[i]);
+				++next[ranks[i] + 1];
+			}
+			for (int i = 0; i < m; ++i) next[i + 1] += next[i];
+			int[] blocks = new int[m];
+			for (int i = 0; i < m; ++i)
+			{
+				blocks[next[ranks[i]]++] = _blocks[i];
+			}
+
+			int[] weights = new int[n];
+			Arrays.fill(weights, 1);
+			for (int j = 0; j < percentiles.length; ++j)
+			{
+				e.pct[j] = weighted_percentile(sorted, blocks, weights,
+					m, percentiles[j], 0, null);
+			}
+			if (!bootstrap)
+			{
+				e.pct_lo = e.pct.clone();
+				e.pct_hi = e.pct.clone();
+				return;
+			}
+
+			// A resampled percentile is close to the estimate, so the
+			// scan for it starts a little below the estimate, from the
+			// number of values of each block below that point.
+			int[] start = new int[percentiles.length];
+			int[][] below = new int[percentiles.length][];
+			int[] running = new int[n];
+			for (int j = 0, i = 0; j < percentiles.length; ++j)
+			{
+				start[j] = Math.max(i,
+					(int) ((percentiles[j] - bootstrap_window) * m));
+				for (; i < start[j]; ++i) ++running[blocks[i]];
+				below[j] = running.clone();
+			}
+
+			final int b = bootstrap_samples;
+			double[][] boot = new double[percentiles.length][b];
+			for (int k = 0; k < b; ++k)
+			{
+				Arrays.fill(weights, 0);
+				for (int i = 0; i < n; ++i)
+				{
+					++weights[_random.nextInt(n)];
+				}
+				long total = 0;
+				for (int i = 0; i < n; ++i)
+				{
+					total += (long) weights[i] * _counts[i];
+				}
+				for (int j = 0; j < percentiles.length; ++j)
+				{
+					boot[j][k] = weighted_percentile(sorted, blocks,
+						weights, total, percentiles[j], start[j],
+						below[j]);
+				}
+			}
+			for (int j = 0; j < percentiles.length; ++j)
+			{
+				Arrays.sort(boot[j]);
+				e.pct_lo[j] = boot[j][(int) (0.025 * (b - 1))];
+				e.pct_hi[j] = boot[j][(int) Math.ceil(0.975 * (b - 1))];
+				// Resamples of a few values above the percentile do
+				// not show how far above them it could be.
+				if (m * (1.0 - percentiles[j]) < min_tail_values)
+				{
+					e.pct_hi[j] = Double.POSITIVE_INFINITY;
+				}
+			}
+		}
+
+		// The p percentile of the sorted values, each counted as many
+		// times as the weight of its block, of which there are total.  A
+		// percentile is the smallest value with at least that fraction of
+		// the (weighted) values at or below it, as in YoungGenSimulator.
+		// The scan starts at index start, below which each block has the
+		// number of values in below (null if start is 0); if the
+		// percentile is below start it starts again from 0.
+		private double weighted_percentile(double[] sorted, int[] blocks,
+			int[] weights, long total, double p, int start, int[] below)
+		{
+			// No values in the resample.
+			if (total == 0) return Double.NaN;
+
+			final double target = Math.ceil(p * total);
+			long seen = 0;
+			if (below != null)
+			{
+				for (int i = 0; i < below.length; ++i)
+				{
+					seen += (long) weights[i] * below[i];
+				}
+				if (seen >= target)
+				{
+					return weighted_percentile(sorted, blocks, weights,
+						total, p, 0, null);
+				}
+			}
+			for (int i = start; i < sorted.length; ++i)
+			{
+				seen += weights[blocks[i]];
+				if (seen >= target) return sorted[i];
+			}
+			return sorted[sorted.length - 1];
+		}
+
+		private final int[] _counts;
+		private final double[] _sums;
+		private double[] _values;
+		private int[] _blocks;
+		private int _size;
+	}
+
+	private final BlockSampler _sampler;
+	private final Random _random;
+	private final long[] _bytes;
+	private final EnumMap<GCMetric, Values> _metrics;
+}
@@ -0,0 +1,65 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader of the lines of a gc log that were printed between two
+ * uptimes.  The lines before the first one stamped at or after beg are
+ * skipped, and the input ends at the first line stamped after end.  Lines
+ * without a timestamp of their own (e.g., the rest of an event split by
+ * the output of a concurrent phase) are kept if they come in between.
+ */
+public class TimeSliceReader extends BufferedReader
+{
+	public TimeSliceReader(Reader in, double beg, double end)
+	{
+		super(in);
+		_beg = beg;
+		_end = end;
+	}
+
+	public String readLine() throws IOException
+	{
+		if (_done) return null;
+
+		String s = super.readLine();
+		while (!_started && s != null)
+		{
+			if (GCLogIndex.uptime(s) >= _beg)
+			{
+				_started = true;
+			}
+			else
+			{
+				s = super.readLine();
+			}
+		}
+
+		if (s != null && GCLogIndex.uptime(s) > _end) s = null;
+		if (s == null) _done = true;
+		return s;
+	}
+
+	private final double _beg;
+	private final double _end;
+	private boolean _started;
+	private boolean _done;
+}
@@ -0,0 +1,138 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.util.regex.*;
+
+/**
+ * Parses the cpu times printed after each gc event and attaches them to the
+ * preceding pause or concurrent phase:
+ * 
+ * <pre>
+ * 0.246: [GC 0.246: [DefNew: 1403K->105K(1984K), 0.0109275 secs] 1403K->1277K(6080K), 0.0110143 secs] [Times: user=0.02 sys=0.00, real=0.01 secs]
+ * </pre>
+ * 
+ * The output is usually on the same line as the event, which has already
+ * been matched by another parser; GCParserDriver passes those lines to
+ * parse_trailing().  Lines that contain only the cpu times are matched by
+ * parse() as usual, if there is an event to attach them to.
+ */
+public class TimesGCParser extends GCParser
+{
+	public TimesGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		// _debug = System.err;	// XXX
+	}
+
+	public boolean parse(String filename, int line, String s)
+	{
+		// Times with no event to attach them to are left unmatched, so
+		// that the line they are on is counted and sampled as such.
+		if (!gcstats().gc_event_pending()) return false;
+
+		Matcher m = matcher(_line_pattern, s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			add_times(m);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Attach the cpu times (if any) on a line that was matched by another
+	 * parser.  Does not count as a match.
+	 */
+	public void parse_trailing(String filename, int line, String s)
+	{
+		if (s.indexOf(times_prefix) < 0) return;
+
+		Matcher m = matcher(_pattern, s);
+		if (m.find())
+		{
+			_filename = filename;
+			_line = line;
+			_text = s;
+			add_times(m);
+		}
+	}
+
+	/**
+	 * Returns user + sys cpu time from the [Times: ...] output in s, or -1
+	 * if there is none.
+	 */
+	public static double cpu_time(String s)
+	{
+		if (s == null || s.indexOf(times_prefix) < 0) return -1.0;
+
+		Matcher m = _pattern.matcher(s);
+		if (!m.find()) return -1.0;
+		return Double.parseDouble(m.group(times_re_user_group)) +
+			Double.parseDouble(m.group(times_re_sys_group));
+	}
+
+	private void add_times(Matcher m)
+	{
+		GCStats stats = gcstats();
+		// Nothing to attach to (e.g., times for an event in a format
+		// that is not recognized), or already attached.
+		if (!stats.gc_event_pending()) return;
+
+		final double user = Double.parseDouble(
+			m.group(times_re_user_group));
+		final double sys = Double.parseDouble(
+			m.group(times_re_sys_group));
+		final double real = Double.parseDouble(
+			m.group(times_re_real_group));
+		final double beg = stats.gc_event_timestamp_beg();
+		final double end = stats.gc_event_timestamp_end();
+
+		add_dp(GCMetric.gc_user_time, user);
+		add_dp(GCMetric.gc_sys_time, sys);
+		add_dp(GCMetric.gc_real_time, real);
+		// Add just one timestamp since the underlying list is shared.
+		add_ts(GCMetric.gc_user_time, beg, end);
+
+		GCMetric cpu_metric = GCMetric.gc_cgc_cpu;
+		GCMetric par_metric = GCMetric.gc_cgc_par;
+		if (stats.gc_event_stw())
+		{
+			cpu_metric = GCMetric.gc_stw_cpu;
+			par_metric = GCMetric.gc_stw_par;
+		}
+
+		add_dp(cpu_metric, user + sys);
+		add_ts(cpu_metric, beg, end);
+		// Very short events are reported with real=0.00.
+		if (real > 0.0)
+		{
+			add_dp(par_metric, user / real);
+			add_ts(par_metric, beg, end);
+		}
+
+		stats.gc_event_times_added(user + sys, real);
+	}
+
+	private static final String times_prefix = "[Times: ";
+
+	private static Pattern _pattern = Pattern.compile(times_re);
+	private static Pattern _line_pattern =
+		Pattern.compile("^\\s*+" + times_re + "\\s*+$");
+}
@@ -62,6 +62,16 @@ public class TimingWindowData
 		_concurrent_cpu_time += t * thread_cnt;
 	}
 
+	// Same as add_concurrent_time(), but with the cpu time actually used
+	// (e.g., from [Times: ...]) instead of a thread count.
+	public void
+	add_concurrent_cpu_time(double end_timestamp, double t, double cpu_t)
+	{
+		_end = end_timestamp;
+		_concurrent_time += t;
+		_concurrent_cpu_time += cpu_t;
+	}
+
 	public void reset(double timestamp, double th_alloc)
 	{
 		_pause_time = _concurrent_time = _concurrent_cpu_time = 0.0;
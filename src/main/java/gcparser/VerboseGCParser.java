@@ -77,21 +77,24 @@ public class VerboseGCParser extends GCParser
 
 	public boolean parse(String filename, int line, String s)
 	{
-		Matcher m = _ygc_pattern.matcher(s);
+		Matcher m = matcher(_ygc_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
 			// debug(s, m, ygc_base_grp);	// XXX
 			extract(m, GCMetric.ygc_time, ygc_base_grp);
+			add_gc_cause(gc_cause(m, 0, ygc_promo_failed_grp, 0),
+				false);
 			return true;
 		}
 
-		m = _fgc_pattern.matcher(s);
+		m = matcher(_fgc_pattern, s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
 			// debug(s, m, fgc_base_grp);	// XXX
 			extract(m, GCMetric.fgc_time, fgc_base_grp);
+			add_gc_cause(gc_cause(m, fgc_system_grp, 0, 0), true);
 			return true;
 		}
 
@@ -116,7 +119,7 @@ public class VerboseGCParser extends GCParser
 		gc_time_secs_re + "\\]");
 
 	private static Pattern _fgc_pattern = Pattern.compile(
-		timestamp_re + "\\[Full GC " + heap_size_status_re + ", " + 
+		timestamp_re + full_gc_re + heap_size_status_re + ", " + 
 		gc_time_secs_re + "\\]");
 
 	private static final int timestamp_grp = timestamp_re_time_group;
@@ -124,7 +127,12 @@ public class VerboseGCParser extends GCParser
 	private static final int ygc_base_grp = 
 		timestamp_re_groups + pargc_young_gc_re_groups;
 	private static final int fgc_base_grp =
-		timestamp_re_groups;
+		timestamp_re_groups + full_gc_re_groups;
+
+	private static final int ygc_promo_failed_grp =
+		timestamp_re_groups + 1;
+	private static final int fgc_system_grp =
+		timestamp_re_groups + 1;
 
 	// These are offsets from one of the above base group numbers.
 	private static final int th_used_beg_ofs =
@@ -0,0 +1,991 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package gcparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays the young collections of a parsed trace under hypothetical young
+ * gen sizes, survivor ratios and tenuring thresholds and predicts the young
+ * gc frequency, pause times and promotion rate.
+ *
+ * <p>
+ * The model is calibrated from the measured young gcs.  Allocation is
+ * replayed as measured (so the simulated gcs happen whenever the
+ * hypothetical eden fills).  The fraction of allocated bytes still live
+ * after x MB of further allocation is modeled as
+ * </p>
+ *
+ * <pre>
+ * 	S(x) = f + (1 - f) * exp(-x / lambda)
+ * </pre>
+ *
+ * <p>
+ * where f is the long-lived fraction.  The tenuring threshold adapts as in
+ * HotSpot:  after each gc it is lowered to the youngest age at which the
+ * survivors fill more than target_survivor_ratio percent of a survivor
+ * space, up to the maximum threshold of the scenario.  Survivor space
+ * overflow is promoted.  f and lambda are chosen so that, with the
+ * survivor ratio and maximum tenuring threshold the trace was measured
+ * with, the model keeps as much in the survivor space and promotes as much
+ * per MB allocated as the measured gcs did.
+ * </p>
+ *
+ * <p>
+ * The pause time is a linear function of the amount copied (to the
+ * survivor space or the old gen), fit to the measured pauses; the
+ * residuals of that fit and the local survival rate around the measured
+ * gc closest in time are carried over to each simulated gc so that the
+ * predicted pauses keep the variability of the trace.
+ * </p>
+ *
+ * <p>
+ * The calibration is checked by replaying the trace with the measured
+ * configuration:  validate() lists the ways in which that replay differs
+ * from the measured trace by more than the tolerances below, in which
+ * case the predictions should not be relied on.
+ * </p>
+ */
+public class YoungGenSimulator
+{
+	// The survivor ratio and maximum tenuring threshold assumed for the
+	// measured trace, unless others are given.  The survivor ratio is
+	// used to derive the young gen size from the reported capacity
+	// (eden plus one survivor space).
+	public static final double baseline_survivor_ratio = 8.0;
+	public static final int baseline_tenuring_threshold = 15;
+
+	// The percentage of a survivor space the tenuring threshold is
+	// adapted to keep filled (HotSpot's -XX:TargetSurvivorRatio).
+	public static final double target_survivor_ratio = 50.0;
+
+	// Young gen sizes tried by default, as multiples of the measured size.
+	public static final double[] default_young_scale =
+		{ 0.5, 0.75, 1.0, 1.5, 2.0, 3.0 };
+
+	// How far the replay of the measured configuration may be from the
+	// measured trace, relative to the measured values.  The overflow
+	// count may differ by this fraction of the young gc count.
+	public static final double count_tolerance = 0.02;
+	public static final double promo_tolerance = 0.10;
+	public static final double survivor_tolerance = 0.15;
+	public static final double pause_tolerance = 0.10;
+	public static final double overflow_tolerance = 0.05;
+
+	// A measured gc is counted as having overflowed the survivor space if
+	// its survivors fill at least this fraction of it.
+	public static final double overflow_fill = 0.99;
+
+	// The number of gcs on either side of each gc its local survival
+	// rate is averaged over.
+	public static final int load_window = 16;
+
+	// The number of gcs of the trace the steady state is computed from.
+	public static final int calibration_samples = 256;
+
+	public static final String hdr1 =
+"  young     eden  survivor  SR  TT    ygc_cnt interval     mean      p50      p90      p99      max  promo  ygc_load    surv overflow";
+	public static final String hdr2 =
+"     MB       MB        MB              count        s       ms       ms       ms       ms       ms   MB/s         %      MB    count";
+	public static final String hdr = hdr1 + GCStats.eol + hdr2;
+
+	public static final String data_fmt_str =
+		"%7.1f %8.1f %9.1f %3s %3s %10d %8.3f %8.3f %8.3f %8.3f %8.3f %8.3f %6.3f %9.3f %7.3f %8d";
+
+	/**
+	 * A hypothetical young gen configuration.
+	 */
+	public static class Scenario
+	{
+		public Scenario(double young_size, double survivor_ratio,
+			int tenuring_threshold)
+		{
+			_young_size = young_size;
+			_survivor_ratio = survivor_ratio;
+			_tenuring_threshold = tenuring_threshold;
+		}
+
+		// Total young gen size (eden plus both survivor spaces), MB.
+		public double young_size() { return _young_size; }
+		public double survivor_ratio() { return _survivor_ratio; }
+
+		// The maximum tenuring threshold; the threshold used for each
+		// gc adapts to the survivor space occupancy.
+		public int tenuring_threshold() { return _tenuring_threshold; }
+
+		public double eden_size()
+		{
+			return _young_size * _survivor_ratio /
+				(_survivor_ratio + 2.0);
+		}
+
+		public double survivor_size()
+		{
+			return _young_size / (_survivor_ratio + 2.0);
+		}
+
+		private final double _young_size;
+		private final double _survivor_ratio;
+		private final int _tenuring_threshold;
+	}
+
+	/**
+	 * The predicted behavior of one scenario.
+	 */
+	public static class Result
+	{
+		Result(Scenario scenario, double[] pauses, int count,
+			double elapsed, double promo, double survivors,
+			int overflow_cnt)
+		{
+			_scenario = scenario;
+			_pauses = Arrays.copyOf(pauses, count);
+			Arrays.sort(_pauses);
+			_elapsed = elapsed;
+			_promo = promo;
+			_survivors = survivors;
+			_overflow_cnt = overflow_cnt;
+			double sum = 0.0;
+			for (int i = 0; i < count; ++i) sum += _pauses[i];
+			_pause_sum = sum;
+		}
+
+		public Scenario scenario() { return _scenario; }
+		public int ygc_count()     { return _pauses.length; }
+		public int overflow_count() { return _overflow_cnt; }
+		public double pause_sum()  { return _pause_sum; }
+
+		public double interval()
+		{
+			return _pauses.length > 0 ?
+				_elapsed / _pauses.length : 0.0;
+		}
+
+		public double pause_mean()
+		{
+			return _pauses.length > 0 ?
+				_pause_sum / _pauses.length : 0.0;
+		}
+
+		// The pause time at the given fraction (0.0 - 1.0) of the
+		// sorted pauses.
+		public double pause_percentile(double p)
+		{
+			if (_pauses.length == 0) return 0.0;
+			int i = (int) Math.ceil(p * _pauses.length) - 1;
+			return _pauses[Math.max(0, Math.min(i,
+				_pauses.length - 1))];
+		}
+
+		public double promo_rate()
+		{
+			return _elapsed > 0.0 ? _promo / _elapsed : 0.0;
+		}
+
+		public double ygc_load()
+		{
+			return _elapsed > 0.0 ? _pause_sum * 100.0 / _elapsed :
+				0.0;
+		}
+
+		// The average amount in the survivor space after a gc, MB.
+		public double survivor_mean()
+		{
+			return _pauses.length > 0 ?
+				_survivors / _pauses.length : 0.0;
+		}
+
+		public String format(String sr, String tt)
+		{
+			final Scenario s = _scenario;
+			return String.format(data_fmt_str, s.young_size(),
+				s.eden_size(), s.survivor_size(), sr, tt,
+				ygc_count(), interval(),
+				pause_mean() * 1000.0,
+				pause_percentile(0.50) * 1000.0,
+				pause_percentile(0.90) * 1000.0,
+				pause_percentile(0.99) * 1000.0,
+				pause_percentile(1.0) * 1000.0,
+				promo_rate(), ygc_load(), survivor_mean(),
+				_overflow_cnt);
+		}
+
+		public String format()
+		{
+			final Scenario s = _scenario;
+			return format(String.format("%.0f", s.survivor_ratio()),
+				Integer.toString(s.tenuring_threshold()));
+		}
+
+		private final Scenario	_scenario;
+		private final double[]	_pauses;
+		private final double	_pause_sum;
+		private final double	_elapsed;
+		private final double	_promo;
+		private final double	_survivors;
+		private final int	_overflow_cnt;
+	}
+
+	// The young gen of a scenario during a replay:  the cohorts in the
+	// survivor space and the current tenuring threshold.  Each collect()
+	// leaves the amounts copied, promoted and kept in the survivor space
+	// by that gc in the public fields.
+	private static class YoungGen
+	{
+		YoungGen(Scenario s, double[] live)
+		{
+			_eden = s.eden_size();
+			_survivor = s.survivor_size();
+			_max_tt = Math.max(s.tenuring_threshold(), 0);
+			_tt = _max_tt;
+			_live = live;
+			_cohort_load = new double[_max_tt + 1];
+		}
+
+		// The size of cohort c, which has survived c gcs.
+		private double size(int c)
+		{
+			return _cohort_load[c] * _eden * _live[c];
+		}
+
+		// Collect after an eden's worth of allocation, of which load
+		// times the average survives.
+		void collect(double load)
+		{
+			// The age of each cohort is its index; age them and add
+			// the one from eden.
+			final int n = Math.min(_cohorts + 1, _max_tt + 1);
+			System.arraycopy(_cohort_load, 0, _cohort_load, 1, n - 1);
+			_cohort_load[0] = load;
+
+			double used = 0.0;
+			for (int c = 0; c < n; ++c) used += size(c);
+			copied = used;
+			promoted = 0.0;
+			overflowed = false;
+
+			// Promote the cohorts that have reached the threshold,
+			// then the oldest others while the survivor space is
+			// over full.
+			int kept = n;
+			while (kept > 0 && (kept - 1 >= _tt || used > _survivor))
+			{
+				if (kept - 1 < _tt) overflowed = true;
+				final double b = size(kept - 1);
+				promoted += b;
+				used -= b;
+				--kept;
+			}
+			_cohorts = kept;
+			survivors = used;
+
+			// The next threshold is the youngest age at which the
+			// survivors fill more than the target.
+			final double desired = _survivor * target_survivor_ratio /
+				100.0;
+			double total = 0.0;
+			int age = 1;
+			while (age <= kept)
+			{
+				total += size(age - 1);
+				if (total > desired) break;
+				++age;
+			}
+			_tt = Math.min(age, _max_tt);
+		}
+
+		double	copied;
+		double	promoted;
+		double	survivors;
+		boolean	overflowed;
+
+		private final double	_eden;
+		private final double	_survivor;
+		private final int	_max_tt;
+		private final double[]	_live;
+		private final double[]	_cohort_load;
+		private int		_cohorts;
+		private int		_tt;
+	}
+
+	/**
+	 * Build the event columns from the data collected by a GCParserDriver
+	 * (which must have been created with the COLLECT_DATA action), assuming
+	 * the trace was measured with the baseline survivor ratio and tenuring
+	 * threshold.
+	 */
+	public YoungGenSimulator(GCDataStore data)
+	{
+		this(Collections.singletonList(data), baseline_survivor_ratio,
+			baseline_tenuring_threshold);
+	}
+
+	/**
+	 * Build the event columns from the data of consecutive parts of a
+	 * trace (e.g., a rotated set of files) that was measured with the given
+	 * survivor ratio and maximum tenuring threshold.
+	 */
+	public YoungGenSimulator(List<GCDataStore> data, double survivor_ratio,
+		int tenuring_threshold)
+	{
+		int n = 0;
+		for (GCDataStore d:  data)
+		{
+			n += d.time(GCMetric.yg_used_beg).size();
+		}
+		_time = new double[n];
+		_alloc = new double[n];
+		_survived = new double[n];
+		_promo = new double[n];
+		_pause = new double[n];
+		_commit = new double[n];
+		_survivor_ratio = survivor_ratio;
+		_tenuring_threshold = tenuring_threshold;
+
+		int off = 0;
+		for (GCDataStore d:  data) off = fill(d, off);
+
+		calibrate();
+	}
+
+	// Copy the young gcs of data to the event columns, starting at off,
+	// and return the index after the last one.
+	private int fill(GCDataStore data, int off)
+	{
+		// The young gen sizes and promotion are recorded only by young
+		// gcs; the pause times and allocation also include other
+		// collections, so they are matched by timestamp.
+		DoubleColumn t = data.time(GCMetric.yg_used_beg);
+		final int n = t.size();
+
+		DoubleColumn yg_used_end = data.data(GCMetric.yg_used_end);
+		DoubleColumn yg_commit = data.data(GCMetric.yg_commit_end);
+		DoubleColumn yg_promo = data.data(GCMetric.yg_promo);
+		for (int i = 0; i < n; ++i)
+		{
+			_time[off + i] = t.get_double(i);
+			_survived[off + i] = yg_used_end.get_double(i);
+			_commit[off + i] = yg_commit.get_double(i);
+			_promo[off + i] = yg_promo.get_double(i);
+		}
+		match(data, GCMetric.ygc_time, _pause, off, off + n);
+		match(data, GCMetric.th_alloc, _alloc, off, off + n);
+		return off + n;
+	}
+
+	// Copy the values of metric whose timestamps match those in _time,
+	// from beg to end.
+	private void match(GCDataStore data, GCMetric metric, double[] dst,
+		int beg, int end)
+	{
+		DoubleColumn t = data.time(metric);
+		DoubleColumn d = data.data(metric);
+		int j = 0;
+		for (int i = beg; i < end; ++i)
+		{
+			while (j < t.size() && t.get_double(j) != _time[i]) ++j;
+			if (j == t.size()) break;
+			dst[i] = d.get_double(j++);
+		}
+	}
+
+	public int event_count()     { return _time.length; }
+	public double elapsed_time() { return _elapsed; }
+	public double young_size()   { return _young_size; }
+	public double long_lived_fraction() { return _long_lived; }
+	public double lambda()       { return _lambda; }
+
+	// The pause time model:  a fixed time plus a time per MB copied.
+	public double pause_fixed()  { return _pause_fixed; }
+	public double pause_per_mb() { return _pause_per_mb; }
+
+	// The configuration the trace was measured with.
+	public Scenario observed_scenario()
+	{
+		return new Scenario(_young_size, _survivor_ratio,
+			_tenuring_threshold);
+	}
+
+	private void calibrate()
+	{
+		final int n = _time.length;
+		_elapsed = n > 1 ? _time[n - 1] - _time[0] : 0.0;
+
+		// Average committed capacity (eden plus one survivor space).
+		double commit = 0.0;
+		for (int i = 0; i < n; ++i) commit += _commit[i];
+		commit = n > 0 ? commit / n : 0.0;
+		final double sr = _survivor_ratio;
+		_young_size = commit * (sr + 2.0) / (sr + 1.0);
+
+		// The first gc starts the replay; its allocation happened
+		// before the trace, so it is not counted.
+		double alloc = 0.0, promo = 0.0, survived = 0.0, copied = 0.0;
+		for (int i = 1; i < n; ++i)
+		{
+			alloc += _alloc[i];
+			promo += _promo[i];
+			survived += _survived[i];
+			copied += _survived[i] + _promo[i];
+		}
+		final double copy_rate = alloc > 0.0 ? copied / alloc : 0.0;
+
+		// Local survival (relative to the average) around each gc,
+		// averaged over load_window gcs on either side:  the amount a
+		// single gc copies varies too much from one gc to the next to
+		// be carried over as is.
+		double[] prefix_copied = new double[n + 1];
+		double[] prefix_alloc = new double[n + 1];
+		for (int i = 0; i < n; ++i)
+		{
+			prefix_copied[i + 1] = prefix_copied[i] + _survived[i] +
+				_promo[i];
+			prefix_alloc[i + 1] = prefix_alloc[i] + _alloc[i];
+		}
+		_load = new double[n];
+		for (int i = 0; i < n; ++i)
+		{
+			final int beg = Math.max(i - load_window, 1);
+			final int end = Math.min(i + load_window + 1, n);
+			final double a = end > beg ?
+				prefix_alloc[end] - prefix_alloc[beg] : 0.0;
+			double local = a > 0.0 ? (prefix_copied[end] -
+				prefix_copied[beg]) / a : copy_rate;
+			_load[i] = copy_rate > 0.0 ?
+				clamp(local / copy_rate, 0.0, 10.0) : 1.0;
+		}
+
+		// The steady state replays a sample of the local survival
+		// rates, spread over the trace, so that the calibration sees
+		// their variability.
+		final int samples = Math.min(Math.max(n - 1, 1),
+			calibration_samples);
+		_sample_load = new double[samples];
+		for (int i = 0; i < samples; ++i)
+		{
+			_sample_load[i] = n > 1 ?
+				_load[1 + (int) ((long) i * (n - 1) / samples)] : 1.0;
+		}
+		fit_survival(alloc > 0.0 ? promo / alloc : 0.0,
+			alloc > 0.0 ? survived / alloc : 0.0);
+
+		// Least squares fit of the pause time to the amount copied.
+		double sx = 0.0, sy = 0.0, sxx = 0.0, sxy = 0.0;
+		for (int i = 0; i < n; ++i)
+		{
+			final double x = _survived[i] + _promo[i];
+			sx += x; sy += _pause[i];
+			sxx += x * x; sxy += x * _pause[i];
+		}
+		final double det = n * sxx - sx * sx;
+		_pause_per_mb = n > 1 && det > 0.0 ?
+			Math.max((n * sxy - sx * sy) / det, 0.0) : 0.0;
+		_pause_fixed = n > 0 ? (sy - _pause_per_mb * sx) / n : 0.0;
+
+		_residual = new double[n];
+		for (int i = 0; i < n; ++i)
+		{
+			final double x = _survived[i] + _promo[i];
+			_residual[i] = _pause[i] - _pause_fixed -
+				_pause_per_mb * x;
+		}
+	}
+
+	private static double clamp(double x, double min, double max)
+	{
+		return Math.max(min, Math.min(x, max));
+	}
+
+	// Choose f and lambda so that, in the steady state of the measured
+	// configuration, the fraction of the allocation that is promoted is
+	// promo and the amount kept in the survivor space, as a fraction of
+	// the allocation between gcs, is survived.  For each lambda, f is
+	// solved for the promotion; lambda is then searched for the
+	// survivors, over a logarithmic scan refined by golden section.
+	private void fit_survival(double promo, double survived)
+	{
+		final Scenario s = observed_scenario();
+		final double eden = s.eden_size();
+		if (eden <= 0.0 || promo + survived <= 0.0)
+		{
+			_long_lived = clamp(promo, 0.0, 0.99);
+			_lambda = 0.0;
+			return;
+		}
+
+		final int steps = 60;
+		final double lo = Math.log(eden * 1.0e-3);
+		final double hi = Math.log(eden * 1.0e3);
+		int best = 0;
+		double best_err = Double.MAX_VALUE;
+		for (int i = 0; i <= steps; ++i)
+		{
+			final double x = lo + (hi - lo) * i / steps;
+			final double err = survival_error(s, x, promo, survived);
+			if (err < best_err)
+			{
+				best = i;
+				best_err = err;
+			}
+		}
+
+		final double phi = (Math.sqrt(5.0) - 1.0) / 2.0;
+		double a = lo + (hi - lo) * Math.max(best - 1, 0) / steps;
+		double b = lo + (hi - lo) * Math.min(best + 1, steps) / steps;
+		for (int i = 0; i < 40; ++i)
+		{
+			final double c = b - phi * (b - a);
+			final double d = a + phi * (b - a);
+			if (survival_error(s, c, promo, survived) <
+				survival_error(s, d, promo, survived))
+			{
+				b = d;
+			}
+			else
+			{
+				a = c;
+			}
+		}
+		_lambda = Math.exp((a + b) / 2.0);
+		_long_lived = fit_long_lived(s, promo, _lambda);
+	}
+
+	// The error of the survivors with lambda = exp(log_lambda) and the f
+	// that gives the promotion.
+	private double survival_error(Scenario s, double log_lambda,
+		double promo, double survived)
+	{
+		final double lambda = Math.exp(log_lambda);
+		final double f = fit_long_lived(s, promo, lambda);
+		return Math.abs(steady_state(s, f, lambda)[0] - survived);
+	}
+
+	// The f for which the steady state promotes the fraction promo of
+	// the allocation, by bisection (promotion grows with f).
+	private double fit_long_lived(Scenario s, double promo,
+		double lambda)
+	{
+		double lo = 0.0, hi = 0.99;
+		for (int i = 0; i < 40; ++i)
+		{
+			final double mid = (lo + hi) / 2.0;
+			if (steady_state(s, mid, lambda)[1] < promo) lo = mid;
+			else hi = mid;
+		}
+		return (lo + hi) / 2.0;
+	}
+
+	// The amounts kept in the survivor space and promoted at each gc,
+	// as fractions of the eden, once a young gen that collects after
+	// every eden's worth of allocation, with the sampled local survival
+	// rates, has settled.
+	private double[] steady_state(Scenario s, double f, double lambda)
+	{
+		YoungGen young = new YoungGen(s, live(s, f, lambda));
+		final int warmup = 2 * (s.tenuring_threshold() + 1) + 20;
+		final int gcs = _sample_load.length;
+		for (int i = 0; i < warmup; ++i)
+		{
+			young.collect(_sample_load[(gcs - warmup % gcs + i) % gcs]);
+		}
+		double survivors = 0.0, promoted = 0.0;
+		for (int i = 0; i < gcs; ++i)
+		{
+			young.collect(_sample_load[i]);
+			survivors += young.survivors;
+			promoted += young.promoted;
+		}
+		final double eden = s.eden_size() * gcs;
+		return new double[] { survivors / eden, promoted / eden };
+	}
+
+	// The fraction of each cohort still live when it has survived age
+	// gcs (at its age + 1'th gc), for ages up to the tenuring threshold.
+	private static double[] live(Scenario s, double f, double lambda)
+	{
+		final double eden = s.eden_size();
+		final int tt = Math.max(s.tenuring_threshold(), 0);
+		double[] live = new double[tt + 1];
+		for (int a = 0; a <= tt; ++a)
+		{
+			live[a] = eden > 0.0 ?
+				(live_integral(f, lambda, (a + 1) * eden) -
+				live_integral(f, lambda, a * eden)) / eden : 0.0;
+		}
+		return live;
+	}
+
+	// The amount still live, out of each MB allocated, after x MB of
+	// allocation, integrated from 0 to x.
+	private static double live_integral(double f, double lambda, double x)
+	{
+		if (lambda <= 0.0) return f * x;
+		return f * x + (1.0 - f) * lambda * (1.0 - Math.exp(-x / lambda));
+	}
+
+	/**
+	 * Replay the trace under the given scenario.
+	 */
+	public Result simulate(Scenario s)
+	{
+		final int n = _time.length;
+		final double eden = s.eden_size();
+		YoungGen young = new YoungGen(s, live(s, _long_lived, _lambda));
+
+		double[] pauses = new double[16];
+		int count = 0;
+		int overflow_cnt = 0;
+		double promo_sum = 0.0;
+		double survivor_sum = 0.0;
+
+		double cum = 0.0;
+		double next_gc = eden;
+		for (int i = 1; i < n && eden > 0.0; ++i)
+		{
+			cum += _alloc[i];
+			while (next_gc <= cum)
+			{
+				if (count == pauses.length)
+				{
+					pauses = Arrays.copyOf(pauses, count * 2);
+				}
+
+				young.collect(_load[i]);
+				if (young.overflowed) ++overflow_cnt;
+				promo_sum += young.promoted;
+				survivor_sum += young.survivors;
+
+				final double pause = _pause_fixed +
+					_pause_per_mb * young.copied + _residual[i];
+				pauses[count++] = Math.max(pause, 0.0);
+				next_gc += eden;
+			}
+		}
+		return new Result(s, pauses, count, _elapsed, promo_sum,
+			survivor_sum, overflow_cnt);
+	}
+
+	/**
+	 * Replay the trace under each scenario, using the given number of
+	 * threads.  The results are in the same order as the scenarios.
+	 */
+	public List<Result> simulate(List<Scenario> scenarios, int threads)
+	throws InterruptedException, ExecutionException
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(threads, scenarios.size())));
+		try
+		{
+			List<Future<Result>> futures =
+				new ArrayList<Future<Result>>(scenarios.size());
+			for (final Scenario s:  scenarios)
+			{
+				futures.add(pool.submit(new Callable<Result>()
+				{
+					public Result call() { return simulate(s); }
+				}));
+			}
+
+			List<Result> results =
+				new ArrayList<Result>(scenarios.size());
+			for (Future<Result> f:  futures) results.add(f.get());
+			return results;
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	// The default young gen sizes, with the measured survivor ratio and
+	// maximum tenuring threshold.
+	public List<Scenario> default_scenarios()
+	{
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (double scale:  default_young_scale)
+		{
+			scenarios.add(new Scenario(scale * _young_size,
+				_survivor_ratio, _tenuring_threshold));
+		}
+		return scenarios;
+	}
+
+	// The measured trace, summarized in the same form as a Result.  The
+	// overflow count is that of the gcs that filled the survivor space.
+	public Result observed()
+	{
+		final int n = _time.length;
+		final Scenario s = observed_scenario();
+		final double full = s.survivor_size() * overflow_fill;
+		double promo = 0.0, survivors = 0.0;
+		int overflow_cnt = 0;
+		for (int i = 1; i < n; ++i)
+		{
+			promo += _promo[i];
+			survivors += _survived[i];
+			if (_survived[i] >= full) ++overflow_cnt;
+		}
+		double[] pauses = n > 1 ? Arrays.copyOfRange(_pause, 1, n) :
+			new double[0];
+		return new Result(s, pauses, pauses.length, _elapsed, promo,
+			survivors, overflow_cnt);
+	}
+
+	// The replay of the measured configuration.
+	public synchronized Result replayed()
+	{
+		if (_replayed == null) _replayed = simulate(observed_scenario());
+		return _replayed;
+	}
+
+	/**
+	 * Compare the replay of the measured configuration with the measured
+	 * trace and return a description of each difference beyond the
+	 * tolerances; the predictions should only be relied on if there are
+	 * none.
+	 */
+	public List<String> validate()
+	{
+		final Result obs = observed();
+		final Result fit = replayed();
+		List<String> problems = new ArrayList<String>();
+		check(problems, "ygc_cnt", obs.ygc_count(), fit.ygc_count(),
+			count_tolerance, 1.0);
+		check(problems, "promo MB/s", obs.promo_rate(),
+			fit.promo_rate(), promo_tolerance, 0.01);
+		check(problems, "surv MB", obs.survivor_mean(),
+			fit.survivor_mean(), survivor_tolerance, 0.01);
+		check(problems, "mean pause ms", obs.pause_mean() * 1000.0,
+			fit.pause_mean() * 1000.0, pause_tolerance, 0.1);
+		check(problems, "overflow", obs.overflow_count(),
+			fit.overflow_count(), 0.0,
+			overflow_tolerance * obs.ygc_count());
+		return problems;
+	}
+
+	// Add a problem if the replayed value is further from the measured
+	// one than the given fraction of it, or than min if that is more.
+	private static void check(List<String> problems, String name,
+		double measured, double replayed, double tolerance, double min)
+	{
+		final double limit = Math.max(Math.abs(measured) * tolerance, min);
+		if (Math.abs(replayed - measured) > limit)
+		{
+			problems.add(String.format("%s measured %.3f, replayed %.3f",
+				name, measured, replayed));
+		}
+	}
+
+	public void print(PrintStream s, List<Result> results)
+	{
+		s.println(String.format("live:  long_lived_fraction=%.4f " +
+			"lambda=%.3fMB pause=%.3fms+%.3fms/MB",
+			_long_lived, _lambda,
+			_pause_fixed * 1000.0, _pause_per_mb * 1000.0));
+		List<String> problems = validate();
+		for (String p:  problems)
+		{
+			s.println("calibration:  " + p);
+		}
+		s.println(hdr);
+		s.println(observed().format("obs", "-"));
+		s.println(replayed().format("fit", "-"));
+		for (Result r:  results) s.println(r.format());
+	}
+
+	private static double[] parse_list(String s)
+	{
+		String[] a = s.split(",");
+		double[] d = new double[a.length];
+		for (int i = 0; i < a.length; ++i)
+		{
+			d[i] = Double.parseDouble(a[i]);
+		}
+		return d;
+	}
+
+	public static void usage(PrintStream s)
+	{
+		s.println("usage:  YoungGenSimulator [-y mb,...] [-r ratio,...] " +
+			"[-T threshold,...] [-R ratio] [-t threshold] [-j threads] " +
+			"[-f] file ...");
+	}
+
+	public static void main(String argv[])
+	throws IOException, InterruptedException, ExecutionException
+	{
+		double[] young = null;
+		double[] ratio = null;
+		double[] threshold = null;
+		double observed_ratio = baseline_survivor_ratio;
+		int observed_threshold = baseline_tenuring_threshold;
+		boolean force = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		int i;
+		final int n = argv.length;
+		for (i = 0; i < n; ++i)
+		{
+			// -y mb,...		# young gen sizes
+			// -r ratio,...		# survivor ratios
+			// -T threshold,...	# max tenuring thresholds
+			// -R ratio		# measured survivor ratio
+			// -t threshold		# measured max tenuring threshold
+			// -j n			# threads
+			// -f			# predict even if the replay of
+			//			# the measured trace is off
+			String s = argv[i];
+			if (i + 1 < n && (s.equals("-y") ||
+				s.equals("--young")))
+			{
+				young = parse_list(argv[++i]);
+			}
+			else if (i + 1 < n && (s.equals("-r") ||
+				s.equals("--survivor-ratio")))
+			{
+				ratio = parse_list(argv[++i]);
+			}
+			else if (i + 1 < n && (s.equals("-T") ||
+				s.equals("--tenuring")))
+			{
+				threshold = parse_list(argv[++i]);
+			}
+			else if (i + 1 < n && (s.equals("-R") ||
+				s.equals("--measured-survivor-ratio")))
+			{
+				observed_ratio = Double.parseDouble(argv[++i]);
+			}
+			else if (i + 1 < n && (s.equals("-t") ||
+				s.equals("--measured-tenuring")))
+			{
+				observed_threshold = Integer.parseInt(argv[++i]);
+			}
+			else if (i + 1 < n && (s.equals("-j") ||
+				s.equals("--threads")))
+			{
+				threads = Integer.parseInt(argv[++i]);
+			}
+			else if (s.equals("-f") || s.equals("--force"))
+			{
+				force = true;
+			}
+			else if (s.equals("--"))
+			{
+				++i;
+				break;
+			}
+			else if (s.startsWith("-"))
+			{
+				usage(System.err);
+				System.exit(2);
+			}
+			else
+			{
+				break;
+			}
+		}
+		if (i == n)
+		{
+			usage(System.err);
+			System.exit(2);
+		}
+
+		BitSet actions = new BitSet();
+		actions.set(GCParserDriver.COLLECT_DATA);
+		GCParserDriver driver = new GCParserDriver(actions);
+		for (; i < n; ++i) driver.parse(new File(argv[i]));
+
+		YoungGenSimulator sim = new YoungGenSimulator(
+			Collections.singletonList((GCDataStore) driver.gc_stats()),
+			observed_ratio, observed_threshold);
+		if (sim.event_count() < 2)
+		{
+			System.err.println("too few young gcs");
+			System.exit(1);
+		}
+		if (!force && !sim.validate().isEmpty())
+		{
+			sim.print(System.out, new ArrayList<Result>());
+			System.err.println("the model does not reproduce the " +
+				"measured trace (are -R and -t those it was " +
+				"measured with?); -f prints its predictions anyway");
+			System.exit(1);
+		}
+		if (young == null)
+		{
+			young = new double[default_young_scale.length];
+			for (int j = 0; j < young.length; ++j)
+			{
+				young[j] = default_young_scale[j] * sim.young_size();
+			}
+		}
+		if (ratio == null) ratio = new double[] { observed_ratio };
+		if (threshold == null)
+		{
+			threshold = new double[] { observed_threshold };
+		}
+
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (double y:  young)
+		{
+			for (double r:  ratio)
+			{
+				for (double t:  threshold)
+				{
+					scenarios.add(new Scenario(y, r, (int) t));
+				}
+			}
+		}
+		sim.print(System.out, sim.simulate(scenarios, threads));
+	}
+
+	// Event columns, one entry per young gc.
+	private final double[] _time;
+	private final double[] _alloc;
+	private final double[] _survived;
+	private final double[] _promo;
+	private final double[] _pause;
+	private final double[] _commit;
+
+	// The measured configuration.
+	private final double	_survivor_ratio;
+	private final int	_tenuring_threshold;
+
+	// Calibration.
+	private double	_elapsed;
+	private double	_young_size;
+	private double	_long_lived;
+	private double	_lambda;
+	private double	_pause_fixed;
+	private double	_pause_per_mb;
+	private double[] _load;
+	private double[] _sample_load;
+	private double[] _residual;
+	private Result	_replayed;
+}